@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.result;
+
+/**
+ * Builds the result trees which the benchmarks work on, in the same way as
+ * the result reader does.
+ */
+public class ResultTrees {
+    /**
+     * A tree with a suite per 100 test cases under a single root.
+     */
+    public static final String WIDE = "wide"; //$NON-NLS-1$
+
+    /**
+     * A tree whose suites are nested 100 levels deep, so that every change
+     * of a test case is propagated through all the ancestors.
+     */
+    public static final String DEEP = "deep"; //$NON-NLS-1$
+
+    /**
+     * A tree with all the test cases in a single suite, like a data provider
+     * with many data sets.
+     */
+    public static final String FLAT = "flat"; //$NON-NLS-1$
+
+    private ResultTrees() {
+    }
+
+    /**
+     * @param failureInterval every failureInterval-th test case fails
+     */
+    public static TestSuiteResult create(String shape, int testCount, int failureInterval) {
+        TestSuiteResult root = new TestSuiteResult("AllTests"); //$NON-NLS-1$
+        TestSuiteResult parent = root;
+        TestSuiteResult testSuite = null;
+        for (int i = 0; i < testCount; ++i) {
+            if (i % 100 == 0 && !(FLAT.equals(shape) && testSuite != null)) {
+                testSuite = new TestSuiteResult("Foo" + i + "Test"); //$NON-NLS-1$ //$NON-NLS-2$
+                testSuite.setFile("/path/to/Foo" + i + "Test.php"); //$NON-NLS-1$ //$NON-NLS-2$
+                parent.addChild(testSuite);
+                if (DEEP.equals(shape)) {
+                    parent = testSuite;
+                }
+            }
+
+            TestCaseResult testCase = new TestCaseResult("test" + i); //$NON-NLS-1$
+            testSuite.addChild(testCase);
+            testCase.setResultType(i % failureInterval == 0 ? ResultType.FAILURE : ResultType.PASS);
+            testCase.fix();
+        }
+
+        return root;
+    }
+}
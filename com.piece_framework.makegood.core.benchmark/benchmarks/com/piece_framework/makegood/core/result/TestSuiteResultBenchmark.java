@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.result;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures building the result tree and the aggregate queries which the
+ * Result view makes on every suite of the tree.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TestSuiteResultBenchmark {
+    @Param({ResultTrees.WIDE, ResultTrees.DEEP, ResultTrees.FLAT})
+    public String shape;
+
+    @Param({"10000"})
+    public int testCount;
+
+    private TestSuiteResult root;
+
+    @Setup
+    public void setUp() {
+        root = ResultTrees.create(shape, testCount, 10);
+    }
+
+    @Benchmark
+    public TestSuiteResult build() {
+        return ResultTrees.create(shape, testCount, 10);
+    }
+
+    @Benchmark
+    public void aggregate(Blackhole blackhole) {
+        aggregate(root, blackhole);
+    }
+
+    private void aggregate(Result result, Blackhole blackhole) {
+        blackhole.consume(result.getTestCount());
+        blackhole.consume(result.getFailureCount());
+        blackhole.consume(result.getErrorCount());
+        blackhole.consume(result.isFixed());
+        blackhole.consume(result.getSize());
+        for (Result child: result.getChildren()) {
+            if (child.hasChildren()) {
+                aggregate(child, blackhole);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures assembling the arguments of the testrunner command from test
+ * targets as CommandLineBuilder resolves them from the workspace. The
+ * workspace is stubbed by the locations and the names of the targets, which
+ * are half classes and half methods.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandLineArgumentsBenchmark {
+    @Param({"100", "10000"})
+    public int targetCount;
+
+    private String[] testFiles;
+    private String[] classNames;
+
+    @Setup
+    public void setUp() {
+        testFiles = new String[targetCount];
+        classNames = new String[targetCount];
+        for (int i = 0; i < targetCount; ++i) {
+            testFiles[i] = "/path/to/workspace/project/tests/Foo/Bar" + i + "Test.php"; //$NON-NLS-1$ //$NON-NLS-2$
+            classNames[i] = "Foo\\Bar" + i + "Test"; //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
+    @Benchmark
+    public String build() {
+        CommandLineArguments arguments = new CommandLineArguments("phpunit", "/tmp/MakeGood/junit.xml", "UTF-8"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        arguments.setPreloadScript("/path/to/workspace/project/tests/prepare.php"); //$NON-NLS-1$
+        arguments.setPHPUnitConfigFile("/path/to/workspace/project/phpunit.xml"); //$NON-NLS-1$
+        arguments.setTestFilePattern("Test(?:Case)?\\.php$"); //$NON-NLS-1$
+        for (int i = 0; i < targetCount; ++i) {
+            arguments.addTestFile(testFiles[i]);
+            if (i % 2 == 0) {
+                arguments.addTestClass(classNames[i]);
+            } else {
+                arguments.addTestMethod(classNames[i], "testFoo"); //$NON-NLS-1$
+            }
+        }
+        return arguments.build();
+    }
+}
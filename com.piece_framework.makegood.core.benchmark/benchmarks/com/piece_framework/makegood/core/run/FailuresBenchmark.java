@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.piece_framework.makegood.core.result.Result;
+import com.piece_framework.makegood.core.result.ResultTrees;
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+/**
+ * Measures moving to the next and the previous failure from every test of
+ * the run in turn.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FailuresBenchmark {
+    @Param({"10000", "100000"})
+    public int testCount;
+
+    @Param({"2", "1000"})
+    public int failureInterval;
+
+    private Failures failures;
+    private Result[] criteria;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        failures = new Failures();
+        List<Result> results = new ArrayList<Result>();
+        feed(ResultTrees.create(ResultTrees.WIDE, testCount, failureInterval), results);
+        criteria = results.toArray(new Result[results.size()]);
+    }
+
+    @Benchmark
+    public TestCaseResult findNext() {
+        return failures.find(nextCriterion(), Failures.FIND_NEXT);
+    }
+
+    @Benchmark
+    public TestCaseResult findPrevious() {
+        return failures.find(nextCriterion(), Failures.FIND_PREVIOUS);
+    }
+
+    private Result nextCriterion() {
+        if (++index == criteria.length) index = 0;
+        return criteria[index];
+    }
+
+    private void feed(Result result, List<Result> results) {
+        results.add(result);
+        if (result instanceof TestSuiteResult) {
+            failures.startTestSuite((TestSuiteResult) result);
+            for (Result child: result.getChildren()) {
+                feed(child, results);
+            }
+            failures.endTestSuite((TestSuiteResult) result);
+        } else {
+            TestCaseResult testCase = (TestCaseResult) result;
+            failures.startTestCase(testCase);
+            if (testCase.hasFailures()) {
+                failures.startFailure(testCase);
+                failures.endFailure(testCase);
+            }
+            failures.endTestCase(testCase);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures finding a fatal error at the end of a large output, and scanning
+ * a large output which has no fatal error.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FatalErrorMessageBenchmark {
+    @Param({"10000", "100000"})
+    public int lineCount;
+
+    private String output;
+    private String outputWithFatalError;
+
+    @Setup
+    public void setUp() {
+        StringBuilder buffer = new StringBuilder();
+        for (int i = 0; i < lineCount; ++i) {
+            buffer.append("Warning: include(Foo" + i + ".php): failed to open stream: No such file or directory in /path/to/Foo" + i + "Test.php on line " + i + "\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        }
+        output = buffer.toString();
+        outputWithFatalError = output + "Fatal error: Call to undefined function foo() in /path/to/FooTest.php(12) : eval()'d code on line 1\n"; //$NON-NLS-1$
+    }
+
+    @Benchmark
+    public FatalErrorMessage parse() {
+        return FatalErrorMessage.parse(outputWithFatalError);
+    }
+
+    @Benchmark
+    public FatalErrorMessage parseWithoutFatalError() {
+        return FatalErrorMessage.parse(output);
+    }
+}
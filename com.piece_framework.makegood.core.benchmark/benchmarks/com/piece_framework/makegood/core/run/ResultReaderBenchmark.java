@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+/**
+ * Measures reading a finished log into the result tree with each of the
+ * result readers. A log of n tests yields 2.2n + n / 50 + 5 events, from
+ * which the events per second in the baseline are derived.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultReaderBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int testCount;
+
+    private File log;
+    private File eventLog;
+
+    @Setup
+    public void setUp() throws Exception {
+        log = File.createTempFile("MakeGood", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+        writeLog(log, testCount);
+        eventLog = File.createTempFile("MakeGood", ".events"); //$NON-NLS-1$ //$NON-NLS-2$
+        ResultEventWriter writer = new ResultEventWriter(new FileOutputStream(eventLog));
+        ResultReader resultReader = new ResultReader(log);
+        resultReader.addListener(writer);
+        read(resultReader);
+        writer.close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        log.delete();
+        eventLog.delete();
+    }
+
+    @Benchmark
+    public TestSuiteResult sax() throws Exception {
+        return read(new ResultReader(log));
+    }
+
+    @Benchmark
+    public TestSuiteResult pull() throws Exception {
+        return read(new PullResultReader(log));
+    }
+
+    @Benchmark
+    public TestSuiteResult binary() throws Exception {
+        return read(new BinaryResultReader(eventLog));
+    }
+
+    private TestSuiteResult read(ResultReader resultReader) throws Exception {
+        resultReader.stop();
+        resultReader.read();
+        return resultReader.getResult();
+    }
+
+    private void writeLog(File log, int testCount) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(log), "UTF-8")); //$NON-NLS-1$
+        try {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?><testsuites><testsuite name=\"AllTests\" tests=\"" + testCount + "\">"); //$NON-NLS-1$ //$NON-NLS-2$
+            for (int i = 0; i < testCount; ++i) {
+                if (i % 100 == 0) {
+                    if (i > 0) writer.write("</testsuite>\n"); //$NON-NLS-1$
+                    writer.write("<testsuite name=\"Foo" + i + "Test\" class=\"Foo" + i + "Test\" file=\"/path/to/Foo" + i + "Test.php\">\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+                }
+                writer.write("<testcase name=\"test" + i + "\" class=\"Foo" + (i / 100 * 100) + "Test\" method=\"test" + i + "\" file=\"/path/to/Foo" + (i / 100 * 100) + "Test.php\" line=\"" + i + "\" assertions=\"1\" time=\"0.001\">"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+                if (i % 10 == 0) {
+                    writer.write("<failure type=\"PHPUnit_Framework_ExpectationFailedException\" message=\"Failed asserting that false is true.\">"); //$NON-NLS-1$
+                    writer.write("Failed asserting that false is true.\n\n/path/to/FooTest.php:" + i + "\n/path/to/vendor/phpunit/phpunit/src/TextUI/Command.php:186\n"); //$NON-NLS-1$ //$NON-NLS-2$
+                    writer.write("</failure>"); //$NON-NLS-1$
+                }
+                writer.write("</testcase>\n"); //$NON-NLS-1$
+            }
+            writer.write("</testsuite></testsuite></testsuites>"); //$NON-NLS-1$
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ChildListTest {
+    @Test
+    public void keepsTheElementsInTheOrderOfAppends() {
+        ChildList children = new ChildList();
+        List<Result> expectedChildren = new ArrayList<Result>();
+        for (int i = 0; i < 1000; ++i) {
+            Result child = createTestCase(i);
+            children.add(child);
+            expectedChildren.add(child);
+        }
+
+        Iterator<Result> iterator = children.iterator();
+        assertTrue(children.remove(expectedChildren.remove(999)));
+        assertTrue(children.remove(expectedChildren.remove(500)));
+        assertFalse(children.remove(createTestCase(0)));
+        children.add(createTestCase(1000));
+
+        assertEquals(999, children.size());
+        assertEquals(expectedChildren, children.subList(0, 998));
+        assertEquals(1000, ((TestCaseResult) children.get(998)).getLine());
+        assertSame(expectedChildren.get(500), children.get(500));
+
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            ++count;
+        }
+        assertEquals(1000, count);
+    }
+
+    @Test
+    public void keepsTheElementsOfAnIteratorAcrossAFoldFollowedByAnAppend() {
+        TestSuiteResult testSuite = new TestSuiteResult("FooTest"); //$NON-NLS-1$
+        for (int i = 0; i < 200; ++i) {
+            testSuite.addChild(createTestCase(i));
+        }
+        List<Iterator<Result>> iterators = new ArrayList<Iterator<Result>>();
+        for (int i = 200; i < 330; ++i) {
+            iterators.add(testSuite.getChildren().iterator());
+            TestCaseResult testCase = createTestCase(i);
+            testSuite.addChild(testCase);
+            testSuite.fold(testCase);
+            testSuite.fold((TestCaseResult) testSuite.getChildren().get(testSuite.getChildren().size() - 1));
+        }
+
+        for (int i = 0; i < iterators.size(); ++i) {
+            Iterator<Result> iterator = iterators.get(i);
+            int expectedLine = 0;
+            while (iterator.hasNext()) {
+                assertEquals(expectedLine++, ((TestCaseResult) iterator.next()).getLine());
+            }
+            assertEquals(200 - i, expectedLine);
+        }
+        assertEquals(70, testSuite.getChildren().size());
+        assertEquals(69, ((TestCaseResult) testSuite.getChildren().get(69)).getLine());
+    }
+
+    @Test
+    public void isReadWhileTheWriterThreadAppendsAndFolds() throws Exception {
+        final TestSuiteResult testSuite = new TestSuiteResult("FooTest"); //$NON-NLS-1$
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final int testCount = 200000;
+        final boolean[] done = new boolean[1];
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < testCount; ++i) {
+                    TestCaseResult testCase = createTestCase(i);
+                    testSuite.addChild(testCase);
+                    if (i % 3 == 0) {
+                        testSuite.fold(testCase);
+                    }
+                    if (i % 10000 == 9999) {
+                        List<Result> children = testSuite.getChildren();
+                        testSuite.fold((TestCaseResult) children.get(children.size() / 2));
+                    }
+                }
+                synchronized (done) {
+                    done[0] = true;
+                }
+            }
+        };
+        List<Thread> readers = new ArrayList<Thread>();
+        for (int i = 0; i < 2; ++i) {
+            readers.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            synchronized (done) {
+                                if (done[0]) return;
+                            }
+
+                            int lastLine = -1;
+                            for (Result child: testSuite.getChildren()) {
+                                int line = ((TestCaseResult) child).getLine();
+                                if (line <= lastLine) {
+                                    throw new AssertionError("The children are out of order: " + lastLine + ", " + line); //$NON-NLS-1$ //$NON-NLS-2$
+                                }
+                                lastLine = line;
+                            }
+                            testSuite.getChildren().toArray();
+                            testSuite.hasChildren();
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            });
+        }
+
+        for (Thread reader: readers) {
+            reader.start();
+        }
+        writer.start();
+        writer.join();
+        for (Thread reader: readers) {
+            reader.join();
+        }
+
+        assertEquals(Collections.emptyList(), errors);
+        assertEquals(testCount - testCount / 3 - 1 - testCount / 10000, testSuite.getChildren().size());
+        assertEquals(testCount / 3 + 1 + testCount / 10000, testSuite.getFoldedTestCount());
+        assertEquals(testCount, testSuite.getTestCount());
+    }
+
+    private static TestCaseResult createTestCase(int line) {
+        TestCaseResult testCase = new TestCaseResult("test" + line); //$NON-NLS-1$
+        testCase.setLine(line);
+        testCase.fix();
+        return testCase;
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class ResultStoreTest {
+    @Test
+    public void answersTheSameAsTheCopiedTree() {
+        TestSuiteResult result = new TestSuiteResult("AllTests"); //$NON-NLS-1$
+        TestSuiteResult fooTest = createTestSuite(result, "FooTest", "/path/to/FooTest.php"); //$NON-NLS-1$ //$NON-NLS-2$
+        fooTest.setFullPackageName("Foo.Bar"); //$NON-NLS-1$
+        fooTest.setPackageName("Bar"); //$NON-NLS-1$
+        fooTest.setAllTestCount(3);
+        createTestCase(fooTest, "testFoo", ResultType.PASS, 10); //$NON-NLS-1$
+        TestCaseResult testBar = createTestCase(fooTest, "testBar", ResultType.FAILURE, 20); //$NON-NLS-1$
+        testBar.setFailureType("PHPUnit_Framework_ExpectationFailedException"); //$NON-NLS-1$
+        testBar.setFailureMessage("Failed asserting that false is true."); //$NON-NLS-1$
+        testBar.setFailureTrace("/path/to/FooTest.php:42"); //$NON-NLS-1$
+        TestSuiteResult dataSets = createTestSuite(fooTest, "testBaz", null); //$NON-NLS-1$
+        createTestCase(dataSets, "testBaz with data set #0", ResultType.PASS, 30); //$NON-NLS-1$
+        TestCaseResult testBaz1 = createTestCase(dataSets, "testBaz with data set #1", ResultType.ERROR, 40); //$NON-NLS-1$
+        testBaz1.setFile("/path/to/BazTrait.php"); //$NON-NLS-1$
+        testBaz1.setLine(7);
+        TestSuiteResult barTest = createTestSuite(result, "BarTest", "/path/to/BarTest.php"); //$NON-NLS-1$ //$NON-NLS-2$
+        TestCaseResult warning = createTestCase(barTest, "Warning", ResultType.FAILURE, 0); //$NON-NLS-1$
+        warning.markAsArtificial();
+        TestCaseResult testQux = new TestCaseResult("testQux"); //$NON-NLS-1$
+        barTest.addChild(testQux);
+        createTestSuite(result, "EmptyTest", "/path/to/EmptyTest.php"); //$NON-NLS-1$ //$NON-NLS-2$
+        createTestSuite(result, "CachedTest", "/path/to/CachedTest.php").markAsCached(); //$NON-NLS-1$ //$NON-NLS-2$
+
+        ResultStore store = ResultStore.copyOf(result);
+
+        assertEquals(result.getSize(), store.size());
+        assertSameResult(result, store.getRoot());
+    }
+
+    @Test
+    public void aggregatesTheSuitesBuiltInThePreOrder() {
+        TestSuiteResult result = new TestSuiteResult("AllTests"); //$NON-NLS-1$
+        TestSuiteResult fooTest = createTestSuite(result, "FooTest", "/path/to/FooTest.php"); //$NON-NLS-1$ //$NON-NLS-2$
+        fooTest.setAllTestCount(4);
+        fooTest.fold(createTestCase(fooTest, "testFoo", ResultType.PASS, 10)); //$NON-NLS-1$
+        createTestCase(fooTest, "testBar", ResultType.FAILURE, 20); //$NON-NLS-1$
+        TestSuiteResult dataSets = createTestSuite(fooTest, "testBaz", null); //$NON-NLS-1$
+        TestCaseResult testBaz0 = createTestCase(dataSets, "testBaz with data set #0", ResultType.ERROR, 30); //$NON-NLS-1$
+        testBaz0.setFile("/path/to/BazTrait.php"); //$NON-NLS-1$
+        testBaz0.setFailureMessage("Undefined variable: baz"); //$NON-NLS-1$
+        TestSuiteResult barTest = createTestSuite(result, "BarTest", "/path/to/BarTest.php"); //$NON-NLS-1$ //$NON-NLS-2$
+        barTest.addChild(new TestCaseResult("testQux")); //$NON-NLS-1$
+        createTestSuite(result, "CachedTest", "/path/to/CachedTest.php").markAsCached(); //$NON-NLS-1$ //$NON-NLS-2$
+        ResultStore.Builder builder = ResultStore.builder();
+
+        build(builder, result);
+        ResultStore store = builder.build();
+
+        assertEquals(result.getSize(), store.size());
+        assertSameResult(result, store.getRoot());
+        assertEquals(60, store.getRoot().getTime());
+        assertEquals(3, store.getRoot().getTestCount());
+        assertFalse(store.getRoot().isFixed());
+        assertTrue(store.getRoot().getChildren().get(0).isFixed());
+    }
+
+    @Test
+    public void comparesTheViewsByTheirPositions() {
+        TestSuiteResult result = new TestSuiteResult("AllTests"); //$NON-NLS-1$
+        TestSuiteResult fooTest = createTestSuite(result, "FooTest", "/path/to/FooTest.php"); //$NON-NLS-1$ //$NON-NLS-2$
+        createTestCase(fooTest, "testFoo", ResultType.PASS, 10); //$NON-NLS-1$
+        createTestCase(fooTest, "testBar", ResultType.PASS, 10); //$NON-NLS-1$
+        ResultStore store = ResultStore.copyOf(result);
+
+        Result testFoo = store.getRoot().getChildren().get(0).getChildren().get(0);
+        assertEquals(testFoo, store.getRoot().getChildren().get(0).getChildren().get(0));
+        assertEquals(testFoo.hashCode(), store.getRoot().getChildren().get(0).getChildren().get(0).hashCode());
+        assertEquals(testFoo.getParent(), store.getRoot().getChildren().get(0));
+        assertFalse(testFoo.equals(store.getRoot().getChildren().get(0).getChildren().get(1)));
+        assertFalse(testFoo.equals(ResultStore.copyOf(result).getRoot().getChildren().get(0).getChildren().get(0)));
+
+        try {
+            ((TestCaseResult) testFoo).setResultType(ResultType.ERROR);
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+
+    private void assertSameResult(Result expected, Result actual) {
+        assertEquals(expected instanceof TestCaseResult, actual instanceof TestCaseResult);
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getClassName(), actual.getClassName());
+        assertEquals(expected.getTime(), actual.getTime());
+        assertEquals(expected.getFile(), actual.getFile());
+        assertEquals(expected.getTestCount(), actual.getTestCount());
+        assertEquals(expected.getErrorCount(), actual.getErrorCount());
+        assertEquals(expected.getFailureCount(), actual.getFailureCount());
+        assertEquals(expected.isFixed(), actual.isFixed());
+        assertEquals(expected.hasChildren(), actual.hasChildren());
+        assertEquals(expected.getSize(), actual.getSize());
+        if (expected.getParent() == null) {
+            assertNull(actual.getParent());
+        } else {
+            assertEquals(expected.getParent().getName(), actual.getParent().getName());
+        }
+
+        if (expected instanceof TestCaseResult) {
+            TestCaseResult expectedTestCase = (TestCaseResult) expected;
+            TestCaseResult actualTestCase = (TestCaseResult) actual;
+            assertEquals(expectedTestCase.getMethodName(), actualTestCase.getMethodName());
+            assertEquals(expectedTestCase.getLine(), actualTestCase.getLine());
+            assertEquals(expectedTestCase.getResultType(), actualTestCase.getResultType());
+            assertEquals(expectedTestCase.isArtificial(), actualTestCase.isArtificial());
+            assertEquals(expectedTestCase.getFailureType(), actualTestCase.getFailureType());
+            assertEquals(expectedTestCase.getFailureMessage(), actualTestCase.getFailureMessage());
+            assertEquals(expectedTestCase.getFailureTrace(), actualTestCase.getFailureTrace());
+            return;
+        }
+
+        TestSuiteResult expectedTestSuite = (TestSuiteResult) expected;
+        TestSuiteResult actualTestSuite = (TestSuiteResult) actual;
+        assertEquals(expectedTestSuite.getFullPackageName(), actualTestSuite.getFullPackageName());
+        assertEquals(expectedTestSuite.getPackageName(), actualTestSuite.getPackageName());
+        assertEquals(expectedTestSuite.getAllTestCount(), actualTestSuite.getAllTestCount());
+        assertEquals(expectedTestSuite.isCached(), actualTestSuite.isCached());
+        assertEquals(expectedTestSuite.getFoldedTestCount(), actualTestSuite.getFoldedTestCount());
+        List<Result> expectedChildren = expected.getChildren();
+        List<Result> actualChildren = actual.getChildren();
+        assertEquals(expectedChildren.size(), actualChildren.size());
+        for (int i = 0; i < expectedChildren.size(); ++i) {
+            assertSameResult(expectedChildren.get(i), actualChildren.get(i));
+        }
+        assertTrue(actual.getLast().equals(actual.getLast()));
+    }
+
+    private void build(ResultStore.Builder builder, TestSuiteResult testSuite) {
+        builder.startTestSuite(
+            testSuite.getName(),
+            testSuite.getClassName(),
+            testSuite.getFile(),
+            testSuite.getFullPackageName(),
+            testSuite.getPackageName(),
+            testSuite.getAllTestCount(),
+            testSuite.isCached()
+        );
+        long foldedTime = testSuite.getTime();
+        for (Result child: testSuite.getChildren()) {
+            foldedTime -= child.getTime();
+        }
+        builder.foldTestCases(testSuite.getFoldedTestCount(), foldedTime);
+        for (Result child: testSuite.getChildren()) {
+            if (child instanceof TestSuiteResult) {
+                build(builder, (TestSuiteResult) child);
+                continue;
+            }
+
+            TestCaseResult testCase = (TestCaseResult) child;
+            builder.addTestCase(
+                testCase.getName(),
+                testCase.getClassName(),
+                testCase.getMethodName(),
+                testCase.getFile().equals(testSuite.getFile()) ? null : testCase.getFile(),
+                testCase.getLine(),
+                testCase.getResultType(),
+                testCase.isFixed(),
+                testCase.isArtificial(),
+                testCase.getTime(),
+                testCase.getFailureType(),
+                testCase.getFailureMessage(),
+                testCase.getFailureTrace()
+            );
+        }
+        builder.endTestSuite();
+    }
+
+    private TestSuiteResult createTestSuite(TestSuiteResult parent, String name, String file) {
+        TestSuiteResult testSuite = new TestSuiteResult(name);
+        testSuite.setClassName(name);
+        testSuite.setFile(file);
+        parent.addChild(testSuite);
+        return testSuite;
+    }
+
+    private TestCaseResult createTestCase(TestSuiteResult parent, String name, ResultType resultType, long time) {
+        TestCaseResult testCase = new TestCaseResult(name);
+        testCase.setClassName(parent.getName());
+        testCase.setMethodName(name);
+        testCase.setResultType(resultType);
+        parent.addChild(testCase);
+        testCase.setTime(time);
+        testCase.fix();
+        return testCase;
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestSuiteResultTest {
+    @Test
+    public void updatesTheCountsWhenATestCaseIsFixed() {
+        TestSuiteResult root = new TestSuiteResult("root");
+        TestSuiteResult testSuite = new TestSuiteResult("foo");
+        root.addChild(testSuite);
+        TestCaseResult testCase = new TestCaseResult("bar");
+        testSuite.addChild(testCase);
+        testCase.setResultType(ResultType.FAILURE);
+
+        assertEquals(0, root.getTestCount());
+        assertEquals(0, root.getFailureCount());
+        assertEquals(3, root.getSize());
+        assertFalse(root.isFixed());
+
+        testCase.fix();
+
+        assertEquals(1, root.getTestCount());
+        assertEquals(1, root.getFailureCount());
+        assertEquals(0, root.getPassCount());
+        assertTrue(root.isFixed());
+    }
+
+    @Test
+    public void updatesTheCountsWhenTheResultTypeOfAFixedTestCaseIsChanged() {
+        TestSuiteResult root = new TestSuiteResult("root");
+        TestCaseResult testCase = new TestCaseResult("foo");
+        root.addChild(testCase);
+        testCase.fix();
+        testCase.setResultType(ResultType.ERROR);
+
+        assertEquals(1, root.getErrorCount());
+        assertEquals(0, root.getFailureCount());
+
+        testCase.setResultType(ResultType.FAILURE);
+
+        assertEquals(0, root.getErrorCount());
+        assertEquals(1, root.getFailureCount());
+    }
+
+    @Test
+    public void includesTheCountsOfASubtreeAddedLater() {
+        TestSuiteResult testSuite = new TestSuiteResult("foo");
+        TestCaseResult testCase = new TestCaseResult("bar");
+        testSuite.addChild(testCase);
+        testCase.setResultType(ResultType.ERROR);
+        testCase.fix();
+        testSuite.addChild(new TestCaseResult("baz"));
+
+        TestSuiteResult root = new TestSuiteResult("root");
+        root.addChild(testSuite);
+
+        assertEquals(1, root.getTestCount());
+        assertEquals(1, root.getErrorCount());
+        assertEquals(4, root.getSize());
+        assertFalse(root.isFixed());
+    }
+
+    @Test
+    public void keepsTheCountsButNotTheSizeOfAFoldedTestCase() {
+        TestSuiteResult root = new TestSuiteResult("root");
+        TestSuiteResult testSuite = new TestSuiteResult("foo");
+        root.addChild(testSuite);
+        TestCaseResult testCase = new TestCaseResult("bar");
+        testSuite.addChild(testCase);
+        testCase.setResultType(ResultType.FAILURE);
+        testCase.fix();
+        testSuite.addChild(new TestCaseResult("baz"));
+
+        testSuite.fold(testCase);
+
+        assertEquals(1, root.getTestCount());
+        assertEquals(1, root.getFailureCount());
+        assertEquals(1, testSuite.getFoldedTestCount());
+        assertEquals(1, testSuite.getChildren().size());
+        assertEquals(3, root.getSize());
+        assertEquals(root.getSize(), ResultStore.copyOf(root).size());
+    }
+
+    @Test(timeout = 10000)
+    public void providesTheCountsInConstantTimeForAHugeTree() {
+        TestSuiteResult root = new TestSuiteResult("root");
+        int failureCount = 0;
+        int errorCount = 0;
+        for (int i = 0; i < 100; ++i) {
+            TestSuiteResult testSuite = new TestSuiteResult("Suite" + i);
+            root.addChild(testSuite);
+            for (int j = 0; j < 1000; ++j) {
+                TestCaseResult testCase = new TestCaseResult("test" + j);
+                testSuite.addChild(testCase);
+                if (j % 100 == 0) {
+                    testCase.setResultType(ResultType.FAILURE);
+                    ++failureCount;
+                } else if (j % 100 == 1) {
+                    testCase.setResultType(ResultType.ERROR);
+                    ++errorCount;
+                }
+                testCase.fix();
+
+                root.getTestCount();
+                root.getPassCount();
+                root.getSize();
+                root.isFixed();
+            }
+        }
+
+        assertEquals(100000, root.getTestCount());
+        assertEquals(failureCount, root.getFailureCount());
+        assertEquals(errorCount, root.getErrorCount());
+        assertEquals(100000 - failureCount - errorCount, root.getPassCount());
+        assertEquals(1 + 100 + 100000, root.getSize());
+        assertTrue(root.isFixed());
+    }
+}
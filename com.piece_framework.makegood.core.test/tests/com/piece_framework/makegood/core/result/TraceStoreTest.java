@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import org.junit.Test;
+
+import com.piece_framework.makegood.core.run.PullResultReader;
+import com.piece_framework.makegood.core.run.ResultReader;
+
+public class TraceStoreTest {
+    @Test
+    public void loadsTheSpilledTraces() throws Exception {
+        File file = File.createTempFile("MakeGood", ".traces"); //$NON-NLS-1$ //$NON-NLS-2$
+        TraceStore traceStore = new TraceStore(file, 10);
+        String trace1 = "Failed asserting that false is true.\n/path/to/FooTest.php:10"; //$NON-NLS-1$
+        String trace2 = "失敗しました。\n/path/to/BarTest.php:20"; //$NON-NLS-1$
+
+        assertFalse(traceStore.spills("short")); //$NON-NLS-1$
+        assertTrue(traceStore.spills(trace1));
+
+        TestCaseResult testCase1 = new TestCaseResult("testFoo"); //$NON-NLS-1$
+        testCase1.setFailureTrace(traceStore.append(trace1));
+        TestCaseResult testCase2 = new TestCaseResult("testBar"); //$NON-NLS-1$
+        testCase2.setFailureTrace(traceStore.append(trace2));
+
+        assertEquals(trace2, testCase2.getFailureTrace());
+        assertEquals(trace1, testCase1.getFailureTrace());
+        assertTrue(traceStore.getSize() > trace1.length() + trace2.length());
+
+        traceStore.close();
+
+        assertNull(testCase1.getFailureTrace());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void spillsTheLargeTracesWhileReading() throws Exception {
+        File log = File.createTempFile("MakeGood", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+        log.deleteOnExit();
+        OutputStream output = new FileOutputStream(log);
+        try {
+            output.write((
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?><testsuites><testsuite name=\"FooTest\" tests=\"2\">" + //$NON-NLS-1$
+                "<testcase name=\"testFoo\" class=\"FooTest\" method=\"testFoo\"><failure type=\"Foo\">short</failure></testcase>" + //$NON-NLS-1$
+                "<testcase name=\"testBar\" class=\"FooTest\" method=\"testBar\"><error type=\"Bar\">a long trace</error></testcase>" + //$NON-NLS-1$
+                "</testsuite></testsuites>" //$NON-NLS-1$
+            ).getBytes("UTF-8")); //$NON-NLS-1$
+        } finally {
+            output.close();
+        }
+        File file = File.createTempFile("MakeGood", ".traces"); //$NON-NLS-1$ //$NON-NLS-2$
+        TraceStore traceStore = new TraceStore(file, 5);
+        ResultReader resultReader = new PullResultReader(log);
+        resultReader.setTraceStore(traceStore);
+        resultReader.stop();
+        resultReader.read();
+
+        Result result = resultReader.getResult();
+        assertEquals("short", ((TestCaseResult) result.getChildren().get(0)).getFailureTrace()); //$NON-NLS-1$
+        assertEquals("a long trace", ((TestCaseResult) result.getChildren().get(1)).getFailureTrace()); //$NON-NLS-1$
+        assertEquals("a long trace".length(), traceStore.getSize()); //$NON-NLS-1$
+
+        traceStore.close();
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.junit.Test;
+
+import com.piece_framework.makegood.core.result.ResultType;
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+public class BinaryResultReaderTest {
+    private static final int TEST_COUNT = 1000;
+
+    @Test
+    public void readsTheEventsWhileTheyAreBeingWritten() throws Exception {
+        File log = File.createTempFile("MakeGood", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+        log.deleteOnExit();
+        final BinaryResultReader resultReader = new BinaryResultReader(log);
+        PullResultReaderTest.EventCounter eventCounter = new PullResultReaderTest.EventCounter();
+        resultReader.addListener(eventCounter);
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    resultReader.read();
+                } catch (Exception e) {
+                }
+            }
+        };
+        thread.start();
+
+        ResultEventWriter writer = new ResultEventWriter(new FileOutputStream(log));
+        try {
+            TestSuiteResult testSuite = new TestSuiteResult("FooTest"); //$NON-NLS-1$
+            testSuite.setFile("/path/to/FooTest.php"); //$NON-NLS-1$
+            testSuite.setAllTestCount(2);
+            writer.startTest();
+            writer.startTestSuite(testSuite);
+            Thread.sleep(300);
+            TestCaseResult testCase = createTestCase(testSuite, "testFoo"); //$NON-NLS-1$
+            writer.startTestCase(testCase);
+            writer.endTestCase(testCase);
+            Thread.sleep(300);
+            testCase = createTestCase(testSuite, "testBar"); //$NON-NLS-1$
+            writer.startTestCase(testCase);
+            testCase.setResultType(ResultType.FAILURE);
+            testCase.setFailureType("Foo"); //$NON-NLS-1$
+            testCase.setFailureMessage("bar"); //$NON-NLS-1$
+            testCase.setFailureTrace("trace é"); //$NON-NLS-1$
+            writer.endFailure(testCase);
+            writer.endTestCase(testCase);
+            writer.endTestSuite(testSuite);
+            writer.endTest();
+        } finally {
+            writer.close();
+        }
+
+        thread.join(5000);
+
+        assertTrue(!thread.isAlive());
+        TestSuiteResult result = resultReader.getResult();
+        assertEquals(2, result.getTestCount());
+        assertEquals(1, result.getFailureCount());
+        assertEquals("/path/to/FooTest.php", result.getFile()); //$NON-NLS-1$
+        TestCaseResult testCase = (TestCaseResult) result.getChildren().get(1);
+        assertEquals("testBar", testCase.getMethodName()); //$NON-NLS-1$
+        assertEquals("Foo", testCase.getFailureType()); //$NON-NLS-1$
+        assertEquals("bar", testCase.getFailureMessage()); //$NON-NLS-1$
+        assertEquals("trace é", testCase.getFailureTrace()); //$NON-NLS-1$
+        assertEquals(1, eventCounter.endTestCount);
+    }
+
+    @Test
+    public void readsTheSameResultAsThePullReader() throws Exception {
+        File xmlLog = File.createTempFile("MakeGood", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+        xmlLog.deleteOnExit();
+        PullResultReaderTest.writeLargeLog(xmlLog, TEST_COUNT);
+        File binaryLog = File.createTempFile("MakeGood", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+        binaryLog.deleteOnExit();
+        PullResultReader converter = new PullResultReader(xmlLog);
+        ResultEventWriter writer = new ResultEventWriter(new BufferedOutputStream(new FileOutputStream(binaryLog)));
+        converter.addListener(writer);
+        converter.stop();
+        converter.read();
+        writer.close();
+
+        PullResultReaderTest.EventCounter pullEventCounter = new PullResultReaderTest.EventCounter();
+        ResultReader pullResultReader = PullResultReaderTest.read(new PullResultReader(xmlLog), pullEventCounter);
+        PullResultReaderTest.EventCounter binaryEventCounter = new PullResultReaderTest.EventCounter();
+        ResultReader binaryResultReader = PullResultReaderTest.read(new BinaryResultReader(binaryLog), binaryEventCounter);
+
+        assertEquals(pullEventCounter.count, binaryEventCounter.count);
+        assertEquals(TEST_COUNT, binaryResultReader.getResult().getTestCount());
+        assertEquals(TEST_COUNT / 10, binaryResultReader.getResult().getFailureCount());
+        assertEquals(pullResultReader.getResult().getSize(), binaryResultReader.getResult().getSize());
+        assertTrue(binaryLog.length() < xmlLog.length());
+    }
+
+    private TestCaseResult createTestCase(TestSuiteResult testSuite, String methodName) {
+        TestCaseResult testCase = new TestCaseResult(methodName);
+        testCase.setClassName("FooTest"); //$NON-NLS-1$
+        testCase.setMethodName(methodName);
+        testSuite.addChild(testCase);
+        return testCase;
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CommandLineArgumentsTest {
+    @Test
+    public void buildsTheArgumentsInTheOrderOfTheTestrunner() {
+        CommandLineArguments arguments = new CommandLineArguments("phpunit", "/tmp/junit.xml", "UTF-8"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        arguments.setPreloadScript("/path/to/preload.php"); //$NON-NLS-1$
+        arguments.setStopOnFailure(true);
+        arguments.setPHPUnitConfigFile("/path/to/phpunit.xml"); //$NON-NLS-1$
+        arguments.setTestFilePattern("Test(?:Case)?\\.php$"); //$NON-NLS-1$
+        arguments.addTestFile("/path/to/FooTest.php"); //$NON-NLS-1$
+        arguments.addTestFile("/path/to/FooTest.php"); //$NON-NLS-1$
+        arguments.addTestClass("Foo\\BarTest"); //$NON-NLS-1$
+        arguments.addTestMethod("Foo\\BarTest", "testBaz"); //$NON-NLS-1$ //$NON-NLS-2$
+
+        assertEquals(
+            " --no-ansi phpunit" + //$NON-NLS-1$
+            " -p \"/path/to/preload.php\"" + //$NON-NLS-1$
+            " --log-junit=\"/tmp/junit.xml\" --log-junit-realtime -s" + //$NON-NLS-1$
+            " --phpunit-config=\"/path/to/phpunit.xml\"" + //$NON-NLS-1$
+            " --test-class=\"Foo%5CBarTest\"" + //$NON-NLS-1$
+            " --test-method=\"Foo%5CBarTest%3A%3AtestBaz\"" + //$NON-NLS-1$
+            " -R --test-file-pattern=\"Test(?:Case)?\\.php$\"" + //$NON-NLS-1$
+            " \"/path/to/FooTest.php\"", //$NON-NLS-1$
+            arguments.build()
+        );
+    }
+
+    @Test
+    public void keepsTheTestFilesInTheGivenOrder() {
+        CommandLineArguments arguments = new CommandLineArguments("phpunit", "/tmp/junit.xml", null); //$NON-NLS-1$ //$NON-NLS-2$
+        arguments.setTestFilePattern("Test\\.php$"); //$NON-NLS-1$
+        arguments.addTestFile("/path/to/SlowTest.php"); //$NON-NLS-1$
+        arguments.addTestFile("/path/to/FastTest.php"); //$NON-NLS-1$
+        arguments.addTestFile("/path/to/AverageTest.php"); //$NON-NLS-1$
+
+        assertTrue(arguments.build().endsWith(
+            " \"/path/to/SlowTest.php\" \"/path/to/FastTest.php\" \"/path/to/AverageTest.php\"" //$NON-NLS-1$
+        ));
+    }
+
+    @Test
+    public void leavesTheNamesAsTheyAreWithoutACharset() {
+        CommandLineArguments arguments = new CommandLineArguments("simpletest", "/tmp/junit.xml", null); //$NON-NLS-1$ //$NON-NLS-2$
+        arguments.setTestFilePattern("Test\\.php$"); //$NON-NLS-1$
+        arguments.addTestClass("Foo\\BarTest"); //$NON-NLS-1$
+
+        assertEquals(
+            " --no-ansi simpletest --log-junit=\"/tmp/junit.xml\" --log-junit-realtime" + //$NON-NLS-1$
+            " --test-class=\"Foo\\BarTest\" -R --test-file-pattern=\"Test\\.php$\"", //$NON-NLS-1$
+            arguments.build()
+        );
+        assertFalse(CommandLineArguments.isSupported("unknown-charset")); //$NON-NLS-1$
+    }
+}
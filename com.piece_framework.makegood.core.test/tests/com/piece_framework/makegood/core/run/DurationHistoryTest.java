@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class DurationHistoryTest {
+    @Test
+    public void keepsTheLastDurationsOfEachTestCase() throws Exception {
+        File file = File.createTempFile("MakeGood", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+        file.deleteOnExit();
+        DurationHistory durationHistory = new DurationHistory(file);
+        for (int i = 1; i <= DurationHistory.SAMPLE_SIZE + 2; ++i) {
+            durationHistory.record("FooTest", "testFoo", "/path/to/FooTest.php", i * 1000000L); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+        durationHistory.record("BarTest", "testBar", "/path/to/BarTest.php", 1000000L); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        durationHistory.save();
+
+        DurationHistory loadedDurationHistory = new DurationHistory(file);
+        loadedDurationHistory.load();
+
+        assertEquals(2, loadedDurationHistory.size());
+        assertEquals(6500000L, loadedDurationHistory.getAverage("FooTest", "testFoo")); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals(3000000L, loadedDurationHistory.getPercentile("FooTest", "testFoo", 0)); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals(10000000L, loadedDurationHistory.getPercentile("FooTest", "testFoo", 100)); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals(1000000L, loadedDurationHistory.getPercentile(50));
+        assertTrue(loadedDurationHistory.getTrend("FooTest", "testFoo") > 1.0d); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals(-1, loadedDurationHistory.getAverage("BazTest", "testBaz")); //$NON-NLS-1$ //$NON-NLS-2$
+
+        List<String> files = Arrays.asList("/path/to/FooTest.php", "/path/to/BarTest.php", "/path/to/BazTest.php"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        assertEquals(
+            Arrays.asList("/path/to/BazTest.php", "/path/to/FooTest.php", "/path/to/BarTest.php"), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            loadedDurationHistory.sortFiles(files, DurationHistory.SLOWEST_FIRST)
+        );
+        assertEquals(
+            Arrays.asList("/path/to/BarTest.php", "/path/to/FooTest.php", "/path/to/BazTest.php"), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            loadedDurationHistory.sortFiles(files, DurationHistory.FASTEST_FIRST)
+        );
+        assertEquals(files, loadedDurationHistory.sortFiles(files, DurationHistory.UNORDERED));
+        assertEquals(6500000L, loadedDurationHistory.getFileDuration("/path/to/FooTest.php")); //$NON-NLS-1$
+        assertEquals(-1, loadedDurationHistory.getFileDuration("/path/to/BazTest.php")); //$NON-NLS-1$
+    }
+
+    @Test(timeout = 10000)
+    public void loadsAHugeHistoryQuickly() throws Exception {
+        File file = File.createTempFile("MakeGood", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+        file.deleteOnExit();
+        DurationHistory durationHistory = new DurationHistory(file);
+        for (int i = 0; i < 50000; ++i) {
+            for (int j = 0; j < 3; ++j) {
+                durationHistory.record("Test" + (i / 10), "test" + i, "/path/to/Test" + (i / 10) + ".php", (i + j) * 1000L); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+            }
+        }
+        durationHistory.save();
+
+        DurationHistory loadedDurationHistory = new DurationHistory(file);
+        loadedDurationHistory.load();
+        long startTime = System.nanoTime();
+        loadedDurationHistory.load();
+        long loadTime = System.nanoTime() - startTime;
+
+        assertEquals(50000, loadedDurationHistory.size());
+        assertTrue(loadTime < 500000000L);
+        assertTrue(file.length() < 50000 * 32);
+    }
+}
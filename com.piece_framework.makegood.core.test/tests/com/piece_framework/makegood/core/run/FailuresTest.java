@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+public class FailuresTest {
+    @Test
+    public void findsTheFailuresAroundTheCriterion() {
+        Failures failures = new Failures();
+        TestSuiteResult fooTest = startTestSuite(failures, "FooTest"); //$NON-NLS-1$
+        TestCaseResult testFoo1 = startTestCase(failures, fooTest, "testFoo1", false); //$NON-NLS-1$
+        TestCaseResult testFoo2 = startTestCase(failures, fooTest, "testFoo2", true); //$NON-NLS-1$
+        TestCaseResult testFoo3 = startTestCase(failures, fooTest, "testFoo3", false); //$NON-NLS-1$
+        TestCaseResult testFoo4 = startTestCase(failures, fooTest, "testFoo4", true); //$NON-NLS-1$
+        failures.endTestSuite(fooTest);
+        TestSuiteResult barTest = startTestSuite(failures, "BarTest"); //$NON-NLS-1$
+        TestCaseResult testBar = startTestCase(failures, barTest, "testBar", true); //$NON-NLS-1$
+        failures.endTestSuite(barTest);
+
+        assertSame(testFoo2, failures.find(testFoo3, Failures.FIND_NEXT));
+        assertSame(testFoo4, failures.find(testFoo3, Failures.FIND_PREVIOUS));
+        assertSame(testBar, failures.find(testFoo1, Failures.FIND_NEXT));
+        assertSame(testFoo2, failures.find(testBar, Failures.FIND_PREVIOUS));
+        assertSame(testFoo4, failures.find(fooTest, Failures.FIND_NEXT));
+        assertSame(testBar, failures.find(fooTest, Failures.FIND_PREVIOUS));
+        assertNull(failures.find(new TestCaseResult("testBaz"), Failures.FIND_NEXT)); //$NON-NLS-1$
+    }
+
+    @Test
+    public void keepsTheFailuresInTheOrderOfTheResults() {
+        Failures failures = new Failures();
+        TestSuiteResult testSuite = startTestSuite(failures, "FooTest"); //$NON-NLS-1$
+        TestCaseResult[] testCases = new TestCaseResult[1000];
+        for (int i = 0; i < testCases.length; ++i) {
+            testCases[i] = new TestCaseResult("test" + i); //$NON-NLS-1$
+            testSuite.addChild(testCases[i]);
+            failures.startTestCase(testCases[i]);
+        }
+        for (int i = testCases.length - 1; i >= 0; i -= 2) {
+            failures.startError(testCases[i]);
+        }
+
+        assertEquals(500, failures.findAll().size());
+        assertEquals(Arrays.asList(testCases[1], testCases[3]), failures.findAll().subList(0, 2));
+        assertSame(testCases[501], failures.find(testCases[502], Failures.FIND_NEXT));
+        assertSame(testCases[503], failures.find(testCases[502], Failures.FIND_PREVIOUS));
+    }
+
+    private TestSuiteResult startTestSuite(Failures failures, String name) {
+        TestSuiteResult testSuite = new TestSuiteResult(name);
+        failures.startTestSuite(testSuite);
+        return testSuite;
+    }
+
+    private TestCaseResult startTestCase(Failures failures, TestSuiteResult testSuite, String name, boolean fails) {
+        TestCaseResult testCase = new TestCaseResult(name);
+        testSuite.addChild(testCase);
+        failures.startTestCase(testCase);
+        if (fails) {
+            failures.startFailure(testCase);
+            failures.endFailure(testCase);
+        }
+        failures.endTestCase(testCase);
+        return testCase;
+    }
+}
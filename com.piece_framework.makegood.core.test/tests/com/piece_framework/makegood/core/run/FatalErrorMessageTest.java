@@ -0,0 +1,45 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class FatalErrorMessageTest {
+    @Test
+    public void findsTheFatalErrorInTheOutput() {
+        FatalErrorMessage fatalError = FatalErrorMessage.parse(
+            "PHPUnit 4.1.0 by Sebastian Bergmann.\n\nFatal error: Call to undefined function foo() in /path/to/FooTest.php on line 12\n" //$NON-NLS-1$
+        );
+
+        assertEquals("Fatal error: Call to undefined function foo()", fatalError.getMessage()); //$NON-NLS-1$
+        assertEquals("/path/to/FooTest.php", fatalError.getFile()); //$NON-NLS-1$
+        assertEquals(12, fatalError.getLine());
+    }
+
+    @Test
+    public void usesTheLineOfTheFileWhichEvaluatesTheCode() {
+        FatalErrorMessage fatalError = FatalErrorMessage.parse(
+            "Parse error: syntax error in /path/to/FooTest.php(34) : eval()'d code on line 1" //$NON-NLS-1$
+        );
+
+        assertEquals("/path/to/FooTest.php", fatalError.getFile()); //$NON-NLS-1$
+        assertEquals(34, fatalError.getLine());
+    }
+
+    @Test
+    public void returnsNullIfTheOutputHasNoFatalError() {
+        assertNull(FatalErrorMessage.parse("OK (1 test, 1 assertion)")); //$NON-NLS-1$
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.piece_framework.makegood.core.result.TestCaseResult;
+
+public class HangWatchdogTest {
+    private static final long SECOND = 1000000000L;
+
+    @Test
+    public void findsTheRunningTestCaseHungAfterTheTimeLimit() {
+        HangWatchdog hangWatchdog = new HangWatchdog(60 * SECOND, null);
+        TestCaseResult testFoo = createTestCase("testFoo"); //$NON-NLS-1$
+        hangWatchdog.startTestCase(testFoo);
+        hangWatchdog.endTestCase(testFoo);
+
+        assertNull(hangWatchdog.check(System.nanoTime() + 120 * SECOND));
+
+        TestCaseResult testBar = createTestCase("testBar"); //$NON-NLS-1$
+        hangWatchdog.startTestCase(testBar);
+
+        assertNull(hangWatchdog.check(System.nanoTime() + 30 * SECOND));
+        assertSame(testBar, hangWatchdog.check(System.nanoTime() + 120 * SECOND));
+        assertNull(hangWatchdog.check(System.nanoTime() + 180 * SECOND));
+        assertSame(testBar, hangWatchdog.getHungTestCase());
+        assertEquals("The test did not end in 60 seconds and was terminated.", hangWatchdog.getHungTestCaseMessage()); //$NON-NLS-1$
+    }
+
+    @Test
+    public void watchesTheRunningTestCaseOfEveryShard() {
+        HangWatchdog hangWatchdog = new HangWatchdog(60 * SECOND, null);
+        ResultReaderListener shard1 = hangWatchdog.createShardListener();
+        ResultReaderListener shard2 = hangWatchdog.createShardListener();
+        TestCaseResult testFoo = createTestCase("testFoo"); //$NON-NLS-1$
+        TestCaseResult testBar = createTestCase("testBar"); //$NON-NLS-1$
+        shard1.startTestCase(testFoo);
+        shard2.startTestCase(testBar);
+        shard2.endTestCase(testBar);
+        shard2.endTest();
+
+        assertSame(testFoo, hangWatchdog.check(System.nanoTime() + 120 * SECOND));
+        assertSame(testFoo, hangWatchdog.getHungTestCase());
+    }
+
+    @Test
+    public void derivesTheTimeLimitsFromTheHistory() throws Exception {
+        File file = File.createTempFile("MakeGood", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+        file.deleteOnExit();
+        DurationHistory durationHistory = new DurationHistory(file);
+        durationHistory.record("FooTest", "testFoo", "/path/to/FooTest.php", 2 * SECOND); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        durationHistory.record("FooTest", "testBar", "/path/to/FooTest.php", SECOND / 1000); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        durationHistory.record("FooTest", "testBaz", "/path/to/FooTest.php", 30 * SECOND); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        HangWatchdog hangWatchdog = new HangWatchdog(60 * SECOND, durationHistory);
+
+        assertEquals(20 * SECOND, hangWatchdog.getTimeLimit(createTestCase("testFoo"))); //$NON-NLS-1$
+        assertEquals(5 * SECOND, hangWatchdog.getTimeLimit(createTestCase("testBar"))); //$NON-NLS-1$
+        assertEquals(60 * SECOND, hangWatchdog.getTimeLimit(createTestCase("testBaz"))); //$NON-NLS-1$
+        assertEquals(60 * SECOND, hangWatchdog.getTimeLimit(createTestCase("testQux"))); //$NON-NLS-1$
+    }
+
+    private TestCaseResult createTestCase(String name) {
+        TestCaseResult testCase = new TestCaseResult(name);
+        testCase.setClassName("FooTest"); //$NON-NLS-1$
+        testCase.setMethodName(name);
+        return testCase;
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.piece_framework.makegood.core.result.ResultType;
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+public class ProgressTest {
+    @Test
+    public void publishesTheSnapshotsOfTheRun() {
+        Progress progress = new Progress();
+        Progress.Snapshot initialSnapshot = progress.getSnapshot();
+        progress.start();
+        TestSuiteResult testSuite = new TestSuiteResult("FooTest"); //$NON-NLS-1$
+        testSuite.setAllTestCount(3);
+        progress.onFirstTestSuite(testSuite);
+        progress.startTestSuite(testSuite);
+
+        assertTrue(progress.getSnapshot().isRunning());
+        assertEquals(3, progress.getSnapshot().getAllTestCount());
+        assertEquals(1, progress.getSnapshot().getCurrentTestCount());
+
+        endTestCase(progress, testSuite, "testFoo", ResultType.PASS); //$NON-NLS-1$
+        endTestCase(progress, testSuite, "testBar", ResultType.FAILURE); //$NON-NLS-1$
+        Progress.Snapshot failedSnapshot = progress.getSnapshot();
+
+        assertTrue(failedSnapshot.hasFailures());
+        assertEquals(2, failedSnapshot.getTestCount());
+        assertEquals(1, failedSnapshot.getPassCount());
+
+        endTestCase(progress, testSuite, "testBaz", ResultType.PASS); //$NON-NLS-1$
+        progress.endTestSuite(testSuite);
+        progress.endTest();
+        progress.end();
+        Progress.Snapshot lastSnapshot = progress.getSnapshot();
+
+        assertFalse(lastSnapshot.isRunning());
+        assertEquals(3, lastSnapshot.getTestCount());
+        assertEquals(100, lastSnapshot.calculateRate());
+        assertEquals(lastSnapshot.getElapsedTime(), lastSnapshot.getElapsedTime());
+        assertEquals(2, failedSnapshot.getTestCount());
+        assertEquals(0, initialSnapshot.getAllTestCount());
+        assertFalse(initialSnapshot.isRunning());
+    }
+
+    private void endTestCase(Progress progress, TestSuiteResult testSuite, String name, ResultType resultType) {
+        TestCaseResult testCase = new TestCaseResult(name);
+        testSuite.addChild(testCase);
+        progress.startTestCase(testCase);
+        testCase.setResultType(resultType);
+        testCase.fix();
+        progress.endTestCase(testCase);
+    }
+}
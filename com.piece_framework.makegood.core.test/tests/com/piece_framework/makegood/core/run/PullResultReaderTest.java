@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.junit.Test;
+
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+public class PullResultReaderTest {
+    private static final int TEST_COUNT = 1000;
+
+    @Test
+    public void readsTheLogWhileItIsBeingWritten() throws Exception {
+        File log = File.createTempFile("MakeGood", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+        log.deleteOnExit();
+        final PullResultReader resultReader = new PullResultReader(log);
+        EventCounter eventCounter = new EventCounter();
+        resultReader.addListener(eventCounter);
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    resultReader.read();
+                } catch (Exception e) {
+                }
+            }
+        };
+        thread.start();
+
+        FileOutputStream output = new FileOutputStream(log);
+        try {
+            write(output, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><testsuites><testsuite name=\"FooTest\" tests=\"3\">"); //$NON-NLS-1$
+            Thread.sleep(300);
+            write(output, "<testcase name=\"testFoo\" class=\"FooTest\" method=\"testFoo\" line=\"10\"></testcase>"); //$NON-NLS-1$
+            Thread.sleep(300);
+            write(output, "<testcase name=\"testBar\" class=\"FooTest\" method=\"testBar\"><failure type=\"Foo\" message=\"bar\">trace &amp; <![CDATA[more]]></failure></testcase>"); //$NON-NLS-1$
+            write(output, "<testcase name=\"testBaz\" class=\"FooTest\" method=\"testBaz\"><error type=\"Baz\">trace</error></testcase>"); //$NON-NLS-1$
+            write(output, "</testsuite></testsuites>"); //$NON-NLS-1$
+        } finally {
+            output.close();
+        }
+
+        resultReader.stop();
+        thread.join(5000);
+
+        assertTrue(!thread.isAlive());
+        TestSuiteResult result = resultReader.getResult();
+        assertEquals(3, result.getTestCount());
+        assertEquals(1, result.getFailureCount());
+        assertEquals(1, result.getErrorCount());
+        TestCaseResult testCase = (TestCaseResult) result.getChildren().get(1);
+        assertEquals("bar", testCase.getFailureMessage()); //$NON-NLS-1$
+        assertEquals("trace & more", testCase.getFailureTrace()); //$NON-NLS-1$
+        assertEquals(10, ((TestCaseResult) result.getChildren().get(0)).getLine());
+        assertEquals(1, eventCounter.startTestCount);
+        assertEquals(1, eventCounter.endTestCount);
+    }
+
+    @Test
+    public void readsTheSameResultAsTheSAXReader() throws Exception {
+        File log = File.createTempFile("MakeGood", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+        log.deleteOnExit();
+        writeLargeLog(log, TEST_COUNT);
+
+        EventCounter saxEventCounter = new EventCounter();
+        ResultReader saxResultReader = read(new ResultReader(log), saxEventCounter);
+        EventCounter pullEventCounter = new EventCounter();
+        ResultReader pullResultReader = read(new PullResultReader(log), pullEventCounter);
+
+        assertEquals(saxEventCounter.count, pullEventCounter.count);
+        assertEquals(TEST_COUNT, pullResultReader.getResult().getTestCount());
+        assertEquals(saxResultReader.getResult().getFailureCount(), pullResultReader.getResult().getFailureCount());
+        assertEquals(saxResultReader.getResult().getSize(), pullResultReader.getResult().getSize());
+        assertEquals(saxResultReader.getResult().getTime(), pullResultReader.getResult().getTime());
+    }
+
+    static ResultReader read(ResultReader resultReader, EventCounter eventCounter) throws Exception {
+        resultReader.addListener(eventCounter);
+        resultReader.stop();
+        resultReader.read();
+        return resultReader;
+    }
+
+    static void writeLargeLog(File log, int testCount) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(log), "UTF-8")); //$NON-NLS-1$
+        try {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?><testsuites><testsuite name=\"AllTests\" tests=\"" + testCount + "\">"); //$NON-NLS-1$ //$NON-NLS-2$
+            for (int i = 0; i < testCount; ++i) {
+                if (i % 100 == 0) {
+                    if (i > 0) writer.write("</testsuite>\n"); //$NON-NLS-1$
+                    writer.write("<testsuite name=\"Foo" + i + "Test\" class=\"Foo" + i + "Test\" file=\"/path/to/Foo" + i + "Test.php\">\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+                }
+                writer.write("<testcase name=\"test" + i + "\" class=\"Foo\" method=\"test" + i + "\" file=\"/path/to/FooTest.php\" line=\"" + i + "\" assertions=\"1\" time=\"0.001\">"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+                if (i % 10 == 0) {
+                    writer.write("<failure type=\"PHPUnit_Framework_ExpectationFailedException\" message=\"Failed asserting that false is true.\">"); //$NON-NLS-1$
+                    writer.write("Failed asserting that false is true.\n\n/path/to/FooTest.php:" + i + "\n/path/to/vendor/phpunit/phpunit/src/TextUI/Command.php:186\n"); //$NON-NLS-1$ //$NON-NLS-2$
+                    writer.write("</failure>"); //$NON-NLS-1$
+                }
+                writer.write("</testcase>\n"); //$NON-NLS-1$
+            }
+            writer.write("</testsuite></testsuite></testsuites>"); //$NON-NLS-1$
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void write(FileOutputStream output, String data) throws IOException {
+        output.write(data.getBytes("UTF-8")); //$NON-NLS-1$
+        output.flush();
+    }
+
+    static class EventCounter implements ResultReaderListener {
+        long count;
+        int startTestCount;
+        int endTestCount;
+
+        @Override
+        public void onFirstTestSuite(TestSuiteResult testSuite) { ++count; }
+
+        @Override
+        public void startTestSuite(TestSuiteResult testSuite) { ++count; }
+
+        @Override
+        public void endTestSuite(TestSuiteResult testSuite) { ++count; }
+
+        @Override
+        public void startTestCase(TestCaseResult testCase) { ++count; }
+
+        @Override
+        public void endTestCase(TestCaseResult testCase) { ++count; }
+
+        @Override
+        public void startFailure(TestCaseResult failure) { ++count; }
+
+        @Override
+        public void endFailure(TestCaseResult failure) { ++count; }
+
+        @Override
+        public void startTest() { ++count; ++startTestCount; }
+
+        @Override
+        public void endTest() { ++count; ++endTestCount; }
+
+        @Override
+        public void startError(TestCaseResult error) { ++count; }
+
+        @Override
+        public void endError(TestCaseResult error) { ++count; }
+    }
+}
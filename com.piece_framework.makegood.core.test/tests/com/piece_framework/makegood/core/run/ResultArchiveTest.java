@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.piece_framework.makegood.core.result.ResultType;
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+public class ResultArchiveTest {
+    @Test
+    public void keepsTheLastRuns() throws Exception {
+        File directory = File.createTempFile("MakeGood", ""); //$NON-NLS-1$ //$NON-NLS-2$
+        directory.delete();
+        ResultArchive resultArchive = new ResultArchive(directory, 2);
+        ResultArchive.Run run1 = resultArchive.store(createResult(ResultType.PASS, 2000000L), new Date(1000L));
+        resultArchive.store(createResult(ResultType.FAILURE, 1000000L), new Date(2000L));
+        resultArchive.store(createResult(ResultType.ERROR, 3000000L), new Date(3000L));
+
+        ResultArchive loadedResultArchive = new ResultArchive(directory, 2);
+        loadedResultArchive.load();
+        List<ResultArchive.Run> runs = loadedResultArchive.getRuns();
+
+        assertEquals(2, runs.size());
+        assertEquals(3000L, runs.get(0).getEndTime().getTime());
+        assertEquals(1, runs.get(0).getErrorCount());
+        assertEquals(1, runs.get(1).getFailureCount());
+        assertNull(loadedResultArchive.read(run1));
+
+        TestSuiteResult result = loadedResultArchive.read(runs.get(1));
+        assertEquals(2, result.getTestCount());
+        assertEquals(1, result.getFailureCount());
+        assertEquals(1500000L + 1000000L, result.getTime());
+        assertTrue(result.isFixed());
+
+        TestSuiteResult testSuite = (TestSuiteResult) result.getChildren().get(0);
+        assertEquals("/path/to/FooTest.php", testSuite.getFile()); //$NON-NLS-1$
+        TestCaseResult testCase = (TestCaseResult) testSuite.getChildren().get(1);
+        assertEquals("testBar", testCase.getMethodName()); //$NON-NLS-1$
+        assertEquals("/path/to/FooTest.php", testCase.getFile()); //$NON-NLS-1$
+        assertEquals(ResultType.FAILURE, testCase.getResultType());
+        assertEquals("Failed asserting that false is true.", testCase.getFailureMessage()); //$NON-NLS-1$
+
+        ResultDiff resultDiff = new ResultDiff(result, loadedResultArchive.read(runs.get(0)));
+        assertEquals(1, resultDiff.getChanges().size());
+        assertEquals(ResultType.FAILURE, resultDiff.getChanges().get(0).getOldResultType());
+        assertEquals(ResultType.ERROR, resultDiff.getChanges().get(0).getNewResultType());
+
+        for (File file: directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void keepsTheTestCasesFoldedIntoASuite() throws Exception {
+        File directory = File.createTempFile("MakeGood", ""); //$NON-NLS-1$ //$NON-NLS-2$
+        directory.delete();
+        TestSuiteResult result = new TestSuiteResult("AllTests"); //$NON-NLS-1$
+        TestSuiteResult testSuite = new TestSuiteResult("FooTest"); //$NON-NLS-1$
+        testSuite.setFile("/path/to/FooTest.php"); //$NON-NLS-1$
+        testSuite.setAllTestCount(100);
+        testSuite.markAsCached();
+        result.addChild(testSuite);
+        for (int i = 0; i < 100; ++i) {
+            TestCaseResult testCase = createTestCase("test" + i, ResultType.PASS); //$NON-NLS-1$
+            testSuite.addChild(testCase);
+            testCase.setTime(10L);
+            if (i < 99) {
+                testSuite.fold(testCase);
+            }
+        }
+        ResultArchive resultArchive = new ResultArchive(directory, 1);
+        ResultArchive.Run run = resultArchive.store(result, new Date(1000L));
+
+        TestSuiteResult loadedResult = resultArchive.read(run);
+
+        assertEquals(100, loadedResult.getTestCount());
+        assertEquals(1000L, loadedResult.getTime());
+        TestSuiteResult loadedTestSuite = (TestSuiteResult) loadedResult.getChildren().get(0);
+        assertEquals(100, loadedTestSuite.getTestCount());
+        assertEquals(1000L, loadedTestSuite.getTime());
+        assertEquals(99, loadedTestSuite.getFoldedTestCount());
+        assertEquals(1, loadedTestSuite.getChildren().size());
+        assertEquals(10L, loadedTestSuite.getChildren().get(0).getTime());
+        assertTrue(loadedTestSuite.isCached());
+        assertTrue(loadedResult.isFixed());
+
+        for (File file: directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private TestSuiteResult createResult(ResultType resultType, long time) {
+        TestSuiteResult result = new TestSuiteResult("AllTests"); //$NON-NLS-1$
+        TestSuiteResult testSuite = new TestSuiteResult("FooTest"); //$NON-NLS-1$
+        testSuite.setFile("/path/to/FooTest.php"); //$NON-NLS-1$
+        testSuite.setAllTestCount(2);
+        result.addChild(testSuite);
+        testSuite.addChild(createTestCase("testFoo", ResultType.PASS)); //$NON-NLS-1$
+        TestCaseResult testCase = createTestCase("testBar", resultType); //$NON-NLS-1$
+        testCase.setFailureMessage("Failed asserting that false is true."); //$NON-NLS-1$
+        testSuite.addChild(testCase);
+        testCase.setTime(time);
+        ((TestCaseResult) testSuite.getChildren().get(0)).setTime(1500000L);
+        return result;
+    }
+
+    private TestCaseResult createTestCase(String methodName, ResultType resultType) {
+        TestCaseResult testCase = new TestCaseResult(methodName);
+        testCase.setClassName("FooTest"); //$NON-NLS-1$
+        testCase.setMethodName(methodName);
+        testCase.setResultType(resultType);
+        testCase.fix();
+        return testCase;
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.piece_framework.makegood.core.result.ResultType;
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+public class ResultCacheTest {
+    @Test
+    public void keepsTheTestFilesWhoseClassesHavePassed() throws Exception {
+        TestSuiteResult result = new TestSuiteResult("AllTests"); //$NON-NLS-1$
+        createTestSuite(result, "FooTest", "/path/to/FooTest.php", ResultType.PASS, ResultType.PASS); //$NON-NLS-1$ //$NON-NLS-2$
+        createTestSuite(result, "BarTest", "/path/to/BarTest.php", ResultType.PASS, ResultType.FAILURE); //$NON-NLS-1$ //$NON-NLS-2$
+        createTestSuite(result, "BazTest", "/path/to/BazTest.php", ResultType.PASS); //$NON-NLS-1$ //$NON-NLS-2$
+        Map<String, String> digests = new HashMap<String, String>();
+        digests.put("/path/to/FooTest.php", "foo"); //$NON-NLS-1$ //$NON-NLS-2$
+        digests.put("/path/to/BarTest.php", "bar"); //$NON-NLS-1$ //$NON-NLS-2$
+        File file = File.createTempFile("MakeGood", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+        file.deleteOnExit();
+        ResultCache resultCache = new ResultCache(file);
+        resultCache.record(result, digests);
+        resultCache.save();
+
+        ResultCache loadedResultCache = new ResultCache(file);
+        loadedResultCache.load();
+
+        assertEquals(1, loadedResultCache.size());
+        assertTrue(loadedResultCache.isPassed("/path/to/FooTest.php", "foo")); //$NON-NLS-1$ //$NON-NLS-2$
+        assertFalse(loadedResultCache.isPassed("/path/to/FooTest.php", "changed")); //$NON-NLS-1$ //$NON-NLS-2$
+        assertFalse(loadedResultCache.isPassed("/path/to/BarTest.php", "bar")); //$NON-NLS-1$ //$NON-NLS-2$
+        assertFalse(loadedResultCache.isPassed("/path/to/BazTest.php", "baz")); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    @Test
+    public void restoresTheCachedClassesAsPassedSuites() throws Exception {
+        TestSuiteResult result = new TestSuiteResult("AllTests"); //$NON-NLS-1$
+        createTestSuite(result, "FooTest", "/path/to/FooTest.php", ResultType.PASS, ResultType.PASS); //$NON-NLS-1$ //$NON-NLS-2$
+        Map<String, String> digests = new HashMap<String, String>();
+        digests.put("/path/to/FooTest.php", "foo"); //$NON-NLS-1$ //$NON-NLS-2$
+        File file = File.createTempFile("MakeGood", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+        file.deleteOnExit();
+        ResultCache resultCache = new ResultCache(file);
+        resultCache.record(result, digests);
+
+        TestSuiteResult restoredResult = new TestSuiteResult("AllTests"); //$NON-NLS-1$
+        resultCache.restore(restoredResult, Arrays.asList("/path/to/FooTest.php")); //$NON-NLS-1$
+
+        assertEquals(1, restoredResult.getChildren().size());
+        TestSuiteResult testSuite = (TestSuiteResult) restoredResult.getChildren().get(0);
+        assertTrue(testSuite.isCached());
+        assertEquals("FooTest", testSuite.getClassName()); //$NON-NLS-1$
+        assertEquals(2, testSuite.getPassCount());
+        assertEquals(2, restoredResult.getTestCount());
+        assertTrue(restoredResult.isFixed());
+
+        resultCache.record(restoredResult, digests);
+
+        assertTrue(resultCache.isPassed("/path/to/FooTest.php", "foo")); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    @Test
+    public void keepsTheTestFilesWhoseClassesHavePassedInARunReadFromTheLog() throws Exception {
+        File log = File.createTempFile("MakeGood", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+        log.deleteOnExit();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(log), "UTF-8"); //$NON-NLS-1$
+        try {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?><testsuites><testsuite name=\"AllTests\" tests=\"3\">"); //$NON-NLS-1$
+            writer.write("<testsuite name=\"FooTest\" class=\"FooTest\" file=\"/path/to/FooTest.php\" tests=\"2\">"); //$NON-NLS-1$
+            writer.write("<testcase name=\"testFoo\" class=\"FooTest\" method=\"testFoo\" file=\"/path/to/FooTest.php\" line=\"10\" time=\"0.001\"></testcase>"); //$NON-NLS-1$
+            writer.write("<testcase name=\"testBar\" class=\"FooTest\" method=\"testBar\" file=\"/path/to/FooTest.php\" line=\"20\" time=\"0.001\"></testcase>"); //$NON-NLS-1$
+            writer.write("</testsuite>"); //$NON-NLS-1$
+            writer.write("<testsuite name=\"BarTest\" class=\"BarTest\" file=\"/path/to/BarTest.php\" tests=\"1\">"); //$NON-NLS-1$
+            writer.write("<testcase name=\"testFoo\" class=\"BarTest\" method=\"testFoo\" file=\"/path/to/BarTest.php\" line=\"10\" time=\"0.001\"><failure type=\"Foo\" message=\"foo\">trace</failure></testcase>"); //$NON-NLS-1$
+            writer.write("</testsuite></testsuite></testsuites>"); //$NON-NLS-1$
+        } finally {
+            writer.close();
+        }
+        PullResultReader resultReader = new PullResultReader(log);
+        resultReader.stop();
+        resultReader.read();
+        Map<String, String> digests = new HashMap<String, String>();
+        digests.put("/path/to/FooTest.php", "foo"); //$NON-NLS-1$ //$NON-NLS-2$
+        digests.put("/path/to/BarTest.php", "bar"); //$NON-NLS-1$ //$NON-NLS-2$
+        File file = File.createTempFile("MakeGood", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+        file.deleteOnExit();
+        ResultCache resultCache = new ResultCache(file);
+
+        resultCache.record(resultReader.getResult(), digests);
+
+        assertEquals(1, resultCache.size());
+        assertTrue(resultCache.isPassed("/path/to/FooTest.php", "foo")); //$NON-NLS-1$ //$NON-NLS-2$
+        assertFalse(resultCache.isPassed("/path/to/BarTest.php", "bar")); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    private void createTestSuite(TestSuiteResult parent, String className, String file, ResultType... resultTypes) {
+        TestSuiteResult testSuite = new TestSuiteResult(className);
+        testSuite.setClassName(className);
+        testSuite.setFile(file);
+        testSuite.setAllTestCount(resultTypes.length);
+        parent.addChild(testSuite);
+        for (int i = 0; i < resultTypes.length; ++i) {
+            TestCaseResult testCase = new TestCaseResult("test" + i); //$NON-NLS-1$
+            testCase.setClassName(className);
+            testSuite.addChild(testCase);
+            testCase.setResultType(resultTypes[i]);
+            testCase.fix();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import com.piece_framework.makegood.core.result.ResultType;
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+public class ResultEventRingTest {
+    @Test
+    public void passesAllTheEventsInOrderWhenItBlocks() throws Exception {
+        EventRecorder recorder = new EventRecorder(null);
+        ResultEventRing resultEventRing = new ResultEventRing(8, ResultEventRing.BLOCK);
+        resultEventRing.addListener(recorder);
+        resultEventRing.start();
+
+        List<String> expectedEvents = publish(resultEventRing, 10000, 0);
+        resultEventRing.close();
+
+        assertEquals(expectedEvents, recorder.events);
+        assertEquals(0, resultEventRing.getDroppedEventCount());
+    }
+
+    @Test
+    public void dropsOnlyThePassedTestCasesWhenItSummarizes() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        EventRecorder recorder = new EventRecorder(latch);
+        ResultEventRing resultEventRing = new ResultEventRing(16, ResultEventRing.SUMMARIZE);
+        resultEventRing.addListener(recorder);
+        resultEventRing.start();
+
+        Thread releaser = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                }
+                latch.countDown();
+            }
+        };
+        releaser.start();
+        List<String> publishedEvents = publish(resultEventRing, 1000, 10);
+        resultEventRing.close();
+
+        assertTrue(resultEventRing.getDroppedEventCount() > 0);
+        assertEquals("startTest", recorder.events.get(0)); //$NON-NLS-1$
+        assertEquals("endTest", recorder.events.get(recorder.events.size() - 1)); //$NON-NLS-1$
+        List<String> expectedFailures = new ArrayList<String>();
+        for (String event: publishedEvents) {
+            if (event.startsWith("startFailure")) { //$NON-NLS-1$
+                expectedFailures.add(event);
+            }
+        }
+        List<String> failures = new ArrayList<String>();
+        for (String event: recorder.events) {
+            if (event.startsWith("startFailure")) { //$NON-NLS-1$
+                failures.add(event);
+            }
+        }
+        assertEquals(expectedFailures, failures);
+        assertEquals(100, failures.size());
+        assertEquals("endTestCase test999", recorder.events.get(recorder.events.size() - 3)); //$NON-NLS-1$
+    }
+
+    @Test
+    public void goesOnPassingTheEventsAfterAListenerThrowsAnException() throws Exception {
+        EventRecorder recorder = new EventRecorder(null) {
+            @Override
+            public void endTestCase(TestCaseResult testCase) {
+                super.endTestCase(testCase);
+                throw new IllegalStateException(testCase.getName());
+            }
+        };
+        final List<RuntimeException> exceptions = new ArrayList<RuntimeException>();
+        ResultEventRing resultEventRing = new ResultEventRing(8, ResultEventRing.BLOCK) {
+            @Override
+            protected void handleListenerException(RuntimeException e) {
+                exceptions.add(e);
+            }
+        };
+        resultEventRing.addListener(recorder);
+        resultEventRing.start();
+
+        List<String> expectedEvents = publish(resultEventRing, 100, 0);
+        resultEventRing.close();
+
+        assertEquals(expectedEvents, recorder.events);
+        assertEquals(100, exceptions.size());
+        assertEquals("test99", exceptions.get(99).getMessage()); //$NON-NLS-1$
+    }
+
+    /**
+     * Publishes the events of a run. Every failureInterval-th test case fails
+     * if failureInterval is not zero.
+     */
+    private List<String> publish(ResultReaderListener listener, int testCount, int failureInterval) {
+        List<String> events = new ArrayList<String>();
+        TestSuiteResult testSuite = new TestSuiteResult("FooTest"); //$NON-NLS-1$
+        listener.startTest();
+        events.add("startTest"); //$NON-NLS-1$
+        listener.onFirstTestSuite(testSuite);
+        events.add("onFirstTestSuite FooTest"); //$NON-NLS-1$
+        listener.startTestSuite(testSuite);
+        events.add("startTestSuite FooTest"); //$NON-NLS-1$
+        for (int i = 0; i < testCount; ++i) {
+            TestCaseResult testCase = new TestCaseResult("test" + i); //$NON-NLS-1$
+            testSuite.addChild(testCase);
+            listener.startTestCase(testCase);
+            events.add("startTestCase " + testCase.getName()); //$NON-NLS-1$
+            if (failureInterval != 0 && i % failureInterval == 0) {
+                testCase.setResultType(ResultType.FAILURE);
+                listener.startFailure(testCase);
+                events.add("startFailure " + testCase.getName()); //$NON-NLS-1$
+                listener.endFailure(testCase);
+                events.add("endFailure " + testCase.getName()); //$NON-NLS-1$
+            }
+            testCase.fix();
+            listener.endTestCase(testCase);
+            events.add("endTestCase " + testCase.getName()); //$NON-NLS-1$
+        }
+        listener.endTestSuite(testSuite);
+        events.add("endTestSuite FooTest"); //$NON-NLS-1$
+        listener.endTest();
+        events.add("endTest"); //$NON-NLS-1$
+        return events;
+    }
+
+    private static class EventRecorder implements ResultReaderListener {
+        private List<String> events = new ArrayList<String>();
+        private CountDownLatch latch;
+
+        EventRecorder(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void onFirstTestSuite(TestSuiteResult testSuite) {
+            record("onFirstTestSuite " + testSuite.getName()); //$NON-NLS-1$
+        }
+
+        @Override
+        public void startTestSuite(TestSuiteResult testSuite) {
+            record("startTestSuite " + testSuite.getName()); //$NON-NLS-1$
+        }
+
+        @Override
+        public void endTestSuite(TestSuiteResult testSuite) {
+            record("endTestSuite " + testSuite.getName()); //$NON-NLS-1$
+        }
+
+        @Override
+        public void startTestCase(TestCaseResult testCase) {
+            record("startTestCase " + testCase.getName()); //$NON-NLS-1$
+        }
+
+        @Override
+        public void endTestCase(TestCaseResult testCase) {
+            record("endTestCase " + testCase.getName()); //$NON-NLS-1$
+        }
+
+        @Override
+        public void startFailure(TestCaseResult failure) {
+            record("startFailure " + failure.getName()); //$NON-NLS-1$
+        }
+
+        @Override
+        public void endFailure(TestCaseResult failure) {
+            record("endFailure " + failure.getName()); //$NON-NLS-1$
+        }
+
+        @Override
+        public void startTest() {
+            record("startTest"); //$NON-NLS-1$
+        }
+
+        @Override
+        public void endTest() {
+            record("endTest"); //$NON-NLS-1$
+        }
+
+        @Override
+        public void startError(TestCaseResult error) {
+            record("startError " + error.getName()); //$NON-NLS-1$
+        }
+
+        @Override
+        public void endError(TestCaseResult error) {
+            record("endError " + error.getName()); //$NON-NLS-1$
+        }
+
+        private void record(String event) {
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                }
+            }
+            events.add(event);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.piece_framework.makegood.core.result.Result;
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+public class ResultFolderTest {
+    @Test
+    public void keepsOnlyTheFailuresAndTheSlowestTests() throws Exception {
+        File log = File.createTempFile("MakeGood", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+        log.deleteOnExit();
+        PullResultReaderTest.writeLargeLog(log, 1000);
+        Failures failures = new Failures();
+        ResultReader resultReader = new PullResultReader(log);
+        resultReader.setResultFolder(new ResultFolder(5));
+        resultReader.addListener(failures);
+        resultReader.stop();
+        resultReader.read();
+
+        TestSuiteResult result = resultReader.getResult();
+        assertEquals(1000, result.getTestCount());
+        assertEquals(100, result.getFailureCount());
+        assertEquals(895, countFoldedTestCases(result));
+        assertEquals(105, countTestCases(result));
+        assertEquals(100, failures.findAll().size());
+
+        TestCaseResult firstFailure = failures.findAll().get(0);
+        TestCaseResult secondFailure = failures.findAll().get(1);
+        assertSame(secondFailure, failures.find(firstFailure, Failures.FIND_PREVIOUS));
+        assertSame(firstFailure, failures.find(secondFailure, Failures.FIND_NEXT));
+    }
+
+    @Test
+    public void foldsTheFastestOfTheSlowestTestsWhenASlowerOneEnds() {
+        ResultFolder resultFolder = new ResultFolder(1);
+        TestSuiteResult testSuite = new TestSuiteResult("FooTest"); //$NON-NLS-1$
+        TestCaseResult testFoo = endTestCase(resultFolder, testSuite, "testFoo", 10); //$NON-NLS-1$
+        TestCaseResult testBar = endTestCase(resultFolder, testSuite, "testBar", 30); //$NON-NLS-1$
+        TestCaseResult testBaz = endTestCase(resultFolder, testSuite, "testBaz", 20); //$NON-NLS-1$
+
+        assertTrue(testFoo.isFolded());
+        assertFalse(testBar.isFolded());
+        assertTrue(testBaz.isFolded());
+        assertEquals(1, testSuite.getChildren().size());
+        assertEquals(3, testSuite.getTestCount());
+        assertEquals(60, testSuite.getTime());
+    }
+
+    private TestCaseResult endTestCase(ResultFolder resultFolder, TestSuiteResult testSuite, String name, long time) {
+        TestCaseResult testCase = new TestCaseResult(name);
+        testSuite.addChild(testCase);
+        testCase.setTime(time);
+        testCase.fix();
+        resultFolder.fold(testCase);
+        return testCase;
+    }
+
+    private int countFoldedTestCases(Result result) {
+        int count = result instanceof TestSuiteResult ? ((TestSuiteResult) result).getFoldedTestCount() : 0;
+        for (Result child: result.getChildren()) {
+            count += countFoldedTestCases(child);
+        }
+
+        return count;
+    }
+
+    private int countTestCases(Result result) {
+        int count = result instanceof TestCaseResult ? 1 : 0;
+        for (Result child: result.getChildren()) {
+            count += countTestCases(child);
+        }
+
+        return count;
+    }
+}
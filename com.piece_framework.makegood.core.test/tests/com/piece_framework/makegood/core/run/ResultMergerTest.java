@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.piece_framework.makegood.core.result.ResultType;
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+public class ResultMergerTest {
+    @Test
+    public void mergesTheResultsOfTheShardsIntoOneTree() {
+        Progress progress = new Progress();
+        Failures failures = new Failures();
+        ResultMerger resultMerger = new ResultMerger(2);
+        resultMerger.addListener(progress);
+        resultMerger.addListener(failures);
+        ResultReaderListener shard1 = resultMerger.createShardListener();
+        ResultReaderListener shard2 = resultMerger.createShardListener();
+
+        shard1.startTest();
+        shard2.startTest();
+        TestSuiteResult testSuite1 = startTestSuite(shard1, "FooTest", 2); //$NON-NLS-1$
+        TestSuiteResult testSuite2 = startTestSuite(shard2, "BarTest", 1); //$NON-NLS-1$
+
+        assertSame(resultMerger.getResult(), progress.getResult());
+        assertEquals(3, progress.getAllTestCount());
+
+        TestCaseResult testCase1 = startTestCase(shard1, testSuite1, "testFoo1"); //$NON-NLS-1$
+        TestCaseResult testCase2 = startTestCase(shard2, testSuite2, "testBar"); //$NON-NLS-1$
+        testCase1.setResultType(ResultType.FAILURE);
+        shard1.startFailure(testCase1);
+        shard1.endFailure(testCase1);
+        endTestCase(shard2, testCase2);
+        endTestCase(shard1, testCase1);
+        endTestCase(shard1, startTestCase(shard1, testSuite1, "testFoo2")); //$NON-NLS-1$
+        shard1.endTestSuite(testSuite1);
+        shard1.endTest();
+
+        assertFalse(progress.noTestsFound());
+        assertEquals(3, progress.getTestCount());
+        assertEquals(1, progress.getFailureCount());
+        assertEquals(1, failures.findAll().size());
+        assertSame(testCase1, failures.findAll().get(0));
+
+        shard2.endTestSuite(testSuite2);
+        shard2.endTest();
+
+        assertEquals(2, resultMerger.getResult().getChildren().size());
+        assertTrue(resultMerger.getResult().isFixed());
+    }
+
+    @Test
+    public void keepsTheCountsOfTheShardsUpdatedConcurrently() throws Exception {
+        final int shardCount = 4;
+        final int testCount = 10000;
+        final ResultMerger resultMerger = new ResultMerger(shardCount);
+        Thread[] threads = new Thread[shardCount];
+        for (int i = 0; i < shardCount; ++i) {
+            final ResultReaderListener shard = resultMerger.createShardListener();
+            final String name = "Shard" + i; //$NON-NLS-1$
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    shard.startTest();
+                    TestSuiteResult testSuite = startTestSuite(shard, name, testCount);
+                    for (int j = 0; j < testCount; ++j) {
+                        TestCaseResult testCase = new TestCaseResult("test" + j); //$NON-NLS-1$
+                        testSuite.addChild(testCase);
+                        if (j % 10 == 0) {
+                            testCase.setResultType(ResultType.FAILURE);
+                        }
+                        testCase.setTime(1);
+                        testCase.fix();
+                    }
+                    shard.endTestSuite(testSuite);
+                    shard.endTest();
+                }
+            };
+        }
+        for (Thread thread: threads) {
+            thread.start();
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+
+        TestSuiteResult result = resultMerger.getResult();
+        assertEquals(shardCount * testCount, result.getTestCount());
+        assertEquals(shardCount * testCount / 10, result.getFailureCount());
+        assertEquals(shardCount * testCount, result.getTime());
+        assertEquals(1 + shardCount * (1 + testCount), result.getSize());
+        assertTrue(result.isFixed());
+    }
+
+    @Test
+    public void resumesThePreviousRunInTheSameTree() {
+        TestSuiteResult previousResult = new TestSuiteResult("AllTests"); //$NON-NLS-1$
+        TestSuiteResult previousTestSuite = new TestSuiteResult("FooTest"); //$NON-NLS-1$
+        previousTestSuite.setAllTestCount(3);
+        previousResult.addChild(previousTestSuite);
+        TestCaseResult previousTestCase1 = new TestCaseResult("testFoo1"); //$NON-NLS-1$
+        previousTestSuite.addChild(previousTestCase1);
+        previousTestCase1.fix();
+        TestCaseResult previousTestCase2 = new TestCaseResult("testFoo2"); //$NON-NLS-1$
+        previousTestSuite.addChild(previousTestCase2);
+        previousTestCase2.setResultType(ResultType.ERROR);
+        previousTestCase2.setTime(5);
+        previousTestCase2.fix();
+        Progress progress = new Progress();
+        Failures failures = new Failures();
+        ResultMerger resultMerger = new ResultMerger(1, previousResult);
+        resultMerger.addListener(progress);
+        resultMerger.addListener(failures);
+        ResultReaderListener shard = resultMerger.createShardListener();
+
+        shard.startTest();
+        TestSuiteResult testSuite = startTestSuite(shard, "FooTest", 1); //$NON-NLS-1$
+
+        assertSame(previousResult, progress.getResult());
+        assertEquals(3, progress.getAllTestCount());
+        assertEquals(1, failures.findAll().size());
+        assertSame(previousTestCase2, failures.findAll().get(0));
+
+        endTestCase(shard, startTestCase(shard, testSuite, "testFoo3")); //$NON-NLS-1$
+        shard.endTestSuite(testSuite);
+        shard.endTest();
+
+        assertEquals(3, progress.getTestCount());
+        assertEquals(1, progress.getErrorCount());
+        assertEquals(2, previousResult.getChildren().size());
+        assertEquals(5, previousTestCase2.getTime());
+    }
+
+    private TestSuiteResult startTestSuite(ResultReaderListener shard, String name, int allTestCount) {
+        TestSuiteResult testSuite = new TestSuiteResult(name);
+        testSuite.setAllTestCount(allTestCount);
+        shard.onFirstTestSuite(testSuite);
+        shard.startTestSuite(testSuite);
+        return testSuite;
+    }
+
+    private TestCaseResult startTestCase(ResultReaderListener shard, TestSuiteResult testSuite, String name) {
+        TestCaseResult testCase = new TestCaseResult(name);
+        testSuite.addChild(testCase);
+        shard.startTestCase(testCase);
+        return testCase;
+    }
+
+    private void endTestCase(ResultReaderListener shard, TestCaseResult testCase) {
+        testCase.fix();
+        shard.endTestCase(testCase);
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.junit.Test;
+
+public class ResultPipeTest {
+    @Test
+    public void readsTheResultsThroughThePipe() throws Exception {
+        File pipe = createPipe();
+        final ResultReader resultReader = new PullResultReader(pipe);
+        Thread thread = startReading(resultReader);
+
+        FileOutputStream output = new FileOutputStream(pipe);
+        try {
+            output.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?><testsuites><testsuite name=\"FooTest\" tests=\"2\">".getBytes("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+            output.flush();
+            Thread.sleep(100);
+            output.write("<testcase name=\"testFoo\" class=\"FooTest\" method=\"testFoo\"></testcase>".getBytes("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+            output.write("<testcase name=\"testBar\" class=\"FooTest\" method=\"testBar\"><failure type=\"Foo\">trace</failure></testcase>".getBytes("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+            output.write("</testsuite></testsuites>".getBytes("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+        } finally {
+            output.close();
+        }
+
+        resultReader.stop();
+        thread.join(5000);
+
+        assertTrue(!thread.isAlive());
+        assertEquals(2, resultReader.getResult().getTestCount());
+        assertEquals(1, resultReader.getResult().getFailureCount());
+        assertEquals(0, pipe.length());
+        pipe.delete();
+    }
+
+    @Test
+    public void stopsWaitingForTheRunnerToOpenThePipe() throws Exception {
+        File pipe = createPipe();
+        ResultReader resultReader = new ResultReader(pipe);
+        Thread thread = startReading(resultReader);
+        Thread.sleep(300);
+
+        resultReader.stop();
+        thread.join(5000);
+
+        assertTrue(!thread.isAlive());
+        pipe.delete();
+    }
+
+    private File createPipe() throws Exception {
+        File pipe = File.createTempFile("MakeGood", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+        pipe.delete();
+        assumeTrue(ResultPipe.create(pipe));
+        assertTrue(ResultPipe.isPipe(pipe));
+        return pipe;
+    }
+
+    private Thread startReading(final ResultReader resultReader) {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    resultReader.read();
+                } catch (Exception e) {
+                }
+            }
+        };
+        thread.start();
+        return thread;
+    }
+}
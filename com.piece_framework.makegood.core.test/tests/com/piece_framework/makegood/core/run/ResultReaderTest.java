@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class ResultReaderTest {
+    @Test
+    public void readsTheLogWhileItIsBeingWritten() throws Exception {
+        final File log = File.createTempFile("MakeGood", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+        log.deleteOnExit();
+        final ResultReader resultReader = new ResultReader(log);
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    resultReader.read();
+                } catch (Exception e) {
+                }
+            }
+        };
+        thread.start();
+
+        FileOutputStream output = new FileOutputStream(log);
+        try {
+            write(output, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><testsuites><testsuite name=\"FooTest\" tests=\"2\">"); //$NON-NLS-1$
+            Thread.sleep(300);
+            write(output, "<testcase name=\"testFoo\" class=\"FooTest\" method=\"testFoo\"></testcase>"); //$NON-NLS-1$
+            Thread.sleep(300);
+            write(output, "<testcase name=\"testBar\" class=\"FooTest\" method=\"testBar\"><failure type=\"Foo\">trace</failure></testcase>"); //$NON-NLS-1$
+            write(output, "</testsuite></testsuites>"); //$NON-NLS-1$
+        } finally {
+            output.close();
+        }
+
+        resultReader.stop();
+        thread.join(5000);
+
+        assertTrue(!thread.isAlive());
+        assertEquals(2, resultReader.getResult().getTestCount());
+        assertEquals(1, resultReader.getResult().getFailureCount());
+        assertEquals(log.length(), resultReader.getBytesRead());
+        assertTrue(resultReader.getIdleTime() > 0);
+        assertTrue(resultReader.getWakeUpCount() < 100);
+    }
+
+    @Test
+    public void stopsWaitingForTheLogImmediatelyWhenStopped() throws Exception {
+        File log = File.createTempFile("MakeGood", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+        log.deleteOnExit();
+        final ResultReader resultReader = new ResultReader(log);
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    resultReader.read();
+                } catch (Exception e) {
+                }
+            }
+        };
+        thread.start();
+        Thread.sleep(500);
+
+        long startTime = System.nanoTime();
+        resultReader.stop();
+        thread.join(5000);
+
+        assertTrue(!thread.isAlive());
+        assertTrue(System.nanoTime() - startTime < 1000000000L);
+    }
+
+    private void write(FileOutputStream output, String data) throws IOException {
+        output.write(data.getBytes("UTF-8")); //$NON-NLS-1$
+        output.flush();
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.piece_framework.makegood.core.result.ResultType;
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+public class ResumeTargetsTest {
+    @Test
+    public void findsTheTestsWhichHaveBeenReportedBeforeTheCrash() {
+        TestSuiteResult result = new TestSuiteResult("AllTests"); //$NON-NLS-1$
+        TestSuiteResult fooTest = createTestSuite(result, "FooTest", 2); //$NON-NLS-1$
+        createTestCase(fooTest, "testFoo", true); //$NON-NLS-1$
+        createTestCase(fooTest, "testBar", true); //$NON-NLS-1$
+        TestSuiteResult barTest = createTestSuite(result, "BarTest", 3); //$NON-NLS-1$
+        createTestCase(barTest, "testFoo", true); //$NON-NLS-1$
+        TestCaseResult crashedTestCase = createTestCase(barTest, "testBar", false); //$NON-NLS-1$
+
+        ResumeTargets resumeTargets = new ResumeTargets(result);
+
+        assertSame(crashedTestCase, resumeTargets.getCrashedTestCase());
+        assertTrue(resumeTargets.isReported("FooTest")); //$NON-NLS-1$
+        assertTrue(resumeTargets.isReported("FooTest", "testQux")); //$NON-NLS-1$ //$NON-NLS-2$
+        assertTrue(resumeTargets.isReported("BarTest")); //$NON-NLS-1$
+        assertTrue(resumeTargets.isReported("BarTest", "testFoo")); //$NON-NLS-1$ //$NON-NLS-2$
+        assertTrue(resumeTargets.isReported("BarTest", "testBar")); //$NON-NLS-1$ //$NON-NLS-2$
+        assertFalse(resumeTargets.isReported("BarTest", "testBaz")); //$NON-NLS-1$ //$NON-NLS-2$
+        assertFalse(resumeTargets.isReported("BazTest")); //$NON-NLS-1$
+
+        resumeTargets.markCrashedTestCaseAsError("Fatal error: Call to undefined function foo()"); //$NON-NLS-1$
+
+        assertEquals(ResultType.ERROR, crashedTestCase.getResultType());
+        assertTrue(crashedTestCase.isFixed());
+        assertEquals(4, result.getTestCount());
+        assertEquals(1, result.getErrorCount());
+    }
+
+    @Test
+    public void runsTheTestCasesInterruptedOnTheOtherShardsAgain() {
+        TestSuiteResult result = new TestSuiteResult("AllTests"); //$NON-NLS-1$
+        TestSuiteResult fooTest = createTestSuite(createTestSuite(result, "Shard1", 0), "FooTest", 2); //$NON-NLS-1$ //$NON-NLS-2$
+        createTestCase(fooTest, "testFoo", true); //$NON-NLS-1$
+        TestCaseResult hungTestCase = createTestCase(fooTest, "testBar", false); //$NON-NLS-1$
+        TestSuiteResult barTest = createTestSuite(createTestSuite(result, "Shard2", 0), "BarTest", 2); //$NON-NLS-1$ //$NON-NLS-2$
+        createTestCase(barTest, "testFoo", true); //$NON-NLS-1$
+        TestCaseResult interruptedTestCase = createTestCase(barTest, "testBar", false); //$NON-NLS-1$
+
+        ResumeTargets resumeTargets = new ResumeTargets(result, hungTestCase);
+
+        assertSame(hungTestCase, resumeTargets.getCrashedTestCase());
+        assertEquals(Arrays.asList(interruptedTestCase), resumeTargets.getInterruptedTestCases());
+        assertTrue(resumeTargets.isReported("FooTest", "testBar")); //$NON-NLS-1$ //$NON-NLS-2$
+        assertFalse(resumeTargets.isReported("BarTest", "testBar")); //$NON-NLS-1$ //$NON-NLS-2$
+
+        resumeTargets.markCrashedTestCaseAsError("The test did not end in 60 seconds and was terminated."); //$NON-NLS-1$
+        resumeTargets.removeInterruptedTestCases();
+
+        assertEquals(1, barTest.getChildren().size());
+        assertEquals(3, result.getTestCount());
+        assertEquals(1, result.getErrorCount());
+        assertTrue(result.isFixed());
+    }
+
+    @Test
+    public void findsNoCrashedTestCaseIfTheRunIsKilledOutsideOfTestCases() {
+        TestSuiteResult result = new TestSuiteResult("AllTests"); //$NON-NLS-1$
+        createTestCase(createTestSuite(result, "FooTest", 2), "testFoo", true); //$NON-NLS-1$ //$NON-NLS-2$
+
+        assertNull(new ResumeTargets(result).getCrashedTestCase());
+    }
+
+    @Test
+    public void findsTheTestsByTheNamesQualifiedWithTheirNamespaces() {
+        TestSuiteResult result = new TestSuiteResult("AllTests"); //$NON-NLS-1$
+        TestSuiteResult fooTest = createTestSuite(result, "Foo\\FooTest", 2); //$NON-NLS-1$
+        createTestCase(fooTest, "testFoo", true); //$NON-NLS-1$
+        createTestCase(fooTest, "testBar", false); //$NON-NLS-1$
+
+        ResumeTargets resumeTargets = new ResumeTargets(result);
+
+        assertTrue(resumeTargets.isReported("\\Foo\\FooTest")); //$NON-NLS-1$
+        assertTrue(resumeTargets.isReported("\\Foo\\FooTest", "testFoo")); //$NON-NLS-1$ //$NON-NLS-2$
+        assertTrue(resumeTargets.isReported("Foo\\FooTest", "testBar")); //$NON-NLS-1$ //$NON-NLS-2$
+        assertFalse(resumeTargets.isReported("\\Foo\\FooTest", "testBaz")); //$NON-NLS-1$ //$NON-NLS-2$
+        assertFalse(resumeTargets.isReported("FooTest")); //$NON-NLS-1$
+    }
+
+    @Test
+    public void doesNotResumeTheRunAgainIfItCrashesOnTheTestWhichHasAlreadyCrashed() {
+        TestSuiteResult result = new TestSuiteResult("AllTests"); //$NON-NLS-1$
+        TestSuiteResult fooTest = createTestSuite(result, "FooTest", 3); //$NON-NLS-1$
+        createTestCase(fooTest, "testFoo", true); //$NON-NLS-1$
+        createTestCase(fooTest, "testBar", false); //$NON-NLS-1$
+
+        ResumeTargets resumeTargets = new ResumeTargets(result);
+        resumeTargets.markCrashedTestCaseAsError(null);
+        resumeTargets.removeInterruptedTestCases();
+
+        assertTrue(resumeTargets.isResumable(null));
+
+        createTestCase(fooTest, "testBar", false); //$NON-NLS-1$
+        ResumeTargets crashedAgain = new ResumeTargets(result);
+        crashedAgain.markCrashedTestCaseAsError(null);
+        crashedAgain.removeInterruptedTestCases();
+
+        assertFalse(crashedAgain.isResumable(resumeTargets));
+    }
+
+    @Test
+    public void resumesTheRunAgainIfItCrashesOnANewTest() {
+        TestSuiteResult result = new TestSuiteResult("AllTests"); //$NON-NLS-1$
+        TestSuiteResult fooTest = createTestSuite(result, "FooTest", 3); //$NON-NLS-1$
+        createTestCase(fooTest, "testFoo", true); //$NON-NLS-1$
+        createTestCase(fooTest, "testBar", false); //$NON-NLS-1$
+
+        ResumeTargets resumeTargets = new ResumeTargets(result);
+        resumeTargets.markCrashedTestCaseAsError(null);
+        resumeTargets.removeInterruptedTestCases();
+
+        createTestCase(fooTest, "testBaz", false); //$NON-NLS-1$
+        ResumeTargets crashedAgain = new ResumeTargets(result);
+        crashedAgain.markCrashedTestCaseAsError(null);
+        crashedAgain.removeInterruptedTestCases();
+
+        assertTrue(crashedAgain.isResumable(resumeTargets));
+        assertTrue(crashedAgain.isReported("FooTest", "testBaz")); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    private TestSuiteResult createTestSuite(TestSuiteResult parent, String name, int allTestCount) {
+        TestSuiteResult testSuite = new TestSuiteResult(name);
+        testSuite.setClassName(name);
+        testSuite.setAllTestCount(allTestCount);
+        parent.addChild(testSuite);
+        return testSuite;
+    }
+
+    private TestCaseResult createTestCase(TestSuiteResult parent, String name, boolean isFixed) {
+        TestCaseResult testCase = new TestCaseResult(name);
+        testCase.setClassName(parent.getName());
+        testCase.setMethodName(name);
+        parent.addChild(testCase);
+        if (isFixed) {
+            testCase.fix();
+        }
+        return testCase;
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+public class StringPoolTest {
+    @Test
+    public void returnsThePooledInstance() {
+        StringPool stringPool = new StringPool();
+        String foo = new String("FooTest"); //$NON-NLS-1$
+
+        assertSame(foo, stringPool.intern(foo));
+        assertSame(foo, stringPool.intern(new String("FooTest"))); //$NON-NLS-1$
+        assertNull(stringPool.intern(null));
+        assertEquals(1, stringPool.size());
+        assertEquals(1, stringPool.getHitCount());
+        assertEquals(40 + 7 * 2, stringPool.getSavedBytes());
+    }
+
+    @Test
+    public void sharesTheStringsOfTheResults() throws Exception {
+        File log = File.createTempFile("MakeGood", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+        log.deleteOnExit();
+        PullResultReaderTest.writeLargeLog(log, 1000);
+        ResultReader resultReader = new PullResultReader(log);
+        resultReader.stop();
+        resultReader.read();
+
+        TestSuiteResult testSuite = (TestSuiteResult) resultReader.getResult().getChildren().get(0);
+        TestCaseResult testCase1 = (TestCaseResult) testSuite.getChildren().get(0);
+        TestCaseResult testCase2 = (TestCaseResult) testSuite.getChildren().get(1);
+        assertSame(testCase1.getFile(), testCase2.getFile());
+        assertSame(testCase1.getClassName(), testCase2.getClassName());
+        assertSame(testCase1.getName(), testCase1.getMethodName());
+        assertTrue(resultReader.getStringPool().getSavedBytes() > 1000 * 40);
+    }
+}
@@ -11,6 +11,8 @@
 
 package com.piece_framework.makegood.core;
 
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.ElementChangedEvent;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 
@@ -38,6 +40,7 @@ public class Activator extends AbstractUIPlugin {
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		plugin = this;
+		DLTKCore.addElementChangedListener(TestClassIndex.getInstance(), ElementChangedEvent.POST_CHANGE);
 	}
 
 	/*
@@ -45,6 +48,8 @@ public class Activator extends AbstractUIPlugin {
 	 * @see org.eclipse.ui.plugin.AbstractUIPlugin#stop(org.osgi.framework.BundleContext)
 	 */
 	public void stop(BundleContext context) throws Exception {
+		DLTKCore.removeElementChangedListener(TestClassIndex.getInstance());
+		TestClassIndex.getInstance().clear();
 		plugin = null;
 		super.stop(context);
 	}
@@ -19,6 +19,7 @@ import org.eclipse.core.resources.IFolder;
 
 import com.piece_framework.makegood.core.continuoustesting.ContinuousTesting;
 import com.piece_framework.makegood.core.continuoustesting.Scope;
+import com.piece_framework.makegood.core.run.DurationHistory;
 
 /**
  * @since 2.0.0
@@ -33,7 +34,7 @@ public class DefaultConfiguration {
      * @since 2.3.0
      */
     public DefaultConfiguration() {
-        continuousTesting = new ContinuousTesting(true, Scope.ALL_TESTS);
+        continuousTesting = new ContinuousTesting(true, Scope.ALL_TESTS, 300, false);
     }
 
     /**
@@ -69,4 +70,88 @@ public class DefaultConfiguration {
     public TestResultsLayout getTestResultsLayout() {
         return TestResultsLayout.TAB;
     }
+
+    /**
+     * @since 3.2.0
+     */
+    public int getResultViewRefreshRate() {
+        return 10;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public int getShardCount() {
+        return 1;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public boolean usesResultPipe() {
+        return false;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public int getFailureTraceInlineThreshold() {
+        return 64;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public boolean isSummaryOnly() {
+        return false;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public int getSummaryOnlySlowestTestCount() {
+        return 20;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public boolean isResumeAfterFatalError() {
+        return false;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public int getHangTimeLimit() {
+        return 0;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public boolean isHangTimeLimitFromHistory() {
+        return false;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public boolean isResultCacheEnabled() {
+        return false;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public int getTestOrder() {
+        return DurationHistory.UNORDERED;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public boolean isPullResultReaderEnabled() {
+        return false;
+    }
 }
@@ -1,5 +1,5 @@
 /**
- * Copyright (c) 2012-2013 KUBO Atsuhiro <kubo@iteman.jp>,
+ * Copyright (c) 2012-2014 KUBO Atsuhiro <kubo@iteman.jp>,
  * All rights reserved.
  *
  * This file is part of MakeGood.
@@ -11,17 +11,13 @@
 
 package com.piece_framework.makegood.core;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.dltk.core.Flags;
 import org.eclipse.dltk.core.IType;
-import org.eclipse.dltk.core.ITypeHierarchy;
 import org.eclipse.dltk.core.ModelException;
 import org.eclipse.php.core.compiler.PHPFlags;
-import org.eclipse.php.internal.core.typeinference.PHPClassType;
 
 /**
  * @since 2.2.0
@@ -62,26 +58,6 @@ public class PHPType {
     }
 
     private List<IType> collectTestClassAncestors() throws ModelException {
-        List<IType> testClassAncestors = new ArrayList<IType>();
-
-        ITypeHierarchy hierarchy = type.newSupertypeHierarchy(new NullProgressMonitor());
-        if (hierarchy == null) return testClassAncestors;
-        IType[] superTypes = hierarchy.getAllSuperclasses(type);
-        if (superTypes == null) return testClassAncestors;
-
-        for (IType superType: superTypes) {
-            for (String testClassSuperType: testingFramework.getTestClassSuperTypes()) {
-                PHPClassType superTypeClassType = PHPClassType.fromIType(superType);
-                if (superTypeClassType.getNamespace() != null) {
-                    testClassSuperType = "\\" + testClassSuperType; //$NON-NLS-1$
-                }
-
-                if (superTypeClassType.getTypeName().equals(testClassSuperType)) {
-                    testClassAncestors.add(superType);
-                }
-            }
-        }
-
-        return testClassAncestors;
+        return TestClassIndex.getInstance().getTestClassAncestors(type, testingFramework);
     }
 }
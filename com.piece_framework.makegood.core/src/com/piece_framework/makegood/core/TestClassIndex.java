@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.dltk.core.ElementChangedEvent;
+import org.eclipse.dltk.core.IElementChangedListener;
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.IModelElementDelta;
+import org.eclipse.dltk.core.IType;
+import org.eclipse.dltk.core.ITypeHierarchy;
+import org.eclipse.dltk.core.ModelException;
+import org.eclipse.php.internal.core.typeinference.PHPClassType;
+
+/**
+ * A workspace-wide cache of the superclasses and the test class ancestors of
+ * types, keyed by the handle identifier of a type. The entries are removed
+ * when the source module of the type or of one of its superclasses is
+ * changed, and all entries are removed when source modules are added or
+ * removed since they may change any hierarchy. An entry whose superclasses
+ * are not all resolved is removed when any source module is changed, since
+ * the missing superclass may be declared there.
+ *
+ * @since 3.2.0
+ */
+@SuppressWarnings("restriction")
+public class TestClassIndex implements IElementChangedListener {
+    private static TestClassIndex soleInstance;
+    private Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    /**
+     * The count of the invalidations, by which an entry computed across an
+     * invalidation is discarded instead of being cached.
+     */
+    private long generation;
+
+    private TestClassIndex() {
+    }
+
+    public static synchronized TestClassIndex getInstance() {
+        if (soleInstance == null) {
+            soleInstance = new TestClassIndex();
+        }
+
+        return soleInstance;
+    }
+
+    public IType[] getAllSuperclasses(IType type) throws ModelException {
+        return getEntry(type).superclasses;
+    }
+
+    /**
+     * Returns the superclasses of the given type which are the test class
+     * super types of the given testing framework.
+     */
+    public List<IType> getTestClassAncestors(IType type, TestingFramework testingFramework) throws ModelException {
+        Entry entry = getEntry(type);
+        synchronized (entry) {
+            List<IType> testClassAncestors = entry.testClassAncestors.get(testingFramework);
+            if (testClassAncestors == null) {
+                testClassAncestors = Collections.unmodifiableList(collectTestClassAncestors(entry.superclasses, testingFramework));
+                entry.testClassAncestors.put(testingFramework, testClassAncestors);
+            }
+
+            return testClassAncestors;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        ++generation;
+    }
+
+    @Override
+    public void elementChanged(ElementChangedEvent event) {
+        List<String> changedSourceModules = new ArrayList<String>();
+        if (!collectChangedSourceModules(event.getDelta(), changedSourceModules)) {
+            clear();
+            return;
+        }
+        if (changedSourceModules.size() == 0) return;
+
+        synchronized (this) {
+            ++generation;
+            for (Iterator<Map.Entry<String, Entry>> i = entries.entrySet().iterator(); i.hasNext();) {
+                Map.Entry<String, Entry> entry = i.next();
+                if (isAffected(entry.getKey(), entry.getValue(), changedSourceModules)) {
+                    i.remove();
+                }
+            }
+        }
+    }
+
+    private Entry getEntry(IType type) throws ModelException {
+        String key = type.getHandleIdentifier();
+        long startGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) return entry;
+            startGeneration = generation;
+        }
+
+        // TODO Type Hierarchy by PDT 2.1 does not work with namespaces.
+        IType[] superclasses = null;
+        ITypeHierarchy hierarchy = type.newSupertypeHierarchy(new NullProgressMonitor());
+        if (hierarchy != null) {
+            superclasses = hierarchy.getAllSuperclasses(type);
+        }
+        Entry entry = superclasses == null ?
+            new Entry(new IType[0], true) :
+            new Entry(superclasses, hasUnresolvedSuperclasses(type, superclasses));
+
+        synchronized (this) {
+            if (generation == startGeneration) {
+                entries.put(key, entry);
+            }
+        }
+
+        return entry;
+    }
+
+    /**
+     * Returns whether a superclass declared by the given type or by one of
+     * its superclasses is missing from the resolved superclasses. The names
+     * are compared without their namespaces.
+     */
+    private boolean hasUnresolvedSuperclasses(IType type, IType[] superclasses) throws ModelException {
+        List<IType> types = new ArrayList<IType>();
+        types.add(type);
+        Collections.addAll(types, superclasses);
+        for (IType declaringType: types) {
+            String[] superclassNames = declaringType.getSuperClasses();
+            if (superclassNames == null) continue;
+            for (String superclassName: superclassNames) {
+                if (!isResolved(superclassName, superclasses)) return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isResolved(String superclassName, IType[] superclasses) {
+        String elementName = superclassName.substring(superclassName.lastIndexOf('\\') + 1);
+        for (IType superclass: superclasses) {
+            if (superclass.getElementName().equalsIgnoreCase(elementName)) return true;
+        }
+
+        return false;
+    }
+
+    private List<IType> collectTestClassAncestors(IType[] superclasses, TestingFramework testingFramework) {
+        List<IType> testClassAncestors = new ArrayList<IType>();
+        for (IType superclass: superclasses) {
+            for (String testClassSuperType: testingFramework.getTestClassSuperTypes()) {
+                PHPClassType superclassClassType = PHPClassType.fromIType(superclass);
+                if (superclassClassType.getNamespace() != null) {
+                    testClassSuperType = "\\" + testClassSuperType; //$NON-NLS-1$
+                }
+
+                if (superclassClassType.getTypeName().equals(testClassSuperType)) {
+                    testClassAncestors.add(superclass);
+                }
+            }
+        }
+
+        return testClassAncestors;
+    }
+
+    /**
+     * Collects the handle identifiers of the changed source modules. Returns
+     * false if the whole index should be cleared.
+     */
+    private boolean collectChangedSourceModules(IModelElementDelta delta, List<String> changedSourceModules) {
+        if (delta.getElement().getElementType() == IModelElement.SOURCE_MODULE) {
+            if (delta.getKind() != IModelElementDelta.CHANGED) return false;
+            changedSourceModules.add(delta.getElement().getHandleIdentifier());
+            return true;
+        }
+
+        if (delta.getKind() != IModelElementDelta.CHANGED) return false;
+        if ((delta.getFlags() & (IModelElementDelta.F_OPENED | IModelElementDelta.F_CLOSED | IModelElementDelta.F_BUILDPATH_CHANGED)) != 0) return false;
+        for (IModelElementDelta child: delta.getAffectedChildren()) {
+            if (!collectChangedSourceModules(child, changedSourceModules)) return false;
+        }
+
+        return true;
+    }
+
+    private boolean isAffected(String key, Entry entry, List<String> changedSourceModules) {
+        if (entry.hasUnresolvedSuperclasses) return true;
+        for (String changedSourceModule: changedSourceModules) {
+            if (key.startsWith(changedSourceModule)) return true;
+            for (IType superclass: entry.superclasses) {
+                if (superclass.getHandleIdentifier().startsWith(changedSourceModule)) return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static class Entry {
+        private IType[] superclasses;
+        private boolean hasUnresolvedSuperclasses;
+        private Map<TestingFramework, List<IType>> testClassAncestors = new HashMap<TestingFramework, List<IType>>();
+
+        private Entry(IType[] superclasses, boolean hasUnresolvedSuperclasses) {
+            this.superclasses = superclasses;
+            this.hasUnresolvedSuperclasses = hasUnresolvedSuperclasses;
+        }
+    }
+}
@@ -17,13 +17,11 @@ import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.dltk.ast.Modifiers;
 import org.eclipse.dltk.core.IMethod;
 import org.eclipse.dltk.core.IModelElement;
 import org.eclipse.dltk.core.IType;
-import org.eclipse.dltk.core.ITypeHierarchy;
 import org.eclipse.dltk.core.ModelException;
 import org.eclipse.php.internal.core.typeinference.PHPClassType;
 
@@ -164,11 +162,7 @@ public enum TestingFramework {
     }
 
     private boolean hasTests(IType type, String testClassSuperType) throws ModelException {
-        // TODO Type Hierarchy by PDT 2.1 does not work with namespaces.
-        ITypeHierarchy hierarchy = type.newSupertypeHierarchy(new NullProgressMonitor());
-        if (hierarchy == null) return false;
-        IType[] supertypes = hierarchy.getAllSuperclasses(type);
-        if (supertypes == null) return false;
+        IType[] supertypes = TestClassIndex.getInstance().getAllSuperclasses(type);
         for (IType supertype: supertypes) {
             if (PHPClassType.fromIType(supertype).getTypeName().equals(testClassSuperType)) {
                 return true;
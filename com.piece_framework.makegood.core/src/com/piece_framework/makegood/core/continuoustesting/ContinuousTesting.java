@@ -18,11 +18,30 @@ public class ContinuousTesting {
     private boolean enabled;
     private Scope scope;
 
+    /**
+     * @since 3.2.0
+     */
+    private int debounceWindow;
+
+    /**
+     * @since 3.2.0
+     */
+    private boolean restartsRunningTests;
+
     public ContinuousTesting(boolean enabled, Scope scope) {
         setEnabled(enabled);
         setScope(scope);
     }
 
+    /**
+     * @since 3.2.0
+     */
+    public ContinuousTesting(boolean enabled, Scope scope, int debounceWindow, boolean restartsRunningTests) {
+        this(enabled, scope);
+        setDebounceWindow(debounceWindow);
+        setRestartsRunningTests(restartsRunningTests);
+    }
+
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
     }
@@ -38,4 +57,38 @@ public class ContinuousTesting {
     public Scope getScope() {
         return scope;
     }
+
+    /**
+     * @since 3.2.0
+     */
+    public void setDebounceWindow(int debounceWindow) {
+        this.debounceWindow = Math.max(0, debounceWindow);
+    }
+
+    /**
+     * Returns the quiet period in milliseconds to wait for further changes
+     * before running tests.
+     *
+     * @since 3.2.0
+     */
+    public int getDebounceWindow() {
+        return debounceWindow;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public void setRestartsRunningTests(boolean restartsRunningTests) {
+        this.restartsRunningTests = restartsRunningTests;
+    }
+
+    /**
+     * Returns whether a test run started by continuous testing is stopped and
+     * restarted when further changes arrive.
+     *
+     * @since 3.2.0
+     */
+    public boolean restartsRunningTests() {
+        return restartsRunningTests;
+    }
 }
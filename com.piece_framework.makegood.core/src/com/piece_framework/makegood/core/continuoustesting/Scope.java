@@ -18,4 +18,9 @@ public enum Scope {
     ALL_TESTS,
     LAST_TEST,
     FAILED_TESTS,
+
+    /**
+     * @since 3.2.0
+     */
+    AFFECTED_TESTS,
 }
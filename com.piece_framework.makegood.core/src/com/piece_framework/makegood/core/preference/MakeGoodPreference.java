@@ -1,5 +1,5 @@
 /**
- * Copyright (c) 2011-2013 KUBO Atsuhiro <kubo@iteman.jp>,
+ * Copyright (c) 2011-2014 KUBO Atsuhiro <kubo@iteman.jp>,
  * All rights reserved.
  *
  * This file is part of MakeGood.
@@ -29,11 +29,71 @@ public class MakeGoodPreference {
 
     public static final String CONTINUOUS_TESTING_SCOPE = "autotestScope"; //$NON-NLS-1$
 
+    /**
+     * @since 3.2.0
+     */
+    public static final String CONTINUOUS_TESTING_DEBOUNCE_WINDOW = "autotestDebounceWindow"; //$NON-NLS-1$
+
+    /**
+     * @since 3.2.0
+     */
+    public static final String CONTINUOUS_TESTING_RESTARTS_RUNNING_TESTS = "autotestRestartsRunningTests"; //$NON-NLS-1$
+
     /**
      * @since 2.5.0
      */
     private static final String TEST_RESULTS_LAYOUT = "testResultsLayout"; //$NON-NLS-1$
 
+    /**
+     * @since 3.2.0
+     */
+    public static final String RESULT_VIEW_REFRESH_RATE = "resultViewRefreshRate"; //$NON-NLS-1$
+
+    /**
+     * @since 3.2.0
+     */
+    public static final String FAILURE_TRACE_INLINE_THRESHOLD = "failureTraceInlineThreshold"; //$NON-NLS-1$
+
+    /**
+     * @since 3.2.0
+     */
+    public static final String SUMMARY_ONLY = "summaryOnly"; //$NON-NLS-1$
+
+    /**
+     * @since 3.2.0
+     */
+    public static final String SUMMARY_ONLY_SLOWEST_TEST_COUNT = "summaryOnlySlowestTestCount"; //$NON-NLS-1$
+
+    /**
+     * @since 3.2.0
+     */
+    public static final String RESUME_AFTER_FATAL_ERROR = "resumeAfterFatalError"; //$NON-NLS-1$
+
+    /**
+     * @since 3.2.0
+     */
+    public static final String HANG_TIME_LIMIT = "hangTimeLimit"; //$NON-NLS-1$
+
+    /**
+     * @since 3.2.0
+     */
+    public static final String HANG_TIME_LIMIT_FROM_HISTORY = "hangTimeLimitFromHistory"; //$NON-NLS-1$
+
+    /**
+     * @since 3.2.0
+     */
+    public static final String RESULT_CACHE_ENABLED = "resultCacheEnabled"; //$NON-NLS-1$
+
+    /**
+     * @since 3.2.0
+     */
+    public static final String TEST_ORDER = "testOrder"; //$NON-NLS-1$
+
+    /**
+     * @since 3.2.0
+     */
+    public static final String PULL_RESULT_READER_ENABLED = "pullResultReaderEnabled"; //$NON-NLS-1$
+
     /**
      * @since 2.3.0
      */
@@ -75,11 +135,46 @@ public class MakeGoodPreference {
             return Scope.LAST_TEST;
         } else if (continuousTestingScope.equals(Scope.FAILED_TESTS.name())) {
             return Scope.FAILED_TESTS;
+        } else if (continuousTestingScope.equals(Scope.AFFECTED_TESTS.name())) {
+            return Scope.AFFECTED_TESTS;
         } else {
             return new DefaultConfiguration().getContinuousTesting().getScope();
         }
     }
 
+    /**
+     * @since 3.2.0
+     */
+    public void setContinuousTestingDebounceWindow(int continuousTestingDebounceWindow) {
+        preferenceStore.setValue(CONTINUOUS_TESTING_DEBOUNCE_WINDOW, continuousTestingDebounceWindow);
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public int getContinuousTestingDebounceWindow() {
+        int continuousTestingDebounceWindow = preferenceStore.getInt(CONTINUOUS_TESTING_DEBOUNCE_WINDOW);
+        if (continuousTestingDebounceWindow < 0) {
+            return new DefaultConfiguration().getContinuousTesting().getDebounceWindow();
+        }
+
+        return continuousTestingDebounceWindow;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public void setContinuousTestingRestartsRunningTests(boolean continuousTestingRestartsRunningTests) {
+        preferenceStore.setValue(CONTINUOUS_TESTING_RESTARTS_RUNNING_TESTS, continuousTestingRestartsRunningTests);
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public boolean getContinuousTestingRestartsRunningTests() {
+        return preferenceStore.getBoolean(CONTINUOUS_TESTING_RESTARTS_RUNNING_TESTS);
+    }
+
     /**
      * @since 2.5.0
      */
@@ -100,4 +195,194 @@ public class MakeGoodPreference {
             return new DefaultConfiguration().getTestResultsLayout();
         }
     }
+
+    /**
+     * @since 3.2.0
+     */
+    public void setResultViewRefreshRate(int resultViewRefreshRate) {
+        preferenceStore.setValue(RESULT_VIEW_REFRESH_RATE, resultViewRefreshRate);
+    }
+
+    /**
+     * Returns the maximum number of times per second the Result view is
+     * refreshed while running tests.
+     *
+     * @since 3.2.0
+     */
+    public int getResultViewRefreshRate() {
+        int resultViewRefreshRate = preferenceStore.getInt(RESULT_VIEW_REFRESH_RATE);
+        if (resultViewRefreshRate <= 0) {
+            return new DefaultConfiguration().getResultViewRefreshRate();
+        }
+
+        return resultViewRefreshRate;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public void setFailureTraceInlineThreshold(int failureTraceInlineThreshold) {
+        preferenceStore.setValue(FAILURE_TRACE_INLINE_THRESHOLD, failureTraceInlineThreshold);
+    }
+
+    /**
+     * Returns the maximum size in kilobytes of the failure traces to be kept
+     * in memory. The larger ones are written to a file during a run.
+     *
+     * @since 3.2.0
+     */
+    public int getFailureTraceInlineThreshold() {
+        int failureTraceInlineThreshold = preferenceStore.getInt(FAILURE_TRACE_INLINE_THRESHOLD);
+        if (failureTraceInlineThreshold < 0) {
+            return new DefaultConfiguration().getFailureTraceInlineThreshold();
+        }
+
+        return failureTraceInlineThreshold;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public void setSummaryOnly(boolean summaryOnly) {
+        preferenceStore.setValue(SUMMARY_ONLY, summaryOnly);
+    }
+
+    /**
+     * Returns whether only the failures, the errors, and the slowest tests
+     * are kept in the result of a run, and the other passed tests are
+     * counted in their suites.
+     *
+     * @since 3.2.0
+     */
+    public boolean getSummaryOnly() {
+        return preferenceStore.getBoolean(SUMMARY_ONLY);
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public void setSummaryOnlySlowestTestCount(int summaryOnlySlowestTestCount) {
+        preferenceStore.setValue(SUMMARY_ONLY_SLOWEST_TEST_COUNT, summaryOnlySlowestTestCount);
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public int getSummaryOnlySlowestTestCount() {
+        int summaryOnlySlowestTestCount = preferenceStore.getInt(SUMMARY_ONLY_SLOWEST_TEST_COUNT);
+        if (summaryOnlySlowestTestCount < 0) {
+            return new DefaultConfiguration().getSummaryOnlySlowestTestCount();
+        }
+
+        return summaryOnlySlowestTestCount;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public void setResumeAfterFatalError(boolean resumeAfterFatalError) {
+        preferenceStore.setValue(RESUME_AFTER_FATAL_ERROR, resumeAfterFatalError);
+    }
+
+    /**
+     * Returns whether a run killed by a fatal error is resumed with the tests
+     * which have not been run.
+     *
+     * @since 3.2.0
+     */
+    public boolean getResumeAfterFatalError() {
+        return preferenceStore.getBoolean(RESUME_AFTER_FATAL_ERROR);
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public void setHangTimeLimit(int hangTimeLimit) {
+        preferenceStore.setValue(HANG_TIME_LIMIT, hangTimeLimit);
+    }
+
+    /**
+     * Returns the time limit in seconds of a test case, after which the test
+     * case is regarded as hung and the run is terminated and resumed. The
+     * watchdog is disabled if this is 0.
+     *
+     * @since 3.2.0
+     */
+    public int getHangTimeLimit() {
+        int hangTimeLimit = preferenceStore.getInt(HANG_TIME_LIMIT);
+        if (hangTimeLimit < 0) {
+            return new DefaultConfiguration().getHangTimeLimit();
+        }
+
+        return hangTimeLimit;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public void setHangTimeLimitFromHistory(boolean hangTimeLimitFromHistory) {
+        preferenceStore.setValue(HANG_TIME_LIMIT_FROM_HISTORY, hangTimeLimitFromHistory);
+    }
+
+    /**
+     * Returns whether the time limit of a test case is derived from its
+     * durations in the history.
+     *
+     * @since 3.2.0
+     */
+    public boolean getHangTimeLimitFromHistory() {
+        return preferenceStore.getBoolean(HANG_TIME_LIMIT_FROM_HISTORY);
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public void setTestOrder(int testOrder) {
+        preferenceStore.setValue(TEST_ORDER, testOrder);
+    }
+
+    /**
+     * Returns the order of the test files by their durations in the history,
+     * which is one of the orders of
+     * {@link com.piece_framework.makegood.core.run.DurationHistory}.
+     *
+     * @since 3.2.0
+     */
+    public int getTestOrder() {
+        return preferenceStore.getInt(TEST_ORDER);
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public void setPullResultReaderEnabled(boolean pullResultReaderEnabled) {
+        preferenceStore.setValue(PULL_RESULT_READER_ENABLED, pullResultReaderEnabled);
+    }
+
+    /**
+     * Returns whether the results are read with the StAX pull parser instead
+     * of SAX.
+     *
+     * @since 3.2.0
+     */
+    public boolean getPullResultReaderEnabled() {
+        return preferenceStore.getBoolean(PULL_RESULT_READER_ENABLED);
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public void setResultCacheEnabled(boolean resultCacheEnabled) {
+        preferenceStore.setValue(RESULT_CACHE_ENABLED, resultCacheEnabled);
+    }
+
+    /**
+     * Returns whether the test files which have passed are skipped by the
+     * all tests run until they or their dependencies change.
+     *
+     * @since 3.2.0
+     */
+    public boolean getResultCacheEnabled() {
+        return preferenceStore.getBoolean(RESULT_CACHE_ENABLED);
+    }
 }
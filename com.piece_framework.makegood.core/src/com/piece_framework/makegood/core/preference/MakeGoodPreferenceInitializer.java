@@ -1,6 +1,6 @@
 /**
  * Copyright (c) 2010 MATSUFUJI Hideharu <matsufuji2008@gmail.com>,
- *               2011-2013 KUBO Atsuhiro <kubo@iteman.jp>,
+ *               2011-2014 KUBO Atsuhiro <kubo@iteman.jp>,
  * All rights reserved.
  *
  * This file is part of MakeGood.
@@ -21,8 +21,21 @@ import com.piece_framework.makegood.core.continuoustesting.ContinuousTesting;
 public class MakeGoodPreferenceInitializer extends AbstractPreferenceInitializer {
     @Override
     public void initializeDefaultPreferences() {
-        ContinuousTesting continuousTesting = new DefaultConfiguration().getContinuousTesting();
+        DefaultConfiguration defaultConfiguration = new DefaultConfiguration();
+        ContinuousTesting continuousTesting = defaultConfiguration.getContinuousTesting();
         Activator.getDefault().getPreferenceStore().setDefault(MakeGoodPreference.CONTINUOUS_TESTING_ENABLED, continuousTesting.isEnabled());
         Activator.getDefault().getPreferenceStore().setDefault(MakeGoodPreference.CONTINUOUS_TESTING_SCOPE, continuousTesting.getScope().name());
+        Activator.getDefault().getPreferenceStore().setDefault(MakeGoodPreference.CONTINUOUS_TESTING_DEBOUNCE_WINDOW, continuousTesting.getDebounceWindow());
+        Activator.getDefault().getPreferenceStore().setDefault(MakeGoodPreference.CONTINUOUS_TESTING_RESTARTS_RUNNING_TESTS, continuousTesting.restartsRunningTests());
+        Activator.getDefault().getPreferenceStore().setDefault(MakeGoodPreference.RESULT_VIEW_REFRESH_RATE, defaultConfiguration.getResultViewRefreshRate());
+        Activator.getDefault().getPreferenceStore().setDefault(MakeGoodPreference.FAILURE_TRACE_INLINE_THRESHOLD, defaultConfiguration.getFailureTraceInlineThreshold());
+        Activator.getDefault().getPreferenceStore().setDefault(MakeGoodPreference.SUMMARY_ONLY, defaultConfiguration.isSummaryOnly());
+        Activator.getDefault().getPreferenceStore().setDefault(MakeGoodPreference.SUMMARY_ONLY_SLOWEST_TEST_COUNT, defaultConfiguration.getSummaryOnlySlowestTestCount());
+        Activator.getDefault().getPreferenceStore().setDefault(MakeGoodPreference.RESUME_AFTER_FATAL_ERROR, defaultConfiguration.isResumeAfterFatalError());
+        Activator.getDefault().getPreferenceStore().setDefault(MakeGoodPreference.HANG_TIME_LIMIT, defaultConfiguration.getHangTimeLimit());
+        Activator.getDefault().getPreferenceStore().setDefault(MakeGoodPreference.HANG_TIME_LIMIT_FROM_HISTORY, defaultConfiguration.isHangTimeLimitFromHistory());
+        Activator.getDefault().getPreferenceStore().setDefault(MakeGoodPreference.RESULT_CACHE_ENABLED, defaultConfiguration.isResultCacheEnabled());
+        Activator.getDefault().getPreferenceStore().setDefault(MakeGoodPreference.TEST_ORDER, defaultConfiguration.getTestOrder());
+        Activator.getDefault().getPreferenceStore().setDefault(MakeGoodPreference.PULL_RESULT_READER_ENABLED, defaultConfiguration.isPullResultReaderEnabled());
     }
 }
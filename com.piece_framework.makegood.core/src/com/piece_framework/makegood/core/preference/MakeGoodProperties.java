@@ -43,6 +43,16 @@ public class MakeGoodProperties {
      */
     private static String TEST_FILE_PATTERN_KEY = "test_file_pattern"; //$NON-NLS-1$
 
+    /**
+     * @since 3.2.0
+     */
+    private static String SHARD_COUNT_KEY = "shard_count"; //$NON-NLS-1$
+
+    /**
+     * @since 3.2.0
+     */
+    private static String RESULT_PIPE_KEY = "result_pipe"; //$NON-NLS-1$
+
     private IEclipsePreferences preferences;
     private IProject project;
 
@@ -145,6 +155,40 @@ public class MakeGoodProperties {
         return preferences.get(TEST_FILE_PATTERN_KEY, defaultConfiguration.getTestFilePattern());
     }
 
+    /**
+     * Returns the number of the processes to run the tests in parallel.
+     *
+     * @since 3.2.0
+     */
+    public int getShardCount() {
+        int shardCount = preferences.getInt(SHARD_COUNT_KEY, defaultConfiguration.getShardCount());
+        return shardCount > 0 ? shardCount : defaultConfiguration.getShardCount();
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public void setShardCount(int shardCount) {
+        preferences.putInt(SHARD_COUNT_KEY, shardCount);
+    }
+
+    /**
+     * Returns whether the results are read through a named pipe instead of
+     * a temporary file.
+     *
+     * @since 3.2.0
+     */
+    public boolean usesResultPipe() {
+        return preferences.getBoolean(RESULT_PIPE_KEY, defaultConfiguration.usesResultPipe());
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public void setUsesResultPipe(boolean usesResultPipe) {
+        preferences.putBoolean(RESULT_PIPE_KEY, usesResultPipe);
+    }
+
     /**
      * @since 1.6.0
      */
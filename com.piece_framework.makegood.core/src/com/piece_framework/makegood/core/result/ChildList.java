@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.result;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * The children of a suite, which are appended by the reader threads and read
+ * by the UI thread without locking.
+ *
+ * The elements are stored in full chunks of a fixed size and a tail chunk
+ * which is filled by the appends. Each change publishes an immutable snapshot
+ * of the chunks and the size, and the iterators work on the snapshot at the
+ * time they are created. A slot which has been published is never written
+ * again: removing the last element copies the tail chunk, so that the next
+ * append does not overwrite the element that older snapshots still read.
+ * Removing any other element copies the whole list, which is rare since the
+ * test cases are folded as they end.
+ *
+ * @since 3.2.0
+ */
+class ChildList extends AbstractList<Result> implements RandomAccess {
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int FIRST_TAIL_SIZE = 8;
+
+    private volatile Snapshot snapshot = new Snapshot(new Result[0][], 0, new Result[FIRST_TAIL_SIZE], 0);
+
+    @Override
+    public Result get(int index) {
+        return snapshot.get(index);
+    }
+
+    @Override
+    public int size() {
+        return snapshot.size;
+    }
+
+    @Override
+    public Iterator<Result> iterator() {
+        return snapshot.iterator();
+    }
+
+    @Override
+    public ListIterator<Result> listIterator(int index) {
+        return snapshot.listIterator(index);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return snapshot.indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return snapshot.lastIndexOf(o);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return snapshot.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return snapshot.toArray(a);
+    }
+
+    @Override
+    public synchronized boolean add(Result result) {
+        Snapshot currentSnapshot = snapshot;
+        Result[][] chunks = currentSnapshot.chunks;
+        int chunkCount = currentSnapshot.chunkCount;
+        Result[] tail = currentSnapshot.tail;
+        int offset = currentSnapshot.size - (chunkCount << CHUNK_SHIFT);
+        if (offset == CHUNK_SIZE) {
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(1, chunks.length * 2));
+            } else if (chunks[chunkCount] != null) {
+                chunks = chunks.clone();
+                Arrays.fill(chunks, chunkCount, chunks.length, null);
+            }
+            chunks[chunkCount++] = tail;
+            tail = new Result[CHUNK_SIZE];
+            offset = 0;
+        } else if (offset == tail.length) {
+            tail = Arrays.copyOf(tail, tail.length * 2);
+        }
+        tail[offset] = result;
+        snapshot = new Snapshot(chunks, chunkCount, tail, currentSnapshot.size + 1);
+        return true;
+    }
+
+    /**
+     * Removes the given element. The elements are searched from the end since
+     * a test case is usually folded right after it is appended.
+     */
+    @Override
+    public synchronized boolean remove(Object o) {
+        Snapshot currentSnapshot = snapshot;
+        int index = currentSnapshot.lastIndexOf(o);
+        if (index == -1) return false;
+
+        if (index == currentSnapshot.size - 1) {
+            int chunkCount = currentSnapshot.chunkCount;
+            Result[] tail;
+            if (index < chunkCount << CHUNK_SHIFT) {
+                tail = currentSnapshot.chunks[--chunkCount].clone();
+            } else {
+                tail = currentSnapshot.tail.clone();
+            }
+            tail[index - (chunkCount << CHUNK_SHIFT)] = null;
+            snapshot = new Snapshot(currentSnapshot.chunks, chunkCount, tail, index);
+            return true;
+        }
+
+        int size = currentSnapshot.size - 1;
+        int chunkCount = size >> CHUNK_SHIFT;
+        Result[][] chunks = new Result[chunkCount][];
+        for (int i = 0; i < chunkCount; ++i) {
+            chunks[i] = new Result[CHUNK_SIZE];
+        }
+        Result[] tail = new Result[CHUNK_SIZE];
+        int i = 0;
+        for (Result result: currentSnapshot) {
+            if (i == index) {
+                index = -1;
+                continue;
+            }
+            int chunk = i >> CHUNK_SHIFT;
+            if (chunk < chunkCount) {
+                chunks[chunk][i & (CHUNK_SIZE - 1)] = result;
+            } else {
+                tail[i & (CHUNK_SIZE - 1)] = result;
+            }
+            ++i;
+        }
+        snapshot = new Snapshot(chunks, chunkCount, tail, size);
+        return true;
+    }
+
+    private static class Snapshot extends AbstractList<Result> implements RandomAccess {
+        private final Result[][] chunks;
+        private final int chunkCount;
+        private final Result[] tail;
+        private final int size;
+
+        Snapshot(Result[][] chunks, int chunkCount, Result[] tail, int size) {
+            this.chunks = chunks;
+            this.chunkCount = chunkCount;
+            this.tail = tail;
+            this.size = size;
+        }
+
+        @Override
+        public Result get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+
+            int chunk = index >> CHUNK_SHIFT;
+            if (chunk < chunkCount) {
+                return chunks[chunk][index & (CHUNK_SIZE - 1)];
+            }
+            return tail[index - (chunkCount << CHUNK_SHIFT)];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Walks the chunks in order instead of locating each element.
+         */
+        @Override
+        public Iterator<Result> iterator() {
+            return new Iterator<Result>() {
+                private int index;
+                private int chunk;
+                private int offset;
+
+                @Override
+                public boolean hasNext() {
+                    return index < size;
+                }
+
+                @Override
+                public Result next() {
+                    if (index >= size) throw new NoSuchElementException();
+
+                    Result result = chunk < chunkCount ? chunks[chunk][offset] : tail[offset];
+                    ++index;
+                    if (++offset == CHUNK_SIZE) {
+                        ++chunk;
+                        offset = 0;
+                    }
+                    return result;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
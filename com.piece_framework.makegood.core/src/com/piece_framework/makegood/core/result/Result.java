@@ -99,6 +99,28 @@ public abstract class Result {
         this.parent = parent;
     }
 
+    /**
+     * Returns the number of the test cases in this result which are not fixed
+     * yet.
+     *
+     * @since 3.2.0
+     */
+    int getUnfixedCount() {
+        return 0;
+    }
+
+    /**
+     * Applies the given changes of the aggregate counts to the ancestors of
+     * this result so that they can answer the counts in constant time.
+     *
+     * @since 3.2.0
+     */
+    void updateCounts(int testCount, int errorCount, int failureCount, int size, int unfixedCount) {
+        if (parent != null) {
+            parent.updateCounts(testCount, errorCount, failureCount, size, unfixedCount);
+        }
+    }
+
     /**
      * @since 1.9.0
      */
@@ -0,0 +1,811 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.result;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A read-only copy of a result tree in parallel arrays. The results are
+ * stored in the pre-order, and the strings are interned into a table which
+ * the arrays refer to by index, so that a test case takes a few dozen bytes.
+ * The details of the failures and the suites are stored apart, since they
+ * are few.
+ *
+ * The results are answered as flyweight views which are created on demand
+ * and are not retained by the store. Two views are equal if they refer to
+ * the same result of the same store. The views cannot be changed.
+ *
+ * @since 3.2.0
+ */
+public class ResultStore {
+    private static final int TEST_SUITE = 0x01;
+    private static final int FIXED = 0x02;
+    private static final int ARTIFICIAL = 0x04;
+
+    /**
+     * The flag for the suites, which shares the bit with {@link #ARTIFICIAL}
+     * for the test cases.
+     */
+    private static final int CACHED = 0x04;
+    private static final int RESULT_TYPE_SHIFT = 3;
+
+    private int size;
+    private int[] parents = new int[16];
+    private byte[] flags = new byte[16];
+    private long[] times = new long[16];
+    private int[] names = new int[16];
+    private int[] classNames = new int[16];
+    private int[] files = new int[16];
+    private int[] methodNames = new int[16];
+    private int[] lines = new int[16];
+
+    private int suiteCount;
+    private int[] suiteIndexes = new int[4];
+    private int[] ends = new int[4];
+    private int[] testCounts = new int[4];
+    private int[] errorCounts = new int[4];
+    private int[] failureCounts = new int[4];
+    private int[] allTestCounts = new int[4];
+    private int[] foldedTestCounts = new int[4];
+    private int[] fullPackageNames = new int[4];
+    private int[] packageNames = new int[4];
+
+    private int failureCount;
+    private int[] failureIndexes = new int[4];
+    private int[] failureTypes = new int[4];
+    private String[] failureMessages = new String[4];
+    private String[] failureTraces = new String[4];
+
+    private List<String> strings = new ArrayList<String>();
+    private Map<String, Integer> stringIds = new HashMap<String, Integer>();
+
+    private ResultStore() {
+        strings.add(null);
+    }
+
+    /**
+     * Copies the given result tree into a new store.
+     */
+    public static ResultStore copyOf(TestSuiteResult result) {
+        ResultStore store = new ResultStore();
+        store.addTestSuite(-1, result);
+        store.trim();
+        return store;
+    }
+
+    /**
+     * Creates a builder which stores a result tree given in the pre-order
+     * without building the results first.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the view of the root of the tree.
+     */
+    public TestSuiteResult getRoot() {
+        return (TestSuiteResult) getResult(0);
+    }
+
+    /**
+     * Returns the number of the results in the store.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void addTestSuite(int parent, TestSuiteResult testSuite) {
+        int suite = startTestSuite(
+            parent,
+            testSuite.getName(),
+            testSuite.getClassName(),
+            testSuite.getFile(),
+            testSuite.getFullPackageName(),
+            testSuite.getPackageName(),
+            testSuite.getAllTestCount(),
+            testSuite.isCached()
+        );
+        int index = suiteIndexes[suite];
+        times[index] = testSuite.getTime();
+        testCounts[suite] = testSuite.getTestCount();
+        errorCounts[suite] = testSuite.getErrorCount();
+        failureCounts[suite] = testSuite.getFailureCount();
+        foldedTestCounts[suite] = testSuite.getFoldedTestCount();
+        endTestSuite(suite, testSuite.isFixed());
+
+        for (Result child: testSuite.getChildren()) {
+            if (child instanceof TestSuiteResult) {
+                addTestSuite(index, (TestSuiteResult) child);
+            } else {
+                addTestCase(index, (TestCaseResult) child);
+            }
+        }
+        ends[suite] = size;
+    }
+
+    private void addTestCase(int parent, TestCaseResult testCase) {
+        String file = testCase.getFile();
+        addTestCase(
+            parent,
+            testCase.getName(),
+            testCase.getClassName(),
+            testCase.getMethodName(),
+            file != null && file.equals(testCase.getParent().getFile()) ? null : file,
+            testCase.getLine(),
+            testCase.getResultType(),
+            testCase.isFixed(),
+            testCase.isArtificial(),
+            testCase.getTime(),
+            testCase.getFailureType(),
+            testCase.getFailureMessage(),
+            testCase.getFailureTrace()
+        );
+    }
+
+    /**
+     * Adds a suite without its counts and its time, and returns the number
+     * of the suite.
+     */
+    private int startTestSuite(int parent, String name, String className, String file, String fullPackageName, String packageName, int allTestCount, boolean isCached) {
+        int index = add(parent, TEST_SUITE | (isCached ? CACHED : 0), name, className);
+        files[index] = intern(file);
+
+        int suite = suiteCount++;
+        if (suite == suiteIndexes.length) {
+            int capacity = suite * 2;
+            suiteIndexes = Arrays.copyOf(suiteIndexes, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            testCounts = Arrays.copyOf(testCounts, capacity);
+            errorCounts = Arrays.copyOf(errorCounts, capacity);
+            failureCounts = Arrays.copyOf(failureCounts, capacity);
+            allTestCounts = Arrays.copyOf(allTestCounts, capacity);
+            foldedTestCounts = Arrays.copyOf(foldedTestCounts, capacity);
+            fullPackageNames = Arrays.copyOf(fullPackageNames, capacity);
+            packageNames = Arrays.copyOf(packageNames, capacity);
+        }
+        suiteIndexes[suite] = index;
+        allTestCounts[suite] = allTestCount;
+        fullPackageNames[suite] = intern(fullPackageName);
+        packageNames[suite] = intern(packageName);
+        return suite;
+    }
+
+    private void endTestSuite(int suite, boolean isFixed) {
+        if (isFixed) {
+            flags[suiteIndexes[suite]] |= FIXED;
+        }
+    }
+
+    /**
+     * Adds a test case. The file is given as null if it is the same as the
+     * file of the parent.
+     */
+    private int addTestCase(int parent, String name, String className, String methodName, String file, int line, ResultType resultType, boolean isFixed, boolean isArtificial, long time, String failureType, String failureMessage, String failureTrace) {
+        int flag = (isArtificial ? ARTIFICIAL : 0) | (isFixed ? FIXED : 0) | resultType.ordinal() << RESULT_TYPE_SHIFT;
+        int index = add(parent, flag, name, className);
+        times[index] = time;
+        files[index] = intern(file);
+        methodNames[index] = intern(methodName);
+        lines[index] = line;
+        if (failureType == null && failureMessage == null && failureTrace == null) return index;
+
+        int failure = failureCount++;
+        if (failure == failureIndexes.length) {
+            int capacity = failure * 2;
+            failureIndexes = Arrays.copyOf(failureIndexes, capacity);
+            failureTypes = Arrays.copyOf(failureTypes, capacity);
+            failureMessages = Arrays.copyOf(failureMessages, capacity);
+            failureTraces = Arrays.copyOf(failureTraces, capacity);
+        }
+        failureIndexes[failure] = index;
+        failureTypes[failure] = intern(failureType);
+        failureMessages[failure] = failureMessage;
+        failureTraces[failure] = failureTrace;
+        return index;
+    }
+
+    private int add(int parent, int flag, String name, String className) {
+        int index = size++;
+        if (index == parents.length) {
+            int capacity = index * 2;
+            parents = Arrays.copyOf(parents, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            times = Arrays.copyOf(times, capacity);
+            names = Arrays.copyOf(names, capacity);
+            classNames = Arrays.copyOf(classNames, capacity);
+            files = Arrays.copyOf(files, capacity);
+            methodNames = Arrays.copyOf(methodNames, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        parents[index] = parent;
+        flags[index] = (byte) flag;
+        names[index] = intern(name);
+        classNames[index] = intern(className);
+        return index;
+    }
+
+    private int intern(String string) {
+        if (string == null) return 0;
+
+        Integer id = stringIds.get(string);
+        if (id == null) {
+            id = strings.size();
+            strings.add(string);
+            stringIds.put(string, id);
+        }
+        return id;
+    }
+
+    /**
+     * Trims the arrays to their sizes and drops the index of the strings,
+     * which is needed only while the store is built.
+     */
+    private void trim() {
+        parents = Arrays.copyOf(parents, size);
+        flags = Arrays.copyOf(flags, size);
+        times = Arrays.copyOf(times, size);
+        names = Arrays.copyOf(names, size);
+        classNames = Arrays.copyOf(classNames, size);
+        files = Arrays.copyOf(files, size);
+        methodNames = Arrays.copyOf(methodNames, size);
+        lines = Arrays.copyOf(lines, size);
+        suiteIndexes = Arrays.copyOf(suiteIndexes, suiteCount);
+        ends = Arrays.copyOf(ends, suiteCount);
+        testCounts = Arrays.copyOf(testCounts, suiteCount);
+        errorCounts = Arrays.copyOf(errorCounts, suiteCount);
+        failureCounts = Arrays.copyOf(failureCounts, suiteCount);
+        allTestCounts = Arrays.copyOf(allTestCounts, suiteCount);
+        foldedTestCounts = Arrays.copyOf(foldedTestCounts, suiteCount);
+        fullPackageNames = Arrays.copyOf(fullPackageNames, suiteCount);
+        packageNames = Arrays.copyOf(packageNames, suiteCount);
+        failureIndexes = Arrays.copyOf(failureIndexes, failureCount);
+        failureTypes = Arrays.copyOf(failureTypes, failureCount);
+        failureMessages = Arrays.copyOf(failureMessages, failureCount);
+        failureTraces = Arrays.copyOf(failureTraces, failureCount);
+        strings = new ArrayList<String>(strings);
+        stringIds = null;
+    }
+
+    private Result getResult(int index) {
+        if (index < 0) return null;
+
+        if ((flags[index] & TEST_SUITE) != 0) {
+            return new TestSuiteView(this, index, Arrays.binarySearch(suiteIndexes, 0, suiteCount, index));
+        } else {
+            return new TestCaseView(this, index, Arrays.binarySearch(failureIndexes, 0, failureCount, index));
+        }
+    }
+
+    private String getString(int id) {
+        return strings.get(id);
+    }
+
+    private boolean isFixed(int index) {
+        return (flags[index] & FIXED) != 0;
+    }
+
+    private List<Result> getChildren(int index, int suite) {
+        int end = ends[suite];
+        int childCount = 0;
+        int[] childIndexes = new int[Math.min(end - index - 1, 16)];
+        for (int child = index + 1; child < end; child = getEnd(child)) {
+            if (childCount == childIndexes.length) {
+                childIndexes = Arrays.copyOf(childIndexes, childCount * 2);
+            }
+            childIndexes[childCount++] = child;
+        }
+
+        return new Children(this, childIndexes, childCount);
+    }
+
+    private int getEnd(int index) {
+        if ((flags[index] & TEST_SUITE) == 0) return index + 1;
+        return ends[Arrays.binarySearch(suiteIndexes, 0, suiteCount, index)];
+    }
+
+    /**
+     * Stores a result tree from the suites and the test cases given in the
+     * pre-order. The counts, the times and the fixed states of the suites are
+     * aggregated from their descendants as the result tree does.
+     */
+    public static class Builder {
+        private ResultStore store = new ResultStore();
+        private int depth;
+        private int[] suites = new int[16];
+        private int[] unfixedCounts = new int[16];
+
+        private Builder() {
+        }
+
+        public void startTestSuite(String name, String className, String file, String fullPackageName, String packageName, int allTestCount, boolean isCached) {
+            if (store == null) throw new IllegalStateException("The store has already been built."); //$NON-NLS-1$
+            if (depth == 0 && store.size > 0) throw new IllegalStateException("The root has already been ended."); //$NON-NLS-1$
+
+            int parent = depth == 0 ? -1 : store.suiteIndexes[suites[depth - 1]];
+            if (depth == suites.length) {
+                suites = Arrays.copyOf(suites, depth * 2);
+                unfixedCounts = Arrays.copyOf(unfixedCounts, depth * 2);
+            }
+            suites[depth] = store.startTestSuite(parent, name, className, file, fullPackageName, packageName, allTestCount, isCached);
+            unfixedCounts[depth] = 0;
+            ++depth;
+        }
+
+        /**
+         * Adds the given number of the passed test cases folded into the
+         * current suite together with their time.
+         */
+        public void foldTestCases(int testCount, long time) {
+            int suite = getCurrentSuite();
+            store.testCounts[suite] += testCount;
+            store.foldedTestCounts[suite] += testCount;
+            store.times[store.suiteIndexes[suite]] += time;
+        }
+
+        /**
+         * Adds a test case to the current suite. The file is given as null if
+         * it is the same as the file of the suite.
+         */
+        public void addTestCase(String name, String className, String methodName, String file, int line, ResultType resultType, boolean isFixed, boolean isArtificial, long time, String failureType, String failureMessage, String failureTrace) {
+            int suite = getCurrentSuite();
+            store.addTestCase(store.suiteIndexes[suite], name, className, methodName, file, line, resultType, isFixed, isArtificial, time, failureType, failureMessage, failureTrace);
+            store.times[store.suiteIndexes[suite]] += time;
+            if (!isFixed) {
+                ++unfixedCounts[depth - 1];
+                return;
+            }
+            ++store.testCounts[suite];
+            if (ResultType.ERROR.equals(resultType)) {
+                ++store.errorCounts[suite];
+            } else if (ResultType.FAILURE.equals(resultType)) {
+                ++store.failureCounts[suite];
+            }
+        }
+
+        /**
+         * Ends the current suite and adds its counts and its time to its
+         * parent.
+         */
+        public void endTestSuite() {
+            int suite = getCurrentSuite();
+            int unfixedCount = unfixedCounts[--depth];
+            store.ends[suite] = store.size;
+            store.endTestSuite(suite, unfixedCount == 0);
+            if (depth == 0) return;
+
+            int parent = suites[depth - 1];
+            store.testCounts[parent] += store.testCounts[suite];
+            store.errorCounts[parent] += store.errorCounts[suite];
+            store.failureCounts[parent] += store.failureCounts[suite];
+            store.times[store.suiteIndexes[parent]] += store.times[store.suiteIndexes[suite]];
+            unfixedCounts[depth - 1] += unfixedCount;
+        }
+
+        /**
+         * Returns the store of the tree. The builder cannot be used after
+         * that.
+         *
+         * @throws IllegalStateException if no suite has been added or a suite
+         *                               has not been ended
+         */
+        public ResultStore build() {
+            if (store == null) throw new IllegalStateException("The store has already been built."); //$NON-NLS-1$
+            if (store.size == 0 || depth > 0) throw new IllegalStateException("The root has not been ended."); //$NON-NLS-1$
+
+            ResultStore store = this.store;
+            this.store = null;
+            store.trim();
+            return store;
+        }
+
+        private int getCurrentSuite() {
+            if (store == null) throw new IllegalStateException("The store has already been built."); //$NON-NLS-1$
+            if (depth == 0) throw new IllegalStateException("No suite has been started."); //$NON-NLS-1$
+            return suites[depth - 1];
+        }
+    }
+
+    private static class Children extends AbstractList<Result> implements RandomAccess {
+        private final ResultStore store;
+        private final int[] indexes;
+        private final int size;
+
+        Children(ResultStore store, int[] indexes, int size) {
+            this.store = store;
+            this.indexes = indexes;
+            this.size = size;
+        }
+
+        @Override
+        public Result get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+
+            return store.getResult(indexes[index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private static class TestSuiteView extends TestSuiteResult {
+        private final ResultStore store;
+        private final int index;
+        private final int suite;
+
+        TestSuiteView(ResultStore store, int index, int suite) {
+            super(null);
+            this.store = store;
+            this.index = index;
+            this.suite = suite;
+        }
+
+        @Override
+        public String getName() {
+            return store.getString(store.names[index]);
+        }
+
+        @Override
+        public String getClassName() {
+            return store.getString(store.classNames[index]);
+        }
+
+        @Override
+        public long getTime() {
+            return store.times[index];
+        }
+
+        @Override
+        public String getFile() {
+            return store.getString(store.files[index]);
+        }
+
+        @Override
+        public Result getParent() {
+            return store.getResult(store.parents[index]);
+        }
+
+        @Override
+        public String getFullPackageName() {
+            return store.getString(store.fullPackageNames[suite]);
+        }
+
+        @Override
+        public String getPackageName() {
+            return store.getString(store.packageNames[suite]);
+        }
+
+        @Override
+        public int getTestCount() {
+            return store.testCounts[suite];
+        }
+
+        @Override
+        public int getErrorCount() {
+            return store.errorCounts[suite];
+        }
+
+        @Override
+        public int getFailureCount() {
+            return store.failureCounts[suite];
+        }
+
+        @Override
+        public int getAllTestCount() {
+            return store.allTestCounts[suite];
+        }
+
+        @Override
+        public int getFoldedTestCount() {
+            return store.foldedTestCounts[suite];
+        }
+
+        @Override
+        public boolean isCached() {
+            return (store.flags[index] & CACHED) != 0;
+        }
+
+        @Override
+        public List<Result> getChildren() {
+            return store.getChildren(index, suite);
+        }
+
+        @Override
+        public boolean hasChildren() {
+            return store.ends[suite] > index + 1;
+        }
+
+        @Override
+        public boolean isFixed() {
+            return store.isFixed(index);
+        }
+
+        @Override
+        public int getSize() {
+            return store.ends[suite] - index;
+        }
+
+        @Override
+        int getUnfixedCount() {
+            return isFixed() ? 0 : 1;
+        }
+
+        @Override
+        public void addChild(Result result) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void fold(TestCaseResult testCase) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void removeTestCase(TestCaseResult testCase) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void markAsCached() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setClassName(String className) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setTime(long time) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setFile(String file) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setParent(Result parent) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setFullPackageName(String fullPackageName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setPackageName(String packageName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setAllTestCount(int allTestCount) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof TestSuiteView)) return false;
+            return ((TestSuiteView) obj).store == store && ((TestSuiteView) obj).index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(store) * 31 + index;
+        }
+    }
+
+    private static class TestCaseView extends TestCaseResult {
+        private final ResultStore store;
+        private final int index;
+
+        /**
+         * The index of the failure details, or a negative value if the test
+         * case has none.
+         */
+        private final int failure;
+
+        TestCaseView(ResultStore store, int index, int failure) {
+            super(null);
+            this.store = store;
+            this.index = index;
+            this.failure = failure;
+        }
+
+        @Override
+        public String getName() {
+            return store.getString(store.names[index]);
+        }
+
+        @Override
+        public String getClassName() {
+            return store.getString(store.classNames[index]);
+        }
+
+        @Override
+        public String getMethodName() {
+            return store.getString(store.methodNames[index]);
+        }
+
+        @Override
+        public long getTime() {
+            return store.times[index];
+        }
+
+        @Override
+        public String getFile() {
+            if (store.files[index] == 0) {
+                return getParent().getFile();
+            } else {
+                return store.getString(store.files[index]);
+            }
+        }
+
+        @Override
+        public Result getParent() {
+            return store.getResult(store.parents[index]);
+        }
+
+        @Override
+        public int getLine() {
+            return store.lines[index];
+        }
+
+        @Override
+        public ResultType getResultType() {
+            return ResultType.values()[(store.flags[index] & 0xff) >>> RESULT_TYPE_SHIFT];
+        }
+
+        @Override
+        public boolean hasErrors() {
+            return ResultType.ERROR.equals(getResultType());
+        }
+
+        @Override
+        public boolean hasFailures() {
+            return ResultType.FAILURE.equals(getResultType());
+        }
+
+        @Override
+        public boolean isArtificial() {
+            return (store.flags[index] & ARTIFICIAL) != 0;
+        }
+
+        @Override
+        public boolean isFixed() {
+            return store.isFixed(index);
+        }
+
+        @Override
+        public int getTestCount() {
+            return isFixed() ? 1 : 0;
+        }
+
+        @Override
+        public int getErrorCount() {
+            return isFixed() && hasErrors() ? 1 : 0;
+        }
+
+        @Override
+        public int getFailureCount() {
+            return isFixed() && hasFailures() ? 1 : 0;
+        }
+
+        @Override
+        int getUnfixedCount() {
+            return isFixed() ? 0 : 1;
+        }
+
+        @Override
+        public String getFailureType() {
+            return failure < 0 ? null : store.getString(store.failureTypes[failure]);
+        }
+
+        @Override
+        public String getFailureMessage() {
+            return failure < 0 ? null : store.failureMessages[failure];
+        }
+
+        @Override
+        public String getFailureTrace() {
+            return failure < 0 ? null : store.failureTraces[failure];
+        }
+
+        @Override
+        public void setClassName(String className) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setMethodName(String methodName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setTime(long time) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setFile(String file) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setParent(Result parent) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setLine(int line) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void markAsArtificial() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setResultType(ResultType resultType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void fix() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setFailureType(String failureType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setFailureMessage(String failureMessage) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setFailureTrace(String failureTrace) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setFailureTrace(TraceStore.Trace failureTrace) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof TestCaseView)) return false;
+            return ((TestCaseView) obj).store == store && ((TestCaseView) obj).index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(store) * 31 + index;
+        }
+    }
+}
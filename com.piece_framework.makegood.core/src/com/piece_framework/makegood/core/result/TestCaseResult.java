@@ -1,6 +1,6 @@
 /**
  * Copyright (c) 2009-2010 MATSUFUJI Hideharu <matsufuji2008@gmail.com>,
- *               2010-2012 KUBO Atsuhiro <kubo@iteman.jp>,
+ *               2010-2012, 2014 KUBO Atsuhiro <kubo@iteman.jp>,
  * All rights reserved.
  *
  * This file is part of MakeGood.
@@ -12,7 +12,6 @@
 
 package com.piece_framework.makegood.core.result;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -26,9 +25,19 @@ public class TestCaseResult extends Result {
     private boolean isArtificial = false;
     private String failureType;
     private String failureTrace;
+
+    /**
+     * @since 3.2.0
+     */
+    private TraceStore.Trace spilledFailureTrace;
     private boolean isFixed = false;
     private ResultType resultType = ResultType.PASS;
 
+    /**
+     * @since 3.2.0
+     */
+    private volatile boolean isFolded = false;
+
     /**
      * @since 1.3.0
      */
@@ -68,7 +77,7 @@ public class TestCaseResult extends Result {
 
     @Override
     public List<Result> getChildren() {
-        return Collections.unmodifiableList(new ArrayList<Result>());
+        return Collections.emptyList();
     }
 
     @Override
@@ -89,6 +98,23 @@ public class TestCaseResult extends Result {
         this.isArtificial = true;
     }
 
+    /**
+     * Returns whether the test case has been folded into its suite and is
+     * no longer a child of the suite.
+     *
+     * @since 3.2.0
+     */
+    public boolean isFolded() {
+        return isFolded;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    void markAsFolded() {
+        isFolded = true;
+    }
+
     public void setFailureType(String failureType) {
         this.failureType = failureType;
     }
@@ -102,9 +128,25 @@ public class TestCaseResult extends Result {
 
     public void setFailureTrace(String failureTrace) {
         this.failureTrace = failureTrace;
+        spilledFailureTrace = null;
+    }
+
+    /**
+     * Sets the failure trace which is stored in a trace store. The trace is
+     * read from the store each time it is asked for.
+     *
+     * @since 3.2.0
+     */
+    public void setFailureTrace(TraceStore.Trace failureTrace) {
+        this.failureTrace = null;
+        spilledFailureTrace = failureTrace;
     }
 
     public String getFailureTrace() {
+        if (spilledFailureTrace != null) {
+            return spilledFailureTrace.load();
+        }
+
         return failureTrace;
     }
 
@@ -132,7 +174,12 @@ public class TestCaseResult extends Result {
     }
 
     public void setResultType(ResultType resultType) {
+        int oldErrorCount = getErrorCount();
+        int oldFailureCount = getFailureCount();
         this.resultType = resultType;
+        if (isFixed) {
+            updateCounts(0, getErrorCount() - oldErrorCount, getFailureCount() - oldFailureCount, 0, 0);
+        }
     }
 
     /**
@@ -156,7 +203,9 @@ public class TestCaseResult extends Result {
      * @since 1.2.0
      */
     public void fix() {
+        if (isFixed) return;
         isFixed = true;
+        updateCounts(1, getErrorCount(), getFailureCount(), 0, -1);
     }
 
     /**
@@ -191,4 +240,12 @@ public class TestCaseResult extends Result {
     @Override
     public void addChild(Result result) {
     }
+
+    /**
+     * @since 3.2.0
+     */
+    @Override
+    int getUnfixedCount() {
+        return isFixed ? 0 : 1;
+    }
 }
@@ -1,6 +1,6 @@
 /**
  * Copyright (c) 2009-2010 MATSUFUJI Hideharu <matsufuji2008@gmail.com>,
- *               2010 KUBO Atsuhiro <kubo@iteman.jp>,
+ *               2010, 2014 KUBO Atsuhiro <kubo@iteman.jp>,
  * All rights reserved.
  *
  * This file is part of MakeGood.
@@ -14,14 +14,51 @@ package com.piece_framework.makegood.core.result;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 public class TestSuiteResult extends Result {
     private String fullPackageName;
     private String packageName;
-    private List<Result> children = new CopyOnWriteArrayList<Result>();
+    private List<Result> children = new ChildList();
     private int allTestCount;
 
+    /**
+     * The aggregate counts of the descendants, which are maintained
+     * incrementally when a child is added or a test case is changed.
+     *
+     * @since 3.2.0
+     */
+    private volatile int testCount;
+
+    /**
+     * @since 3.2.0
+     */
+    private volatile int errorCount;
+
+    /**
+     * @since 3.2.0
+     */
+    private volatile int failureCount;
+
+    /**
+     * @since 3.2.0
+     */
+    private volatile int size = 1;
+
+    /**
+     * @since 3.2.0
+     */
+    private volatile int unfixedCount;
+
+    /**
+     * @since 3.2.0
+     */
+    private volatile int foldedTestCount;
+
+    /**
+     * @since 3.2.0
+     */
+    private volatile boolean isCached = false;
+
     public TestSuiteResult(String name) {
         super(name);
     }
@@ -36,32 +73,17 @@ public class TestSuiteResult extends Result {
 
     @Override
     public int getTestCount() {
-        int count = 0;
-        for (Result result : children) {
-            count += result.getTestCount();
-        }
-
-        return count;
+        return testCount;
     }
 
     @Override
     public int getErrorCount() {
-        int count = 0;
-        for (Result result : children) {
-            count += result.getErrorCount();
-        }
-
-        return count;
+        return errorCount;
     }
 
     @Override
     public int getFailureCount() {
-        int count = 0;
-        for (Result result : children) {
-            count += result.getFailureCount();
-        }
-
-        return count;
+        return failureCount;
     }
 
     @Override
@@ -72,6 +94,70 @@ public class TestSuiteResult extends Result {
 
         result.setParent(this);
         children.add(result);
+        updateCounts(
+            result.getTestCount(),
+            result.getErrorCount(),
+            result.getFailureCount(),
+            result.getSize(),
+            result.getUnfixedCount()
+        );
+    }
+
+    /**
+     * Removes the given test case from the children to release it, while
+     * its counts and time are kept in the suite. The size of the suite
+     * shrinks so as to match its children.
+     *
+     * @since 3.2.0
+     */
+    public void fold(TestCaseResult testCase) {
+        if (!children.remove(testCase)) return;
+        testCase.markAsFolded();
+        ++foldedTestCount;
+        updateCounts(0, 0, 0, -testCase.getSize(), 0);
+    }
+
+    /**
+     * Removes the given test case from the children together with its
+     * counts, so that it can be run again.
+     *
+     * @since 3.2.0
+     */
+    public void removeTestCase(TestCaseResult testCase) {
+        if (!children.remove(testCase)) return;
+        updateCounts(
+            -testCase.getTestCount(),
+            -testCase.getErrorCount(),
+            -testCase.getFailureCount(),
+            -testCase.getSize(),
+            -testCase.getUnfixedCount()
+        );
+    }
+
+    /**
+     * Returns the number of the test cases which have been folded into the
+     * suite.
+     *
+     * @since 3.2.0
+     */
+    public int getFoldedTestCount() {
+        return foldedTestCount;
+    }
+
+    /**
+     * Marks the suite as restored from the result cache instead of being run.
+     *
+     * @since 3.2.0
+     */
+    public void markAsCached() {
+        isCached = true;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public boolean isCached() {
+        return isCached;
     }
 
     @Override
@@ -79,8 +165,13 @@ public class TestSuiteResult extends Result {
         return Collections.unmodifiableList(children);
     }
 
+    /**
+     * Adds the given time to the suite and its ancestors. The suites above a
+     * shard are shared by the reader threads of all shards, so that the
+     * update is done under the lock of each suite.
+     */
     @Override
-    public void setTime(long time) {
+    public synchronized void setTime(long time) {
         super.setTime(getTime() + time);
         if (getParent() != null) {
             getParent().setTime(time);
@@ -109,13 +200,7 @@ public class TestSuiteResult extends Result {
 
     @Override
     public boolean isFixed() {
-        for (Result result : children) {
-            if (!result.isFixed()) {
-                return false;
-            }
-        }
-
-        return true;
+        return unfixedCount == 0;
     }
 
     @Override
@@ -125,11 +210,32 @@ public class TestSuiteResult extends Result {
 
     @Override
     public int getSize() {
-        int count = 1;
-        for (Result result : children) {
-            count += result.getSize();
-        }
+        return size;
+    }
 
-        return count;
+    /**
+     * @since 3.2.0
+     */
+    @Override
+    int getUnfixedCount() {
+        return unfixedCount;
+    }
+
+    /**
+     * The counts are updated under the lock of the suite since the suites
+     * above a shard are updated by the reader threads of all shards. The
+     * locks are taken from a suite up to the root, so that they never
+     * deadlock.
+     *
+     * @since 3.2.0
+     */
+    @Override
+    synchronized void updateCounts(int testCount, int errorCount, int failureCount, int size, int unfixedCount) {
+        this.testCount += testCount;
+        this.errorCount += errorCount;
+        this.failureCount += failureCount;
+        this.size += size;
+        this.unfixedCount += unfixedCount;
+        super.updateCounts(testCount, errorCount, failureCount, size, unfixedCount);
     }
 }
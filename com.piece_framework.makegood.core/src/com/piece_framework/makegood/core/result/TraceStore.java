@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.result;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * An append-only file for the failure traces of a run which are too large to
+ * be kept on heap. The traces are read from the file only when they are
+ * asked for, and the file is deleted when the store is closed. The file is
+ * never mapped into memory so that it can be deleted on any platform.
+ *
+ * @since 3.2.0
+ */
+public class TraceStore {
+    private static final Charset UTF8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+    private File file;
+    private int inlineThreshold;
+    private RandomAccessFile randomAccessFile;
+    private FileChannel channel;
+    private long size;
+
+    /**
+     * @param file the file to store the traces
+     * @param inlineThreshold the maximum length of the traces to be kept on heap
+     */
+    public TraceStore(File file, int inlineThreshold) throws IOException {
+        this.file = file;
+        this.inlineThreshold = inlineThreshold;
+        randomAccessFile = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+        randomAccessFile.setLength(0);
+        channel = randomAccessFile.getChannel();
+    }
+
+    public int getInlineThreshold() {
+        return inlineThreshold;
+    }
+
+    /**
+     * Returns whether the given trace should be appended to the store
+     * rather than kept on heap.
+     */
+    public boolean spills(CharSequence trace) {
+        return trace.length() > inlineThreshold;
+    }
+
+    public synchronized Trace append(CharSequence trace) throws IOException {
+        if (channel == null) throw new IOException("The trace store is closed."); //$NON-NLS-1$
+
+        ByteBuffer bytes = UTF8.newEncoder().encode(CharBuffer.wrap(trace));
+        long offset = size;
+        int length = bytes.remaining();
+        while (bytes.hasRemaining()) {
+            size += channel.write(bytes, size);
+        }
+
+        return new Trace(this, offset, length);
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Closes the store and deletes the file. The traces in the store are no
+     * longer available.
+     */
+    public synchronized void close() {
+        if (channel == null) return;
+
+        try {
+            channel.close();
+            randomAccessFile.close();
+        } catch (IOException e) {
+        }
+        channel = null;
+        file.delete();
+    }
+
+    private synchronized String read(long offset, int length) throws IOException {
+        if (channel == null) return null;
+
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, offset + bytes.position()) < 0) break;
+        }
+        bytes.flip();
+
+        return UTF8.decode(bytes).toString();
+    }
+
+    /**
+     * A reference to a trace in the store.
+     */
+    public static class Trace {
+        private TraceStore traceStore;
+        private long offset;
+        private int length;
+
+        private Trace(TraceStore traceStore, long offset, int length) {
+            this.traceStore = traceStore;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * Reads the trace from the store. Returns null if the store has been
+         * closed or the trace cannot be read.
+         */
+        public String load() {
+            try {
+                return traceStore.read(offset, length);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.SAXException;
+
+/**
+ * A {@link ResultReader} which reads the binary result event protocol written
+ * by {@link ResultEventWriter} instead of the JUnit XML log. The events are
+ * delivered to the listeners in the same way as the JUnit XML log.
+ *
+ * @since 3.2.0
+ */
+public class BinaryResultReader extends ResultReader {
+    private static final Charset UTF8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+    private byte[] frame = new byte[256];
+    private int position;
+    private FrameAttributes attributes = new FrameAttributes();
+    private CharsetDecoder decoder = UTF8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private CharBuffer trace = CharBuffer.allocate(256);
+
+    public BinaryResultReader(File log) {
+        super(log);
+    }
+
+    @Override
+    public void read()
+        throws ParserConfigurationException, SAXException, IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(openStream()));
+        try {
+            if (input.readInt() != ResultEventProtocol.MAGIC) {
+                throw new IOException("The log is not a result event stream."); //$NON-NLS-1$
+            }
+            int version = input.readUnsignedByte();
+            if (version != ResultEventProtocol.VERSION) {
+                throw new IOException("The version [ " + version + " ] of the result event stream is not supported."); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+
+            startTest();
+            while (true) {
+                int length = readVarInt(input);
+                if (length > frame.length) {
+                    frame = new byte[Math.max(frame.length * 2, length)];
+                }
+                input.readFully(frame, 0, length);
+                if (!dispatch()) break;
+            }
+        } catch (EOFException e) {
+            if (!isStopped()) {
+                throw e;
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Dispatches the current frame. Returns false at the end of the test.
+     */
+    private boolean dispatch() {
+        int eventType = frame[0];
+        int attributeCount = frame[1];
+        position = 2;
+        attributes.clear();
+        for (int i = 0; i < attributeCount; ++i) {
+            int attributeCode = frame[position++];
+            attributes.set(attributeCode, readString());
+        }
+
+        switch (eventType) {
+        case ResultEventProtocol.START_TEST_SUITE:
+            startTestSuite(createTestSuite(attributes));
+            break;
+        case ResultEventProtocol.END_TEST_SUITE:
+            endTestSuite();
+            break;
+        case ResultEventProtocol.START_TEST_CASE:
+            startTestCase(createTestCase(attributes));
+            break;
+        case ResultEventProtocol.END_TEST_CASE:
+            endTestCase();
+            break;
+        case ResultEventProtocol.FAILURE:
+            startFailure(createFailureTestCase(attributes));
+            readTrace();
+            endFailure();
+            break;
+        case ResultEventProtocol.ERROR:
+            startError(createErrorTestCase(attributes));
+            readTrace();
+            endError();
+            break;
+        case ResultEventProtocol.END_TEST:
+            stop();
+            endTest();
+            return false;
+        }
+
+        return true;
+    }
+
+    private String readString() {
+        int length = readVarInt();
+        String string = new String(frame, position, length, UTF8);
+        position += length;
+        return string;
+    }
+
+    /**
+     * Decodes the trace into the reused buffer and appends it to the failure
+     * trace without creating an intermediate string.
+     */
+    private void readTrace() {
+        int length = readVarInt();
+        if (trace.capacity() < length) {
+            trace = CharBuffer.allocate(Math.max(trace.capacity() * 2, length));
+        }
+        trace.clear();
+        decoder.reset();
+        decoder.decode(ByteBuffer.wrap(frame, position, length), trace, true);
+        decoder.flush(trace);
+        position += length;
+        appendFailureTrace(trace.array(), 0, trace.position());
+    }
+
+    private int readVarInt() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = frame[position++];
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) break;
+        }
+        return value;
+    }
+
+    private int readVarInt(DataInputStream input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("A malformed frame length is found."); //$NON-NLS-1$
+    }
+
+    private static class FrameAttributes implements ElementAttributes {
+        private String[] values = new String[ResultEventProtocol.ATTRIBUTE_NAMES.length];
+
+        @Override
+        public String getValue(String name) {
+            for (int i = 1; i < values.length; ++i) {
+                if (ResultEventProtocol.ATTRIBUTE_NAMES[i].equals(name)) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        private void set(int attributeCode, String value) {
+            if (attributeCode > 0 && attributeCode < values.length) {
+                values[attributeCode] = value;
+            }
+        }
+
+        private void clear() {
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = null;
+            }
+        }
+    }
+}
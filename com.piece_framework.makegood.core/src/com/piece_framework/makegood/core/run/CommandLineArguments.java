@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The arguments of the testrunner command for a test run. The locations and
+ * the names are given as they are resolved from the workspace, and the names
+ * of the classes and the methods are URL-encoded with the given charset. The
+ * test files are passed in the order in which they are added.
+ *
+ * @since 3.2.0
+ */
+public class CommandLineArguments {
+    private String testingFramework;
+    private String junitXMLFile;
+    private String charset;
+    private String preloadScript;
+    private String phpunitConfigFile;
+    private String testFilePattern;
+    private boolean stopOnFailure;
+    private Set<String> testFiles = new LinkedHashSet<String>();
+    private Set<String> testClasses = new LinkedHashSet<String>();
+    private Set<String> testMethods = new LinkedHashSet<String>();
+
+    /**
+     * @param charset the charset to URL-encode the names with, or null to
+     *                leave them as they are
+     * @throws IllegalArgumentException if the charset is not supported
+     */
+    public CommandLineArguments(String testingFramework, String junitXMLFile, String charset) {
+        if (charset != null && !isSupported(charset)) {
+            throw new IllegalArgumentException("The charset [ " + charset + " ] is not supported."); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        this.testingFramework = testingFramework;
+        this.junitXMLFile = junitXMLFile;
+        this.charset = charset;
+    }
+
+    /**
+     * Returns whether the names can be URL-encoded with the given charset.
+     */
+    public static boolean isSupported(String charset) {
+        try {
+            URLEncoder.encode("", charset); //$NON-NLS-1$
+            return true;
+        } catch (UnsupportedEncodingException e) {
+            return false;
+        }
+    }
+
+    public void setPreloadScript(String preloadScript) {
+        this.preloadScript = preloadScript;
+    }
+
+    public void setPHPUnitConfigFile(String phpunitConfigFile) {
+        this.phpunitConfigFile = phpunitConfigFile;
+    }
+
+    public void setTestFilePattern(String testFilePattern) {
+        this.testFilePattern = testFilePattern;
+    }
+
+    public void setStopOnFailure(boolean stopOnFailure) {
+        this.stopOnFailure = stopOnFailure;
+    }
+
+    public void addTestFile(String testFile) {
+        testFiles.add(testFile);
+    }
+
+    public void addTestClass(String className) {
+        testClasses.add(urlencode(className));
+    }
+
+    public void addTestMethod(String className, String methodName) {
+        testMethods.add(urlencode(className + "::" + methodName)); //$NON-NLS-1$
+    }
+
+    public String build() {
+        StringBuilder buffer = new StringBuilder();
+
+        buffer.append(" --no-ansi"); //$NON-NLS-1$
+        buffer.append(" " + testingFramework); //$NON-NLS-1$
+
+        if (preloadScript != null) {
+            buffer.append(" -p \"" + preloadScript + "\""); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        buffer.append(" --log-junit=\"" + junitXMLFile + "\""); //$NON-NLS-1$ //$NON-NLS-2$
+        buffer.append(" --log-junit-realtime"); //$NON-NLS-1$
+
+        if (stopOnFailure) {
+            buffer.append(" -s"); //$NON-NLS-1$
+        }
+
+        if (phpunitConfigFile != null) {
+            buffer.append(" --phpunit-config=\"" + phpunitConfigFile + "\""); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        for (String testClass: testClasses) {
+            buffer.append(" --test-class=\"" + testClass + "\""); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        for (String testMethod: testMethods) {
+            buffer.append(" --test-method=\"" + testMethod + "\""); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        buffer.append(" -R"); //$NON-NLS-1$
+        buffer.append(" --test-file-pattern=\"" + testFilePattern + "\""); //$NON-NLS-1$ //$NON-NLS-2$
+        for (String testFile: testFiles) {
+            buffer.append(" \"" + testFile + "\""); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        return buffer.toString();
+    }
+
+    private String urlencode(String subject) {
+        if (charset == null) return subject;
+
+        try {
+            return URLEncoder.encode(subject, charset);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.piece_framework.makegood.core.result.Result;
+import com.piece_framework.makegood.core.result.TestCaseResult;
+
+/**
+ * The history of the durations of the test cases. The last durations of
+ * each test case are kept by the key "class::method" and stored in a compact
+ * binary file so that they can be used to order the tests, to balance the
+ * shards, and to derive the time limits of the test cases.
+ *
+ * @since 3.2.0
+ */
+public class DurationHistory {
+    public static final int UNORDERED = 0;
+    public static final int SLOWEST_FIRST = 1;
+    public static final int FASTEST_FIRST = 2;
+
+    /**
+     * The number of the durations to be kept for each test case.
+     */
+    public static final int SAMPLE_SIZE = 8;
+
+    private static final int MAGIC = 0x4d474448;
+    private static final int VERSION = 1;
+
+    private File file;
+    private Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+    public DurationHistory(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the history from the file. The history is left empty if the file
+     * does not exist or is in an unknown format.
+     */
+    public synchronized void load() throws IOException {
+        entries.clear();
+        if (!file.exists()) return;
+
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+        try {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) return;
+
+            String[] strings = new String[readVarInt(input)];
+            for (int i = 0; i < strings.length; ++i) {
+                strings[i] = input.readUTF();
+            }
+
+            int entryCount = readVarInt(input);
+            for (int i = 0; i < entryCount; ++i) {
+                String className = strings[readVarInt(input)];
+                String methodName = input.readUTF();
+                int fileIndex = readVarInt(input) - 1;
+                Entry entry = new Entry(className, methodName, fileIndex >= 0 ? strings[fileIndex] : null);
+                entry.count = Math.min(input.readUnsignedByte(), SAMPLE_SIZE);
+                for (int j = 0; j < entry.count; ++j) {
+                    entry.samples[j] = readVarInt(input);
+                }
+                entries.put(createKey(className, methodName), entry);
+            }
+        } catch (EOFException e) {
+            entries.clear();
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Saves the history to the file. The file is replaced at once so that
+     * a broken file is never left.
+     */
+    public synchronized void save() throws IOException {
+        Map<String, Integer> stringIndexes = new LinkedHashMap<String, Integer>();
+        for (Entry entry: entries.values()) {
+            addString(stringIndexes, entry.className);
+            if (entry.file != null) {
+                addString(stringIndexes, entry.file);
+            }
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        File temporaryFile = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile), 65536));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            writeVarInt(output, stringIndexes.size());
+            for (String string: stringIndexes.keySet()) {
+                output.writeUTF(string);
+            }
+            writeVarInt(output, entries.size());
+            for (Entry entry: entries.values()) {
+                writeVarInt(output, stringIndexes.get(entry.className));
+                output.writeUTF(entry.methodName);
+                writeVarInt(output, entry.file == null ? 0 : stringIndexes.get(entry.file) + 1);
+                output.writeByte(entry.count);
+                for (int i = 0; i < entry.count; ++i) {
+                    writeVarInt(output, entry.samples[i]);
+                }
+            }
+        } finally {
+            output.close();
+        }
+
+        if (!temporaryFile.renameTo(file)) {
+            file.delete();
+            if (!temporaryFile.renameTo(file)) {
+                throw new IOException("Failed to rename [ " + temporaryFile + " ] to [ " + file + " ]."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            }
+        }
+    }
+
+    /**
+     * Records the duration in nanoseconds of a test case.
+     */
+    public synchronized void record(String className, String methodName, String file, long time) {
+        if (className == null || methodName == null) return;
+
+        String key = createKey(className, methodName);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(className, methodName, file);
+            entries.put(key, entry);
+        } else if (file != null) {
+            entry.file = file;
+        }
+        entry.add((int) Math.min(Integer.MAX_VALUE, Math.max(0, time / 1000)));
+    }
+
+    /**
+     * Records the durations of all test cases in the given result.
+     */
+    public void record(Result result) {
+        if (result instanceof TestCaseResult) {
+            TestCaseResult testCase = (TestCaseResult) result;
+            if (testCase.isFixed() && !testCase.isArtificial()) {
+                record(testCase.getClassName(), testCase.getMethodName(), testCase.getFile(), testCase.getTime());
+            }
+            return;
+        }
+
+        for (Result child: result.getChildren()) {
+            record(child);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the average duration in nanoseconds of a test case, or -1 if
+     * the test case has never been run.
+     */
+    public synchronized long getAverage(String className, String methodName) {
+        Entry entry = entries.get(createKey(className, methodName));
+        if (entry == null) return -1;
+        return entry.average() * 1000;
+    }
+
+    /**
+     * Returns the given percentile in nanoseconds of the last durations of
+     * a test case, or -1 if the test case has never been run.
+     */
+    public synchronized long getPercentile(String className, String methodName, int percentile) {
+        Entry entry = entries.get(createKey(className, methodName));
+        if (entry == null || entry.count == 0) return -1;
+        return percentile(Arrays.copyOf(entry.samples, entry.count), percentile) * 1000;
+    }
+
+    /**
+     * Returns the given percentile in nanoseconds of the average durations
+     * of all test cases, or -1 if the history is empty.
+     */
+    public synchronized long getPercentile(int percentile) {
+        if (entries.size() == 0) return -1;
+        long[] averages = new long[entries.size()];
+        int i = 0;
+        for (Entry entry: entries.values()) {
+            averages[i++] = entry.average();
+        }
+        return percentile(averages, percentile) * 1000;
+    }
+
+    /**
+     * Returns the trend of the durations of a test case as the ratio of the
+     * average of the newer half of the durations to the older half. A value
+     * greater than 1.0 means that the test case is getting slower.
+     */
+    public synchronized double getTrend(String className, String methodName) {
+        Entry entry = entries.get(createKey(className, methodName));
+        if (entry == null || entry.count < 2) return 1.0d;
+
+        int half = entry.count / 2;
+        long older = 0;
+        long newer = 0;
+        for (int i = 0; i < half; ++i) {
+            older += entry.samples[i];
+            newer += entry.samples[entry.count - half + i];
+        }
+        if (older == 0) return 1.0d;
+        return (double) newer / (double) older;
+    }
+
+    /**
+     * Returns the sum of the average durations in nanoseconds of the test
+     * cases in the given file, or -1 if no test case in the file has been run.
+     */
+    public synchronized long getFileDuration(String file) {
+        long duration = -1;
+        for (Entry entry: entries.values()) {
+            if (file.equals(entry.file)) {
+                duration = (duration == -1 ? 0 : duration) + entry.average() * 1000;
+            }
+        }
+        return duration;
+    }
+
+    /**
+     * Returns the durations in nanoseconds of all files in the history.
+     */
+    public synchronized Map<String, Long> getFileDurations() {
+        Map<String, Long> durations = new HashMap<String, Long>();
+        for (Entry entry: entries.values()) {
+            if (entry.file == null) continue;
+            Long duration = durations.get(entry.file);
+            durations.put(entry.file, (duration == null ? 0 : duration) + entry.average() * 1000);
+        }
+        return durations;
+    }
+
+    /**
+     * Sorts the given files by their durations in the given order. The files
+     * which have never been run are regarded as the slowest ones since their
+     * durations are unknown. The files are left as they are if the order is
+     * {@link #UNORDERED}.
+     */
+    public List<String> sortFiles(Collection<String> files, final int order) {
+        List<String> sortedFiles = new ArrayList<String>(files);
+        if (order != SLOWEST_FIRST && order != FASTEST_FIRST) return sortedFiles;
+
+        final Map<String, Long> durations = getFileDurations();
+        Collections.sort(sortedFiles, new Comparator<String>() {
+            @Override
+            public int compare(String o1, String o2) {
+                Long duration1 = durations.get(o1);
+                Long duration2 = durations.get(o2);
+                long time1 = duration1 == null ? Long.MAX_VALUE : duration1;
+                long time2 = duration2 == null ? Long.MAX_VALUE : duration2;
+                int result = time1 < time2 ? -1 : (time1 > time2 ? 1 : 0);
+                return order == SLOWEST_FIRST ? -result : result;
+            }
+        });
+        return sortedFiles;
+    }
+
+    private static String createKey(String className, String methodName) {
+        return className + "::" + methodName; //$NON-NLS-1$
+    }
+
+    private void addString(Map<String, Integer> stringIndexes, String string) {
+        if (!stringIndexes.containsKey(string)) {
+            stringIndexes.put(string, stringIndexes.size());
+        }
+    }
+
+    private long percentile(int[] values, int percentile) {
+        long[] longValues = new long[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            longValues[i] = values[i];
+        }
+        return percentile(longValues, percentile);
+    }
+
+    private long percentile(long[] values, int percentile) {
+        Arrays.sort(values);
+        int index = (int) Math.ceil(values.length * Math.max(0, Math.min(100, percentile)) / 100.0d) - 1;
+        return values[Math.max(0, index)];
+    }
+
+    private static void writeVarInt(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            output.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("A malformed integer is found."); //$NON-NLS-1$
+    }
+
+    /**
+     * The durations in microseconds of a test case from the oldest to the
+     * newest.
+     */
+    private static class Entry {
+        private String className;
+        private String methodName;
+        private String file;
+        private int[] samples = new int[SAMPLE_SIZE];
+        private int count;
+
+        private Entry(String className, String methodName, String file) {
+            this.className = className;
+            this.methodName = methodName;
+            this.file = file;
+        }
+
+        private void add(int sample) {
+            if (count == SAMPLE_SIZE) {
+                System.arraycopy(samples, 1, samples, 0, SAMPLE_SIZE - 1);
+                --count;
+            }
+            samples[count++] = sample;
+        }
+
+        private long average() {
+            if (count == 0) return 0;
+            long sum = 0;
+            for (int i = 0; i < count; ++i) {
+                sum += samples[i];
+            }
+            return sum / count;
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /**
- * Copyright (c) 2010-2013 KUBO Atsuhiro <kubo@iteman.jp>,
+ * Copyright (c) 2010-2014 KUBO Atsuhiro <kubo@iteman.jp>,
  * All rights reserved.
  *
  * This file is part of MakeGood.
@@ -12,7 +12,7 @@
 package com.piece_framework.makegood.core.run;
 
 import java.util.ArrayList;
-import java.util.IdentityHashMap;
+import java.util.Arrays;
 import java.util.List;
 
 import com.piece_framework.makegood.core.result.Result;
@@ -22,45 +22,153 @@ import com.piece_framework.makegood.core.result.TestSuiteResult;
 public class Failures implements ResultReaderListener {
     public static final int FIND_PREVIOUS = 1;
     public static final int FIND_NEXT = 2;
-    private List<Result> orderedResults = new ArrayList<Result>();
-    private IdentityHashMap<Result, Integer> resultIndexes = new IdentityHashMap<Result, Integer>();
-    private List<Integer> failureIndexes = new ArrayList<Integer>();
 
-    private void addResult(Result result) {
-        orderedResults.add(result);
-        resultIndexes.put(result, orderedResults.size() - 1);
+    /**
+     * @since 3.2.0
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * The results in the order in which they are started.
+     *
+     * @since 3.2.0
+     */
+    private Result[] orderedResults = new Result[INITIAL_CAPACITY];
+
+    /**
+     * The index of the last descendant of each result, which is -1 for a
+     * suite until it ends. The descendants of a running suite are all the
+     * results after it.
+     *
+     * @since 3.2.0
+     */
+    private int[] lastDescendantIndexes = new int[INITIAL_CAPACITY];
+
+    /**
+     * @since 3.2.0
+     */
+    private int resultCount;
+
+    /**
+     * @since 3.2.0
+     */
+    private ResultIndexes resultIndexes = new ResultIndexes();
+
+    /**
+     * The indexes of the failures and errors in ascending order.
+     */
+    private int[] failureIndexes = new int[INITIAL_CAPACITY];
+
+    /**
+     * @since 3.2.0
+     */
+    private int failureCount;
+
+    private synchronized void addResult(Result result) {
+        if (resultCount == orderedResults.length) {
+            removeFoldedTestCases();
+            if (resultCount * 2 > orderedResults.length) {
+                orderedResults = Arrays.copyOf(orderedResults, orderedResults.length * 2);
+                lastDescendantIndexes = Arrays.copyOf(lastDescendantIndexes, lastDescendantIndexes.length * 2);
+            }
+        }
+
+        orderedResults[resultCount] = result;
+        lastDescendantIndexes[resultCount] = result instanceof TestSuiteResult ? -1 : resultCount;
+        resultIndexes.put(result, resultCount);
+        ++resultCount;
     }
 
-    private void markCurrentResultAsFailure() {
-        failureIndexes.add(orderedResults.size() - 1);
+    /**
+     * @since 3.2.0
+     */
+    private synchronized void markAsFailure(TestCaseResult testCase) {
+        int index = resultIndexes.get(testCase);
+        if (index == -1) index = resultCount - 1;
+
+        int position = Arrays.binarySearch(failureIndexes, 0, failureCount, index);
+        if (position >= 0) return;
+        position = -(position + 1);
+
+        if (failureCount == failureIndexes.length) {
+            failureIndexes = Arrays.copyOf(failureIndexes, failureCount * 2);
+        }
+        System.arraycopy(failureIndexes, position, failureIndexes, position + 1, failureCount - position);
+        failureIndexes[position] = index;
+        ++failureCount;
     }
 
-    public TestCaseResult find(Result criterion, int direction) {
-        Integer indexOfCriterion = resultIndexes.get(criterion);
-        if (indexOfCriterion == null) return null;
+    /**
+     * @since 3.2.0
+     */
+    private synchronized void markAsEnded(TestSuiteResult testSuite) {
+        int index = resultIndexes.get(testSuite);
+        if (index == -1) return;
+        lastDescendantIndexes[index] = resultCount - 1;
+    }
+
+    /**
+     * Removes the test cases which have been folded into their suites so as
+     * not to keep them alive, and renumbers the remaining results.
+     *
+     * @since 3.2.0
+     */
+    private void removeFoldedTestCases() {
+        int foldedTestCount = 0;
+        for (int i = 0; i < resultCount; ++i) {
+            if (isFolded(orderedResults[i])) ++foldedTestCount;
+        }
+        if (foldedTestCount == 0) return;
+
+        int[] newIndexes = new int[resultCount + 1];
+        int newResultCount = 0;
+        for (int i = 0; i < resultCount; ++i) {
+            newIndexes[i] = newResultCount;
+            if (isFolded(orderedResults[i])) continue;
+            orderedResults[newResultCount] = orderedResults[i];
+            lastDescendantIndexes[newResultCount] = lastDescendantIndexes[i];
+            ++newResultCount;
+        }
+        newIndexes[resultCount] = newResultCount;
+
+        resultIndexes = new ResultIndexes();
+        for (int i = 0; i < newResultCount; ++i) {
+            if (lastDescendantIndexes[i] != -1) {
+                lastDescendantIndexes[i] = newIndexes[lastDescendantIndexes[i] + 1] - 1;
+            }
+            resultIndexes.put(orderedResults[i], i);
+        }
+        for (int i = 0; i < failureCount; ++i) {
+            failureIndexes[i] = newIndexes[failureIndexes[i]];
+        }
+        Arrays.fill(orderedResults, newResultCount, resultCount, null);
+        resultCount = newResultCount;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private boolean isFolded(Result result) {
+        return result instanceof TestCaseResult && ((TestCaseResult) result).isFolded();
+    }
+
+    public synchronized TestCaseResult find(Result criterion, int direction) {
+        int indexOfCriterion = resultIndexes.get(criterion);
+        if (indexOfCriterion == -1) return null;
+        if (failureCount == 0) return null;
 
         if (criterion instanceof TestSuiteResult) {
-            indexOfCriterion += criterion.getSize();
+            int lastDescendantIndex = lastDescendantIndexes[indexOfCriterion];
+            indexOfCriterion = lastDescendantIndex == -1 ? resultCount : lastDescendantIndex + 1;
         }
 
+        int position = Arrays.binarySearch(failureIndexes, 0, failureCount, indexOfCriterion);
         if (direction == FIND_NEXT) {
-            for (int i = failureIndexes.size() - 1; i >=0; --i) {
-                Integer indexOfFailure = failureIndexes.get(i);
-                if (indexOfFailure >= indexOfCriterion) continue;
-                return (TestCaseResult) orderedResults.get(indexOfFailure);
-            }
-            if (failureIndexes.size() > 0) {
-                return (TestCaseResult) orderedResults.get(failureIndexes.get(failureIndexes.size() - 1));
-            }
+            int countOfLowerFailures = position >= 0 ? position : -(position + 1);
+            return failureAt(countOfLowerFailures > 0 ? countOfLowerFailures - 1 : failureCount - 1);
         } else if (direction == FIND_PREVIOUS) {
-            for (int i = 0; i < failureIndexes.size(); ++i) {
-                Integer indexOfFailure = failureIndexes.get(i);
-                if (indexOfFailure <= indexOfCriterion) continue;
-                return (TestCaseResult) orderedResults.get(indexOfFailure);
-            }
-            if (failureIndexes.size() > 0) {
-                return (TestCaseResult) orderedResults.get(failureIndexes.get(0));
-            }
+            int firstHigherFailure = position >= 0 ? position + 1 : -(position + 1);
+            return failureAt(firstHigherFailure < failureCount ? firstHigherFailure : 0);
         }
 
         return null;
@@ -69,15 +177,22 @@ public class Failures implements ResultReaderListener {
     /**
      * @since 2.1.0
      */
-    public List<TestCaseResult> findAll() {
-        List<TestCaseResult> failures = new ArrayList<TestCaseResult>();
-        for (int failureIndex: failureIndexes) {
-            failures.add((TestCaseResult) orderedResults.get(failureIndex));
+    public synchronized List<TestCaseResult> findAll() {
+        List<TestCaseResult> failures = new ArrayList<TestCaseResult>(failureCount);
+        for (int i = 0; i < failureCount; ++i) {
+            failures.add(failureAt(i));
         }
 
         return failures;
     }
 
+    /**
+     * @since 3.2.0
+     */
+    private TestCaseResult failureAt(int position) {
+        return (TestCaseResult) orderedResults[failureIndexes[position]];
+    }
+
     /**
      * @since 1.7.0
      */
@@ -98,6 +213,7 @@ public class Failures implements ResultReaderListener {
      */
     @Override
     public void endTestSuite(TestSuiteResult testSuite) {
+        markAsEnded(testSuite);
     }
 
     /**
@@ -120,7 +236,7 @@ public class Failures implements ResultReaderListener {
      */
     @Override
     public void startFailure(TestCaseResult failure) {
-        markCurrentResultAsFailure();
+        markAsFailure(failure);
     }
 
     /**
@@ -149,7 +265,7 @@ public class Failures implements ResultReaderListener {
      */
     @Override
     public void startError(TestCaseResult error) {
-        markCurrentResultAsFailure();
+        markAsFailure(error);
     }
 
     /**
@@ -158,4 +274,64 @@ public class Failures implements ResultReaderListener {
     @Override
     public void endError(TestCaseResult error) {
     }
+
+    /**
+     * An identity map from the results to their indexes with open addressing,
+     * which keeps the indexes as primitives.
+     *
+     * @since 3.2.0
+     */
+    private static class ResultIndexes {
+        private Result[] keys = new Result[INITIAL_CAPACITY * 2];
+        private int[] values = new int[INITIAL_CAPACITY * 2];
+        private int size;
+
+        void put(Result key, int value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+
+            int slot = slotOf(key, keys);
+            if (keys[slot] == null) {
+                keys[slot] = key;
+                ++size;
+            }
+            values[slot] = value;
+        }
+
+        /**
+         * Returns the index of the given result, or -1 if the result is not
+         * in the map.
+         */
+        int get(Result key) {
+            if (key == null) return -1;
+
+            int slot = slotOf(key, keys);
+            return keys[slot] == null ? -1 : values[slot];
+        }
+
+        private void resize() {
+            Result[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new Result[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            for (int i = 0; i < oldKeys.length; ++i) {
+                if (oldKeys[i] == null) continue;
+                int slot = slotOf(oldKeys[i], keys);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+
+        private static int slotOf(Result key, Result[] keys) {
+            int mask = keys.length - 1;
+            int hash = System.identityHashCode(key);
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (keys[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+
+            return slot;
+        }
+    }
 }
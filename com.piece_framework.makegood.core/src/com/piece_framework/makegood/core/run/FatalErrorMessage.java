@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2011, 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A PHP fatal error or parse error found in the output of a test run.
+ *
+ * @since 3.2.0
+ */
+public class FatalErrorMessage {
+    private static final Pattern FATAL_ERROR_MESSAGE_PATTERN =
+        Pattern.compile("^((?:Parse|Fatal) error: .+) in (.+?)(?:\\((\\d+)\\) : eval\\(\\)'d code(?:\\(\\d+\\) : eval\\(\\)'d code)*)? on line (\\d+)$", Pattern.MULTILINE); //$NON-NLS-1$
+    private String message;
+    private String file;
+    private int line;
+
+    private FatalErrorMessage(String message, String file, int line) {
+        this.message = message;
+        this.file = file;
+        this.line = line;
+    }
+
+    /**
+     * Returns the first fatal error in the given output, or null if the
+     * output has no fatal error.
+     */
+    public static FatalErrorMessage parse(String output) {
+        Matcher matcher = FATAL_ERROR_MESSAGE_PATTERN.matcher(output);
+        if (!matcher.find()) return null;
+
+        return new FatalErrorMessage(
+            matcher.group(1),
+            matcher.group(2),
+            Integer.parseInt(matcher.group(3) == null ? matcher.group(4) : matcher.group(3))
+        );
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public int getLine() {
+        return line;
+    }
+}
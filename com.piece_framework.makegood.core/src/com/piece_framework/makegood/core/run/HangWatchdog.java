@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+/**
+ * Watches the running test case and finds it hung if it does not end within
+ * the time limit. If a history of the durations is given, the time limit of
+ * a test case which has been run is derived from its slowest duration, and
+ * the given time limit is used as the upper bound.
+ *
+ * The events are received on the reader threads, and {@link #check(long)} is
+ * called by another thread. If the tests are run by more than one shard, the
+ * events of each shard are received by its own listener created by
+ * {@link #createShardListener()}, so that the running test case of every
+ * shard is watched.
+ *
+ * @since 3.2.0
+ */
+public class HangWatchdog implements ResultReaderListener {
+    private static final int HISTORICAL_TIME_LIMIT_FACTOR = 10;
+    private static final long MINIMUM_HISTORICAL_TIME_LIMIT = 5000000000L;
+    private static final String HUNG_TEST_CASE_MESSAGE = "The test did not end in %d seconds and was terminated."; //$NON-NLS-1$
+
+    private long timeLimit;
+    private DurationHistory durationHistory;
+    private List<ShardListener> shardListeners = new CopyOnWriteArrayList<ShardListener>();
+    private ShardListener listener = createShardListener();
+    private volatile TestCaseResult hungTestCase;
+    private volatile long hungTestCaseTimeLimit;
+
+    /**
+     * @param timeLimit the time limit in nanoseconds
+     * @param durationHistory the history to derive the time limits from, or
+     *                        null to use the given time limit for all tests
+     */
+    public HangWatchdog(long timeLimit, DurationHistory durationHistory) {
+        this.timeLimit = timeLimit;
+        this.durationHistory = durationHistory;
+    }
+
+    /**
+     * Creates a listener which watches the running test case of a shard.
+     */
+    public ShardListener createShardListener() {
+        ShardListener shardListener = new ShardListener();
+        shardListeners.add(shardListener);
+        return shardListener;
+    }
+
+    /**
+     * Returns the first running test case of the shards which has exceeded
+     * its time limit at the given time in nanoseconds, or null if there is no
+     * such test case. A test case is found hung only once.
+     */
+    public synchronized TestCaseResult check(long now) {
+        if (hungTestCase != null) return null;
+
+        for (ShardListener shardListener: shardListeners) {
+            TestCaseResult testCase = shardListener.runningTestCase;
+            if (testCase == null) continue;
+            if (now - shardListener.runningTestCaseStartTime < shardListener.runningTestCaseTimeLimit) continue;
+
+            hungTestCase = testCase;
+            hungTestCaseTimeLimit = shardListener.runningTestCaseTimeLimit;
+            return testCase;
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the test case which has been found hung, or null if no test
+     * case has been found hung.
+     */
+    public TestCaseResult getHungTestCase() {
+        return hungTestCase;
+    }
+
+    /**
+     * Returns the message for the hung test case.
+     */
+    public String getHungTestCaseMessage() {
+        return String.format(HUNG_TEST_CASE_MESSAGE, hungTestCaseTimeLimit / 1000000000L);
+    }
+
+    /**
+     * Returns the time limit in nanoseconds of the given test case.
+     */
+    long getTimeLimit(TestCaseResult testCase) {
+        if (durationHistory == null) return timeLimit;
+
+        long slowestTime = durationHistory.getPercentile(testCase.getClassName(), testCase.getMethodName(), 100);
+        if (slowestTime < 0) return timeLimit;
+
+        return Math.min(timeLimit, Math.max(slowestTime * HISTORICAL_TIME_LIMIT_FACTOR, MINIMUM_HISTORICAL_TIME_LIMIT));
+    }
+
+    @Override
+    public void startTestCase(TestCaseResult testCase) {
+        listener.startTestCase(testCase);
+    }
+
+    @Override
+    public void endTestCase(TestCaseResult testCase) {
+        listener.endTestCase(testCase);
+    }
+
+    @Override
+    public void endTest() {
+        listener.endTest();
+    }
+
+    @Override
+    public void onFirstTestSuite(TestSuiteResult testSuite) {
+    }
+
+    @Override
+    public void startTestSuite(TestSuiteResult testSuite) {
+    }
+
+    @Override
+    public void endTestSuite(TestSuiteResult testSuite) {
+    }
+
+    @Override
+    public void startFailure(TestCaseResult failure) {
+    }
+
+    @Override
+    public void endFailure(TestCaseResult failure) {
+    }
+
+    @Override
+    public void startTest() {
+    }
+
+    @Override
+    public void startError(TestCaseResult error) {
+    }
+
+    @Override
+    public void endError(TestCaseResult error) {
+    }
+
+    /**
+     * The listener which watches the running test case of a shard.
+     */
+    public class ShardListener implements ResultReaderListener {
+        private TestCaseResult runningTestCase;
+        private long runningTestCaseStartTime;
+        private long runningTestCaseTimeLimit;
+
+        private ShardListener() {
+        }
+
+        @Override
+        public void startTestCase(TestCaseResult testCase) {
+            long timeLimit = getTimeLimit(testCase);
+            synchronized (HangWatchdog.this) {
+                runningTestCaseTimeLimit = timeLimit;
+                runningTestCaseStartTime = System.nanoTime();
+                runningTestCase = testCase;
+            }
+        }
+
+        @Override
+        public void endTestCase(TestCaseResult testCase) {
+            synchronized (HangWatchdog.this) {
+                if (runningTestCase == testCase) {
+                    runningTestCase = null;
+                }
+            }
+        }
+
+        @Override
+        public void endTest() {
+            synchronized (HangWatchdog.this) {
+                runningTestCase = null;
+            }
+        }
+
+        @Override
+        public void onFirstTestSuite(TestSuiteResult testSuite) {
+        }
+
+        @Override
+        public void startTestSuite(TestSuiteResult testSuite) {
+        }
+
+        @Override
+        public void endTestSuite(TestSuiteResult testSuite) {
+        }
+
+        @Override
+        public void startFailure(TestCaseResult failure) {
+        }
+
+        @Override
+        public void endFailure(TestCaseResult failure) {
+        }
+
+        @Override
+        public void startTest() {
+        }
+
+        @Override
+        public void startError(TestCaseResult error) {
+        }
+
+        @Override
+        public void endError(TestCaseResult error) {
+        }
+    }
+}
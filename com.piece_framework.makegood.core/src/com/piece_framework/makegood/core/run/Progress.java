@@ -1,6 +1,6 @@
 /**
  * Copyright (c) 2010 MATSUFUJI Hideharu <matsufuji2008@gmail.com>,
- *               2010-2011 KUBO Atsuhiro <kubo@iteman.jp>,
+ *               2010-2011, 2014 KUBO Atsuhiro <kubo@iteman.jp>,
  * All rights reserved.
  *
  * This file is part of MakeGood.
@@ -12,13 +12,43 @@
 
 package com.piece_framework.makegood.core.run;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 import com.piece_framework.makegood.core.result.TestCaseResult;
 import com.piece_framework.makegood.core.result.TestSuiteResult;
 
+/**
+ * The progress of a run. It is changed by the reader threads and the UI
+ * thread, and is read through an immutable {@link Snapshot} which is
+ * published with a volatile write.
+ *
+ * While the test cases end quickly, a snapshot is published at most once per
+ * {@link #PUBLICATION_INTERVAL}, so the rate of the publications follows the
+ * rate of the tests up to that limit. A change which has not been published
+ * yet is published when a snapshot is asked for after the interval. A
+ * snapshot is published at once when a test case fails, when a suite starts
+ * or ends, and when the run starts or ends.
+ */
 public class Progress implements ResultReaderListener {
+    /**
+     * The minimum interval of the publications in nanoseconds.
+     *
+     * @since 3.2.0
+     */
+    public static final long PUBLICATION_INTERVAL = 10000000L;
+
     private long processTime;
-    private long startTimeForTestCase;
-    private TestSuiteResult testSuite = new TestSuiteResult(null);
+
+    /**
+     * The start times of the running test cases. There may be more than one
+     * when the results of the shards are merged.
+     *
+     * @since 3.2.0
+     */
+    private Map<TestCaseResult, Long> startTimesForTestCases = new IdentityHashMap<TestCaseResult, Long>();
+
+    private volatile TestSuiteResult testSuite = new TestSuiteResult(null);
     private long startTime;
     private long endTime;
     private boolean isRunning = false;
@@ -29,131 +59,177 @@ public class Progress implements ResultReaderListener {
      */
     private boolean isStopped = false;
 
+    /**
+     * @since 3.2.0
+     */
+    private volatile long lastPublicationTime;
+
+    /**
+     * Whether the progress has been changed since the last publication.
+     *
+     * @since 3.2.0
+     */
+    private volatile boolean isChanged = false;
+
+    /**
+     * @since 3.2.0
+     */
+    private volatile Snapshot snapshot = new Snapshot(this);
+
+    /**
+     * Returns the last published snapshot. A new snapshot is published if the
+     * progress has been changed and the last one is older than the interval,
+     * so that the last test cases are shown while a slow one is running. The
+     * UI should take a snapshot once for each update so that the values are
+     * consistent.
+     *
+     * @since 3.2.0
+     */
+    public Snapshot getSnapshot() {
+        if (isChanged && System.nanoTime() - lastPublicationTime >= PUBLICATION_INTERVAL) {
+            synchronized (this) {
+                if (isChanged) {
+                    publish(System.nanoTime());
+                }
+            }
+        }
+
+        return snapshot;
+    }
+
     public int getAllTestCount() {
-        return testSuite.getAllTestCount();
+        return getSnapshot().getAllTestCount();
     }
 
     public int getTestCount() {
-        return testSuite.getTestCount();
+        return getSnapshot().getTestCount();
     }
 
     public int getPassCount() {
-        return testSuite.getPassCount();
+        return getSnapshot().getPassCount();
     }
 
     public int getFailureCount() {
-        return testSuite.getFailureCount();
+        return getSnapshot().getFailureCount();
     }
 
     public int getErrorCount() {
-        return testSuite.getErrorCount();
+        return getSnapshot().getErrorCount();
     }
 
     public long getProcessTime() {
-        return processTime;
+        return getSnapshot().getProcessTime();
     }
 
     public int calculateRate() {
-        if (getAllTestCount() == 0) {
-            return 0;
-        }
-
-        int rate = (int) (((double) getTestCount() / (double) getAllTestCount()) * 100d);
-        return rate <= 100 ? rate : 100;
+        return getSnapshot().calculateRate();
     }
 
     public long calculateProcessTimeAverage() {
-        if (getTestCount() == 0) {
-            return 0;
-        }
-
-        return getProcessTime() / getTestCount();
+        return getSnapshot().calculateProcessTimeAverage();
     }
 
+    /**
+     * A test case which has ended already, such as a failure of a previous
+     * run replayed by {@link ResultMerger}, is not timed.
+     */
     @Override
-    public void startTestCase(TestCaseResult testCase) {
-        startTimeForTestCase = System.nanoTime();
+    public synchronized void startTestCase(TestCaseResult testCase) {
+        if (testCase.isFixed()) return;
+        startTimesForTestCases.put(testCase, System.nanoTime());
     }
 
     @Override
-    public void endTestCase(TestCaseResult testCase) {
-        long processTimeForTestCase = System.nanoTime() - startTimeForTestCase;
+    public synchronized void endTestCase(TestCaseResult testCase) {
+        Long startTimeForTestCase = startTimesForTestCases.remove(testCase);
+        if (startTimeForTestCase == null) return;
+
+        long now = System.nanoTime();
+        long processTimeForTestCase = now - startTimeForTestCase;
         processTime += processTimeForTestCase;
         testCase.setTime(processTimeForTestCase);
+        if (testCase.hasFailures() || testCase.hasErrors() || now - lastPublicationTime >= PUBLICATION_INTERVAL) {
+            publish(now);
+        } else {
+            isChanged = true;
+        }
     }
 
     public boolean hasFailures() {
-        return testSuite.hasFailures() || testSuite.hasErrors();
+        return getSnapshot().hasFailures();
     }
 
-    public void start() {
+    public synchronized void start() {
         isRunning = true;
         startTime = System.nanoTime();
+        publish(startTime);
     }
 
-    public void end() {
+    public synchronized void end() {
         endTime = System.nanoTime();
         isRunning = false;
+        publish(endTime);
     }
 
     public boolean isRunning() {
-        return isRunning;
+        return getSnapshot().isRunning();
     }
 
     public long getElapsedTime() {
-        if (isRunning) {
-            return System.nanoTime() - startTime;
-        } else {
-            return endTime - startTime;
-        }
+        return getSnapshot().getElapsedTime();
     }
 
     private void markAsCompleted() {
         isCompleted = true;
+        publish(System.nanoTime());
     }
 
     /**
      * @since 1.8.0
      */
-    public void markAsStopped() {
+    public synchronized void markAsStopped() {
         isStopped  = true;
+        publish(System.nanoTime());
     }
 
     /**
      * @since 1.8.0
      */
     public boolean isStopped() {
-        return isStopped;
+        return getSnapshot().isStopped();
     }
 
     /**
      * @since 1.3.0
      */
     public boolean noTestsFound() {
-        return isCompleted && getAllTestCount() == 0;
+        return getSnapshot().noTestsFound();
     }
 
     /**
      * @since 1.7.0
      */
     @Override
-    public void onFirstTestSuite(TestSuiteResult testSuite) {
+    public synchronized void onFirstTestSuite(TestSuiteResult testSuite) {
         this.testSuite = testSuite;
         processTime = 0;
+        publish(System.nanoTime());
     }
 
     /**
      * @since 1.7.0
      */
     @Override
-    public void startTestSuite(TestSuiteResult testSuite) {
+    public synchronized void startTestSuite(TestSuiteResult testSuite) {
+        publish(System.nanoTime());
     }
 
     /**
      * @since 1.7.0
      */
     @Override
-    public void endTestSuite(TestSuiteResult testSuite) {
+    public synchronized void endTestSuite(TestSuiteResult testSuite) {
+        publish(System.nanoTime());
     }
 
     /**
@@ -181,7 +257,7 @@ public class Progress implements ResultReaderListener {
      * @since 1.7.0
      */
     @Override
-    public void endTest() {
+    public synchronized void endTest() {
         markAsCompleted();
     }
 
@@ -211,15 +287,127 @@ public class Progress implements ResultReaderListener {
      */
     public int getCurrentTestCount()
     {
-        int testCount = getTestCount();
-        if (isRunning()) {
-            if (testCount < getAllTestCount()) {
+        return getSnapshot().getCurrentTestCount();
+    }
+
+    /**
+     * Publishes a snapshot of the current progress. This method should be
+     * called with the lock of this object.
+     *
+     * @since 3.2.0
+     */
+    private void publish(long now) {
+        snapshot = new Snapshot(this);
+        isChanged = false;
+        lastPublicationTime = now;
+    }
+
+    /**
+     * An immutable snapshot of the counts and the times of a run.
+     *
+     * @since 3.2.0
+     */
+    public static class Snapshot {
+        private final int allTestCount;
+        private final int testCount;
+        private final int failureCount;
+        private final int errorCount;
+        private final long processTime;
+        private final long startTime;
+        private final long endTime;
+        private final boolean isRunning;
+        private final boolean isCompleted;
+        private final boolean isStopped;
+
+        private Snapshot(Progress progress) {
+            TestSuiteResult testSuite = progress.testSuite;
+            allTestCount = testSuite.getAllTestCount();
+            testCount = testSuite.getTestCount();
+            failureCount = testSuite.getFailureCount();
+            errorCount = testSuite.getErrorCount();
+            processTime = progress.processTime;
+            startTime = progress.startTime;
+            endTime = progress.endTime;
+            isRunning = progress.isRunning;
+            isCompleted = progress.isCompleted;
+            isStopped = progress.isStopped;
+        }
+
+        public int getAllTestCount() {
+            return allTestCount;
+        }
+
+        public int getTestCount() {
+            return testCount;
+        }
+
+        public int getPassCount() {
+            return testCount - (failureCount + errorCount);
+        }
+
+        public int getFailureCount() {
+            return failureCount;
+        }
+
+        public int getErrorCount() {
+            return errorCount;
+        }
+
+        public long getProcessTime() {
+            return processTime;
+        }
+
+        public int calculateRate() {
+            if (allTestCount == 0) {
+                return 0;
+            }
+
+            int rate = (int) (((double) testCount / (double) allTestCount) * 100d);
+            return rate <= 100 ? rate : 100;
+        }
+
+        public long calculateProcessTimeAverage() {
+            if (testCount == 0) {
+                return 0;
+            }
+
+            return processTime / testCount;
+        }
+
+        public boolean hasFailures() {
+            return failureCount > 0 || errorCount > 0;
+        }
+
+        public boolean isRunning() {
+            return isRunning;
+        }
+
+        /**
+         * Returns the elapsed time, which is calculated from the current
+         * time while the run is running.
+         */
+        public long getElapsedTime() {
+            if (isRunning) {
+                return System.nanoTime() - startTime;
+            } else {
+                return endTime - startTime;
+            }
+        }
+
+        public boolean isStopped() {
+            return isStopped;
+        }
+
+        public boolean noTestsFound() {
+            return isCompleted && allTestCount == 0;
+        }
+
+        public int getCurrentTestCount() {
+            if (isRunning && testCount < allTestCount) {
                 return testCount + 1;
             } else {
                 return testCount;
             }
-        } else {
-            return testCount;
         }
     }
 }
@@ -0,0 +1,461 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.piece_framework.makegood.core.result.Result;
+import com.piece_framework.makegood.core.result.ResultStore;
+import com.piece_framework.makegood.core.result.ResultType;
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+/**
+ * An archive of the results of the last runs. Each run is stored in its own
+ * compact binary file, in which the names are interned into a string table
+ * and the times are delta-encoded, and only the summaries of the runs are
+ * kept in memory. A result tree is read from the file into a result store
+ * only when it is requested. The test cases folded into a suite are stored as their number
+ * and their time.
+ *
+ * @since 3.2.0
+ */
+public class ResultArchive {
+    private static final int MAGIC = 0x4d475241;
+    private static final int VERSION = 2;
+    private static final int INDEX_VERSION = 1;
+    private static final String INDEX_FILE_NAME = "index.bin"; //$NON-NLS-1$
+    private static final String RUN_FILE_PREFIX = "run-"; //$NON-NLS-1$
+    private static final String RUN_FILE_SUFFIX = ".bin"; //$NON-NLS-1$
+    private static final int TEST_SUITE = 0;
+    private static final int TEST_CASE = 1;
+    private static final int FIXED = 1;
+    private static final int ARTIFICIAL = 2;
+
+    /**
+     * The flag for the suites.
+     */
+    private static final int CACHED = 1;
+
+    private File directory;
+    private int capacity;
+
+    /**
+     * The summaries of the runs from the oldest to the newest.
+     */
+    private List<Run> runs = new ArrayList<Run>();
+
+    public ResultArchive(File directory, int capacity) {
+        this.directory = directory;
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Loads the summaries of the runs. The archive is left empty if the index
+     * does not exist or is in an unknown format.
+     */
+    public synchronized void load() throws IOException {
+        runs.clear();
+        File indexFile = new File(directory, INDEX_FILE_NAME);
+        if (!indexFile.exists()) return;
+
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+        try {
+            if (input.readInt() != MAGIC || input.readInt() != INDEX_VERSION) return;
+            int runCount = readVarInt(input);
+            for (int i = 0; i < runCount; ++i) {
+                Run run = new Run(input.readLong(), input.readLong());
+                run.time = input.readLong();
+                run.testCount = readVarInt(input);
+                run.failureCount = readVarInt(input);
+                run.errorCount = readVarInt(input);
+                runs.add(run);
+            }
+        } catch (EOFException e) {
+            runs.clear();
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Stores the given result as the newest run. The oldest runs are removed
+     * if the number of the runs exceeds the capacity.
+     */
+    public synchronized Run store(TestSuiteResult result, Date endTime) throws IOException {
+        Run run = new Run(runs.size() == 0 ? 1 : runs.get(runs.size() - 1).getId() + 1, endTime.getTime());
+        run.time = result.getTime();
+        run.testCount = result.getTestCount();
+        run.failureCount = result.getFailureCount();
+        run.errorCount = result.getErrorCount();
+
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        File temporaryFile = new File(directory, createRunFileName(run.getId()) + ".tmp"); //$NON-NLS-1$
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile), 65536));
+        try {
+            writeResult(output, result);
+        } finally {
+            output.close();
+        }
+        rename(temporaryFile, new File(directory, createRunFileName(run.getId())));
+
+        runs.add(run);
+        while (runs.size() > capacity) {
+            new File(directory, createRunFileName(runs.remove(0).getId())).delete();
+        }
+        saveIndex();
+
+        return run;
+    }
+
+    /**
+     * Returns the summaries of the runs from the newest to the oldest.
+     */
+    public synchronized List<Run> getRuns() {
+        List<Run> runs = new ArrayList<Run>(this.runs);
+        Collections.reverse(runs);
+        return runs;
+    }
+
+    /**
+     * Reads the result tree of the given run. The tree is kept in a result
+     * store and cannot be changed. Returns null if the run has already been
+     * removed from the archive.
+     */
+    public TestSuiteResult read(Run run) throws IOException {
+        File file = new File(directory, createRunFileName(run.getId()));
+        if (!file.exists()) return null;
+
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+        try {
+            ResultStore store = readResult(input);
+            return store == null ? null : store.getRoot();
+        } catch (EOFException e) {
+            return null;
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Writes a result tree in the pre-order. The string table precedes the
+     * tree so that a name is written only once in a file.
+     */
+    static void writeResult(DataOutputStream output, TestSuiteResult result) throws IOException {
+        Map<String, Integer> stringIndexes = new LinkedHashMap<String, Integer>();
+        collectStrings(result, stringIndexes);
+
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        writeVarInt(output, stringIndexes.size());
+        for (String string: stringIndexes.keySet()) {
+            writeString(output, string);
+        }
+        writeResult(output, result, stringIndexes, new long[1]);
+    }
+
+    static ResultStore readResult(DataInputStream input) throws IOException {
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) return null;
+
+        String[] strings = new String[readVarInt(input)];
+        for (int i = 0; i < strings.length; ++i) {
+            strings[i] = readString(input);
+        }
+        if (input.readUnsignedByte() != TEST_SUITE) throw new IOException("The root of a result is not a test suite."); //$NON-NLS-1$
+
+        ResultStore.Builder builder = ResultStore.builder();
+        readTestSuite(input, strings, new long[1], builder);
+        return builder.build();
+    }
+
+    private static void writeResult(DataOutputStream output, Result result, Map<String, Integer> stringIndexes, long[] lastTime) throws IOException {
+        if (result instanceof TestCaseResult) {
+            TestCaseResult testCase = (TestCaseResult) result;
+            output.writeByte(TEST_CASE);
+            writeStringIndex(output, testCase.getName(), stringIndexes);
+            writeStringIndex(output, testCase.getClassName(), stringIndexes);
+            writeStringIndex(output, testCase.getMethodName(), stringIndexes);
+            String file = testCase.getFile();
+            writeStringIndex(output, file != null && file.equals(testCase.getParent().getFile()) ? null : file, stringIndexes);
+            writeVarInt(output, testCase.getLine());
+            output.writeByte((testCase.isFixed() ? FIXED : 0) | (testCase.isArtificial() ? ARTIFICIAL : 0));
+            output.writeByte(testCase.getResultType().ordinal());
+            writeVarLong(output, zigZag(testCase.getTime() - lastTime[0]));
+            lastTime[0] = testCase.getTime();
+            writeStringIndex(output, testCase.getFailureType(), stringIndexes);
+            writeNullableString(output, testCase.getFailureMessage());
+            writeNullableString(output, testCase.getFailureTrace());
+            return;
+        }
+
+        TestSuiteResult testSuite = (TestSuiteResult) result;
+        output.writeByte(TEST_SUITE);
+        writeStringIndex(output, testSuite.getName(), stringIndexes);
+        writeStringIndex(output, testSuite.getClassName(), stringIndexes);
+        writeStringIndex(output, testSuite.getFile(), stringIndexes);
+        writeStringIndex(output, testSuite.getFullPackageName(), stringIndexes);
+        writeStringIndex(output, testSuite.getPackageName(), stringIndexes);
+        writeVarInt(output, testSuite.getAllTestCount());
+        output.writeByte(testSuite.isCached() ? CACHED : 0);
+        writeVarInt(output, testSuite.getFoldedTestCount());
+        List<Result> children = testSuite.getChildren();
+        long foldedTime = testSuite.getTime();
+        for (Result child: children) {
+            foldedTime -= child.getTime();
+        }
+        writeVarLong(output, zigZag(foldedTime));
+        writeVarInt(output, children.size());
+        for (Result child: children) {
+            writeResult(output, child, stringIndexes, lastTime);
+        }
+    }
+
+    /**
+     * Reads a test suite into the given builder. The folded test cases are
+     * stored as passed ones folded into the suite as the result cache does.
+     */
+    private static void readTestSuite(DataInputStream input, String[] strings, long[] lastTime, ResultStore.Builder builder) throws IOException {
+        String name = readStringIndex(input, strings);
+        String className = readStringIndex(input, strings);
+        String file = readStringIndex(input, strings);
+        String fullPackageName = readStringIndex(input, strings);
+        String packageName = readStringIndex(input, strings);
+        int allTestCount = readVarInt(input);
+        boolean isCached = (input.readUnsignedByte() & CACHED) != 0;
+        builder.startTestSuite(name, className, file, fullPackageName, packageName, allTestCount, isCached);
+        builder.foldTestCases(readVarInt(input), unZigZag(readVarLong(input)));
+        int childCount = readVarInt(input);
+        for (int i = 0; i < childCount; ++i) {
+            if (input.readUnsignedByte() == TEST_SUITE) {
+                readTestSuite(input, strings, lastTime, builder);
+            } else {
+                readTestCase(input, strings, lastTime, builder);
+            }
+        }
+        builder.endTestSuite();
+    }
+
+    private static void readTestCase(DataInputStream input, String[] strings, long[] lastTime, ResultStore.Builder builder) throws IOException {
+        String name = readStringIndex(input, strings);
+        String className = readStringIndex(input, strings);
+        String methodName = readStringIndex(input, strings);
+        String file = readStringIndex(input, strings);
+        int line = readVarInt(input);
+        int flags = input.readUnsignedByte();
+        int resultType = input.readUnsignedByte();
+        if (resultType >= ResultType.values().length) throw new IOException("An unknown result type is found."); //$NON-NLS-1$
+        long time = lastTime[0] + unZigZag(readVarLong(input));
+        lastTime[0] = time;
+        String failureType = readStringIndex(input, strings);
+        String failureMessage = readNullableString(input);
+        String failureTrace = readNullableString(input);
+        builder.addTestCase(
+            name,
+            className,
+            methodName,
+            file,
+            line,
+            ResultType.values()[resultType],
+            (flags & FIXED) != 0,
+            (flags & ARTIFICIAL) != 0,
+            time,
+            failureType,
+            failureMessage,
+            failureTrace
+        );
+    }
+
+    private static void collectStrings(Result result, Map<String, Integer> stringIndexes) {
+        addString(stringIndexes, result.getName());
+        addString(stringIndexes, result.getClassName());
+        addString(stringIndexes, result.getFile());
+        if (result instanceof TestCaseResult) {
+            addString(stringIndexes, ((TestCaseResult) result).getMethodName());
+            addString(stringIndexes, ((TestCaseResult) result).getFailureType());
+            return;
+        }
+
+        addString(stringIndexes, ((TestSuiteResult) result).getFullPackageName());
+        addString(stringIndexes, ((TestSuiteResult) result).getPackageName());
+        for (Result child: result.getChildren()) {
+            collectStrings(child, stringIndexes);
+        }
+    }
+
+    private static void addString(Map<String, Integer> stringIndexes, String string) {
+        if (string != null && !stringIndexes.containsKey(string)) {
+            stringIndexes.put(string, stringIndexes.size());
+        }
+    }
+
+    private void saveIndex() throws IOException {
+        File temporaryFile = new File(directory, INDEX_FILE_NAME + ".tmp"); //$NON-NLS-1$
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(INDEX_VERSION);
+            writeVarInt(output, runs.size());
+            for (Run run: runs) {
+                output.writeLong(run.getId());
+                output.writeLong(run.getEndTime().getTime());
+                output.writeLong(run.getTime());
+                writeVarInt(output, run.getTestCount());
+                writeVarInt(output, run.getFailureCount());
+                writeVarInt(output, run.getErrorCount());
+            }
+        } finally {
+            output.close();
+        }
+        rename(temporaryFile, new File(directory, INDEX_FILE_NAME));
+    }
+
+    private String createRunFileName(long id) {
+        return RUN_FILE_PREFIX + id + RUN_FILE_SUFFIX;
+    }
+
+    private void rename(File source, File destination) throws IOException {
+        if (!source.renameTo(destination)) {
+            destination.delete();
+            if (!source.renameTo(destination)) {
+                throw new IOException("Failed to rename [ " + source + " ] to [ " + destination + " ]."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            }
+        }
+    }
+
+    private static void writeStringIndex(DataOutputStream output, String string, Map<String, Integer> stringIndexes) throws IOException {
+        writeVarInt(output, string == null ? 0 : stringIndexes.get(string) + 1);
+    }
+
+    private static String readStringIndex(DataInputStream input, String[] strings) throws IOException {
+        int index = readVarInt(input) - 1;
+        if (index < 0) return null;
+        if (index >= strings.length) throw new IOException("A malformed string index is found."); //$NON-NLS-1$
+        return strings[index];
+    }
+
+    /**
+     * Writes a string without the 64K limit of DataOutput.writeUTF().
+     */
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        byte[] bytes = string.getBytes("UTF-8"); //$NON-NLS-1$
+        writeVarInt(output, bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[readVarInt(input)];
+        input.readFully(bytes);
+        return new String(bytes, "UTF-8"); //$NON-NLS-1$
+    }
+
+    private static void writeNullableString(DataOutputStream output, String string) throws IOException {
+        output.writeBoolean(string != null);
+        if (string != null) {
+            writeString(output, string);
+        }
+    }
+
+    private static String readNullableString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? readString(input) : null;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(DataOutputStream output, int value) throws IOException {
+        writeVarLong(output, value & 0xffffffffL);
+    }
+
+    private static int readVarInt(DataInputStream input) throws IOException {
+        return (int) readVarLong(input);
+    }
+
+    private static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            output.writeByte((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("A malformed integer is found."); //$NON-NLS-1$
+    }
+
+    /**
+     * The summary of a run.
+     */
+    public static class Run {
+        private long id;
+        private long endTime;
+        private long time;
+        private int testCount;
+        private int failureCount;
+        private int errorCount;
+
+        private Run(long id, long endTime) {
+            this.id = id;
+            this.endTime = endTime;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public Date getEndTime() {
+            return new Date(endTime);
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public int getTestCount() {
+            return testCount;
+        }
+
+        public int getFailureCount() {
+            return failureCount;
+        }
+
+        public int getErrorCount() {
+            return errorCount;
+        }
+    }
+}
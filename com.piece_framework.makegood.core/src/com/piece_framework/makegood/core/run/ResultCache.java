@@ -0,0 +1,284 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.piece_framework.makegood.core.result.Result;
+import com.piece_framework.makegood.core.result.ResultType;
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+/**
+ * The passed test classes keyed by the digest of their test file and its
+ * dependencies. A test file whose digest has not changed since all of its
+ * classes passed does not have to be run again, and its classes are restored
+ * from the cache instead.
+ *
+ * @since 3.2.0
+ */
+public class ResultCache {
+    private static final int MAGIC = 0x4d475243;
+    private static final int VERSION = 1;
+
+    private File file;
+    private Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+    public ResultCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the cache from the file. The cache is left empty if the file does
+     * not exist or is in an unknown format.
+     */
+    public synchronized void load() throws IOException {
+        entries.clear();
+        if (!file.exists()) return;
+
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+        try {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) return;
+
+            String[] strings = new String[readVarInt(input)];
+            for (int i = 0; i < strings.length; ++i) {
+                strings[i] = input.readUTF();
+            }
+
+            int entryCount = readVarInt(input);
+            for (int i = 0; i < entryCount; ++i) {
+                Entry entry = new Entry(input.readUTF(), strings[readVarInt(input)], strings[readVarInt(input)]);
+                entry.testCount = readVarInt(input);
+                entry.time = readVarInt(input);
+                entries.put(entry.className, entry);
+            }
+        } catch (EOFException e) {
+            entries.clear();
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Saves the cache to the file. The file is replaced at once so that a
+     * broken file is never left.
+     */
+    public synchronized void save() throws IOException {
+        Map<String, Integer> stringIndexes = new LinkedHashMap<String, Integer>();
+        for (Entry entry: entries.values()) {
+            addString(stringIndexes, entry.file);
+            addString(stringIndexes, entry.digest);
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        File temporaryFile = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile), 65536));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            writeVarInt(output, stringIndexes.size());
+            for (String string: stringIndexes.keySet()) {
+                output.writeUTF(string);
+            }
+            writeVarInt(output, entries.size());
+            for (Entry entry: entries.values()) {
+                output.writeUTF(entry.className);
+                writeVarInt(output, stringIndexes.get(entry.file));
+                writeVarInt(output, stringIndexes.get(entry.digest));
+                writeVarInt(output, entry.testCount);
+                writeVarInt(output, entry.time);
+            }
+        } finally {
+            output.close();
+        }
+
+        if (!temporaryFile.renameTo(file)) {
+            file.delete();
+            if (!temporaryFile.renameTo(file)) {
+                throw new IOException("Failed to rename [ " + temporaryFile + " ] to [ " + file + " ]."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            }
+        }
+    }
+
+    /**
+     * Returns whether all classes in the given test file have passed with the
+     * given digest.
+     */
+    public synchronized boolean isPassed(String file, String digest) {
+        boolean isPassed = false;
+        for (Entry entry: entries.values()) {
+            if (!entry.file.equals(file)) continue;
+            if (!entry.digest.equals(digest)) return false;
+            isPassed = true;
+        }
+        return isPassed;
+    }
+
+    /**
+     * Records the classes in the given result whose test files are in the
+     * given map from the test files to their digests. The classes of a test
+     * file are stored only if all of them have passed, and are removed
+     * otherwise. The classes restored from the cache are left as they are.
+     */
+    public synchronized void record(TestSuiteResult result, Map<String, String> digests) {
+        Map<String, List<TestSuiteResult>> testSuitesByFile = new LinkedHashMap<String, List<TestSuiteResult>>();
+        collectTestSuites(result, digests, testSuitesByFile);
+
+        for (Map.Entry<String, List<TestSuiteResult>> testSuites: testSuitesByFile.entrySet()) {
+            String file = testSuites.getKey();
+            removeEntries(file);
+
+            boolean isPassed = true;
+            for (TestSuiteResult testSuite: testSuites.getValue()) {
+                if (!isPassed(testSuite)) {
+                    isPassed = false;
+                    break;
+                }
+            }
+            if (!isPassed) continue;
+
+            for (TestSuiteResult testSuite: testSuites.getValue()) {
+                Entry entry = new Entry(testSuite.getClassName(), file, digests.get(file));
+                entry.testCount = testSuite.getTestCount();
+                entry.time = (int) Math.min(Integer.MAX_VALUE, Math.max(0, testSuite.getTime() / 1000));
+                entries.put(entry.className, entry);
+            }
+        }
+    }
+
+    /**
+     * Adds the classes of the given test files to the given result as the
+     * suites restored from the cache. Each suite has as many passed test
+     * cases as it had, which are folded into it.
+     */
+    public synchronized void restore(TestSuiteResult result, Collection<String> files) {
+        Set<String> fileSet = new HashSet<String>(files);
+        for (Entry entry: entries.values()) {
+            if (!fileSet.contains(entry.file)) continue;
+
+            TestSuiteResult testSuite = new TestSuiteResult(entry.className);
+            testSuite.setClassName(entry.className);
+            testSuite.setFile(entry.file);
+            testSuite.setAllTestCount(entry.testCount);
+            testSuite.markAsCached();
+            result.addChild(testSuite);
+            for (int i = 0; i < entry.testCount; ++i) {
+                TestCaseResult testCase = new TestCaseResult(entry.className);
+                testCase.setClassName(entry.className);
+                testSuite.addChild(testCase);
+                testCase.setResultType(ResultType.PASS);
+                testCase.fix();
+                testSuite.fold(testCase);
+            }
+            testSuite.setTime(entry.time * 1000L);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void collectTestSuites(Result parent, Map<String, String> digests, Map<String, List<TestSuiteResult>> testSuitesByFile) {
+        for (Result child: parent.getChildren()) {
+            if (!(child instanceof TestSuiteResult)) continue;
+
+            TestSuiteResult testSuite = (TestSuiteResult) child;
+            if (testSuite.getClassName() == null || testSuite.getFile() == null) {
+                collectTestSuites(testSuite, digests, testSuitesByFile);
+                continue;
+            }
+            if (testSuite.isCached() || !digests.containsKey(testSuite.getFile())) continue;
+
+            List<TestSuiteResult> testSuites = testSuitesByFile.get(testSuite.getFile());
+            if (testSuites == null) {
+                testSuites = new ArrayList<TestSuiteResult>();
+                testSuitesByFile.put(testSuite.getFile(), testSuites);
+            }
+            testSuites.add(testSuite);
+        }
+    }
+
+    private boolean isPassed(TestSuiteResult testSuite) {
+        return testSuite.getAllTestCount() > 0
+            && testSuite.getTestCount() >= testSuite.getAllTestCount()
+            && testSuite.getErrorCount() == 0
+            && testSuite.getFailureCount() == 0;
+    }
+
+    private void removeEntries(String file) {
+        for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext();) {
+            if (iterator.next().file.equals(file)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void addString(Map<String, Integer> stringIndexes, String string) {
+        if (!stringIndexes.containsKey(string)) {
+            stringIndexes.put(string, stringIndexes.size());
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            output.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("A malformed integer is found."); //$NON-NLS-1$
+    }
+
+    /**
+     * A passed test class with the time in microseconds.
+     */
+    private static class Entry {
+        private String className;
+        private String file;
+        private String digest;
+        private int testCount;
+        private int time;
+
+        private Entry(String className, String file, String digest) {
+            this.className = className;
+            this.file = file;
+            this.digest = digest;
+        }
+    }
+}
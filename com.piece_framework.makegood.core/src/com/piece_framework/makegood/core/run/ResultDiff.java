@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.piece_framework.makegood.core.result.Result;
+import com.piece_framework.makegood.core.result.ResultType;
+import com.piece_framework.makegood.core.result.TestCaseResult;
+
+/**
+ * The differences of the test cases between two runs. The test cases are
+ * matched by their class names and names.
+ *
+ * @since 3.2.0
+ */
+public class ResultDiff {
+    private List<Change> changes = new ArrayList<Change>();
+
+    public ResultDiff(Result oldResult, Result newResult) {
+        Map<String, TestCaseResult> oldTestCases = collectTestCases(oldResult);
+        Map<String, TestCaseResult> newTestCases = collectTestCases(newResult);
+        for (Map.Entry<String, TestCaseResult> entry: newTestCases.entrySet()) {
+            TestCaseResult oldTestCase = oldTestCases.get(entry.getKey());
+            ResultType oldResultType = oldTestCase == null ? null : oldTestCase.getResultType();
+            if (oldResultType != entry.getValue().getResultType()) {
+                changes.add(new Change(entry.getValue(), oldResultType, entry.getValue().getResultType()));
+            }
+        }
+        for (Map.Entry<String, TestCaseResult> entry: oldTestCases.entrySet()) {
+            if (!newTestCases.containsKey(entry.getKey())) {
+                changes.add(new Change(entry.getValue(), entry.getValue().getResultType(), null));
+            }
+        }
+    }
+
+    public List<Change> getChanges() {
+        return Collections.unmodifiableList(changes);
+    }
+
+    private Map<String, TestCaseResult> collectTestCases(Result result) {
+        Map<String, TestCaseResult> testCases = new LinkedHashMap<String, TestCaseResult>();
+        collectTestCases(result, testCases);
+        return testCases;
+    }
+
+    private void collectTestCases(Result result, Map<String, TestCaseResult> testCases) {
+        if (result instanceof TestCaseResult) {
+            if (result.isFixed() && !((TestCaseResult) result).isArtificial()) {
+                testCases.put(result.getClassName() + "::" + result.getName(), (TestCaseResult) result); //$NON-NLS-1$
+            }
+            return;
+        }
+
+        for (Result child: result.getChildren()) {
+            collectTestCases(child, testCases);
+        }
+    }
+
+    /**
+     * A change of a test case. The old result type is null if the test case
+     * has been added, and the new one is null if it has been removed.
+     */
+    public static class Change {
+        private TestCaseResult testCase;
+        private ResultType oldResultType;
+        private ResultType newResultType;
+
+        private Change(TestCaseResult testCase, ResultType oldResultType, ResultType newResultType) {
+            this.testCase = testCase;
+            this.oldResultType = oldResultType;
+            this.newResultType = newResultType;
+        }
+
+        public TestCaseResult getTestCase() {
+            return testCase;
+        }
+
+        public ResultType getOldResultType() {
+            return oldResultType;
+        }
+
+        public ResultType getNewResultType() {
+            return newResultType;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+/**
+ * The constants of the binary result event protocol.
+ *
+ * <p>A stream starts with {@link #MAGIC} and {@link #VERSION}, followed by
+ * frames. A frame is a varint payload length and a payload which consists of
+ * an event type byte, an attribute count byte, pairs of an attribute code
+ * byte and a string, and a trailing trace string for failures and errors.
+ * A string is a varint byte length and UTF-8 bytes. The attributes are the
+ * same as the attributes of the elements of the JUnit XML log, and the
+ * unspecified ones are omitted.</p>
+ *
+ * @since 3.2.0
+ */
+final class ResultEventProtocol {
+    static final int MAGIC = 0x4d474556;
+    static final int VERSION = 1;
+
+    static final int START_TEST_SUITE = 1;
+    static final int END_TEST_SUITE = 2;
+    static final int START_TEST_CASE = 3;
+    static final int END_TEST_CASE = 4;
+    static final int FAILURE = 5;
+    static final int ERROR = 6;
+    static final int END_TEST = 7;
+
+    static final int NAME = 1;
+    static final int CLASS = 2;
+    static final int FILE = 3;
+    static final int FULL_PACKAGE = 4;
+    static final int PACKAGE = 5;
+    static final int TESTS = 6;
+    static final int METHOD = 7;
+    static final int LINE = 8;
+    static final int TYPE = 9;
+    static final int MESSAGE = 10;
+
+    /**
+     * The attribute names indexed by the attribute codes.
+     */
+    static final String[] ATTRIBUTE_NAMES = {
+        null,
+        "name", //$NON-NLS-1$
+        "class", //$NON-NLS-1$
+        "file", //$NON-NLS-1$
+        "fullPackage", //$NON-NLS-1$
+        "package", //$NON-NLS-1$
+        "tests", //$NON-NLS-1$
+        "method", //$NON-NLS-1$
+        "line", //$NON-NLS-1$
+        "type", //$NON-NLS-1$
+        "message", //$NON-NLS-1$
+    };
+
+    private ResultEventProtocol() {
+    }
+}
@@ -0,0 +1,325 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+/**
+ * A bounded ring of the events from a result reader, which are passed to the
+ * listeners by a thread of their own, so that a slow listener does not slow
+ * down reading the results. The events are published by a single thread at a
+ * time, as a {@link ResultReader} or a {@link ResultMerger} does, and the
+ * drain thread passes all the events published since the last batch to the
+ * listeners at once.
+ *
+ * If the ring is full, the reader waits for the listeners with
+ * {@link #BLOCK}. With {@link #SUMMARIZE}, the events of the passed test
+ * cases are dropped instead, and the last dropped test case is passed to the
+ * listeners after the next batch as a summary of them. The other events are
+ * never dropped.
+ *
+ * An exception thrown by a listener is handled with
+ * {@link #handleListenerException(RuntimeException)} for each event, and the
+ * drain thread goes on passing the rest of the events.
+ *
+ * @since 3.2.0
+ */
+public class ResultEventRing implements ResultReaderListener {
+    public static final int BLOCK = 1;
+    public static final int SUMMARIZE = 2;
+
+    private static final byte ON_FIRST_TEST_SUITE = 0;
+    private static final byte START_TEST_SUITE = 1;
+    private static final byte END_TEST_SUITE = 2;
+    private static final byte START_TEST_CASE = 3;
+    private static final byte END_TEST_CASE = 4;
+    private static final byte START_FAILURE = 5;
+    private static final byte END_FAILURE = 6;
+    private static final byte START_TEST = 7;
+    private static final byte END_TEST = 8;
+    private static final byte START_ERROR = 9;
+    private static final byte END_ERROR = 10;
+
+    private static final long PARK_NANOS = 100000L;
+    private static final long DRAIN_PARK_NANOS = 10000000L;
+
+    private List<ResultReaderListener> listeners = new ArrayList<ResultReaderListener>();
+    private int overflowPolicy;
+    private int mask;
+    private byte[] types;
+    private Object[] results;
+
+    /**
+     * The sequence of the next event to be passed to the listeners, which is
+     * written only by the drain thread.
+     */
+    private AtomicLong head = new AtomicLong();
+
+    /**
+     * The sequence of the next event to be published, which is written only
+     * by the publishing thread.
+     */
+    private AtomicLong tail = new AtomicLong();
+
+    private AtomicReference<TestCaseResult> droppedTestCase = new AtomicReference<TestCaseResult>();
+    private AtomicLong droppedEventCount = new AtomicLong();
+    private Thread drainThread;
+    private volatile boolean isDrainThreadWaiting = false;
+    private volatile boolean isClosed = false;
+    private volatile boolean isTerminated = false;
+
+    /**
+     * @param capacity the number of the events which the ring can hold, which
+     *                 is rounded up to a power of two
+     * @param overflowPolicy {@link #BLOCK} or {@link #SUMMARIZE}
+     */
+    public ResultEventRing(int capacity, int overflowPolicy) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        mask = size - 1;
+        types = new byte[size];
+        results = new Object[size];
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public void addListener(ResultReaderListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Starts the thread which passes the events to the listeners.
+     */
+    public void start() {
+        drainThread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    drain();
+                } finally {
+                    isTerminated = true;
+                }
+            }
+        };
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    /**
+     * Waits until all the published events are passed to the listeners, and
+     * stops the thread. No events should be published after this call.
+     */
+    public void close() throws InterruptedException {
+        isClosed = true;
+        if (drainThread == null) return;
+        LockSupport.unpark(drainThread);
+        drainThread.join();
+    }
+
+    /**
+     * Returns the number of the events which have been dropped because the
+     * ring was full.
+     */
+    public long getDroppedEventCount() {
+        return droppedEventCount.get();
+    }
+
+    @Override
+    public void onFirstTestSuite(TestSuiteResult testSuite) {
+        publish(ON_FIRST_TEST_SUITE, testSuite);
+    }
+
+    @Override
+    public void startTestSuite(TestSuiteResult testSuite) {
+        publish(START_TEST_SUITE, testSuite);
+    }
+
+    @Override
+    public void endTestSuite(TestSuiteResult testSuite) {
+        publish(END_TEST_SUITE, testSuite);
+    }
+
+    @Override
+    public void startTestCase(TestCaseResult testCase) {
+        publish(START_TEST_CASE, testCase);
+    }
+
+    @Override
+    public void endTestCase(TestCaseResult testCase) {
+        publish(END_TEST_CASE, testCase);
+    }
+
+    @Override
+    public void startFailure(TestCaseResult failure) {
+        publish(START_FAILURE, failure);
+    }
+
+    @Override
+    public void endFailure(TestCaseResult failure) {
+        publish(END_FAILURE, failure);
+    }
+
+    @Override
+    public void startTest() {
+        publish(START_TEST, null);
+    }
+
+    @Override
+    public void endTest() {
+        publish(END_TEST, null);
+    }
+
+    @Override
+    public void startError(TestCaseResult error) {
+        publish(START_ERROR, error);
+    }
+
+    @Override
+    public void endError(TestCaseResult error) {
+        publish(END_ERROR, error);
+    }
+
+    private void publish(byte type, Object result) {
+        long sequence = tail.get();
+        if (sequence - head.get() > mask) {
+            if (overflowPolicy == SUMMARIZE && isDroppable(type, result)) {
+                droppedTestCase.set((TestCaseResult) result);
+                droppedEventCount.incrementAndGet();
+                return;
+            }
+
+            while (sequence - head.get() > mask) {
+                if (isTerminated) return;
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+        }
+
+        int index = (int) sequence & mask;
+        types[index] = type;
+        results[index] = result;
+        tail.set(sequence + 1);
+        if (isDrainThreadWaiting) {
+            LockSupport.unpark(drainThread);
+        }
+    }
+
+    private boolean isDroppable(byte type, Object result) {
+        if (type != START_TEST_CASE && type != END_TEST_CASE) return false;
+
+        TestCaseResult testCase = (TestCaseResult) result;
+        return !testCase.hasFailures() && !testCase.hasErrors();
+    }
+
+    private void drain() {
+        while (true) {
+            long sequence = head.get();
+            long end = tail.get();
+            if (sequence == end) {
+                if (passDroppedTestCase()) continue;
+                if (isClosed && sequence == tail.get()) return;
+
+                isDrainThreadWaiting = true;
+                if (sequence == tail.get() && !isClosed) {
+                    LockSupport.parkNanos(this, DRAIN_PARK_NANOS);
+                }
+                isDrainThreadWaiting = false;
+                continue;
+            }
+
+            for (; sequence < end; ++sequence) {
+                int index = (int) sequence & mask;
+                byte type = types[index];
+                Object result = results[index];
+                results[index] = null;
+                for (ResultReaderListener listener: listeners) {
+                    pass(listener, type, result);
+                }
+            }
+            head.lazySet(end);
+            passDroppedTestCase();
+        }
+    }
+
+    /**
+     * Passes the last dropped test case to the listeners if any.
+     */
+    private boolean passDroppedTestCase() {
+        TestCaseResult testCase = droppedTestCase.getAndSet(null);
+        if (testCase == null) return false;
+
+        for (ResultReaderListener listener: listeners) {
+            pass(listener, testCase.isFixed() ? END_TEST_CASE : START_TEST_CASE, testCase);
+        }
+        return true;
+    }
+
+    private void pass(ResultReaderListener listener, byte type, Object result) {
+        try {
+            dispatch(listener, type, result);
+        } catch (RuntimeException e) {
+            handleListenerException(e);
+        }
+    }
+
+    /**
+     * Handles the given exception thrown by a listener on the drain thread.
+     * The exception is passed to the uncaught exception handler of the thread
+     * by default.
+     */
+    protected void handleListenerException(RuntimeException e) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
+    private void dispatch(ResultReaderListener listener, byte type, Object result) {
+        switch (type) {
+        case ON_FIRST_TEST_SUITE:
+            listener.onFirstTestSuite((TestSuiteResult) result);
+            break;
+        case START_TEST_SUITE:
+            listener.startTestSuite((TestSuiteResult) result);
+            break;
+        case END_TEST_SUITE:
+            listener.endTestSuite((TestSuiteResult) result);
+            break;
+        case START_TEST_CASE:
+            listener.startTestCase((TestCaseResult) result);
+            break;
+        case END_TEST_CASE:
+            listener.endTestCase((TestCaseResult) result);
+            break;
+        case START_FAILURE:
+            listener.startFailure((TestCaseResult) result);
+            break;
+        case END_FAILURE:
+            listener.endFailure((TestCaseResult) result);
+            break;
+        case START_TEST:
+            listener.startTest();
+            break;
+        case END_TEST:
+            listener.endTest();
+            break;
+        case START_ERROR:
+            listener.startError((TestCaseResult) result);
+            break;
+        case END_ERROR:
+            listener.endError((TestCaseResult) result);
+            break;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.piece_framework.makegood.core.result.ResultType;
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+/**
+ * Writes the events of a run as the binary result event protocol. This is a
+ * listener so that the events of any reader can be forwarded to a
+ * {@link BinaryResultReader}. The first I/O error stops writing and is thrown
+ * by {@link #close()}.
+ *
+ * @since 3.2.0
+ */
+public class ResultEventWriter implements ResultReaderListener {
+    private OutputStream output;
+    private byte[] frame = new byte[256];
+    private int frameLength;
+    private byte[] header = new byte[5];
+    private boolean isFirstTestSuite = true;
+    private IOException error;
+
+    public ResultEventWriter(OutputStream output) {
+        this.output = output;
+    }
+
+    @Override
+    public void onFirstTestSuite(TestSuiteResult testSuite) {
+    }
+
+    @Override
+    public void startTestSuite(TestSuiteResult testSuite) {
+        startFrame(ResultEventProtocol.START_TEST_SUITE);
+        writeAttribute(ResultEventProtocol.NAME, testSuite.getName());
+        writeAttribute(ResultEventProtocol.CLASS, testSuite.getClassName());
+        writeAttribute(ResultEventProtocol.FILE, testSuite.getFile());
+        writeAttribute(ResultEventProtocol.FULL_PACKAGE, testSuite.getFullPackageName());
+        writeAttribute(ResultEventProtocol.PACKAGE, testSuite.getPackageName());
+        if (isFirstTestSuite || testSuite.getAllTestCount() > 0) {
+            writeAttribute(ResultEventProtocol.TESTS, String.valueOf(testSuite.getAllTestCount()));
+            isFirstTestSuite = false;
+        }
+        endFrame(false);
+    }
+
+    @Override
+    public void endTestSuite(TestSuiteResult testSuite) {
+        startFrame(ResultEventProtocol.END_TEST_SUITE);
+        endFrame(true);
+    }
+
+    @Override
+    public void startTestCase(TestCaseResult testCase) {
+        if (testCase.isArtificial()) return;
+        startFrame(ResultEventProtocol.START_TEST_CASE);
+        writeAttribute(ResultEventProtocol.NAME, testCase.getName());
+        writeAttribute(ResultEventProtocol.FILE, testCase.getFile());
+        writeAttribute(ResultEventProtocol.CLASS, testCase.getClassName());
+        writeAttribute(ResultEventProtocol.METHOD, testCase.getMethodName());
+        writeAttribute(ResultEventProtocol.LINE, String.valueOf(testCase.getLine()));
+        endFrame(false);
+    }
+
+    @Override
+    public void endTestCase(TestCaseResult testCase) {
+        if (testCase.isArtificial()) return;
+        startFrame(ResultEventProtocol.END_TEST_CASE);
+        endFrame(true);
+    }
+
+    @Override
+    public void startFailure(TestCaseResult failure) {
+    }
+
+    /**
+     * Writes a failure at its end since the trace is known only then.
+     */
+    @Override
+    public void endFailure(TestCaseResult failure) {
+        writeFailureOrError(failure);
+    }
+
+    @Override
+    public void startTest() {
+        try {
+            writeInt(ResultEventProtocol.MAGIC);
+            output.write(ResultEventProtocol.VERSION);
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    @Override
+    public void endTest() {
+        startFrame(ResultEventProtocol.END_TEST);
+        endFrame(true);
+    }
+
+    @Override
+    public void startError(TestCaseResult error) {
+    }
+
+    @Override
+    public void endError(TestCaseResult error) {
+        writeFailureOrError(error);
+    }
+
+    public void close() throws IOException {
+        output.close();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void writeFailureOrError(TestCaseResult testCase) {
+        startFrame(testCase.getResultType() == ResultType.ERROR ? ResultEventProtocol.ERROR : ResultEventProtocol.FAILURE);
+        writeAttribute(ResultEventProtocol.TYPE, testCase.getFailureType());
+        writeAttribute(ResultEventProtocol.FILE, testCase.getFile());
+        writeAttribute(ResultEventProtocol.LINE, String.valueOf(testCase.getLine()));
+        writeAttribute(ResultEventProtocol.MESSAGE, testCase.getFailureMessage());
+        String failureTrace = testCase.getFailureTrace();
+        writeString(failureTrace == null ? "" : failureTrace); //$NON-NLS-1$
+        endFrame(true);
+    }
+
+    /**
+     * Starts a frame. The attribute count is updated by writeAttribute().
+     */
+    private void startFrame(int eventType) {
+        frameLength = 0;
+        writeByte(eventType);
+        writeByte(0);
+    }
+
+    private void endFrame(boolean flushes) {
+        if (error != null) return;
+        try {
+            int headerLength = 0;
+            int length = frameLength;
+            while ((length & ~0x7f) != 0) {
+                header[headerLength++] = (byte) ((length & 0x7f) | 0x80);
+                length >>>= 7;
+            }
+            header[headerLength++] = (byte) length;
+            output.write(header, 0, headerLength);
+            output.write(frame, 0, frameLength);
+            if (flushes) {
+                output.flush();
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    /**
+     * Writes an attribute unless its value is null.
+     */
+    private void writeAttribute(int attributeCode, String value) {
+        if (value == null) return;
+        ++frame[1];
+        writeByte(attributeCode);
+        writeString(value);
+    }
+
+    private void writeString(String string) {
+        byte[] bytes;
+        try {
+            bytes = string.getBytes("UTF-8"); //$NON-NLS-1$
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        writeVarInt(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, frame, frameLength, bytes.length);
+        frameLength += bytes.length;
+    }
+
+    private void writeVarInt(int value) {
+        while ((value & ~0x7f) != 0) {
+            writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    private void writeByte(int value) {
+        ensureCapacity(1);
+        frame[frameLength++] = (byte) value;
+    }
+
+    private void writeInt(int value) throws IOException {
+        output.write(value >>> 24);
+        output.write(value >>> 16);
+        output.write(value >>> 8);
+        output.write(value);
+    }
+
+    private void ensureCapacity(int length) {
+        if (frameLength + length > frame.length) {
+            byte[] newFrame = new byte[Math.max(frame.length * 2, frameLength + length)];
+            System.arraycopy(frame, 0, newFrame, 0, frameLength);
+            frame = newFrame;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import com.piece_framework.makegood.core.result.Result;
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+/**
+ * Folds the passed test cases into their suites when they end, so that the
+ * memory for a run is bounded by the number of the failures and errors
+ * rather than the number of the tests. The slowest test cases of the run are
+ * kept in the tree as hot spots.
+ *
+ * @since 3.2.0
+ */
+public class ResultFolder {
+    private int slowestTestCount;
+    private PriorityQueue<TestCaseResult> slowestTestCases;
+
+    /**
+     * @param slowestTestCount the number of the slowest passed test cases to be kept
+     */
+    public ResultFolder(int slowestTestCount) {
+        this.slowestTestCount = slowestTestCount;
+        slowestTestCases = new PriorityQueue<TestCaseResult>(
+            Math.max(slowestTestCount, 1),
+            new Comparator<TestCaseResult>() {
+                @Override
+                public int compare(TestCaseResult o1, TestCaseResult o2) {
+                    return o1.getTime() < o2.getTime() ? -1 : (o1.getTime() == o2.getTime() ? 0 : 1);
+                }
+            }
+        );
+    }
+
+    /**
+     * Folds the given test case which has ended unless it has failed or is
+     * one of the slowest ones. A test case which is pushed out of the
+     * slowest ones by this one is folded instead.
+     */
+    public synchronized void fold(TestCaseResult testCase) {
+        if (testCase.hasFailures() || testCase.hasErrors() || testCase.isArtificial()) return;
+
+        if (slowestTestCases.size() < slowestTestCount) {
+            slowestTestCases.add(testCase);
+            return;
+        }
+
+        TestCaseResult fastestOfSlowest = slowestTestCases.peek();
+        if (fastestOfSlowest != null && fastestOfSlowest.getTime() < testCase.getTime()) {
+            slowestTestCases.poll();
+            slowestTestCases.add(testCase);
+            testCase = fastestOfSlowest;
+        }
+
+        Result parent = testCase.getParent();
+        if (parent instanceof TestSuiteResult) {
+            ((TestSuiteResult) parent).fold(testCase);
+        }
+    }
+
+    public int getSlowestTestCount() {
+        return slowestTestCount;
+    }
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.piece_framework.makegood.core.result.Result;
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+/**
+ * Merges the results of the shards which are read by their own
+ * {@link ResultReader}s into one result tree. The root test suite of each
+ * shard is added to the merged root as a child, and the events from all
+ * shards are passed to the listeners one at a time.
+ *
+ * @since 3.2.0
+ */
+public class ResultMerger {
+    private List<ResultReaderListener> listeners = new ArrayList<ResultReaderListener>();
+    private TestSuiteResult result;
+    private int shardCount;
+    private int startedShardCount;
+    private int endedShardCount;
+
+    /**
+     * @since 3.2.0
+     */
+    private TestSuiteResult previousResult;
+
+    public ResultMerger(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * Creates a merger which adds the results of the shards to the given
+     * result of a previous run, so that the run is resumed in the same tree.
+     * The failures of the previous run are passed to the listeners again
+     * before the first shard.
+     */
+    public ResultMerger(int shardCount, TestSuiteResult previousResult) {
+        this(shardCount);
+        this.previousResult = previousResult;
+        previousResult.setAllTestCount(previousResult.getTestCount());
+    }
+
+    public void addListener(ResultReaderListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Creates a listener to be added to the {@link ResultReader} for a shard.
+     */
+    public ResultReaderListener createShardListener() {
+        return new ShardListener();
+    }
+
+    public TestSuiteResult getResult() {
+        return result;
+    }
+
+    private synchronized void startShard() {
+        ++startedShardCount;
+        if (startedShardCount == 1) {
+            for (ResultReaderListener listener: listeners) {
+                listener.startTest();
+            }
+        }
+    }
+
+    private synchronized void addShardResult(TestSuiteResult shardResult) {
+        if (result == null) {
+            result = previousResult == null ? new TestSuiteResult(shardResult.getName()) : previousResult;
+            for (ResultReaderListener listener: listeners) {
+                listener.onFirstTestSuite(result);
+            }
+            for (ResultReaderListener listener: listeners) {
+                listener.startTestSuite(result);
+            }
+            if (previousResult != null) {
+                replayFailures(previousResult);
+            }
+        }
+
+        result.setAllTestCount(result.getAllTestCount() + shardResult.getAllTestCount());
+        result.addChild(shardResult);
+    }
+
+    /**
+     * Passes the suites and the failures of the previous run to the
+     * listeners. Each failure is ended as it is started so that no listener
+     * keeps it as running. The passed test cases are not passed, since they
+     * have ended already.
+     *
+     * @since 3.2.0
+     */
+    private void replayFailures(TestSuiteResult testSuite) {
+        for (Result child: testSuite.getChildren()) {
+            if (child instanceof TestSuiteResult) {
+                for (ResultReaderListener listener: listeners) {
+                    listener.startTestSuite((TestSuiteResult) child);
+                }
+                replayFailures((TestSuiteResult) child);
+                for (ResultReaderListener listener: listeners) {
+                    listener.endTestSuite((TestSuiteResult) child);
+                }
+                continue;
+            }
+
+            TestCaseResult testCase = (TestCaseResult) child;
+            if (testCase.hasErrors()) {
+                for (ResultReaderListener listener: listeners) {
+                    listener.startTestCase(testCase);
+                    listener.startError(testCase);
+                    listener.endError(testCase);
+                    listener.endTestCase(testCase);
+                }
+            } else if (testCase.hasFailures()) {
+                for (ResultReaderListener listener: listeners) {
+                    listener.startTestCase(testCase);
+                    listener.startFailure(testCase);
+                    listener.endFailure(testCase);
+                    listener.endTestCase(testCase);
+                }
+            }
+        }
+    }
+
+    private synchronized void endShard() {
+        ++endedShardCount;
+        if (endedShardCount == shardCount) {
+            if (result != null) {
+                for (ResultReaderListener listener: listeners) {
+                    listener.endTestSuite(result);
+                }
+            }
+            for (ResultReaderListener listener: listeners) {
+                listener.endTest();
+            }
+        }
+    }
+
+    private class ShardListener implements ResultReaderListener {
+        @Override
+        public void onFirstTestSuite(TestSuiteResult testSuite) {
+            addShardResult(testSuite);
+        }
+
+        @Override
+        public void startTestSuite(TestSuiteResult testSuite) {
+            synchronized (ResultMerger.this) {
+                for (ResultReaderListener listener: listeners) {
+                    listener.startTestSuite(testSuite);
+                }
+            }
+        }
+
+        @Override
+        public void endTestSuite(TestSuiteResult testSuite) {
+            synchronized (ResultMerger.this) {
+                for (ResultReaderListener listener: listeners) {
+                    listener.endTestSuite(testSuite);
+                }
+            }
+        }
+
+        @Override
+        public void startTestCase(TestCaseResult testCase) {
+            synchronized (ResultMerger.this) {
+                for (ResultReaderListener listener: listeners) {
+                    listener.startTestCase(testCase);
+                }
+            }
+        }
+
+        @Override
+        public void endTestCase(TestCaseResult testCase) {
+            synchronized (ResultMerger.this) {
+                for (ResultReaderListener listener: listeners) {
+                    listener.endTestCase(testCase);
+                }
+            }
+        }
+
+        @Override
+        public void startFailure(TestCaseResult failure) {
+            synchronized (ResultMerger.this) {
+                for (ResultReaderListener listener: listeners) {
+                    listener.startFailure(failure);
+                }
+            }
+        }
+
+        @Override
+        public void endFailure(TestCaseResult failure) {
+            synchronized (ResultMerger.this) {
+                for (ResultReaderListener listener: listeners) {
+                    listener.endFailure(failure);
+                }
+            }
+        }
+
+        @Override
+        public void startTest() {
+            startShard();
+        }
+
+        @Override
+        public void endTest() {
+            endShard();
+        }
+
+        @Override
+        public void startError(TestCaseResult error) {
+            synchronized (ResultMerger.this) {
+                for (ResultReaderListener listener: listeners) {
+                    listener.startError(error);
+                }
+            }
+        }
+
+        @Override
+        public void endError(TestCaseResult error) {
+            synchronized (ResultMerger.this) {
+                for (ResultReaderListener listener: listeners) {
+                    listener.endError(error);
+                }
+            }
+        }
+    }
+}
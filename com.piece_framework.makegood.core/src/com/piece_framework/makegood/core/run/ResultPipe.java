@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * A named pipe through which the runner writes the results and a
+ * {@link ResultReader} reads them without any temporary file on disk.
+ *
+ * @since 3.2.0
+ */
+public class ResultPipe {
+    private static final String MKFIFO = "mkfifo"; //$NON-NLS-1$
+
+    private ResultPipe() {
+    }
+
+    /**
+     * Creates a named pipe at the given path. Returns false if named pipes
+     * are not available on the platform or the pipe cannot be created, so
+     * that the caller can fall back to a file.
+     */
+    public static boolean create(File file) {
+        if (File.separatorChar == '\\') return false;
+        if (file.exists()) return isPipe(file);
+
+        try {
+            Process process = new ProcessBuilder(MKFIFO, file.getAbsolutePath()).redirectErrorStream(true).start();
+            process.getOutputStream().close();
+            while (process.getInputStream().read() != -1) {
+            }
+            if (process.waitFor() != 0) return false;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        return isPipe(file);
+    }
+
+    /**
+     * Returns whether the given file is a named pipe or other special file
+     * rather than a regular file.
+     */
+    public static boolean isPipe(File file) {
+        return file.exists() && !file.isFile() && !file.isDirectory();
+    }
+
+    /**
+     * Wakes up a reader blocking on opening the given pipe by opening it for
+     * writing. The wake-up is done in another thread since opening blocks
+     * until the reader opens the pipe.
+     */
+    static void wakeUpReader(final File file) {
+        Thread thread = new Thread("MakeGood Result Pipe Wake-up") { //$NON-NLS-1$
+            @Override
+            public void run() {
+                try {
+                    new FileOutputStream(file).close();
+                } catch (IOException e) {
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -12,10 +12,13 @@
 
 package com.piece_framework.makegood.core.run;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,35 +34,221 @@ import org.xml.sax.helpers.DefaultHandler;
 import com.piece_framework.makegood.core.result.ResultType;
 import com.piece_framework.makegood.core.result.TestCaseResult;
 import com.piece_framework.makegood.core.result.TestSuiteResult;
+import com.piece_framework.makegood.core.result.TraceStore;
 
 public class ResultReader extends DefaultHandler {
+    /**
+     * The initial time in milliseconds to wait for the log to grow.
+     *
+     * @since 3.2.0
+     */
+    private static final long MIN_TAIL_WAIT = 1;
+
+    /**
+     * The upper bound in milliseconds of the exponential back-off. This also
+     * bounds the latency between a write by the runner and its delivery.
+     *
+     * @since 3.2.0
+     */
+    private static final long MAX_TAIL_WAIT = 100;
+
+    /**
+     * The capacity above which the buffer for failure traces is released
+     * after a large trace instead of being reused.
+     *
+     * @since 3.2.0
+     */
+    private static final int MAX_FAILURE_TRACE_BUFFER_CAPACITY = 65536;
+
     private File log;
     private TestSuiteResult result;
     private TestSuiteResult currentTestSuite;
     private TestCaseResult currentTestCase;
     private StringBuilder failureTrace;
+
+    /**
+     * The buffer for failure traces, which is reused for every failure and
+     * error.
+     *
+     * @since 3.2.0
+     */
+    private StringBuilder failureTraceBuffer = new StringBuilder();
     private List<ResultReaderListener> listeners = new ArrayList<ResultReaderListener>();
-    private boolean stopped = false;
+    private volatile boolean stopped = false;
     private SynchronizedFileInputStream stream;
 
+    /**
+     * The adapter for the attributes of the current element, which is reused
+     * for every element.
+     *
+     * @since 3.2.0
+     */
+    private SAXElementAttributes saxElementAttributes = new SAXElementAttributes();
+
+    /**
+     * @since 3.2.0
+     */
+    private final Object tailLock = new Object();
+
+    /**
+     * Whether the reader may be blocking on opening the log which is a
+     * named pipe until the runner opens it.
+     *
+     * @since 3.2.0
+     */
+    private volatile boolean openingPipe = false;
+
+    /**
+     * @since 3.2.0
+     */
+    private StringPool stringPool = new StringPool();
+
+    /**
+     * @since 3.2.0
+     */
+    private TraceStore traceStore;
+
+    /**
+     * @since 3.2.0
+     */
+    private ResultFolder resultFolder;
+
+    /**
+     * @since 3.2.0
+     */
+    private volatile long bytesRead;
+
+    /**
+     * @since 3.2.0
+     */
+    private volatile long wakeUpCount;
+
+    /**
+     * @since 3.2.0
+     */
+    private volatile long idleTime;
+
     public ResultReader(File log) {
         this.log = log;
     }
 
     public void read()
         throws ParserConfigurationException, SAXException, IOException {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        SAXParser parser = factory.newSAXParser();
+        parser.parse(openStream(), this);
+    }
+
+    /**
+     * Opens the log as a stream which waits for the log to grow at its end
+     * until the reader is stopped. If the log is a named pipe, opening it
+     * blocks until the runner opens it or the reader is stopped.
+     *
+     * @since 3.2.0
+     */
+    InputStream openStream() throws IOException {
         if (!log.exists()) {
             log.createNewFile();
         }
 
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        SAXParser parser = factory.newSAXParser();
-        stream = new SynchronizedFileInputStream(log);
-        parser.parse(stream, this);
+        if (ResultPipe.isPipe(log)) {
+            openingPipe = true;
+            try {
+                if (stopped) {
+                    return new ByteArrayInputStream(new byte[0]);
+                }
+                stream = new SynchronizedFileInputStream(log);
+            } finally {
+                openingPipe = false;
+            }
+        } else {
+            stream = new SynchronizedFileInputStream(log);
+        }
+
+        return stream;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    boolean isStopped() {
+        return stopped;
     }
 
     public void stop() {
-        stopped = true;
+        synchronized (tailLock) {
+            stopped = true;
+            tailLock.notifyAll();
+        }
+
+        if (openingPipe) {
+            ResultPipe.wakeUpReader(log);
+        }
+    }
+
+    /**
+     * Returns the number of bytes read from the log so far.
+     *
+     * @since 3.2.0
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Returns how many times the reader woke up to find the log not grown.
+     *
+     * @since 3.2.0
+     */
+    public long getWakeUpCount() {
+        return wakeUpCount;
+    }
+
+    /**
+     * Returns the time in nanoseconds the reader spent waiting for the log
+     * to grow.
+     *
+     * @since 3.2.0
+     */
+    public long getIdleTime() {
+        return idleTime;
+    }
+
+    /**
+     * Sets the pool for the strings of the results. This can be used to
+     * share a pool between the readers of a run.
+     *
+     * @since 3.2.0
+     */
+    public void setStringPool(StringPool stringPool) {
+        this.stringPool = stringPool;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public StringPool getStringPool() {
+        return stringPool;
+    }
+
+    /**
+     * Sets the store to which the failure traces larger than its inline
+     * threshold are written instead of being kept on heap.
+     *
+     * @since 3.2.0
+     */
+    public void setTraceStore(TraceStore traceStore) {
+        this.traceStore = traceStore;
+    }
+
+    /**
+     * Sets the folder to which the test cases are passed after all the
+     * listeners have been notified of their end.
+     *
+     * @since 3.2.0
+     */
+    public void setResultFolder(ResultFolder resultFolder) {
+        this.resultFolder = resultFolder;
     }
 
     public void addListener(ResultReaderListener listener) {
@@ -74,7 +263,7 @@ public class ResultReader extends DefaultHandler {
     /**
      * @since 1.7.0
      */
-    private void startTest() {
+    void startTest() {
         for (ResultReaderListener listener: listeners) {
             listener.startTest();
         }
@@ -86,13 +275,22 @@ public class ResultReader extends DefaultHandler {
                              String qualifiedName,
                              Attributes attributes
                              ) throws SAXException {
-        if (qualifiedName.equalsIgnoreCase("testsuite")) { //$NON-NLS-1$
+        saxElementAttributes.attributes = attributes;
+        startElement(qualifiedName, saxElementAttributes);
+        saxElementAttributes.attributes = null;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    void startElement(String name, ElementAttributes attributes) {
+        if (name.equalsIgnoreCase("testsuite")) { //$NON-NLS-1$
             startTestSuite(createTestSuite(attributes));
-        } else if (qualifiedName.equalsIgnoreCase("testcase")) { //$NON-NLS-1$
+        } else if (name.equalsIgnoreCase("testcase")) { //$NON-NLS-1$
             startTestCase(createTestCase(attributes));
-        } else if (qualifiedName.equalsIgnoreCase("failure")) { //$NON-NLS-1$
+        } else if (name.equalsIgnoreCase("failure")) { //$NON-NLS-1$
             startFailure(createFailureTestCase(attributes));
-        } else if (qualifiedName.equalsIgnoreCase("error")) { //$NON-NLS-1$
+        } else if (name.equalsIgnoreCase("error")) { //$NON-NLS-1$
             startError(createErrorTestCase(attributes));
         }
     }
@@ -102,23 +300,44 @@ public class ResultReader extends DefaultHandler {
                            int start,
                            int length
                            ) throws SAXException {
+        appendFailureTrace(characters, start, length);
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    void appendFailureTrace(char[] characters, int start, int length) {
         if (failureTrace != null) {
-            failureTrace.append(new String(characters, start, length));
+            failureTrace.append(characters, start, length);
         }
     }
 
+    /**
+     * @since 3.2.0
+     */
+    boolean isReadingFailureTrace() {
+        return failureTrace != null;
+    }
+
     @Override
     public void endElement(String uri,
                            String localName,
                            String qualifiedName
                            ) throws SAXException {
-        if (qualifiedName.equalsIgnoreCase("testsuite")) { //$NON-NLS-1$
+        endElement(qualifiedName);
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    void endElement(String name) {
+        if (name.equalsIgnoreCase("testsuite")) { //$NON-NLS-1$
             endTestSuite();
-        } else if (qualifiedName.equalsIgnoreCase("testcase")) { //$NON-NLS-1$
+        } else if (name.equalsIgnoreCase("testcase")) { //$NON-NLS-1$
             endTestCase();
-        } else if (qualifiedName.equalsIgnoreCase("failure")) { //$NON-NLS-1$
+        } else if (name.equalsIgnoreCase("failure")) { //$NON-NLS-1$
             endFailure();
-        } else if (qualifiedName.equalsIgnoreCase("error")) { //$NON-NLS-1$
+        } else if (name.equalsIgnoreCase("error")) { //$NON-NLS-1$
             endError();
         }
     }
@@ -132,7 +351,7 @@ public class ResultReader extends DefaultHandler {
     /**
      * @since 1.7.0
      */
-    private void endTest() {
+    void endTest() {
         for (ResultReaderListener listener: listeners) {
             listener.endTest();
         }
@@ -160,7 +379,7 @@ public class ResultReader extends DefaultHandler {
         return result;
     }
 
-    private void startTestSuite(TestSuiteResult testSuite) {
+    void startTestSuite(TestSuiteResult testSuite) {
         if (result == null) {
             result = testSuite;
             for (ResultReaderListener listener: listeners) {
@@ -177,7 +396,7 @@ public class ResultReader extends DefaultHandler {
         }
     }
 
-    private void endTestSuite() {
+    void endTestSuite() {
         for (ResultReaderListener listener: listeners) {
             listener.endTestSuite(currentTestSuite);
         }
@@ -185,7 +404,7 @@ public class ResultReader extends DefaultHandler {
         currentTestSuite = (TestSuiteResult) currentTestSuite.getParent();
     }
 
-    private void startTestCase(TestCaseResult testCase) {
+    void startTestCase(TestCaseResult testCase) {
         if (currentTestSuite != null) {
             currentTestSuite.addChild(testCase);
         }
@@ -197,26 +416,30 @@ public class ResultReader extends DefaultHandler {
         }
     }
 
-    private void endTestCase() {
+    void endTestCase() {
         currentTestCase.fix();
 
         for (ResultReaderListener listener: listeners) {
             listener.endTestCase(currentTestCase);
         }
 
+        if (resultFolder != null) {
+            resultFolder.fold(currentTestCase);
+        }
+
         currentTestCase = null;
     }
 
-    private void startFailure(TestCaseResult failure) {
-        failureTrace = new StringBuilder();
+    void startFailure(TestCaseResult failure) {
+        failureTrace = failureTraceBuffer;
+        failureTrace.setLength(0);
         for (ResultReaderListener listener: listeners) {
             listener.startFailure(failure);
         }
     }
 
-    private void endFailure() {
-        currentTestCase.setFailureTrace(failureTrace.toString());
-        failureTrace = null;
+    void endFailure() {
+        fixFailureTrace();
 
         for (ResultReaderListener listener: listeners) {
             listener.endFailure(currentTestCase);
@@ -230,8 +453,9 @@ public class ResultReader extends DefaultHandler {
     /**
      * @since 1.7.0
      */
-    private void startError(TestCaseResult error) {
-        failureTrace = new StringBuilder();
+    void startError(TestCaseResult error) {
+        failureTrace = failureTraceBuffer;
+        failureTrace.setLength(0);
         for (ResultReaderListener listener: listeners) {
             listener.startError(error);
         }
@@ -240,9 +464,8 @@ public class ResultReader extends DefaultHandler {
     /**
      * @since 1.7.0
      */
-    private void endError() {
-        currentTestCase.setFailureTrace(failureTrace.toString());
-        failureTrace = null;
+    void endError() {
+        fixFailureTrace();
 
         for (ResultReaderListener listener: listeners) {
             listener.endError(currentTestCase);
@@ -253,58 +476,81 @@ public class ResultReader extends DefaultHandler {
         }
     }
 
-    private TestSuiteResult createTestSuite(Attributes attributes) {
-        TestSuiteResult testSuite = new TestSuiteResult(attributes.getValue("name")); //$NON-NLS-1$
-        if (attributes.getIndex("class") != -1) { //$NON-NLS-1$
-            testSuite.setClassName(attributes.getValue("class")); //$NON-NLS-1$
+    /**
+     * Sets the failure trace to the current test case. A large trace is
+     * written to the trace store directly from the buffer.
+     *
+     * @since 3.2.0
+     */
+    private void fixFailureTrace() {
+        if (traceStore != null && traceStore.spills(failureTrace)) {
+            try {
+                currentTestCase.setFailureTrace(traceStore.append(failureTrace));
+            } catch (IOException e) {
+                currentTestCase.setFailureTrace(failureTrace.toString());
+            }
+        } else {
+            currentTestCase.setFailureTrace(failureTrace.toString());
+        }
+        failureTrace = null;
+
+        if (failureTraceBuffer.capacity() > MAX_FAILURE_TRACE_BUFFER_CAPACITY) {
+            failureTraceBuffer = new StringBuilder();
         }
-        if (attributes.getIndex("file") != -1) { //$NON-NLS-1$
-            testSuite.setFile(attributes.getValue("file")); //$NON-NLS-1$
+    }
+
+    TestSuiteResult createTestSuite(ElementAttributes attributes) {
+        TestSuiteResult testSuite = new TestSuiteResult(stringPool.intern(attributes.getValue("name"))); //$NON-NLS-1$
+        if (attributes.getValue("class") != null) { //$NON-NLS-1$
+            testSuite.setClassName(stringPool.intern(attributes.getValue("class"))); //$NON-NLS-1$
         }
-        if (attributes.getIndex("fullPackage") != -1) { //$NON-NLS-1$
-            testSuite.setFullPackageName(attributes.getValue("fullPackage")); //$NON-NLS-1$
+        if (attributes.getValue("file") != null) { //$NON-NLS-1$
+            testSuite.setFile(stringPool.intern(attributes.getValue("file"))); //$NON-NLS-1$
         }
-        if (attributes.getIndex("package") != -1) { //$NON-NLS-1$
-            testSuite.setPackageName(attributes.getValue("package")); //$NON-NLS-1$
+        if (attributes.getValue("fullPackage") != null) { //$NON-NLS-1$
+            testSuite.setFullPackageName(stringPool.intern(attributes.getValue("fullPackage"))); //$NON-NLS-1$
+        }
+        if (attributes.getValue("package") != null) { //$NON-NLS-1$
+            testSuite.setPackageName(stringPool.intern(attributes.getValue("package"))); //$NON-NLS-1$
         }
 
-        if (result == null) {
+        if (attributes.getValue("tests") != null) { //$NON-NLS-1$
             testSuite.setAllTestCount(Integer.parseInt(attributes.getValue("tests"))); //$NON-NLS-1$
         }
 
         return testSuite;
     }
 
-    private TestCaseResult createTestCase(Attributes attributes) {
-        TestCaseResult testCase = new TestCaseResult(attributes.getValue("name")); //$NON-NLS-1$
-        if (attributes.getIndex("file") != -1) { //$NON-NLS-1$
-            testCase.setFile(attributes.getValue("file")); //$NON-NLS-1$
+    TestCaseResult createTestCase(ElementAttributes attributes) {
+        TestCaseResult testCase = new TestCaseResult(stringPool.intern(attributes.getValue("name"))); //$NON-NLS-1$
+        if (attributes.getValue("file") != null) { //$NON-NLS-1$
+            testCase.setFile(stringPool.intern(attributes.getValue("file"))); //$NON-NLS-1$
         }
-        if (attributes.getIndex("class") != -1) { //$NON-NLS-1$
-            testCase.setClassName(attributes.getValue("class")); //$NON-NLS-1$
+        if (attributes.getValue("class") != null) { //$NON-NLS-1$
+            testCase.setClassName(stringPool.intern(attributes.getValue("class"))); //$NON-NLS-1$
         }
-        if (attributes.getIndex("method") != -1) { //$NON-NLS-1$
-            testCase.setMethodName(attributes.getValue("method")); //$NON-NLS-1$
+        if (attributes.getValue("method") != null) { //$NON-NLS-1$
+            testCase.setMethodName(stringPool.intern(attributes.getValue("method"))); //$NON-NLS-1$
         }
-        if (attributes.getIndex("line") != -1) { //$NON-NLS-1$
+        if (attributes.getValue("line") != null) { //$NON-NLS-1$
             testCase.setLine(Integer.parseInt(attributes.getValue("line"))); //$NON-NLS-1$
         }
 
         return testCase;
     }
 
-    private TestCaseResult createFailureTestCase(Attributes attributes) {
+    TestCaseResult createFailureTestCase(ElementAttributes attributes) {
         return createFailureOrErrorTestCase(attributes, ResultType.FAILURE);
     }
 
-    private TestCaseResult createErrorTestCase(Attributes attributes) {
+    TestCaseResult createErrorTestCase(ElementAttributes attributes) {
         return createFailureOrErrorTestCase(attributes, ResultType.ERROR);
     }
 
     /**
      * @since 1.7.0
      */
-    private TestCaseResult createFailureOrErrorTestCase(Attributes attributes, ResultType resultType) {
+    private TestCaseResult createFailureOrErrorTestCase(ElementAttributes attributes, ResultType resultType) {
         TestCaseResult testCase;
         if (currentTestCase == null) {
             testCase = new TestCaseResult("(" + resultType.toString() + ")"); //$NON-NLS-1$ //$NON-NLS-2$
@@ -318,22 +564,44 @@ public class ResultReader extends DefaultHandler {
         }
         testCase.setResultType(resultType);
 
-        if (attributes.getIndex("type") != -1) { //$NON-NLS-1$
-            testCase.setFailureType(attributes.getValue("type")); //$NON-NLS-1$
+        if (attributes.getValue("type") != null) { //$NON-NLS-1$
+            testCase.setFailureType(stringPool.intern(attributes.getValue("type"))); //$NON-NLS-1$
         }
-        if (attributes.getIndex("file") != -1) { //$NON-NLS-1$
-            testCase.setFile(attributes.getValue("file")); //$NON-NLS-1$
+        if (attributes.getValue("file") != null) { //$NON-NLS-1$
+            testCase.setFile(stringPool.intern(attributes.getValue("file"))); //$NON-NLS-1$
         }
-        if (attributes.getIndex("line") != -1) { //$NON-NLS-1$
+        if (attributes.getValue("line") != null) { //$NON-NLS-1$
             testCase.setLine(Integer.parseInt(attributes.getValue("line"))); //$NON-NLS-1$
         }
-        if (attributes.getIndex("message") != -1) { //$NON-NLS-1$
+        if (attributes.getValue("message") != null) { //$NON-NLS-1$
             testCase.setFailureMessage(attributes.getValue("message")); //$NON-NLS-1$
         }
 
         return testCase;
     }
 
+    /**
+     * The attributes of an element, whose value is null if the attribute is
+     * not specified.
+     *
+     * @since 3.2.0
+     */
+    interface ElementAttributes {
+        String getValue(String name);
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private static class SAXElementAttributes implements ElementAttributes {
+        private Attributes attributes;
+
+        @Override
+        public String getValue(String name) {
+            return attributes.getValue(name);
+        }
+    }
+
     private class SynchronizedFileInputStream extends FileInputStream {
         private static final int READ_NO_PARAM = 1;
         private static final int READ_ARRAY = 2;
@@ -361,19 +629,36 @@ public class ResultReader extends DefaultHandler {
             return read(READ_ARRAY, bytes, 0, 0);
         }
 
+        /**
+         * Reads from the log and waits for it to grow when the end of the
+         * log is reached. The wait time doubles on each wake-up without new
+         * data up to MAX_TAIL_WAIT, and stop() wakes the reader immediately.
+         * After being stopped, the reader tries once more to drain the rest
+         * of the log.
+         */
         private int read(int readType,
                          byte[] bytes,
                          int offset,
                          int length
                          ) throws IOException {
+            long wait = MIN_TAIL_WAIT;
             int result = -1;
             do {
                 if (readType == READ_NO_PARAM) {
                     result = super.read();
+                    if (result != -1) {
+                        ++bytesRead;
+                    }
                 } else if (readType == READ_ARRAY) {
                     result = super.read(bytes);
+                    if (result > 0) {
+                        bytesRead += result;
+                    }
                 } else if (readType == READ_OFFSET) {
                     result = super.read(bytes, offset, length);
+                    if (result > 0) {
+                        bytesRead += result;
+                    }
                 }
                 if (result != -1) {
                     break;
@@ -382,8 +667,31 @@ public class ResultReader extends DefaultHandler {
                 if (stopped) {
                     break;
                 }
+
+                waitForGrowth(wait);
+                wait = Math.min(wait * 2, MAX_TAIL_WAIT);
             } while (true);
             return result;
         }
+
+        /**
+         * @since 3.2.0
+         */
+        private void waitForGrowth(long wait) throws InterruptedIOException {
+            long startTime = System.nanoTime();
+            try {
+                synchronized (tailLock) {
+                    if (!stopped) {
+                        tailLock.wait(wait);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(e.getMessage());
+            } finally {
+                idleTime += System.nanoTime() - startTime;
+                ++wakeUpCount;
+            }
+        }
     }
 }
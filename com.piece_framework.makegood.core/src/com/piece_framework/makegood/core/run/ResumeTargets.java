@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.piece_framework.makegood.core.result.Result;
+import com.piece_framework.makegood.core.result.ResultType;
+import com.piece_framework.makegood.core.result.TestCaseResult;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+
+/**
+ * The tests which have been reported by a run killed by a fatal error, so
+ * that the rest of the run can be resumed. The test case which was running
+ * when the run was killed is the crashed one, and it is treated as reported
+ * so as not to crash the resumed run again. The test cases which were running
+ * on the other shards at the same time are the interrupted ones, and they are
+ * run again by the resumed run.
+ *
+ * @since 3.2.0
+ */
+public class ResumeTargets {
+    private static final String METHOD_SEPARATOR = "::"; //$NON-NLS-1$
+    private static final String NAMESPACE_SEPARATOR = "\\"; //$NON-NLS-1$
+
+    private TestSuiteResult result;
+    private Set<String> reportedClassNames = new HashSet<String>();
+    private Set<String> completedClassNames = new HashSet<String>();
+    private Set<String> reportedMethods = new HashSet<String>();
+    private Set<String> fixedMethods = new HashSet<String>();
+    private int testCount;
+    private TestCaseResult crashedTestCase;
+    private List<TestCaseResult> interruptedTestCases = new ArrayList<TestCaseResult>();
+
+    /**
+     * Creates the tests of the given result whose last running test case is
+     * regarded as the crashed one.
+     */
+    public ResumeTargets(TestSuiteResult result) {
+        this(result, null);
+    }
+
+    /**
+     * Creates the tests of the given result with the given crashed test
+     * case such as the one found hung. If it is null, the last running test
+     * case is regarded as the crashed one.
+     */
+    public ResumeTargets(TestSuiteResult result, TestCaseResult crashedTestCase) {
+        this.result = result;
+        List<TestCaseResult> runningTestCases = new ArrayList<TestCaseResult>();
+        collect(result, runningTestCases);
+        if (crashedTestCase == null && !runningTestCases.isEmpty()) {
+            crashedTestCase = runningTestCases.get(runningTestCases.size() - 1);
+        }
+        this.crashedTestCase = crashedTestCase;
+        for (TestCaseResult runningTestCase: runningTestCases) {
+            if (runningTestCase == crashedTestCase) continue;
+
+            interruptedTestCases.add(runningTestCase);
+            reportedMethods.remove(normalize(runningTestCase.getClassName()) + METHOD_SEPARATOR + runningTestCase.getMethodName());
+        }
+        testCount = result.getTestCount();
+    }
+
+    public TestSuiteResult getResult() {
+        return result;
+    }
+
+    /**
+     * Returns the test case which was running when the run was killed, or
+     * null if the run was killed outside of any test case.
+     */
+    public TestCaseResult getCrashedTestCase() {
+        return crashedTestCase;
+    }
+
+    /**
+     * Marks the crashed test case as an error with the given message, and
+     * fixes it.
+     */
+    public void markCrashedTestCaseAsError(String message) {
+        if (crashedTestCase == null) return;
+
+        crashedTestCase.setResultType(ResultType.ERROR);
+        if (message != null) {
+            crashedTestCase.setFailureMessage(message);
+        }
+        crashedTestCase.fix();
+        testCount = result.getTestCount();
+    }
+
+    /**
+     * Returns whether the run should be resumed. If the run has been a
+     * resumed one, it is resumed again only if it has reported a new test
+     * and has not crashed on a test which has already been reported, so as
+     * not to repeat the same crash forever.
+     *
+     * @param previousResumeTargets the tests which the run has been resumed
+     *                              with, or null if it has not been resumed
+     */
+    public boolean isResumable(ResumeTargets previousResumeTargets) {
+        if (crashedTestCase == null) return false;
+        if (previousResumeTargets == null) return true;
+        if (fixedMethods.contains(normalize(crashedTestCase.getClassName()) + METHOD_SEPARATOR + crashedTestCase.getMethodName())) return false;
+
+        return testCount > previousResumeTargets.testCount;
+    }
+
+    /**
+     * Returns the test cases which were running on the other shards when the
+     * run was killed.
+     */
+    public List<TestCaseResult> getInterruptedTestCases() {
+        return interruptedTestCases;
+    }
+
+    /**
+     * Removes the interrupted test cases from the result, since they are run
+     * again by the resumed run.
+     */
+    public void removeInterruptedTestCases() {
+        for (TestCaseResult testCase: interruptedTestCases) {
+            ((TestSuiteResult) testCase.getParent()).removeTestCase(testCase);
+        }
+        testCount = result.getTestCount();
+    }
+
+    /**
+     * Returns whether any test in the given class has been reported. The
+     * class name is qualified with its namespace, which may have a leading
+     * namespace separator.
+     */
+    public boolean isReported(String className) {
+        return reportedClassNames.contains(normalize(className));
+    }
+
+    /**
+     * Returns whether the given test method has been reported. The crashed
+     * test method is also reported.
+     */
+    public boolean isReported(String className, String methodName) {
+        className = normalize(className);
+        return completedClassNames.contains(className) || reportedMethods.contains(className + METHOD_SEPARATOR + methodName);
+    }
+
+    private static String normalize(String className) {
+        return className.startsWith(NAMESPACE_SEPARATOR) ? className.substring(NAMESPACE_SEPARATOR.length()) : className;
+    }
+
+    private void collect(Result parent, List<TestCaseResult> runningTestCases) {
+        for (Result child: parent.getChildren()) {
+            if (child instanceof TestSuiteResult) {
+                TestSuiteResult testSuite = (TestSuiteResult) child;
+                if (testSuite.getClassName() != null && testSuite.getAllTestCount() > 0 && testSuite.getTestCount() >= testSuite.getAllTestCount()) {
+                    completedClassNames.add(normalize(testSuite.getClassName()));
+                    reportedClassNames.add(normalize(testSuite.getClassName()));
+                }
+                collect(testSuite, runningTestCases);
+                continue;
+            }
+
+            TestCaseResult testCase = (TestCaseResult) child;
+            if (testCase.isArtificial()) continue;
+            if (testCase.getClassName() == null || testCase.getMethodName() == null) continue;
+
+            String className = normalize(testCase.getClassName());
+            reportedClassNames.add(className);
+            reportedMethods.add(className + METHOD_SEPARATOR + testCase.getMethodName());
+            if (testCase.isFixed()) {
+                fixedMethods.add(className + METHOD_SEPARATOR + testCase.getMethodName());
+            } else {
+                runningTestCases.add(testCase);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.core.run;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A pool which deduplicates the strings of a run such as file names and class
+ * names, so that the results share a single instance of each string. Unlike
+ * String.intern(), the strings are released with the pool.
+ *
+ * @since 3.2.0
+ */
+public class StringPool {
+    /**
+     * The estimated size of a string object and its char array excluding
+     * the characters.
+     */
+    private static final int STRING_OVERHEAD = 40;
+
+    private Map<String, String> strings = new HashMap<String, String>();
+    private long hitCount;
+    private long savedBytes;
+
+    /**
+     * Returns the pooled instance which is equal to the given string.
+     */
+    public synchronized String intern(String string) {
+        if (string == null) return null;
+
+        String pooledString = strings.get(string);
+        if (pooledString == null) {
+            strings.put(string, string);
+            return string;
+        }
+
+        ++hitCount;
+        savedBytes += STRING_OVERHEAD + string.length() * 2;
+        return pooledString;
+    }
+
+    public synchronized int size() {
+        return strings.size();
+    }
+
+    /**
+     * Returns how many strings have been replaced with the pooled ones.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the estimated number of bytes saved by the pool.
+     */
+    public synchronized long getSavedBytes() {
+        return savedBytes;
+    }
+}
@@ -1,5 +1,5 @@
 /**
- * Copyright (c) 2012 KUBO Atsuhiro <kubo@iteman.jp>,
+ * Copyright (c) 2012, 2014 KUBO Atsuhiro <kubo@iteman.jp>,
  * All rights reserved.
  *
  * This file is part of MakeGood.
@@ -36,4 +36,11 @@ public class ClassTestTarget {
     public String getClassName() {
         return type.getElementName();
     }
+
+    /**
+     * @since 3.2.0
+     */
+    public IType getType() {
+        return type;
+    }
 }
@@ -11,10 +11,7 @@
 
 package com.piece_framework.makegood.launch;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspaceRoot;
@@ -29,6 +26,7 @@ import org.eclipse.php.internal.core.typeinference.PHPClassType;
 import com.piece_framework.makegood.core.PHPType;
 import com.piece_framework.makegood.core.TestingFramework;
 import com.piece_framework.makegood.core.preference.MakeGoodProperties;
+import com.piece_framework.makegood.core.run.CommandLineArguments;
 
 /**
  * @since 2.5.0
@@ -39,16 +37,29 @@ public class CommandLineBuilder {
 
     private String junitXMLFile;
 
+    /**
+     * @since 3.2.0
+     */
+    private List<Object> testTargets;
+
     public CommandLineBuilder(String junitXMLFile) {
+        this(junitXMLFile, TestLifecycle.getInstance().getTestTargets().getAll());
+    }
+
+    /**
+     * Creates a command line builder for the given subset of the test targets
+     * such as a shard.
+     *
+     * @since 3.2.0
+     */
+    public CommandLineBuilder(String junitXMLFile, List<Object> testTargets) {
         this.junitXMLFile = junitXMLFile;
+        this.testTargets = testTargets;
     }
 
     public String build() throws CoreException, MethodNotFoundException, ResourceNotFoundException {
         MakeGoodProperties property = new MakeGoodProperties(TestLifecycle.getInstance().getTestTargets().getFirstResource());
-        StringBuilder buffer = new StringBuilder();
-
-        buffer.append(" --no-ansi"); //$NON-NLS-1$
-        buffer.append(" " + property.getTestingFramework().name().toLowerCase()); //$NON-NLS-1$
+        CommandLineArguments arguments = createArguments(property.getTestingFramework().name().toLowerCase());
 
         String preloadScript = property.getPreloadScript();
         if (!preloadScript.equals("")) { //$NON-NLS-1$
@@ -58,15 +69,10 @@ public class CommandLineBuilder {
                 throw new ResourceNotFoundException("The resource [ " + preloadScript + " ] is not found."); //$NON-NLS-1$ //$NON-NLS-2$
             }
 
-            buffer.append(" -p \"" + preloadResource.getLocation().toString() + "\""); //$NON-NLS-1$ //$NON-NLS-2$
+            arguments.setPreloadScript(preloadResource.getLocation().toString());
         }
 
-        buffer.append(" --log-junit=\"" + junitXMLFile + "\""); //$NON-NLS-1$ //$NON-NLS-2$
-        buffer.append(" --log-junit-realtime"); //$NON-NLS-1$
-
-        if (stopOnFailure) {
-            buffer.append(" -s"); //$NON-NLS-1$
-        }
+        arguments.setStopOnFailure(stopOnFailure);
 
         if (property.getTestingFramework() == TestingFramework.PHPUnit) {
             String phpunitConfigFile = property.getPHPUnitConfigFile();
@@ -76,69 +82,42 @@ public class CommandLineBuilder {
                     throw new ResourceNotFoundException("The resource [ " + phpunitConfigFile + " ] is not found."); //$NON-NLS-1$ //$NON-NLS-2$
                 }
 
-                buffer.append(" --phpunit-config=\"" + resource.getLocation().toString() + "\""); //$NON-NLS-1$ //$NON-NLS-2$
+                arguments.setPHPUnitConfigFile(resource.getLocation().toString());
             }
         }
 
-        Set<String> testFiles = new HashSet<String>();
-        Set<String> testClasses = new HashSet<String>();
-        Set<String> testMethods = new HashSet<String>();
-        for (Object testTarget: TestLifecycle.getInstance().getTestTargets().getAll()) {
+        for (Object testTarget: testTargets) {
             IResource resource = TestLifecycle.getInstance().getTestTargets().getResource(testTarget);
             if (resource == null || resource.exists() == false) {
                 throw new ResourceNotFoundException("The resource for the test target [ " + testTarget + " ] is not found."); //$NON-NLS-1$ //$NON-NLS-2$
             }
 
-            testFiles.add(resource.getLocation().toString());
+            arguments.addTestFile(resource.getLocation().toString());
             if (testTarget instanceof IType) {
                 PHPType phpType = new PHPType((IType) testTarget, property.getTestingFramework());
                 if (phpType.isNamespace()) {
                     for (IType type: ((IType) testTarget).getTypes()) {
-                        testClasses.add(urlencode(PHPClassType.fromIType(type).getTypeName()));
+                        arguments.addTestClass(PHPClassType.fromIType(type).getTypeName());
                     }
                 } else if (phpType.isClass()) {
-                    testClasses.add(urlencode(PHPClassType.fromIType((IType) testTarget).getTypeName()));
+                    arguments.addTestClass(PHPClassType.fromIType((IType) testTarget).getTypeName());
                 }
             } else if (testTarget instanceof IMethod) {
                 IMethod method = findMethod((IMethod) testTarget);
                 if (method == null) {
                     throw new MethodNotFoundException("An unknown method context [ " + testTarget + " ] has been found."); //$NON-NLS-1$ //$NON-NLS-2$
                 }
-                testMethods.add(
-                    urlencode(
-                        PHPClassType.fromIType(method.getDeclaringType()).getTypeName() +
-                        "::" + //$NON-NLS-1$
-                        method.getElementName()
-                    )
-                );
+                arguments.addTestMethod(PHPClassType.fromIType(method.getDeclaringType()).getTypeName(), method.getElementName());
             } else if (testTarget instanceof ClassTestTarget) {
-                testClasses.add(urlencode(((ClassTestTarget) testTarget).getClassName()));
+                arguments.addTestClass(((ClassTestTarget) testTarget).getClassName());
             }
         }
 
-        if (testClasses.size() > 0) {
-            for (String testClass: testClasses) {
-                buffer.append(" --test-class=\"" + testClass.toString() + "\""); //$NON-NLS-1$ //$NON-NLS-2$
-            }
-        }
-
-        if (testMethods.size() > 0) {
-            for (String testMethod: testMethods) {
-                buffer.append(" --test-method=\"" + testMethod.toString() + "\""); //$NON-NLS-1$ //$NON-NLS-2$
-            }
-        }
-
-        buffer.append(" -R"); //$NON-NLS-1$
-        buffer.append(
-            " --test-file-pattern=\"" + //$NON-NLS-1$
-            (property.getTestFilePattern().equals("") ? property.getTestingFramework().getTestFilePattern() : property.getTestFilePattern()) + //$NON-NLS-1$
-            "\"" //$NON-NLS-1$
+        arguments.setTestFilePattern(
+            property.getTestFilePattern().equals("") ? property.getTestingFramework().getTestFilePattern() : property.getTestFilePattern() //$NON-NLS-1$
         );
-        for (String testFile: testFiles) {
-            buffer.append(" \"" + testFile + "\""); //$NON-NLS-1$ //$NON-NLS-2$
-        }
 
-        return buffer.toString();
+        return arguments.build();
     }
 
     private IMethod findMethod(IMethod method) {
@@ -158,14 +137,16 @@ public class CommandLineBuilder {
         }
     }
 
-    private String urlencode(String subject) throws CoreException
-    {
-        try {
-            return URLEncoder.encode(subject, TestLifecycle.getInstance().getTestTargets().getProject().getDefaultCharset());
-        } catch (UnsupportedEncodingException e) {
-            Activator.getDefault().getLog().log(new Status(Status.WARNING, Activator.PLUGIN_ID, e.getMessage(), e));
-
-            return subject;
+    /**
+     * @since 3.2.0
+     */
+    private CommandLineArguments createArguments(String testingFramework) throws CoreException {
+        String charset = TestLifecycle.getInstance().getTestTargets().getProject().getDefaultCharset();
+        if (!CommandLineArguments.isSupported(charset)) {
+            Activator.getDefault().getLog().log(new Status(Status.WARNING, Activator.PLUGIN_ID, "The charset [ " + charset + " ] is not supported.")); //$NON-NLS-1$ //$NON-NLS-2$
+            charset = null;
         }
+
+        return new CommandLineArguments(testingFramework, junitXMLFile, charset);
     }
 }
@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.launch;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.Status;
+
+import com.piece_framework.makegood.core.run.DurationHistory;
+
+/**
+ * Provides the duration history of a project which is stored in the working
+ * location of the project. The history is loaded once and kept in memory.
+ *
+ * @since 3.2.0
+ */
+public class DurationHistoryRepository {
+    private static final String FILE_NAME = "durations.bin"; //$NON-NLS-1$
+    private static Map<String, DurationHistory> histories = new HashMap<String, DurationHistory>();
+
+    public DurationHistory findByProject(IProject project) {
+        synchronized (histories) {
+            DurationHistory history = histories.get(project.getName());
+            if (history == null) {
+                history = new DurationHistory(project.getWorkingLocation(Activator.PLUGIN_ID).append(FILE_NAME).toFile());
+                try {
+                    history.load();
+                } catch (IOException e) {
+                    Activator.getDefault().getLog().log(new Status(Status.WARNING, Activator.PLUGIN_ID, e.getMessage(), e));
+                }
+                histories.put(project.getName(), history);
+            }
+            return history;
+        }
+    }
+}
@@ -80,6 +80,24 @@ public class MakeGoodLaunch extends PHPLaunch {
         outputStreamListener.removeStreamListener();
     }
 
+    /**
+     * Returns whether the processes for all shards of the launch have been
+     * terminated. This is always true if the tests are run by a single process.
+     *
+     * @since 3.2.0
+     */
+    public boolean isAllShardsTerminated() {
+        int shardCount;
+        try {
+            shardCount = MakeGoodLaunchConfigurationDelegate.getJUnitXMLFiles(this).size();
+        } catch (CoreException e) {
+            return true;
+        }
+        if (shardCount < 2) return true;
+
+        return getProcesses().length >= shardCount && isTerminated();
+    }
+
     static void clearLaunchConfigurations() throws CoreException {
         for (int i = 0; i < launchConfigurations.size(); ++i) {
             launchConfigurations.get(i).delete();
@@ -101,10 +119,14 @@ public class MakeGoodLaunch extends PHPLaunch {
      */
     private class OutputStreamListener implements IStreamListener {
         private StringBuilder output = new StringBuilder();
-        private IStreamMonitor outputStreamMonitor;
+
+        /**
+         * @since 3.2.0
+         */
+        private List<IStreamMonitor> outputStreamMonitors = new ArrayList<IStreamMonitor>();
 
         @Override
-        public void streamAppended(String text, IStreamMonitor monitor) {
+        public synchronized void streamAppended(String text, IStreamMonitor monitor) {
             output.append(text);
         }
 
@@ -113,8 +135,9 @@ public class MakeGoodLaunch extends PHPLaunch {
                 if (!process.isTerminated()) {
                     IStreamsProxy streamsProxy = process.getStreamsProxy();
                     if (streamsProxy != null) {
-                        outputStreamMonitor = streamsProxy.getOutputStreamMonitor();
+                        IStreamMonitor outputStreamMonitor = streamsProxy.getOutputStreamMonitor();
                         if (outputStreamMonitor != null) {
+                            outputStreamMonitors.add(outputStreamMonitor);
                             outputStreamMonitor.addListener(this);
                         }
                     }
@@ -124,12 +147,12 @@ public class MakeGoodLaunch extends PHPLaunch {
 
         public void removeStreamListener()
         {
-            if (outputStreamMonitor != null) {
+            for (IStreamMonitor outputStreamMonitor: outputStreamMonitors) {
                 outputStreamMonitor.removeListener(outputStreamListener);
             }
         }
 
-        public String getOutput() {
+        public synchronized String getOutput() {
             return output.toString();
         }
     }
@@ -1,6 +1,6 @@
 /**
  * Copyright (c) 2009-2010 MATSUFUJI Hideharu <matsufuji2008@gmail.com>,
- *               2010-2013 KUBO Atsuhiro <kubo@iteman.jp>,
+ *               2010-2014 KUBO Atsuhiro <kubo@iteman.jp>,
  * All rights reserved.
  *
  * This file is part of MakeGood.
@@ -13,7 +13,9 @@
 package com.piece_framework.makegood.launch;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
@@ -27,6 +29,7 @@ import org.eclipse.debug.core.ILaunchConfiguration;
 import org.eclipse.debug.core.ILaunchConfigurationType;
 import org.eclipse.debug.core.ILaunchConfigurationWorkingCopy;
 import org.eclipse.debug.core.ILaunchDelegate;
+import org.eclipse.debug.core.ILaunchManager;
 import org.eclipse.debug.core.model.ILaunchConfigurationDelegate2;
 import org.eclipse.debug.internal.core.LaunchConfiguration;
 import org.eclipse.debug.internal.core.LaunchConfigurationWorkingCopy;
@@ -40,11 +43,25 @@ import org.eclipse.php.internal.debug.core.preferences.PHPDebuggersRegistry;
 import org.eclipse.php.internal.debug.core.preferences.PHPProjectPreferences;
 import org.eclipse.php.internal.debug.core.preferences.PHPexeItem;
 
+import com.piece_framework.makegood.core.preference.MakeGoodPreference;
+import com.piece_framework.makegood.core.preference.MakeGoodProperties;
+import com.piece_framework.makegood.core.run.ResultPipe;
 import com.piece_framework.makegood.stagehandtestrunner.StagehandTestRunner;
 
 @SuppressWarnings("restriction")
 public class MakeGoodLaunchConfigurationDelegate extends PHPLaunchDelegateProxy {
     private static final String MAKEGOOD_JUNIT_XML_FILE = "MAKEGOOD_JUNIT_XML_FILE"; //$NON-NLS-1$
+
+    /**
+     * @since 3.2.0
+     */
+    private static final String MAKEGOOD_JUNIT_XML_FILES = "MAKEGOOD_JUNIT_XML_FILES"; //$NON-NLS-1$
+
+    /**
+     * @since 3.2.0
+     */
+    private static final String MAKEGOOD_SHARD_PROGRAM_ARGUMENTS = "MAKEGOOD_SHARD_PROGRAM_ARGUMENTS"; //$NON-NLS-1$
+
     private String delegateClass;
 
     @Override
@@ -82,7 +99,7 @@ public class MakeGoodLaunchConfigurationDelegate extends PHPLaunchDelegateProxy
     @Override
     public ILaunch getLaunch(ILaunchConfiguration originalConfiguration, String mode) throws CoreException {
         try {
-            ILaunchConfiguration configuration = createConfiguration(originalConfiguration);
+            ILaunchConfiguration configuration = createConfiguration(originalConfiguration, mode);
             delegateClass = configuration.getAttribute(PHPDebugCorePreferenceNames.CONFIGURATION_DELEGATE_CLASS, ""); //$NON-NLS-1$
             MakeGoodLaunch launch = new MakeGoodLaunch(configuration, mode, null);
             TestLifecycle.getInstance().setLaunch(launch);
@@ -193,7 +210,16 @@ public class MakeGoodLaunchConfigurationDelegate extends PHPLaunchDelegateProxy
         }
 
         try {
-            super.launch(configuration, mode, launch, monitor);
+            List<String> shardProgramArguments = getShardProgramArguments(configuration);
+            if (shardProgramArguments.size() > 1) {
+                for (String programArguments: shardProgramArguments) {
+                    ILaunchConfigurationWorkingCopy shardConfiguration = configuration.getWorkingCopy();
+                    shardConfiguration.setAttribute(IDebugParametersKeys.EXE_CONFIG_PROGRAM_ARGUMENTS, programArguments);
+                    super.launch(shardConfiguration, mode, launch, monitor);
+                }
+            } else {
+                super.launch(configuration, mode, launch, monitor);
+            }
         } catch (CoreException e) {
             Activator.getDefault().getLog().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, e.getMessage(), e));
             cancelLaunch(monitor);
@@ -229,7 +255,7 @@ public class MakeGoodLaunchConfigurationDelegate extends PHPLaunchDelegateProxy
     }
 
     private ILaunchConfiguration createConfiguration(
-        ILaunchConfiguration configuration) throws CoreException, MethodNotFoundException, ResourceNotFoundException {
+        ILaunchConfiguration configuration, String mode) throws CoreException, MethodNotFoundException, ResourceNotFoundException {
         String configurationName =
             "MakeGood" + Long.toString(System.currentTimeMillis()); //$NON-NLS-1$
         String junitXMLFile =
@@ -256,10 +282,34 @@ public class MakeGoodLaunchConfigurationDelegate extends PHPLaunchDelegateProxy
             IPHPDebugConstants.ATTR_FILE_FULL_PATH, getCommandPath()
         );
         workingCopy.setAttribute(MAKEGOOD_JUNIT_XML_FILE, junitXMLFile);
-        workingCopy.setAttribute(
-            IDebugParametersKeys.EXE_CONFIG_PROGRAM_ARGUMENTS,
-            new CommandLineBuilder(junitXMLFile).build()
-        );
+
+        List<String> junitXMLFiles = new ArrayList<String>();
+        List<String> shardProgramArguments = new ArrayList<String>();
+        List<List<Object>> shards = createShards(mode);
+        if (shards.size() > 1) {
+            for (int i = 0; i < shards.size(); ++i) {
+                String shardJUnitXMLFile =
+                    JUnitXMLRegistry.getRegistry().getAbsolutePath().toString() +
+                    String.valueOf(File.separatorChar) +
+                    configurationName +
+                    "-" + //$NON-NLS-1$
+                    String.valueOf(i + 1) +
+                    ".xml"; //$NON-NLS-1$
+                junitXMLFiles.add(shardJUnitXMLFile);
+                shardProgramArguments.add(new CommandLineBuilder(shardJUnitXMLFile, shards.get(i)).build());
+            }
+        } else {
+            workingCopy.setAttribute(
+                IDebugParametersKeys.EXE_CONFIG_PROGRAM_ARGUMENTS,
+                new CommandLineBuilder(junitXMLFile, shards.get(0)).build()
+            );
+            junitXMLFiles.add(junitXMLFile);
+        }
+        if (new MakeGoodProperties(TestLifecycle.getInstance().getTestTargets().getFirstResource()).usesResultPipe()) {
+            createResultPipes(junitXMLFiles);
+        }
+        workingCopy.setAttribute(MAKEGOOD_JUNIT_XML_FILES, junitXMLFiles);
+        workingCopy.setAttribute(MAKEGOOD_SHARD_PROGRAM_ARGUMENTS, shardProgramArguments);
 
         IProject project = TestLifecycle.getInstance().getTestTargets().getProject();
         if (project != null && project.exists()) {
@@ -270,6 +320,23 @@ public class MakeGoodLaunchConfigurationDelegate extends PHPLaunchDelegateProxy
         return workingCopy;
     }
 
+    /**
+     * Creates named pipes at the paths of the JUnit XML files so that the
+     * results are not written to disk. The files are used as is if named
+     * pipes are not available.
+     *
+     * @since 3.2.0
+     */
+    private void createResultPipes(List<String> junitXMLFiles) {
+        JUnitXMLRegistry.getRegistry().mkdirs();
+        for (String junitXMLFile: junitXMLFiles) {
+            if (!ResultPipe.create(new File(junitXMLFile))) {
+                Activator.getDefault().getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, "Named pipes are not available. The results are read from the file [ " + junitXMLFile + " ].")); //$NON-NLS-1$ //$NON-NLS-2$
+                return;
+            }
+        }
+    }
+
     public static String getCommandPath() throws CoreException {
         return StagehandTestRunner.getCommandPath();
     }
@@ -278,6 +345,58 @@ public class MakeGoodLaunchConfigurationDelegate extends PHPLaunchDelegateProxy
         return launch.getLaunchConfiguration().getAttribute(MAKEGOOD_JUNIT_XML_FILE, (String) null);
     }
 
+    /**
+     * Returns the JUnit XML files for all shards of the launch.
+     *
+     * @since 3.2.0
+     */
+    @SuppressWarnings("unchecked")
+    public static List<String> getJUnitXMLFiles(ILaunch launch) throws CoreException {
+        List<String> junitXMLFiles = launch.getLaunchConfiguration().getAttribute(MAKEGOOD_JUNIT_XML_FILES, (List<String>) null);
+        if (junitXMLFiles == null || junitXMLFiles.size() == 0) {
+            junitXMLFiles = new ArrayList<String>();
+            junitXMLFiles.add(getJUnitXMLFile(launch));
+        }
+
+        return junitXMLFiles;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> getShardProgramArguments(ILaunchConfiguration configuration) throws CoreException {
+        return configuration.getAttribute(MAKEGOOD_SHARD_PROGRAM_ARGUMENTS, new ArrayList<String>());
+    }
+
+    /**
+     * Partitions the test targets into the shards, and orders the test files
+     * of each shard by their durations. The tests are run by a single
+     * process in the debug mode.
+     *
+     * @since 3.2.0
+     */
+    private List<List<Object>> createShards(String mode) throws CoreException {
+        TestTargets testTargets = TestLifecycle.getInstance().getTestTargets();
+        MakeGoodProperties property = new MakeGoodProperties(testTargets.getFirstResource());
+        int shardCount = ILaunchManager.RUN_MODE.equals(mode) ? property.getShardCount() : 1;
+        String testFilePattern = property.getTestFilePattern().equals("") ? //$NON-NLS-1$
+            property.getTestingFramework().getTestFilePattern() :
+            property.getTestFilePattern();
+
+        IProject project = testTargets.getProject();
+        if (project == null) {
+            return new TestTargetPartitioner(testTargets, testFilePattern).partition(shardCount);
+        }
+
+        return new TestTargetPartitioner(
+            testTargets,
+            testFilePattern,
+            new DurationHistoryRepository().findByProject(project),
+            new MakeGoodPreference().getTestOrder()
+        ).partition(shardCount);
+    }
+
     private void rewriteBasicConfigurationAttributes(ILaunchConfigurationWorkingCopy workingCopy, IProject project) {
         PHPexeItem phpexeItem = new PHPexeItemRepository().findByProject(project);
         if (phpexeItem == null) return;
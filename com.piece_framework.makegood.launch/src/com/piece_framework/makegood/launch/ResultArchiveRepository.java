@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.launch;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.Status;
+
+import com.piece_framework.makegood.core.run.ResultArchive;
+
+/**
+ * Provides the result archive of a project which is stored in the working
+ * location of the project. Only the summaries of the runs are kept in memory.
+ *
+ * @since 3.2.0
+ */
+public class ResultArchiveRepository {
+    /**
+     * The number of the runs to be kept for each project.
+     */
+    public static final int CAPACITY = 10;
+
+    private static final String DIRECTORY_NAME = "results"; //$NON-NLS-1$
+    private static Map<String, ResultArchive> archives = new HashMap<String, ResultArchive>();
+
+    public ResultArchive findByProject(IProject project) {
+        synchronized (archives) {
+            ResultArchive archive = archives.get(project.getName());
+            if (archive == null) {
+                archive = new ResultArchive(project.getWorkingLocation(Activator.PLUGIN_ID).append(DIRECTORY_NAME).toFile(), CAPACITY);
+                try {
+                    archive.load();
+                } catch (IOException e) {
+                    Activator.getDefault().getLog().log(new Status(Status.WARNING, Activator.PLUGIN_ID, e.getMessage(), e));
+                }
+                archives.put(project.getName(), archive);
+            }
+            return archive;
+        }
+    }
+}
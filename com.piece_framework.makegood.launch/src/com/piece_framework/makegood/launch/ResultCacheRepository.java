@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.launch;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.Status;
+
+import com.piece_framework.makegood.core.run.ResultCache;
+
+/**
+ * Provides the result cache of a project which is stored in the working
+ * location of the project. The cache is loaded once and kept in memory.
+ *
+ * @since 3.2.0
+ */
+public class ResultCacheRepository {
+    private static final String FILE_NAME = "passes.bin"; //$NON-NLS-1$
+    private static Map<String, ResultCache> resultCaches = new HashMap<String, ResultCache>();
+
+    public ResultCache findByProject(IProject project) {
+        synchronized (resultCaches) {
+            ResultCache resultCache = resultCaches.get(project.getName());
+            if (resultCache == null) {
+                resultCache = new ResultCache(project.getWorkingLocation(Activator.PLUGIN_ID).append(FILE_NAME).toFile());
+                try {
+                    resultCache.load();
+                } catch (IOException e) {
+                    Activator.getDefault().getLog().log(new Status(Status.WARNING, Activator.PLUGIN_ID, e.getMessage(), e));
+                }
+                resultCaches.put(project.getName(), resultCache);
+            }
+            return resultCache;
+        }
+    }
+}
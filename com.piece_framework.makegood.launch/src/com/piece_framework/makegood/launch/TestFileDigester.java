@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.launch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.search.IDLTKSearchConstants;
+import org.eclipse.dltk.core.search.IDLTKSearchScope;
+import org.eclipse.dltk.core.search.SearchEngine;
+import org.eclipse.dltk.core.search.SearchMatch;
+import org.eclipse.dltk.core.search.SearchParticipant;
+import org.eclipse.dltk.core.search.SearchPattern;
+import org.eclipse.dltk.core.search.SearchRequestor;
+import org.eclipse.php.internal.core.PHPLanguageToolkit;
+
+/**
+ * Computes the digests of the test files. The digest of a test file covers
+ * the contents of the file and of the PHP files in the project which declare
+ * the classes it refers to, transitively. The classes are resolved by their
+ * simple names, so that a file may be regarded as depending on more files
+ * than it actually does, but never on fewer.
+ *
+ * @since 3.2.0
+ */
+@SuppressWarnings("restriction")
+public class TestFileDigester {
+    private static final String DIGEST_ALGORITHM = "SHA-1"; //$NON-NLS-1$
+    private static final String NAMESPACE_SEPARATOR = "\\"; //$NON-NLS-1$
+    private static final String ALL_NAMES = "*"; //$NON-NLS-1$
+
+    private IScriptProject project;
+    private Map<ISourceModule, Set<ISourceModule>> dependencies = new HashMap<ISourceModule, Set<ISourceModule>>();
+
+    public TestFileDigester(IScriptProject project) {
+        this.project = project;
+    }
+
+    /**
+     * Returns the digest of the given test file as a hexadecimal string.
+     */
+    public String digest(ISourceModule testFile) throws CoreException {
+        Set<ISourceModule> sourceModules = new LinkedHashSet<ISourceModule>();
+        LinkedList<ISourceModule> queue = new LinkedList<ISourceModule>();
+        sourceModules.add(testFile);
+        queue.add(testFile);
+        while (!queue.isEmpty()) {
+            for (ISourceModule dependency: findDependencies(queue.removeFirst())) {
+                if (sourceModules.add(dependency)) {
+                    queue.add(dependency);
+                }
+            }
+        }
+
+        List<IFile> files = new ArrayList<IFile>();
+        for (ISourceModule sourceModule: sourceModules) {
+            if (sourceModule.getResource() instanceof IFile) {
+                files.add((IFile) sourceModule.getResource());
+            }
+        }
+        Collections.sort(files, new Comparator<IFile>() {
+            @Override
+            public int compare(IFile o1, IFile o2) {
+                return o1.getFullPath().toString().compareTo(o2.getFullPath().toString());
+            }
+        });
+
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID, e.getMessage(), e));
+        }
+        byte[] buffer = new byte[8192];
+        for (IFile file: files) {
+            try {
+                messageDigest.update(file.getFullPath().toString().getBytes("UTF-8")); //$NON-NLS-1$
+                messageDigest.update((byte) 0);
+                InputStream input = file.getContents(true);
+                try {
+                    for (int length = input.read(buffer); length != -1; length = input.read(buffer)) {
+                        messageDigest.update(buffer, 0, length);
+                    }
+                } finally {
+                    input.close();
+                }
+            } catch (IOException e) {
+                throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID, e.getMessage(), e));
+            }
+        }
+
+        StringBuilder digest = new StringBuilder();
+        for (byte b: messageDigest.digest()) {
+            digest.append(String.format("%02x", b & 0xff)); //$NON-NLS-1$
+        }
+        return digest.toString();
+    }
+
+    /**
+     * Returns the source modules in the project which declare the classes
+     * referred to by the given source module.
+     */
+    private Set<ISourceModule> findDependencies(ISourceModule sourceModule) throws CoreException {
+        Set<ISourceModule> dependenciesOfSourceModule = dependencies.get(sourceModule);
+        if (dependenciesOfSourceModule != null) return dependenciesOfSourceModule;
+
+        final String source = sourceModule.getSource();
+        final Set<String> typeNames = new LinkedHashSet<String>();
+        search(
+            SearchPattern.createPattern(ALL_NAMES, IDLTKSearchConstants.TYPE, IDLTKSearchConstants.REFERENCES, SearchPattern.R_PATTERN_MATCH, PHPLanguageToolkit.getDefault()),
+            SearchEngine.createSearchScope(sourceModule),
+            new SearchRequestor() {
+                @Override
+                public void acceptSearchMatch(SearchMatch match) throws CoreException {
+                    if (match.getOffset() < 0 || match.getOffset() + match.getLength() > source.length()) return;
+
+                    String typeName = source.substring(match.getOffset(), match.getOffset() + match.getLength()).trim();
+                    typeName = typeName.substring(typeName.lastIndexOf(NAMESPACE_SEPARATOR) + 1);
+                    if (typeName.length() > 0) {
+                        typeNames.add(typeName);
+                    }
+                }
+            }
+        );
+
+        final Set<ISourceModule> declaringSourceModules = new LinkedHashSet<ISourceModule>();
+        SearchPattern pattern = null;
+        for (String typeName: typeNames) {
+            SearchPattern patternForType = SearchPattern.createPattern(typeName, IDLTKSearchConstants.TYPE, IDLTKSearchConstants.DECLARATIONS, SearchPattern.R_EXACT_MATCH, PHPLanguageToolkit.getDefault());
+            if (patternForType == null) continue;
+            pattern = pattern == null ? patternForType : SearchPattern.createOrPattern(pattern, patternForType);
+        }
+        if (pattern != null) {
+            search(
+                pattern,
+                SearchEngine.createSearchScope(project),
+                new SearchRequestor() {
+                    @Override
+                    public void acceptSearchMatch(SearchMatch match) throws CoreException {
+                        IResource resource = match.getResource();
+                        if (!(resource instanceof IFile)) return;
+
+                        IModelElement element = DLTKCore.create((IFile) resource);
+                        if (element instanceof ISourceModule) {
+                            declaringSourceModules.add((ISourceModule) element);
+                        }
+                    }
+                }
+            );
+        }
+
+        dependencies.put(sourceModule, declaringSourceModules);
+        return declaringSourceModules;
+    }
+
+    private void search(SearchPattern pattern, IDLTKSearchScope scope, SearchRequestor requestor) throws CoreException {
+        if (pattern == null) return;
+
+        new SearchEngine().search(
+            pattern,
+            new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() },
+            scope,
+            requestor,
+            null
+        );
+    }
+}
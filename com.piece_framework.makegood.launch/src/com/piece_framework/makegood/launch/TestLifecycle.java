@@ -1,5 +1,5 @@
 /**
- * Copyright (c) 2011-2013 KUBO Atsuhiro <kubo@iteman.jp>,
+ * Copyright (c) 2011-2014 KUBO Atsuhiro <kubo@iteman.jp>,
  * All rights reserved.
  *
  * This file is part of MakeGood.
@@ -13,35 +13,186 @@ package com.piece_framework.makegood.launch;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
 import javax.xml.parsers.ParserConfigurationException;
 
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.debug.core.DebugException;
 import org.eclipse.debug.core.model.IProcess;
 import org.eclipse.php.internal.debug.core.IPHPDebugConstants;
 import org.eclipse.php.internal.debug.core.zend.communication.DebuggerCommunicationDaemon;
 import org.xml.sax.SAXException;
 
+import com.piece_framework.makegood.core.preference.MakeGoodPreference;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+import com.piece_framework.makegood.core.result.TraceStore;
+import com.piece_framework.makegood.core.run.DurationHistory;
 import com.piece_framework.makegood.core.run.Failures;
+import com.piece_framework.makegood.core.run.HangWatchdog;
 import com.piece_framework.makegood.core.run.Progress;
+import com.piece_framework.makegood.core.run.PullResultReader;
+import com.piece_framework.makegood.core.run.ResultCache;
+import com.piece_framework.makegood.core.run.ResultEventRing;
+import com.piece_framework.makegood.core.run.ResultFolder;
+import com.piece_framework.makegood.core.run.ResultMerger;
 import com.piece_framework.makegood.core.run.ResultReader;
 import com.piece_framework.makegood.core.run.ResultReaderListener;
+import com.piece_framework.makegood.core.run.ResumeTargets;
+import com.piece_framework.makegood.core.run.StringPool;
 
 /**
  * @since 1.2.0
  */
 @SuppressWarnings("restriction")
 public class TestLifecycle {
+    /**
+     * @since 3.2.0
+     */
+    private static final int RESULT_EVENT_RING_CAPACITY = 4096;
+
+    /**
+     * @since 3.2.0
+     */
+    private static final long HANG_WATCHDOG_INTERVAL = 1000L;
+
+    /**
+     * The rule which runs the jobs to save the results and to close the trace
+     * stores one at a time in the order they are scheduled.
+     *
+     * @since 3.2.0
+     */
+    private static final ISchedulingRule SAVE_RULE = new ISchedulingRule() {
+        @Override
+        public boolean contains(ISchedulingRule rule) {
+            return rule == this;
+        }
+
+        @Override
+        public boolean isConflicting(ISchedulingRule rule) {
+            return rule == this;
+        }
+    };
+
     private Progress progress = new Progress();
     private Failures failures = new Failures();
     private MakeGoodLaunch launch;
 
-    private ResultReader resultReader;
-    private Thread resultReaderThread;
+    /**
+     * The readers and the threads for the results. There is one for each shard.
+     *
+     * @since 3.2.0
+     */
+    private List<ResultReader> resultReaders = new ArrayList<ResultReader>();
+
+    /**
+     * @since 3.2.0
+     */
+    private List<Thread> resultReaderThreads = new ArrayList<Thread>();
+
+    /**
+     * The pool for the strings of the results, which is shared by all shards.
+     *
+     * @since 3.2.0
+     */
+    private StringPool stringPool = new StringPool();
+
+    /**
+     * The store for the large failure traces of the run, which is shared by
+     * all shards and closed when the next run is initialized, unless the
+     * next run resumes this run.
+     *
+     * @since 3.2.0
+     */
+    private TraceStore traceStore;
+
+    /**
+     * The trace stores of the last run which have not been closed yet. They
+     * are handed over to this run if it resumes the last run, since the
+     * failures carried over from the last run refer to them.
+     *
+     * @since 3.2.0
+     */
+    private List<TraceStore> previousTraceStores = new ArrayList<TraceStore>();
+
+    /**
+     * The trace stores of the runs resumed by this run.
+     *
+     * @since 3.2.0
+     */
+    private List<TraceStore> resumedTraceStores = new ArrayList<TraceStore>();
+
+    /**
+     * The folder for the passed tests in the summary-only mode, which is
+     * shared by all shards so that the slowest tests are those of the run.
+     *
+     * @since 3.2.0
+     */
+    private ResultFolder resultFolder;
+
+    /**
+     * The ring which passes the events to the listener given by the caller on
+     * its own thread, so that updating the Result view does not slow down
+     * reading the results. The progress and the failures are still updated on
+     * the reader threads, since a test case may be folded right after its
+     * end.
+     *
+     * @since 3.2.0
+     */
+    private ResultEventRing resultEventRing;
+
+    /**
+     * The watchdog for the hung test cases, which is null if it is disabled.
+     *
+     * @since 3.2.0
+     */
+    private HangWatchdog hangWatchdog;
+
+    /**
+     * @since 3.2.0
+     */
+    private Thread hangWatchdogThread;
+
+    /**
+     * The result which the results of this run are added to. This is the
+     * result of the run killed by a fatal error which is resumed by this run,
+     * or the result of the classes restored from the result cache.
+     *
+     * @since 3.2.0
+     */
+    private TestSuiteResult initialResult;
+
+    /**
+     * The tests of the run killed by a fatal error which is resumed by this
+     * run, or null if this run resumes no run.
+     *
+     * @since 3.2.0
+     */
+    private ResumeTargets resumeTargets;
+
+    /**
+     * The cache which the passed classes of this run are recorded to, which
+     * is null if it is disabled.
+     *
+     * @since 3.2.0
+     */
+    private ResultCache resultCache;
+
+    /**
+     * The digests of the test files of this run.
+     *
+     * @since 3.2.0
+     */
+    private Map<String, String> testFileDigests;
 
     /**
      * @since 1.4.0
@@ -66,32 +217,103 @@ public class TestLifecycle {
 
     /**
      * Creates a ResultReader object and a thread for reading the result.
+     * If the tests are run by more than one shard, a ResultReader object is
+     * created for each shard and the results are merged into one.
      *
      * @param resultReaderListener
      * @throws CoreException
      * @since 1.9.0
      */
     public void initialize(ResultReaderListener resultReaderListener) throws CoreException {
-        resultReader = createResultReader(resultReaderListener);
-        resultReaderThread = createResultReaderThread();
+        for (TraceStore previousTraceStore: previousTraceStores) {
+            scheduleTraceStoreCloseJob(previousTraceStore);
+        }
+        previousTraceStores.clear();
+        traceStore = createTraceStore();
+        MakeGoodPreference preference = new MakeGoodPreference();
+        if (preference.getSummaryOnly()) {
+            resultFolder = new ResultFolder(preference.getSummaryOnlySlowestTestCount());
+        }
+        if (preference.getHangTimeLimit() > 0) {
+            hangWatchdog = new HangWatchdog(
+                preference.getHangTimeLimit() * 1000000000L,
+                preference.getHangTimeLimitFromHistory() && testTargets.getProject() != null ?
+                    new DurationHistoryRepository().findByProject(testTargets.getProject()) :
+                    null
+            );
+            hangWatchdogThread = createHangWatchdogThread();
+        }
+        resultEventRing = new ResultEventRing(RESULT_EVENT_RING_CAPACITY, ResultEventRing.SUMMARIZE) {
+            @Override
+            protected void handleListenerException(RuntimeException e) {
+                Activator.getDefault().getLog().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, e.getMessage(), e));
+            }
+        };
+        resultEventRing.addListener(resultReaderListener);
+        List<String> junitXMLFiles = MakeGoodLaunchConfigurationDelegate.getJUnitXMLFiles(launch);
+        if (junitXMLFiles.size() > 1 || initialResult != null) {
+            ResultMerger resultMerger = initialResult == null ?
+                new ResultMerger(junitXMLFiles.size()) :
+                new ResultMerger(junitXMLFiles.size(), initialResult);
+            resultMerger.addListener(progress);
+            resultMerger.addListener(failures);
+            resultMerger.addListener(resultEventRing);
+            for (String junitXMLFile: junitXMLFiles) {
+                ResultReader resultReader = newResultReader(new File(junitXMLFile));
+                resultReader.setStringPool(stringPool);
+                resultReader.setTraceStore(traceStore);
+                resultReader.setResultFolder(resultFolder);
+                resultReader.addListener(resultMerger.createShardListener());
+                if (hangWatchdog != null) {
+                    resultReader.addListener(hangWatchdog.createShardListener());
+                }
+                resultReaders.add(resultReader);
+                resultReaderThreads.add(createResultReaderThread(resultReader));
+            }
+        } else {
+            ResultReader resultReader = createResultReader(resultEventRing);
+            resultReaders.add(resultReader);
+            resultReaderThreads.add(createResultReaderThread(resultReader));
+        }
     }
 
     public void start() {
         progress.start();
-        resultReaderThread.start();
+        resultEventRing.start();
+        for (Thread resultReaderThread: resultReaderThreads) {
+            resultReaderThread.start();
+        }
+        if (hangWatchdogThread != null) {
+            hangWatchdogThread.start();
+        }
     }
 
     public void end() {
-        resultReader.stop();
+        if (hangWatchdogThread != null) {
+            hangWatchdogThread.interrupt();
+        }
+
+        for (ResultReader resultReader: resultReaders) {
+            resultReader.stop();
+        }
+
+        for (Thread resultReaderThread: resultReaderThreads) {
+            try {
+                resultReaderThread.join();
+            } catch (InterruptedException e) {
+                Activator.getDefault().getLog().log(new Status(Status.WARNING, Activator.PLUGIN_ID, e.getMessage(), e));
+            }
+        }
 
         try {
-            resultReaderThread.join();
+            resultEventRing.close();
         } catch (InterruptedException e) {
             Activator.getDefault().getLog().log(new Status(Status.WARNING, Activator.PLUGIN_ID, e.getMessage(), e));
         }
 
         progress.end();
         endTime = new Date();
+        scheduleSaveJob();
     }
 
     public Progress getProgress() {
@@ -114,12 +336,37 @@ public class TestLifecycle {
         return failures;
     }
 
+    /**
+     * Returns the watchdog for the hung test cases, or null if it is
+     * disabled.
+     *
+     * @since 3.2.0
+     */
+    public HangWatchdog getHangWatchdog() {
+        return hangWatchdog;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    public StringPool getStringPool() {
+        return stringPool;
+    }
+
     public boolean validateLaunchIdentity(MakeGoodLaunch launch) {
         return this.launch.equals(launch);
     }
 
     public static void create() {
+        TestLifecycle previousTestLifecycle = currentTestLifecycle;
         currentTestLifecycle = new TestLifecycle();
+        if (previousTestLifecycle != null) {
+            currentTestLifecycle.previousTraceStores.addAll(previousTestLifecycle.previousTraceStores);
+            currentTestLifecycle.previousTraceStores.addAll(previousTestLifecycle.resumedTraceStores);
+            if (previousTestLifecycle.traceStore != null) {
+                currentTestLifecycle.previousTraceStores.add(previousTestLifecycle.traceStore);
+            }
+        }
     }
 
     public static void destroy() {
@@ -144,6 +391,44 @@ public class TestLifecycle {
         this.launch = launch;
     }
 
+    /**
+     * Resumes the given tests of a run killed by a fatal error. The results
+     * of this run are added to the result of the tests, and the trace stores of the
+     * last run are kept open as long as this run is current.
+     *
+     * @since 3.2.0
+     */
+    public void resume(ResumeTargets resumeTargets) {
+        this.resumeTargets = resumeTargets;
+        initialResult = resumeTargets.getResult();
+        resumedTraceStores.addAll(previousTraceStores);
+        previousTraceStores.clear();
+    }
+
+    /**
+     * Returns the tests of the run resumed by this run, or null if this run
+     * resumes no run.
+     *
+     * @since 3.2.0
+     */
+    public ResumeTargets getResumeTargets() {
+        return resumeTargets;
+    }
+
+    /**
+     * Records the passed classes of this run to the given cache with the
+     * given digests of the test files. The classes restored from the cache
+     * are given as the result which the results of this run are added to, or
+     * null if no class has been restored.
+     *
+     * @since 3.2.0
+     */
+    public void useResultCache(ResultCache resultCache, Map<String, String> testFileDigests, TestSuiteResult cachedResult) {
+        this.resultCache = resultCache;
+        this.testFileDigests = testFileDigests;
+        initialResult = cachedResult;
+    }
+
     /**
      * @since 1.9.0
      */
@@ -172,21 +457,148 @@ public class TestLifecycle {
         }
     }
 
+    /**
+     * Saves the durations, the archive and the passed classes of the run in
+     * the background, since this lifecycle is ended on the UI thread and the
+     * writes are proportional to the size of the result.
+     *
+     * @since 3.2.0
+     */
+    private void scheduleSaveJob() {
+        final TestSuiteResult result = progress.getResult();
+        final IProject project = testTargets.getProject();
+        if (project == null || result == null) return;
+
+        final Date endTime = this.endTime;
+        final ResultCache resultCache = this.resultCache;
+        final Map<String, String> testFileDigests = this.testFileDigests;
+        Job job = new Job("MakeGood Save Test Results") { //$NON-NLS-1$
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                saveDurations(project, result);
+                archiveResult(project, result, endTime);
+                if (resultCache != null) {
+                    cacheResult(resultCache, testFileDigests, result);
+                }
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem(true);
+        job.setRule(SAVE_RULE);
+        job.schedule();
+    }
+
+    /**
+     * Closes the given trace store after the results which may refer to it
+     * have been saved.
+     *
+     * @since 3.2.0
+     */
+    private static void scheduleTraceStoreCloseJob(final TraceStore traceStore) {
+        Job job = new Job("MakeGood Close Trace Store") { //$NON-NLS-1$
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                traceStore.close();
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem(true);
+        job.setRule(SAVE_RULE);
+        job.schedule();
+    }
+
+    /**
+     * Records the durations of the test cases to the history of the project.
+     *
+     * @since 3.2.0
+     */
+    private static void saveDurations(IProject project, TestSuiteResult result) {
+        DurationHistory durationHistory = new DurationHistoryRepository().findByProject(project);
+        durationHistory.record(result);
+        try {
+            durationHistory.save();
+        } catch (IOException e) {
+            Activator.getDefault().getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, e.getMessage(), e));
+        }
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private static void archiveResult(IProject project, TestSuiteResult result, Date endTime) {
+        try {
+            new ResultArchiveRepository().findByProject(project).store(result, endTime);
+        } catch (IOException e) {
+            Activator.getDefault().getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, e.getMessage(), e));
+        }
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private static void cacheResult(ResultCache resultCache, Map<String, String> testFileDigests, TestSuiteResult result) {
+        resultCache.record(result, testFileDigests);
+        try {
+            resultCache.save();
+        } catch (IOException e) {
+            Activator.getDefault().getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, e.getMessage(), e));
+        }
+    }
+
     /**
      * @since 1.7.0
      */
     private ResultReader createResultReader(ResultReaderListener resultReaderListener) throws CoreException {
-        ResultReader resultReader = new ResultReader(new File(MakeGoodLaunchConfigurationDelegate.getJUnitXMLFile(launch)));
+        ResultReader resultReader = newResultReader(new File(MakeGoodLaunchConfigurationDelegate.getJUnitXMLFile(launch)));
+        resultReader.setStringPool(stringPool);
+        resultReader.setTraceStore(traceStore);
+        resultReader.setResultFolder(resultFolder);
         resultReader.addListener(progress);
         resultReader.addListener(failures);
+        if (hangWatchdog != null) {
+            resultReader.addListener(hangWatchdog);
+        }
         resultReader.addListener(resultReaderListener);
         return resultReader;
     }
 
+    /**
+     * Creates the reader of the given log, which reads it with SAX unless the
+     * pull parser is enabled by the preference.
+     *
+     * @since 3.2.0
+     */
+    private ResultReader newResultReader(File log) {
+        if (new MakeGoodPreference().getPullResultReaderEnabled()) {
+            return new PullResultReader(log);
+        }
+
+        return new ResultReader(log);
+    }
+
+    /**
+     * Creates the trace store in the JUnit XML registry. Returns null if the
+     * store cannot be created, and then the traces are kept in memory.
+     *
+     * @since 3.2.0
+     */
+    private TraceStore createTraceStore() {
+        try {
+            JUnitXMLRegistry.getRegistry().mkdirs();
+            return new TraceStore(
+                File.createTempFile("MakeGood", ".traces", JUnitXMLRegistry.getRegistry()), //$NON-NLS-1$ //$NON-NLS-2$
+                new MakeGoodPreference().getFailureTraceInlineThreshold() * 1024
+            );
+        } catch (IOException e) {
+            Activator.getDefault().getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, e.getMessage(), e));
+            return null;
+        }
+    }
+
     /**
      * @since 1.7.0
      */
-    private Thread createResultReaderThread() {
+    private Thread createResultReaderThread(final ResultReader resultReader) {
         Thread thread = new Thread() {
             @Override
             public void run() {
@@ -202,4 +614,36 @@ public class TestLifecycle {
         };
         return thread;
     }
+
+    /**
+     * Creates a thread which terminates the launch when the running test
+     * case is found hung.
+     *
+     * @since 3.2.0
+     */
+    private Thread createHangWatchdogThread() {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        Thread.sleep(HANG_WATCHDOG_INTERVAL);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    if (hangWatchdog.check(System.nanoTime()) != null) {
+                        try {
+                            launch.terminate();
+                        } catch (DebugException e) {
+                            Activator.getDefault().getLog().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, e.getMessage(), e));
+                        }
+                        return;
+                    }
+                }
+            }
+        };
+        thread.setDaemon(true);
+        return thread;
+    }
 }
@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.launch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+
+import com.piece_framework.makegood.core.Resource;
+import com.piece_framework.makegood.core.run.DurationHistory;
+
+/**
+ * Partitions the test targets into shards so that each shard can be run by
+ * its own PHP process. The test targets are grouped by file so that a file
+ * is never run by more than one shard, and the files are assigned to the
+ * shard with the least load. The load of a file is estimated from the
+ * duration history if it is available, and the files of each shard are
+ * ordered by their durations in the history in the given order.
+ *
+ * @since 3.2.0
+ */
+class TestTargetPartitioner {
+    private TestTargets testTargets;
+    private String testFilePattern;
+    private Map<String, Long> fileDurations = new HashMap<String, Long>();
+    private long defaultFileDuration = 1;
+    private DurationHistory durationHistory;
+    private int order = DurationHistory.UNORDERED;
+
+    TestTargetPartitioner(TestTargets testTargets, String testFilePattern) {
+        this.testTargets = testTargets;
+        this.testFilePattern = testFilePattern;
+    }
+
+    /**
+     * @param order the order of the test files, which is one of the orders
+     *              of {@link DurationHistory}
+     */
+    TestTargetPartitioner(TestTargets testTargets, String testFilePattern, DurationHistory durationHistory, int order) {
+        this(testTargets, testFilePattern);
+        this.durationHistory = durationHistory;
+        this.order = order;
+        fileDurations = durationHistory.getFileDurations();
+        if (fileDurations.size() > 0) {
+            List<Long> durations = new ArrayList<Long>(fileDurations.values());
+            Collections.sort(durations);
+            defaultFileDuration = Math.max(1, durations.get(durations.size() / 2));
+        }
+    }
+
+    /**
+     * Returns the test targets for each shard. A list which contains only
+     * all test targets is returned if the test targets cannot be partitioned.
+     */
+    List<List<Object>> partition(int shardCount) throws CoreException {
+        List<List<Object>> shards = new ArrayList<List<Object>>();
+        Map<IResource, List<Object>> units = null;
+        if (shardCount > 1 || order != DurationHistory.UNORDERED) {
+            units = groupByFile();
+        }
+        if (units == null) {
+            shards.add(new ArrayList<Object>(testTargets.getAll()));
+            return shards;
+        }
+        if (shardCount < 2 || units.size() < 2) {
+            shards.add(sortTestTargets(new ArrayList<IResource>(units.keySet()), units));
+            return shards;
+        }
+
+        List<Map.Entry<IResource, List<Object>>> sortedUnits =
+            new ArrayList<Map.Entry<IResource, List<Object>>>(units.entrySet());
+        Collections.sort(sortedUnits, new Comparator<Map.Entry<IResource, List<Object>>>() {
+            @Override
+            public int compare(Map.Entry<IResource, List<Object>> o1, Map.Entry<IResource, List<Object>> o2) {
+                long weight1 = weigh(o1.getKey());
+                long weight2 = weigh(o2.getKey());
+                return weight1 < weight2 ? 1 : (weight1 > weight2 ? -1 : 0);
+            }
+        });
+
+        int count = Math.min(shardCount, sortedUnits.size());
+        long[] loads = new long[count];
+        List<List<IResource>> shardFiles = new ArrayList<List<IResource>>();
+        for (int i = 0; i < count; ++i) {
+            shardFiles.add(new ArrayList<IResource>());
+        }
+        for (Map.Entry<IResource, List<Object>> unit: sortedUnits) {
+            int lightest = 0;
+            for (int i = 1; i < count; ++i) {
+                if (loads[i] < loads[lightest]) {
+                    lightest = i;
+                }
+            }
+            shardFiles.get(lightest).add(unit.getKey());
+            loads[lightest] += weigh(unit.getKey());
+        }
+        for (List<IResource> files: shardFiles) {
+            shards.add(sortTestTargets(files, units));
+        }
+
+        return shards;
+    }
+
+    /**
+     * Returns the test targets in the given files, which are sorted by their
+     * durations in the order of the partitioner. The files whose locations
+     * are unknown are put at the end.
+     */
+    private List<Object> sortTestTargets(List<IResource> files, Map<IResource, List<Object>> units) {
+        Map<String, IResource> filesByLocation = new LinkedHashMap<String, IResource>();
+        List<IResource> unlocatedFiles = new ArrayList<IResource>();
+        for (IResource file: files) {
+            if (file.getLocation() == null) {
+                unlocatedFiles.add(file);
+            } else {
+                filesByLocation.put(file.getLocation().toString(), file);
+            }
+        }
+
+        List<String> locations = durationHistory == null ?
+            new ArrayList<String>(filesByLocation.keySet()) :
+            durationHistory.sortFiles(filesByLocation.keySet(), order);
+        List<Object> sortedTestTargets = new ArrayList<Object>();
+        for (String location: locations) {
+            sortedTestTargets.addAll(units.get(filesByLocation.get(location)));
+        }
+        for (IResource file: unlocatedFiles) {
+            sortedTestTargets.addAll(units.get(file));
+        }
+
+        return sortedTestTargets;
+    }
+
+    /**
+     * Returns the estimated cost to run the tests in the given file. The
+     * median of the known files is used for a file which has never been run.
+     */
+    long weigh(IResource file) {
+        if (file.getLocation() == null) return defaultFileDuration;
+        Long duration = fileDurations.get(file.getLocation().toString());
+        return duration == null ? defaultFileDuration : Math.max(1, duration);
+    }
+
+    /**
+     * Groups the test targets by file. The folders are expanded into the
+     * test files in them. Returns null if the test targets cannot be grouped.
+     */
+    private Map<IResource, List<Object>> groupByFile() throws CoreException {
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(testFilePattern);
+        } catch (PatternSyntaxException e) {
+            return null;
+        }
+
+        Map<IResource, List<Object>> units = new LinkedHashMap<IResource, List<Object>>();
+        for (Object testTarget: testTargets.getAll()) {
+            IResource resource = testTargets.getResource(testTarget);
+            if (resource == null) return null;
+
+            if (resource instanceof IContainer) {
+                List<IFile> testFiles = new ArrayList<IFile>();
+                collectTestFiles((IContainer) resource, pattern, testFiles);
+                for (IFile testFile: testFiles) {
+                    addUnit(units, testFile, testFile);
+                }
+            } else {
+                addUnit(units, resource, testTarget);
+            }
+        }
+
+        return units;
+    }
+
+    private void addUnit(Map<IResource, List<Object>> units, IResource file, Object testTarget) {
+        List<Object> unit = units.get(file);
+        if (unit == null) {
+            unit = new ArrayList<Object>();
+            units.put(file, unit);
+        }
+        if (!unit.contains(testTarget)) {
+            unit.add(testTarget);
+        }
+    }
+
+    private void collectTestFiles(IContainer container, Pattern pattern, List<IFile> testFiles) throws CoreException {
+        for (IResource member: container.members()) {
+            if (member instanceof IContainer) {
+                collectTestFiles((IContainer) member, pattern, testFiles);
+            } else if (new Resource(member).isPHPFile() && pattern.matcher(member.getName()).find()) {
+                testFiles.add((IFile) member);
+            }
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /**
  * Copyright (c) 2010 MATSUFUJI Hideharu <matsufuji2008@gmail.com>
- *               2010-2013 KUBO Atsuhiro <kubo@iteman.jp>,
+ *               2010-2014 KUBO Atsuhiro <kubo@iteman.jp>,
  * All rights reserved.
  *
  * This file is part of MakeGood.
@@ -12,6 +12,14 @@
 
 package com.piece_framework.makegood.ui;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.IResourceChangeListener;
 import org.eclipse.core.resources.IResourceDelta;
@@ -24,9 +32,42 @@ import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.StructuredSelection;
 import org.eclipse.ui.progress.UIJob;
 
+import com.piece_framework.makegood.core.Resource;
 import com.piece_framework.makegood.core.continuoustesting.Scope;
+import com.piece_framework.makegood.launch.TestLifecycle;
+import com.piece_framework.makegood.ui.launch.TestRunner;
 
 public class ContinuousTestRunner implements IResourceChangeListener {
+    /**
+     * The interval in milliseconds to wait for the running tests to end.
+     *
+     * @since 3.2.0
+     */
+    private static final long RETRY_INTERVAL = 200;
+
+    /**
+     * @since 3.2.0
+     */
+    private Set<IFile> pendingChangedFiles = new LinkedHashSet<IFile>();
+
+    /**
+     * @since 3.2.0
+     */
+    private IResource pendingResource;
+
+    /**
+     * The lifecycle of the running tests which have been requested to stop,
+     * so that they are stopped only once while waiting for them to end.
+     *
+     * @since 3.2.0
+     */
+    private TestLifecycle stoppedTestLifecycle;
+
+    /**
+     * @since 3.2.0
+     */
+    private Job debounceJob = new DebounceJob();
+
     @Override
     public void resourceChanged(IResourceChangeEvent event) {
         if (MakeGoodContext.getInstance().isShuttingDown()) return;
@@ -43,39 +84,97 @@ public class ContinuousTestRunner implements IResourceChangeListener {
         }
         if (!shouldRunTests(deltas)) return;
 
+        List<IFile> changedFiles = new ArrayList<IFile>();
+        collectChangedFiles(deltas, changedFiles);
+        synchronized (this) {
+            pendingChangedFiles.addAll(changedFiles);
+            pendingResource = deltas[0].getResource();
+        }
+
+        debounceJob.cancel();
+        debounceJob.schedule(MakeGoodContext.getInstance().getContinuousTesting().getDebounceWindow());
+    }
+
+    /**
+     * Runs the tests for the changes which have arrived so far. The changes
+     * are kept until the running tests end so that the last state of the
+     * files is always tested.
+     *
+     * @since 3.2.0
+     */
+    private void runTests() {
+        if (MakeGoodContext.getInstance().isShuttingDown()) return;
+        if (!MakeGoodContext.getInstance().getContinuousTesting().isEnabled()) return;
+        synchronized (this) {
+            if (pendingResource == null) return;
+        }
+
+        TestRunner testRunner = MakeGoodContext.getInstance().getTestRunner();
+        if (TestLifecycle.isRunning()) {
+            if (MakeGoodContext.getInstance().getContinuousTesting().restartsRunningTests()
+                && stoppedTestLifecycle != TestLifecycle.getInstance()) {
+                if (testRunner.stopTestsRunByContinuousTestRunner()) {
+                    stoppedTestLifecycle = TestLifecycle.getInstance();
+                }
+            }
+            debounceJob.schedule(RETRY_INTERVAL);
+            return;
+        }
+        stoppedTestLifecycle = null;
+
+        List<IFile> changedFiles;
+        IResource resource;
+        synchronized (this) {
+            changedFiles = new ArrayList<IFile>(pendingChangedFiles);
+            resource = pendingResource;
+            pendingChangedFiles.clear();
+            pendingResource = null;
+        }
+
         if (MakeGoodContext.getInstance().getContinuousTesting().getScope() == Scope.ALL_TESTS) {
-            final ISelection selection = new StructuredSelection(deltas[0].getResource());
+            ISelection selection = new StructuredSelection(resource);
             if (ActivePart.isAllTestsRunnable(selection)) {
-                Job job = new UIJob("MakeGood Run All Tests By Continuous Test Runner") { //$NON-NLS-1$
-                    @Override
-                    public IStatus runInUIThread(IProgressMonitor monitor) {
-                        MakeGoodContext.getInstance().getTestRunner().runAllTestsByContinuousTestRunner(selection);
-                        return Status.OK_STATUS;
-                    }
-                };
-                job.schedule();
+                testRunner.runAllTestsByContinuousTestRunner(selection);
             }
         } else if (MakeGoodContext.getInstance().getContinuousTesting().getScope() == Scope.LAST_TEST) {
-            if (MakeGoodContext.getInstance().getTestRunner().hasLastTest()) {
-                Job job = new UIJob("MakeGood Run Last Test By Continuous Test Runner") { //$NON-NLS-1$
-                    @Override
-                    public IStatus runInUIThread(IProgressMonitor monitor) {
-                        MakeGoodContext.getInstance().getTestRunner().rerunLastTestByContinuousTestRunner();
-                        return Status.OK_STATUS;
-                    }
-                };
-                job.schedule();
+            if (testRunner.hasLastTest()) {
+                testRunner.rerunLastTestByContinuousTestRunner();
             }
         } else if (MakeGoodContext.getInstance().getContinuousTesting().getScope() == Scope.FAILED_TESTS) {
-            if (MakeGoodContext.getInstance().getTestRunner().hasLastTest()) {
-                Job job = new UIJob("MakeGood Run Failed Tests By Continuous Test Runner") { //$NON-NLS-1$
-                    @Override
-                    public IStatus runInUIThread(IProgressMonitor monitor) {
-                        MakeGoodContext.getInstance().getTestRunner().rerunFailedTestsByContinuousTestRunner();
-                        return Status.OK_STATUS;
+            if (testRunner.hasLastTest()) {
+                testRunner.rerunFailedTestsByContinuousTestRunner();
+            }
+        } else if (MakeGoodContext.getInstance().getContinuousTesting().getScope() == Scope.AFFECTED_TESTS) {
+            if (changedFiles.size() > 0) {
+                testRunner.runAffectedTestsByContinuousTestRunner(changedFiles);
+            }
+        }
+    }
+
+    /**
+     * Collects the PHP files which are added or whose contents are changed.
+     * The removed PHP files are invalidated in the affected tests index
+     * since they cannot be run.
+     *
+     * @since 3.2.0
+     */
+    private void collectChangedFiles(IResourceDelta[] deltas, List<IFile> changedFiles) {
+        for (IResourceDelta delta: deltas) {
+            if (delta.getResource() instanceof IFile) {
+                if (delta.getKind() == IResourceDelta.REMOVED) {
+                    if (new Resource(delta.getResource()).isPHPFile()) {
+                        MakeGoodContext.getInstance().getTestRunner().invalidateAffectedTests(Arrays.asList((IFile) delta.getResource()));
                     }
-                };
-                job.schedule();
+                    continue;
+                }
+                if (delta.getKind() == IResourceDelta.CHANGED
+                    && (delta.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.REPLACED | IResourceDelta.TYPE | IResourceDelta.LOCAL_CHANGED)) == 0) {
+                    continue;
+                }
+                if (!new Resource(delta.getResource()).isPHPFile()) continue;
+                changedFiles.add((IFile) delta.getResource());
+            } else {
+                collectChangedFiles(delta.getAffectedChildren(), changedFiles);
             }
         }
     }
@@ -95,4 +194,20 @@ public class ContinuousTestRunner implements IResourceChangeListener {
 
         return false;
     }
+
+    /**
+     * @since 3.2.0
+     */
+    private class DebounceJob extends UIJob {
+        public DebounceJob() {
+            super("MakeGood Run Tests By Continuous Test Runner"); //$NON-NLS-1$
+            setSystem(true);
+        }
+
+        @Override
+        public IStatus runInUIThread(IProgressMonitor monitor) {
+            runTests();
+            return Status.OK_STATUS;
+        }
+    }
 }
@@ -64,7 +64,12 @@ public class MakeGoodContext implements IWorkbenchListener {
 
     private MakeGoodContext() {
         MakeGoodPreference preference = new MakeGoodPreference();
-        continuousTesting = new ContinuousTesting(preference.getContinuousTestingEnabled(), preference.getContinuousTestingScope());
+        continuousTesting = new ContinuousTesting(
+            preference.getContinuousTestingEnabled(),
+            preference.getContinuousTestingScope(),
+            preference.getContinuousTestingDebounceWindow(),
+            preference.getContinuousTestingRestartsRunningTests()
+        );
         testResultsLayout = preference.getTestResultsLayout();
     }
 
@@ -47,6 +47,16 @@ public class Messages extends NLS {
      */
     public static String MakeGoodPropertyPage_defaultTestFilePatternLabel;
 
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPropertyPage_shardCountLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPropertyPage_resultPipeLabel;
+
     /**
      * @since 2.3.0
      */
@@ -72,6 +82,21 @@ public class Messages extends NLS {
      */
     public static String MakeGoodPreferencePage_continuousTestingScopeFailedTestsLabel;
 
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPreferencePage_continuousTestingScopeAffectedTestsLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPreferencePage_continuousTestingDebounceWindowLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPreferencePage_continuousTestingRestartsRunningTestsLabel;
+
     /**
      * @since 2.5.0
      */
@@ -87,10 +112,86 @@ public class Messages extends NLS {
      */
     public static String MakeGoodPreferencePage_testResultsLayoutHorizontalLabel;
 
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPreferencePage_resultViewGroupLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPreferencePage_resultViewRefreshRateLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPreferencePage_failureTraceInlineThresholdLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPreferencePage_summaryOnlyLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPreferencePage_summaryOnlySlowestTestCountLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPreferencePage_resumeAfterFatalErrorLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPreferencePage_hangTimeLimitLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPreferencePage_hangTimeLimitFromHistoryLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPreferencePage_resultCacheEnabledLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPreferencePage_testOrderLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPreferencePage_testOrderUnorderedLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPreferencePage_testOrderSlowestFirstLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPreferencePage_testOrderFastestFirstLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodPreferencePage_pullResultReaderEnabledLabel;
+
     public static String MakeGoodView_errorsLabel;
     public static String MakeGoodView_failuresLabel;
     public static String MakeGoodView_failureTraceLabel;
     public static String MakeGoodView_passesLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodView_cachedLabel;
+
     public static String MakeGoodView_testsLabel;
     public static String MakeGoodView_averageTest;
     public static String MakeGoodView_realTime;
@@ -217,6 +318,11 @@ public class Messages extends NLS {
      */
     public static String MakeGoodView_ConfigureContinuousTestingAction_SetContinuousTestingScopeToFailedTestsAction;
 
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodView_ConfigureContinuousTestingAction_SetContinuousTestingScopeToAffectedTestsAction;
+
     /**
      * @since 2.3.0
      */
@@ -247,6 +353,31 @@ public class Messages extends NLS {
      */
     public static String MakeGoodView_SelectTestResultsLayoutAction_SetTestResultsLayoutToHorizontalAction;
 
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodView_archivedResultLabel;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodView_ShowTestHistoryAction_NoHistory;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodView_ShowTestHistoryAction_CompareLastTwoRunsAction;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String MakeGoodView_ShowTestHistoryAction_NoChanges;
+
+    /**
+     * @since 3.2.0
+     */
+    public static String AllTestsLaunchShortcut_DigestingTestFiles;
+
     static {
         // initialize resource bundle
         NLS.initializeMessages(BUNDLE_NAME, Messages.class);
@@ -87,6 +87,7 @@ public class ConfigureContinuousTestingAction implements IViewActionDelegate {
             addAction(new SetContinuousTestingScopeToAllTestsAction(Messages.MakeGoodView_ConfigureContinuousTestingAction_SetContinuousTestingScopeToAllTestsAction));
             addAction(new SetContinuousTestingScopeToLastTestAction(Messages.MakeGoodView_ConfigureContinuousTestingAction_SetContinuousTestingScopeToLastTestAction));
             addAction(new SetContinuousTestingScopeToFailedTestsAction(Messages.MakeGoodView_ConfigureContinuousTestingAction_SetContinuousTestingScopeToFailedTestsAction));
+            addAction(new SetContinuousTestingScopeToAffectedTestsAction(Messages.MakeGoodView_ConfigureContinuousTestingAction_SetContinuousTestingScopeToAffectedTestsAction));
 
             return menu;
         }
@@ -176,4 +177,21 @@ public class ConfigureContinuousTestingAction implements IViewActionDelegate {
             setChecked(true);
         }
     }
+
+    /**
+     * @since 3.2.0
+     */
+    private class SetContinuousTestingScopeToAffectedTestsAction extends Action {
+        public SetContinuousTestingScopeToAffectedTestsAction(String text) {
+            super(text);
+            setToolTipText(text);
+            setChecked(Scope.AFFECTED_TESTS.equals(MakeGoodContext.getInstance().getContinuousTesting().getScope()));
+        }
+
+        @Override
+        public void run() {
+            MakeGoodContext.getInstance().getContinuousTesting().setScope(Scope.AFFECTED_TESTS);
+            setChecked(true);
+        }
+    }
 }
@@ -0,0 +1,314 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.ui.actions;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.List;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.ActionContributionItem;
+import org.eclipse.jface.action.IAction;
+import org.eclipse.jface.action.IMenuCreator;
+import org.eclipse.jface.action.Separator;
+import org.eclipse.jface.dialogs.Dialog;
+import org.eclipse.jface.dialogs.IDialogConstants;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Menu;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+import org.eclipse.ui.IViewActionDelegate;
+import org.eclipse.ui.IViewPart;
+import org.eclipse.ui.progress.UIJob;
+
+import com.piece_framework.makegood.core.result.ResultType;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+import com.piece_framework.makegood.core.run.ResultArchive;
+import com.piece_framework.makegood.core.run.ResultDiff;
+import com.piece_framework.makegood.launch.ResultArchiveRepository;
+import com.piece_framework.makegood.launch.TestLifecycle;
+import com.piece_framework.makegood.ui.Activator;
+import com.piece_framework.makegood.ui.MakeGoodContext;
+import com.piece_framework.makegood.ui.Messages;
+import com.piece_framework.makegood.ui.views.ResultView;
+
+/**
+ * Shows the results of the last runs which are stored in the result archive
+ * of the project, and compares the last two runs. The runs are read in a job
+ * so as not to block the UI thread.
+ *
+ * @since 3.2.0
+ */
+public class ShowTestHistoryAction implements IViewActionDelegate {
+    public static final String ACTION_ID = "com.piece_framework.makegood.ui.viewActions.showTestHistoryAction"; //$NON-NLS-1$
+    private IAction lastSelectedAction;
+    private ResultView resultView;
+
+    @Override
+    public void run(IAction action) {
+        ResultArchive resultArchive = findResultArchive();
+        if (resultArchive == null) return;
+        List<ResultArchive.Run> runs = resultArchive.getRuns();
+        if (runs.size() == 0) return;
+        new ShowRunAction(resultArchive, runs.get(0)).run();
+    }
+
+    @Override
+    public void selectionChanged(IAction action, ISelection selection) {
+        if (action != lastSelectedAction) {
+            lastSelectedAction = action;
+            lastSelectedAction.setMenuCreator(new TestHistoryMenuCreator());
+        }
+    }
+
+    @Override
+    public void init(IViewPart view) {
+        if (view instanceof ResultView) {
+            resultView = (ResultView) view;
+        }
+    }
+
+    private ResultArchive findResultArchive() {
+        IProject project = null;
+        if (TestLifecycle.getInstance() != null) {
+            project = TestLifecycle.getInstance().getTestTargets().getProject();
+        }
+        if (project == null) {
+            project = MakeGoodContext.getInstance().getActivePart().getProject();
+        }
+        if (project == null || !project.isOpen()) return null;
+
+        return new ResultArchiveRepository().findByProject(project);
+    }
+
+    private TestSuiteResult read(ResultArchive resultArchive, ResultArchive.Run run) {
+        try {
+            return resultArchive.read(run);
+        } catch (IOException e) {
+            Activator.getDefault().getLog().log(new Status(Status.WARNING, Activator.PLUGIN_ID, e.getMessage(), e));
+            return null;
+        }
+    }
+
+    private class TestHistoryMenuCreator implements IMenuCreator {
+        private Menu menu;
+
+        @Override
+        public void dispose() {
+            if (menu != null) {
+                menu.dispose();
+                menu = null;
+            }
+        }
+
+        @Override
+        public Menu getMenu(Control parent) {
+            if (menu != null) {
+                menu.dispose();
+                menu = null;
+            }
+
+            menu = new Menu(parent);
+            ResultArchive resultArchive = findResultArchive();
+            List<ResultArchive.Run> runs = null;
+            if (resultArchive != null) {
+                runs = resultArchive.getRuns();
+            }
+            if (runs == null || runs.size() == 0) {
+                IAction action = new Action(Messages.MakeGoodView_ShowTestHistoryAction_NoHistory) {};
+                action.setEnabled(false);
+                addAction(action);
+                return menu;
+            }
+
+            for (ResultArchive.Run run: runs) {
+                addAction(new ShowRunAction(resultArchive, run));
+            }
+            addSeparator();
+            IAction compareAction = new CompareLastTwoRunsAction(resultArchive, runs);
+            compareAction.setEnabled(runs.size() > 1);
+            addAction(compareAction);
+
+            return menu;
+        }
+
+        @Override
+        public Menu getMenu(Menu parent) {
+            return null;
+        }
+
+        private void addAction(IAction action) {
+            new ActionContributionItem(action).fill(menu, -1);
+        }
+
+        private void addSeparator() {
+            new Separator().fill(menu, -1);
+        }
+    }
+
+    private class ShowRunAction extends Action {
+        private ResultArchive resultArchive;
+        private ResultArchive.Run run;
+
+        public ShowRunAction(ResultArchive resultArchive, ResultArchive.Run run) {
+            super(
+                new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(run.getEndTime()) + //$NON-NLS-1$
+                "  " + //$NON-NLS-1$
+                Messages.MakeGoodView_testsLabel + ": " + run.getTestCount() + //$NON-NLS-1$
+                "  " + //$NON-NLS-1$
+                Messages.MakeGoodView_failuresLabel + ": " + run.getFailureCount() + //$NON-NLS-1$
+                "  " + //$NON-NLS-1$
+                Messages.MakeGoodView_errorsLabel + ": " + run.getErrorCount() //$NON-NLS-1$
+            );
+            this.resultArchive = resultArchive;
+            this.run = run;
+        }
+
+        @Override
+        public void run() {
+            if (resultView == null) return;
+
+            Job job = new Job("MakeGood Read Test History") { //$NON-NLS-1$
+                @Override
+                protected IStatus run(IProgressMonitor monitor) {
+                    final TestSuiteResult result = read(resultArchive, run);
+                    if (result == null) return Status.OK_STATUS;
+
+                    new UIJob("MakeGood Test History Shown") { //$NON-NLS-1$
+                        @Override
+                        public IStatus runInUIThread(IProgressMonitor monitor) {
+                            resultView.showArchivedResult(run, result);
+                            return Status.OK_STATUS;
+                        }
+                    }.schedule();
+                    return Status.OK_STATUS;
+                }
+            };
+            job.setSystem(true);
+            job.schedule();
+        }
+    }
+
+    private class CompareLastTwoRunsAction extends Action {
+        private ResultArchive resultArchive;
+        private List<ResultArchive.Run> runs;
+
+        public CompareLastTwoRunsAction(ResultArchive resultArchive, List<ResultArchive.Run> runs) {
+            super(Messages.MakeGoodView_ShowTestHistoryAction_CompareLastTwoRunsAction);
+            this.resultArchive = resultArchive;
+            this.runs = runs;
+        }
+
+        @Override
+        public void run() {
+            Job job = new Job("MakeGood Compare Test History") { //$NON-NLS-1$
+                @Override
+                protected IStatus run(IProgressMonitor monitor) {
+                    final String changes = compare();
+                    if (changes == null) return Status.OK_STATUS;
+
+                    new UIJob("MakeGood Test History Compared") { //$NON-NLS-1$
+                        @Override
+                        public IStatus runInUIThread(IProgressMonitor monitor) {
+                            new ChangesDialog(resultView == null ? null : resultView.getSite().getShell(), changes).open();
+                            return Status.OK_STATUS;
+                        }
+                    }.schedule();
+                    return Status.OK_STATUS;
+                }
+            };
+            job.setSystem(true);
+            job.schedule();
+        }
+
+        /**
+         * Returns the changes of the result types between the last two runs,
+         * or null if either run cannot be read.
+         */
+        private String compare() {
+            TestSuiteResult newResult = read(resultArchive, runs.get(0));
+            TestSuiteResult oldResult = read(resultArchive, runs.get(1));
+            if (newResult == null || oldResult == null) return null;
+
+            StringBuilder message = new StringBuilder();
+            for (ResultDiff.Change change: new ResultDiff(oldResult, newResult).getChanges()) {
+                message.append(change.getTestCase().getClassName());
+                message.append("::"); //$NON-NLS-1$
+                message.append(change.getTestCase().getName());
+                message.append(": "); //$NON-NLS-1$
+                message.append(format(change.getOldResultType()));
+                message.append(" -> "); //$NON-NLS-1$
+                message.append(format(change.getNewResultType()));
+                message.append("\n"); //$NON-NLS-1$
+            }
+            if (message.length() == 0) {
+                message.append(Messages.MakeGoodView_ShowTestHistoryAction_NoChanges);
+            }
+
+            return message.toString();
+        }
+
+        private String format(ResultType resultType) {
+            return resultType == null ? "-" : resultType.name(); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Shows the changes between the last two runs in a scrollable text, since
+     * there may be too many changes for a message dialog.
+     */
+    private static class ChangesDialog extends Dialog {
+        private String changes;
+
+        public ChangesDialog(Shell parentShell, String changes) {
+            super(parentShell);
+            this.changes = changes;
+        }
+
+        @Override
+        protected void configureShell(Shell shell) {
+            super.configureShell(shell);
+            shell.setText(Messages.MakeGoodView_ShowTestHistoryAction_CompareLastTwoRunsAction);
+        }
+
+        @Override
+        protected boolean isResizable() {
+            return true;
+        }
+
+        @Override
+        protected Control createDialogArea(Composite parent) {
+            Composite composite = (Composite) super.createDialogArea(parent);
+            Text text = new Text(composite, SWT.MULTI | SWT.READ_ONLY | SWT.BORDER | SWT.V_SCROLL | SWT.H_SCROLL);
+            text.setText(changes);
+            GridData layoutData = new GridData(GridData.FILL_BOTH);
+            layoutData.widthHint = convertWidthInCharsToPixels(100);
+            layoutData.heightHint = convertHeightInCharsToPixels(20);
+            text.setLayoutData(layoutData);
+            return composite;
+        }
+
+        @Override
+        protected void createButtonsForButtonBar(Composite parent) {
+            createButton(parent, IDialogConstants.OK_ID, IDialogConstants.OK_LABEL, true);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.ui.launch;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.IType;
+
+import com.piece_framework.makegood.core.PHPSourceModule;
+import com.piece_framework.makegood.core.TestingFramework;
+import com.piece_framework.makegood.core.preference.MakeGoodProperties;
+
+/**
+ * A reverse dependency index which maps a changed file to the test files
+ * affected by it. The test files which refer to the classes in the changed
+ * file are searched once and cached until the file or any test file is
+ * changed.
+ *
+ * @since 3.2.0
+ */
+public class AffectedTestsIndex {
+    private Map<IResource, Set<IResource>> affectedTests = new HashMap<IResource, Set<IResource>>();
+
+    /**
+     * Removes the entries which may be changed by the given files. All entries
+     * are removed if a test file is changed since its references are unknown.
+     * A removed file is also removed from the test files of all entries.
+     */
+    public synchronized void invalidate(Collection<IFile> changedFiles) {
+        for (IFile changedFile: changedFiles) {
+            affectedTests.remove(changedFile);
+            if (!changedFile.exists()) {
+                for (Set<IResource> testFiles: affectedTests.values()) {
+                    testFiles.remove(changedFile);
+                }
+                continue;
+            }
+            if (isTestFile(changedFile)) {
+                affectedTests.clear();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the test files affected by the given files. A test file is
+     * affected by itself. The test files which have been removed since they
+     * were cached are dropped from the index.
+     */
+    public synchronized Set<IResource> find(Collection<IFile> changedFiles) throws CoreException {
+        Set<IResource> testFiles = new LinkedHashSet<IResource>();
+        for (IFile changedFile: changedFiles) {
+            Set<IResource> testFilesForChangedFile = affectedTests.get(changedFile);
+            if (testFilesForChangedFile == null) {
+                testFilesForChangedFile = search(changedFile);
+                affectedTests.put(changedFile, testFilesForChangedFile);
+            }
+            for (Iterator<IResource> iterator = testFilesForChangedFile.iterator(); iterator.hasNext();) {
+                IResource testFile = iterator.next();
+                if (testFile.exists()) {
+                    testFiles.add(testFile);
+                } else {
+                    iterator.remove();
+                }
+            }
+        }
+
+        return testFiles;
+    }
+
+    private Set<IResource> search(IFile changedFile) throws CoreException {
+        Set<IResource> testFiles = new LinkedHashSet<IResource>();
+        ISourceModule sourceModule = createSourceModule(changedFile);
+        if (sourceModule == null) return testFiles;
+
+        TestingFramework testingFramework = new MakeGoodProperties(changedFile).getTestingFramework();
+        if (new PHPSourceModule(sourceModule, testingFramework).hasRunnableTestTypes()) {
+            testFiles.add(changedFile);
+        }
+
+        IType[] types = sourceModule.getTypes();
+        if (types.length > 0) {
+            testFiles.addAll(new RelatedTestSearch().search(Arrays.asList(types), testingFramework));
+        }
+
+        return testFiles;
+    }
+
+    private boolean isTestFile(IFile file) {
+        ISourceModule sourceModule = createSourceModule(file);
+        if (sourceModule == null) return false;
+        try {
+            return new PHPSourceModule(sourceModule, new MakeGoodProperties(file).getTestingFramework()).hasRunnableTestTypes();
+        } catch (CoreException e) {
+            return true;
+        }
+    }
+
+    private ISourceModule createSourceModule(IFile file) {
+        if (!file.exists()) return null;
+        IModelElement element = DLTKCore.create(file);
+        if (!(element instanceof ISourceModule)) return null;
+        return (ISourceModule) element;
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.ui.launch;
+
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.StructuredSelection;
+import org.eclipse.ui.IEditorPart;
+
+import com.piece_framework.makegood.launch.TestLifecycle;
+import com.piece_framework.makegood.ui.Activator;
+import com.piece_framework.makegood.ui.MakeGoodContext;
+import com.piece_framework.makegood.ui.MakeGoodStatus;
+
+/**
+ * Runs the tests affected by the changed files.
+ *
+ * @since 3.2.0
+ */
+public class AffectedTestsLaunchShortcut extends MakeGoodLaunchShortcut {
+    private List<IFile> changedFiles;
+    private AffectedTestsIndex affectedTestsIndex;
+
+    public AffectedTestsLaunchShortcut(List<IFile> changedFiles, AffectedTestsIndex affectedTestsIndex) {
+        this.changedFiles = changedFiles;
+        this.affectedTestsIndex = affectedTestsIndex;
+    }
+
+    @SuppressWarnings("restriction")
+    @Override
+    public void launch(ISelection selection, String mode) {
+        addAffectedTestsAsTestTargets();
+
+        IResource mainScriptResource = TestLifecycle.getInstance().getTestTargets().getMainScriptResource();
+        if (mainScriptResource == null) throw new TestLaunchException();
+
+        super.launch(new StructuredSelection(mainScriptResource), mode);
+    }
+
+    @SuppressWarnings("restriction")
+    @Override
+    public void launch(IEditorPart editor, String mode) {
+        launch(new StructuredSelection(changedFiles), mode);
+    }
+
+    private void addAffectedTestsAsTestTargets() {
+        try {
+            for (IResource testFile: affectedTestsIndex.find(changedFiles)) {
+                addTestTarget(testFile);
+            }
+        } catch (CoreException e) {
+            Activator.getDefault().getLog().log(new Status(Status.ERROR, Activator.PLUGIN_ID, e.getMessage(), e));
+            throw new TestLaunchException();
+        }
+
+        if (TestLifecycle.getInstance().getTestTargets().getCount() == 0) {
+            MakeGoodContext.getInstance().updateStatus(MakeGoodStatus.RelatedTestsNotFound);
+            throw new TestLaunchException();
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /**
  * Copyright (c) 2010 MATSUFUJI Hideharu <matsufuji2008@gmail.com>,
- *               2010-2013 KUBO Atsuhiro <kubo@iteman.jp>,
+ *               2010-2014 KUBO Atsuhiro <kubo@iteman.jp>,
  * All rights reserved.
  *
  * This file is part of MakeGood.
@@ -12,19 +12,43 @@
 
 package com.piece_framework.makegood.ui.launch;
 
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.dltk.core.DLTKCore;
 import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.jface.operation.IRunnableWithProgress;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.StructuredSelection;
 import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.IFileEditorInput;
+import org.eclipse.ui.PlatformUI;
 
+import com.piece_framework.makegood.core.PHPSourceModule;
 import com.piece_framework.makegood.core.Resource;
+import com.piece_framework.makegood.core.preference.MakeGoodPreference;
 import com.piece_framework.makegood.core.preference.MakeGoodProperties;
+import com.piece_framework.makegood.core.result.TestSuiteResult;
+import com.piece_framework.makegood.core.run.ResultCache;
+import com.piece_framework.makegood.launch.ResultCacheRepository;
+import com.piece_framework.makegood.launch.TestFileDigester;
 import com.piece_framework.makegood.launch.TestLifecycle;
+import com.piece_framework.makegood.ui.Activator;
+import com.piece_framework.makegood.ui.Messages;
 
 @SuppressWarnings("restriction")
 public class AllTestsLaunchShortcut extends MakeGoodLaunchShortcut {
@@ -66,8 +90,125 @@ public class AllTestsLaunchShortcut extends MakeGoodLaunchShortcut {
     }
 
     private void addTestFoldersAsTestTargets(IResource resource) {
+        if (new MakeGoodPreference().getResultCacheEnabled()) {
+            try {
+                if (addUncachedTestFilesAsTestTargets(resource)) return;
+            } catch (CoreException e) {
+                Activator.getDefault().getLog().log(new Status(Status.WARNING, Activator.PLUGIN_ID, e.getMessage(), e));
+            }
+        }
+
         for (IFolder testFolder: new MakeGoodProperties(resource).getTestFolders()) {
             addTestTarget(testFolder);
         }
     }
+
+    /**
+     * Adds the test files in the test folders except those whose classes
+     * have passed with the current digests of the files, and restores the
+     * skipped ones from the result cache. Returns false if no test file is
+     * left or the digests have been canceled, and then all tests are run.
+     *
+     * The digests are computed in a forked thread with a progress monitor,
+     * since they search the dependencies of every test file.
+     *
+     * @since 3.2.0
+     */
+    private boolean addUncachedTestFilesAsTestTargets(IResource resource) throws CoreException {
+        final MakeGoodProperties property = new MakeGoodProperties(resource);
+        final Pattern pattern;
+        try {
+            pattern = Pattern.compile(
+                property.getTestFilePattern().equals("") ? //$NON-NLS-1$
+                    property.getTestingFramework().getTestFilePattern() :
+                    property.getTestFilePattern()
+            );
+        } catch (PatternSyntaxException e) {
+            return false;
+        }
+
+        final TestFileDigester testFileDigester = new TestFileDigester(DLTKCore.create(resource.getProject()));
+        final ResultCache resultCache = new ResultCacheRepository().findByProject(resource.getProject());
+        final Map<String, String> testFileDigests = new HashMap<String, String>();
+        final List<String> cachedFiles = new ArrayList<String>();
+        final List<IResource> uncachedFiles = new ArrayList<IResource>();
+        try {
+            PlatformUI.getWorkbench().getProgressService().busyCursorWhile(new IRunnableWithProgress() {
+                @Override
+                public void run(IProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+                    try {
+                        List<ISourceModule> testFiles = new ArrayList<ISourceModule>();
+                        for (IFolder testFolder: property.getTestFolders()) {
+                            collectTestFiles(testFolder, pattern, property, testFiles);
+                        }
+
+                        monitor.beginTask(Messages.AllTestsLaunchShortcut_DigestingTestFiles, testFiles.size());
+                        for (ISourceModule testFile: testFiles) {
+                            if (monitor.isCanceled()) throw new InterruptedException();
+
+                            if (testFile.getResource().getLocation() == null) {
+                                uncachedFiles.add(testFile.getResource());
+                            } else {
+                                String file = testFile.getResource().getLocation().toString();
+                                String digest = testFileDigester.digest(testFile);
+                                testFileDigests.put(file, digest);
+                                if (resultCache.isPassed(file, digest)) {
+                                    cachedFiles.add(file);
+                                } else {
+                                    uncachedFiles.add(testFile.getResource());
+                                }
+                            }
+                            monitor.worked(1);
+                        }
+                    } catch (CoreException e) {
+                        throw new InvocationTargetException(e);
+                    } finally {
+                        monitor.done();
+                    }
+                }
+            });
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof CoreException) throw (CoreException) e.getCause();
+            throw new CoreException(new Status(Status.ERROR, Activator.PLUGIN_ID, e.getCause().getMessage(), e.getCause()));
+        } catch (InterruptedException e) {
+            return false;
+        }
+
+        if (uncachedFiles.size() == 0) {
+            TestLifecycle.getInstance().useResultCache(resultCache, testFileDigests, null);
+            return false;
+        }
+
+        for (IResource uncachedFile: uncachedFiles) {
+            addTestTarget(uncachedFile);
+        }
+
+        TestSuiteResult cachedResult = null;
+        if (cachedFiles.size() > 0) {
+            cachedResult = new TestSuiteResult(resource.getProject().getName());
+            resultCache.restore(cachedResult, cachedFiles);
+        }
+        TestLifecycle.getInstance().useResultCache(resultCache, testFileDigests, cachedResult);
+
+        return true;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private void collectTestFiles(IContainer container, Pattern pattern, MakeGoodProperties property, List<ISourceModule> testFiles) throws CoreException {
+        for (IResource member: container.members()) {
+            if (member instanceof IContainer) {
+                collectTestFiles((IContainer) member, pattern, property, testFiles);
+                continue;
+            }
+            if (!new Resource(member).isPHPFile() || !pattern.matcher(member.getName()).find()) continue;
+
+            IModelElement element = DLTKCore.create((IFile) member);
+            if (!(element instanceof ISourceModule)) continue;
+            if (!new PHPSourceModule((ISourceModule) element, property.getTestingFramework()).hasRunnableTestTypes()) continue;
+
+            testFiles.add((ISourceModule) element);
+        }
+    }
 }
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.ui.launch;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.IType;
+import org.eclipse.dltk.core.search.IDLTKSearchConstants;
+import org.eclipse.dltk.core.search.SearchEngine;
+import org.eclipse.dltk.core.search.SearchMatch;
+import org.eclipse.dltk.core.search.SearchParticipant;
+import org.eclipse.dltk.core.search.SearchPattern;
+import org.eclipse.dltk.core.search.SearchRequestor;
+import org.eclipse.php.internal.core.PHPLanguageToolkit;
+import org.eclipse.php.internal.core.typeinference.PHPClassType;
+
+import com.piece_framework.makegood.core.PHPSourceModule;
+import com.piece_framework.makegood.core.PHPType;
+import com.piece_framework.makegood.core.TestingFramework;
+import com.piece_framework.makegood.core.preference.MakeGoodProperties;
+import com.piece_framework.makegood.ui.Activator;
+
+/**
+ * Searches the test files which refer to the given classes.
+ *
+ * @since 3.2.0
+ */
+@SuppressWarnings("restriction")
+class RelatedTestSearch {
+    Set<IResource> search(List<IType> types, TestingFramework testingFramework) throws CoreException {
+        SearchPattern pattern = null;
+        for (IType type: types) {
+            PHPType phpType = new PHPType(type, testingFramework);
+            try {
+                if (!phpType.isClass()) continue;
+            } catch (CoreException e) {
+                Activator.getDefault().getLog().log(new Status(Status.WARNING, Activator.PLUGIN_ID, e.getMessage(), e));
+                continue;
+            }
+
+            SearchPattern patternForType =
+                SearchPattern.createPattern(
+                    PHPClassType.fromIType(type).getTypeName(),
+                    IDLTKSearchConstants.TYPE,
+                    IDLTKSearchConstants.REFERENCES,
+                    SearchPattern.R_FULL_MATCH,
+                    PHPLanguageToolkit.getDefault()
+                );
+            if (pattern == null) {
+                pattern = patternForType;
+            } else {
+                pattern = SearchPattern.createOrPattern(pattern, patternForType);
+            }
+        }
+
+        TestSearchRequestor requestor = new TestSearchRequestor();
+        if (pattern == null) return requestor.testFiles;
+
+        new SearchEngine().search(
+            pattern,
+            new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() },
+            SearchEngine.createSearchScope(types.get(0).getScriptProject()),
+            requestor,
+            null
+        );
+
+        return requestor.testFiles;
+    }
+
+    private class TestSearchRequestor extends SearchRequestor {
+        private Set<IResource> searchMatches = new LinkedHashSet<IResource>();
+        private Set<IResource> testFiles = new LinkedHashSet<IResource>();
+
+        @Override
+        public void acceptSearchMatch(SearchMatch match) throws CoreException {
+            IResource resource = match.getResource();
+            if (resource == null) return;
+            if (searchMatches.contains(resource)) return;
+            searchMatches.add(resource);
+
+            IModelElement element = DLTKCore.create(resource);
+            if (element == null) return;
+            if (!(element instanceof ISourceModule)) return;
+            if (new PHPSourceModule((ISourceModule) element, new MakeGoodProperties(resource).getTestingFramework()).hasRunnableTestTypes() == false) return;
+            testFiles.add(resource);
+        }
+
+        @Override
+        public void endReporting() {
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2014 KUBO Atsuhiro <kubo@iteman.jp>,
+ * All rights reserved.
+ *
+ * This file is part of MakeGood.
+ *
+ * This program and the accompanying materials are made available under
+ * the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.piece_framework.makegood.ui.launch;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceVisitor;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.IMethod;
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.IType;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.StructuredSelection;
+import org.eclipse.php.internal.core.typeinference.PHPClassType;
+import org.eclipse.ui.IEditorPart;
+
+import com.piece_framework.makegood.core.PHPSourceModule;
+import com.piece_framework.makegood.core.PHPType;
+import com.piece_framework.makegood.core.preference.MakeGoodProperties;
+import com.piece_framework.makegood.core.run.ResumeTargets;
+import com.piece_framework.makegood.launch.ClassTestTarget;
+import com.piece_framework.makegood.launch.TestLifecycle;
+import com.piece_framework.makegood.ui.Activator;
+
+/**
+ * Resumes a run killed by a fatal error with the tests of the last run which
+ * have not been reported. The results are added to the result of the last
+ * run. The classes are looked up by the names qualified with their
+ * namespaces, as they are given to the testrunner.
+ *
+ * @since 3.2.0
+ */
+public class ResumeLaunchShortcut extends MakeGoodLaunchShortcut {
+    private static final String TEST_METHOD_PREFIX = "test"; //$NON-NLS-1$
+
+    private List<Object> lastTestTargets;
+    private ResumeTargets resumeTargets;
+    private Set<IModelElement> addedElements = new HashSet<IModelElement>();
+
+    public ResumeLaunchShortcut(List<Object> lastTestTargets, ResumeTargets resumeTargets) {
+        this.lastTestTargets = lastTestTargets;
+        this.resumeTargets = resumeTargets;
+    }
+
+    @SuppressWarnings("restriction")
+    @Override
+    public void launch(ISelection selection, String mode) {
+        try {
+            addRemainingTestsAsTestTargets();
+        } catch (CoreException e) {
+            Activator.getDefault().getLog().log(new Status(Status.ERROR, Activator.PLUGIN_ID, e.getMessage(), e));
+            throw new TestLaunchException();
+        }
+        if (TestLifecycle.getInstance().getTestTargets().getCount() == 0) throw new TestLaunchException();
+
+        IResource mainScriptResource = TestLifecycle.getInstance().getTestTargets().getMainScriptResource();
+        if (mainScriptResource == null) throw new TestLaunchException();
+
+        TestLifecycle.getInstance().resume(resumeTargets);
+        super.launch(new StructuredSelection(mainScriptResource), mode);
+    }
+
+    @SuppressWarnings("restriction")
+    @Override
+    public void launch(IEditorPart editor, String mode) {
+        launch(new StructuredSelection(lastTestTargets), mode);
+    }
+
+    private void addRemainingTestsAsTestTargets() throws CoreException {
+        for (Object testTarget: lastTestTargets) {
+            if (testTarget instanceof IMethod) {
+                IMethod method = (IMethod) testTarget;
+                if (isAdded(method)) continue;
+                if (resumeTargets.isReported(getClassName(method.getDeclaringType()), method.getElementName())) continue;
+                addTestTarget(method);
+            } else if (testTarget instanceof IType) {
+                addRemainingTests((IType) testTarget);
+            } else if (testTarget instanceof ClassTestTarget) {
+                addRemainingTests(((ClassTestTarget) testTarget).getType());
+            } else if (testTarget instanceof ISourceModule) {
+                addRemainingTests((ISourceModule) testTarget);
+            } else if (testTarget instanceof IModelElement) {
+                addRemainingTests(((IModelElement) testTarget).getResource());
+            } else if (testTarget instanceof IResource) {
+                addRemainingTests((IResource) testTarget);
+            }
+        }
+    }
+
+    private void addRemainingTests(IResource resource) throws CoreException {
+        if (resource == null) return;
+
+        final List<ISourceModule> sourceModules = new ArrayList<ISourceModule>();
+        resource.accept(new IResourceVisitor() {
+            @Override
+            public boolean visit(IResource resource) throws CoreException {
+                if (!(resource instanceof IFile)) return true;
+
+                IModelElement element = DLTKCore.create((IFile) resource);
+                if (!(element instanceof ISourceModule)) return false;
+                if (!new PHPSourceModule((ISourceModule) element, new MakeGoodProperties(resource).getTestingFramework()).hasRunnableTestTypes()) return false;
+
+                sourceModules.add((ISourceModule) element);
+                return false;
+            }
+        });
+
+        for (ISourceModule sourceModule: sourceModules) {
+            addRemainingTests(sourceModule);
+        }
+    }
+
+    private void addRemainingTests(ISourceModule sourceModule) throws CoreException {
+        if (!addedElements.add(sourceModule)) return;
+
+        List<IType> types = new ArrayList<IType>();
+        for (IType type: sourceModule.getAllTypes()) {
+            if (new PHPType(type, null).isNamespace()) continue;
+            types.add(type);
+        }
+        boolean isReported = false;
+        for (IType type: types) {
+            if (resumeTargets.isReported(getClassName(type))) {
+                isReported = true;
+                break;
+            }
+        }
+        if (!isReported) {
+            addTestTarget(sourceModule);
+            return;
+        }
+
+        for (IType type: types) {
+            if (!addedElements.add(type)) continue;
+            addRemainingTestsInType(type);
+        }
+    }
+
+    private void addRemainingTests(IType type) throws CoreException {
+        if (isAdded(type)) return;
+        addedElements.add(type);
+        if (new PHPType(type, null).isNamespace()) {
+            for (IType child: type.getTypes()) {
+                if (!addedElements.add(child)) continue;
+                addRemainingTestsInType(child);
+            }
+            return;
+        }
+        addRemainingTestsInType(type);
+    }
+
+    private void addRemainingTestsInType(IType type) throws CoreException {
+        String className = getClassName(type);
+        if (!resumeTargets.isReported(className)) {
+            addTestTarget(type);
+            return;
+        }
+
+        for (IMethod method: type.getMethods()) {
+            if (!method.getElementName().startsWith(TEST_METHOD_PREFIX)) continue;
+            if (resumeTargets.isReported(className, method.getElementName())) continue;
+            addTestTarget(method);
+        }
+    }
+
+    @SuppressWarnings("restriction")
+    private String getClassName(IType type) {
+        return PHPClassType.fromIType(type).getTypeName();
+    }
+
+    /**
+     * Returns whether the given element or any of its ancestors has been
+     * added as a test target.
+     */
+    private boolean isAdded(IModelElement element) {
+        for (IModelElement ancestor = element; ancestor != null; ancestor = ancestor.getParent()) {
+            if (addedElements.contains(ancestor)) return true;
+        }
+
+        return false;
+    }
+}
@@ -1,6 +1,6 @@
 /**
  * Copyright (c) 2010 MATSUFUJI Hideharu <matsufuji2008@gmail.com>,
- *               2010-2013 KUBO Atsuhiro <kubo@iteman.jp>,
+ *               2010-2014 KUBO Atsuhiro <kubo@iteman.jp>,
  * All rights reserved.
  *
  * This file is part of MakeGood.
@@ -12,19 +12,26 @@
 
 package com.piece_framework.makegood.ui.launch;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.debug.core.ILaunchManager;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.StructuredSelection;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.IWorkbenchPart;
 
+import com.piece_framework.makegood.core.run.ResumeTargets;
 import com.piece_framework.makegood.launch.PHPexeItemRepository;
 import com.piece_framework.makegood.launch.TestLifecycle;
 import com.piece_framework.makegood.ui.ActivePart;
 import com.piece_framework.makegood.ui.MakeGoodContext;
 import com.piece_framework.makegood.ui.Messages;
+import com.piece_framework.makegood.ui.actions.StopTestRunAction;
 import com.piece_framework.makegood.ui.views.ViewOpener;
 
 public class TestRunner {
@@ -37,11 +44,21 @@ public class TestRunner {
      */
     private boolean isTestRunByContinuousTestRunner = false;
 
+    /**
+     * @since 3.2.0
+     */
+    private boolean isLastTestRunByContinuousTestRunner = false;
+
     /**
      * @since 1.6.0
      */
     private PHPexeItemRepository phpexeItemRepository = new PHPexeItemRepository();
 
+    /**
+     * @since 3.2.0
+     */
+    private AffectedTestsIndex affectedTestsIndex = new AffectedTestsIndex();
+
     public void runRelatedTests(IEditorPart editorPart) {
         runTests(editorPart, new RelatedTestsLaunchShortcut());
     }
@@ -114,6 +131,55 @@ public class TestRunner {
         isTestRunByContinuousTestRunner = false;
     }
 
+    /**
+     * @since 3.2.0
+     */
+    public void runAffectedTestsByContinuousTestRunner(List<IFile> changedFiles) {
+        affectedTestsIndex.invalidate(changedFiles);
+        isTestRunByContinuousTestRunner = true;
+        runTests(new StructuredSelection(changedFiles), new AffectedTestsLaunchShortcut(changedFiles, affectedTestsIndex));
+        isTestRunByContinuousTestRunner = false;
+    }
+
+    /**
+     * Removes the entries of the affected tests index which may be changed by
+     * the given files.
+     *
+     * @since 3.2.0
+     */
+    public void invalidateAffectedTests(List<IFile> changedFiles) {
+        affectedTestsIndex.invalidate(changedFiles);
+    }
+
+    /**
+     * Resumes the last test run, which has been killed by a fatal error, with
+     * the tests which have not been reported.
+     *
+     * @since 3.2.0
+     */
+    public void resumeLastTest(ResumeTargets resumeTargets) {
+        List<Object> lastTestTargets = new ArrayList<Object>(TestLifecycle.getInstance().getTestTargets().getAll());
+        isTestRunByContinuousTestRunner = isLastTestRunByContinuousTestRunner;
+        runTests(new StructuredSelection(lastTestTargets), new ResumeLaunchShortcut(lastTestTargets, resumeTargets));
+        isTestRunByContinuousTestRunner = false;
+    }
+
+    /**
+     * Stops the running tests if they have been started by the continuous test
+     * runner. Returns false if there are no such tests.
+     *
+     * @since 3.2.0
+     */
+    public boolean stopTestsRunByContinuousTestRunner() {
+        synchronized (TestRunner.class) {
+            if (!TestLifecycle.isRunning()) return false;
+            if (!isLastTestRunByContinuousTestRunner) return false;
+        }
+
+        new StopTestRunAction().run(null);
+        return true;
+    }
+
     public void restoreFocusToLastActivePart() {
         if (lastActivePart != null) {
             ViewOpener.setFocus(lastActivePart);
@@ -131,10 +197,11 @@ public class TestRunner {
                 return;
             }
             TestLifecycle.create();
+            isLastTestRunByContinuousTestRunner = isTestRunByContinuousTestRunner;
         }
 
         if (hasPHPexeItem()) {
-            if (!isTestRunByContinuousTestRunner) {
+            if (!isTestRunByContinuousTestRunner && !(shortcut instanceof ResumeLaunchShortcut)) {
                 if (shortcut instanceof FailedTestsLaunchShortcut) {
                     lastShortcut = ((FailedTestsLaunchShortcut) shortcut).getLastShortcut();
                 } else {
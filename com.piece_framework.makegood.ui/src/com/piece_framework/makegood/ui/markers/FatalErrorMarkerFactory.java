@@ -1,5 +1,5 @@
 /**
- * Copyright (c) 2011 KUBO Atsuhiro <kubo@iteman.jp>,
+ * Copyright (c) 2011, 2014 KUBO Atsuhiro <kubo@iteman.jp>,
  * All rights reserved.
  *
  * This file is part of MakeGood.
@@ -11,36 +11,29 @@
 
 package com.piece_framework.makegood.ui.markers;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 
+import com.piece_framework.makegood.core.run.FatalErrorMessage;
+
 /**
  * @since 1.3.0
  */
 public class FatalErrorMarkerFactory extends MarkerFactory {
     private static final String MARKER_ID = "com.piece_framework.makegood.ui.markers.fatalErrorMarker"; //$NON-NLS-1$
-    private static final Pattern FATAL_ERROR_MESSAGE_PATTERN =
-        Pattern.compile("^((?:Parse|Fatal) error: .+) in (.+?)(?:\\((\\d+)\\) : eval\\(\\)'d code(?:\\(\\d+\\) : eval\\(\\)'d code)*)? on line (\\d+)$", Pattern.MULTILINE); //$NON-NLS-1$
     private String file;
     private int line;
 
     public IMarker create(String fatalErrorMessage) throws CoreException, UnknownFatalErrorMessageException {
-        Matcher matcher = FATAL_ERROR_MESSAGE_PATTERN.matcher(fatalErrorMessage);
-        while (matcher.find()) {
-            file = matcher.group(2);
-            if (matcher.group(3) == null) {
-                line = Integer.valueOf(matcher.group(4));
-            } else {
-                line = Integer.valueOf(matcher.group(3));
-            }
-            return create(MARKER_ID, file, line, matcher.group(1));
+        FatalErrorMessage fatalError = FatalErrorMessage.parse(fatalErrorMessage);
+        if (fatalError == null) {
+            throw new UnknownFatalErrorMessageException(fatalErrorMessage);
         }
 
-        throw new UnknownFatalErrorMessageException(fatalErrorMessage);
+        file = fatalError.getFile();
+        line = fatalError.getLine();
+        return create(MARKER_ID, file, line, fatalError.getMessage());
     }
 
     public void clear(IProject project) throws CoreException {
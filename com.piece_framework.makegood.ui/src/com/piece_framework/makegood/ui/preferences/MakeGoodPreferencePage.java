@@ -1,6 +1,6 @@
 /**
  * Copyright (c) 2010 MATSUFUJI Hideharu <matsufuji2008@gmail.com>,
- *               2011-2013 KUBO Atsuhiro <kubo@iteman.jp>,
+ *               2011-2014 KUBO Atsuhiro <kubo@iteman.jp>,
  * All rights reserved.
  *
  * This file is part of MakeGood.
@@ -18,9 +18,12 @@ import org.eclipse.swt.SWT;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Group;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Spinner;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
 
@@ -29,6 +32,8 @@ import com.piece_framework.makegood.core.DefaultConfiguration;
 import com.piece_framework.makegood.core.TestResultsLayout;
 import com.piece_framework.makegood.core.continuoustesting.Scope;
 import com.piece_framework.makegood.core.preference.MakeGoodPreference;
+import com.piece_framework.makegood.core.run.DurationHistory;
+import com.piece_framework.makegood.ui.MakeGoodContext;
 import com.piece_framework.makegood.ui.Messages;
 
 public class MakeGoodPreferencePage extends PreferencePage implements IWorkbenchPreferencePage {
@@ -52,6 +57,21 @@ public class MakeGoodPreferencePage extends PreferencePage implements IWorkbench
      */
     private Button continuousTestingFailedTestsButton;
 
+    /**
+     * @since 3.2.0
+     */
+    private Button continuousTestingAffectedTestsButton;
+
+    /**
+     * @since 3.2.0
+     */
+    private Spinner continuousTestingDebounceWindowSpinner;
+
+    /**
+     * @since 3.2.0
+     */
+    private Button continuousTestingRestartsRunningTestsButton;
+
     /**
      * @since 2.5.0
      */
@@ -62,6 +82,66 @@ public class MakeGoodPreferencePage extends PreferencePage implements IWorkbench
      */
     private Button testResultsLayoutHorizontalButton;
 
+    /**
+     * @since 3.2.0
+     */
+    private Spinner resultViewRefreshRateSpinner;
+
+    /**
+     * @since 3.2.0
+     */
+    private Spinner failureTraceInlineThresholdSpinner;
+
+    /**
+     * @since 3.2.0
+     */
+    private Button summaryOnlyButton;
+
+    /**
+     * @since 3.2.0
+     */
+    private Spinner summaryOnlySlowestTestCountSpinner;
+
+    /**
+     * @since 3.2.0
+     */
+    private Button resumeAfterFatalErrorButton;
+
+    /**
+     * @since 3.2.0
+     */
+    private Spinner hangTimeLimitSpinner;
+
+    /**
+     * @since 3.2.0
+     */
+    private Button hangTimeLimitFromHistoryButton;
+
+    /**
+     * @since 3.2.0
+     */
+    private Button resultCacheEnabledButton;
+
+    /**
+     * The orders of {@link DurationHistory} in the order of the items of the
+     * combo.
+     *
+     * @since 3.2.0
+     */
+    private static final int[] TEST_ORDERS = {
+        DurationHistory.UNORDERED, DurationHistory.SLOWEST_FIRST, DurationHistory.FASTEST_FIRST
+    };
+
+    /**
+     * @since 3.2.0
+     */
+    private Combo testOrderCombo;
+
+    /**
+     * @since 3.2.0
+     */
+    private Button pullResultReaderEnabledButton;
+
     @Override
     public void init(IWorkbench workbench) {
     }
@@ -74,6 +154,7 @@ public class MakeGoodPreferencePage extends PreferencePage implements IWorkbench
         Composite contents = createComposite(parent);
         createContinuousTestingGroup(contents);
         createTestResultsLayoutGroup(contents);
+        createResultViewGroup(contents);
 
         return contents;
     }
@@ -98,10 +179,24 @@ public class MakeGoodPreferencePage extends PreferencePage implements IWorkbench
         continuousTestingScopeAllTestsButton.setSelection(defaultConfiguration.getContinuousTesting().getScope() == Scope.ALL_TESTS);
         continuousTestingScopeLastTestButton.setSelection(defaultConfiguration.getContinuousTesting().getScope() == Scope.LAST_TEST);
         continuousTestingFailedTestsButton.setSelection(defaultConfiguration.getContinuousTesting().getScope() == Scope.FAILED_TESTS);
+        continuousTestingAffectedTestsButton.setSelection(defaultConfiguration.getContinuousTesting().getScope() == Scope.AFFECTED_TESTS);
+        continuousTestingDebounceWindowSpinner.setSelection(defaultConfiguration.getContinuousTesting().getDebounceWindow());
+        continuousTestingRestartsRunningTestsButton.setSelection(defaultConfiguration.getContinuousTesting().restartsRunningTests());
 
         testResultsLayoutTabButton.setSelection(defaultConfiguration.getTestResultsLayout() == TestResultsLayout.TAB);
         testResultsLayoutHorizontalButton.setSelection(defaultConfiguration.getTestResultsLayout() == TestResultsLayout.HORIZONTAL);
 
+        resultViewRefreshRateSpinner.setSelection(defaultConfiguration.getResultViewRefreshRate());
+        failureTraceInlineThresholdSpinner.setSelection(defaultConfiguration.getFailureTraceInlineThreshold());
+        summaryOnlyButton.setSelection(defaultConfiguration.isSummaryOnly());
+        summaryOnlySlowestTestCountSpinner.setSelection(defaultConfiguration.getSummaryOnlySlowestTestCount());
+        resumeAfterFatalErrorButton.setSelection(defaultConfiguration.isResumeAfterFatalError());
+        hangTimeLimitSpinner.setSelection(defaultConfiguration.getHangTimeLimit());
+        hangTimeLimitFromHistoryButton.setSelection(defaultConfiguration.isHangTimeLimitFromHistory());
+        resultCacheEnabledButton.setSelection(defaultConfiguration.isResultCacheEnabled());
+        selectTestOrder(testOrderCombo, defaultConfiguration.getTestOrder());
+        pullResultReaderEnabledButton.setSelection(defaultConfiguration.isPullResultReaderEnabled());
+
         super.performDefaults();
     }
 
@@ -120,7 +215,13 @@ public class MakeGoodPreferencePage extends PreferencePage implements IWorkbench
             preference.setContinuousTestingScope(Scope.LAST_TEST);
         } else if (continuousTestingFailedTestsButton.getSelection()) {
             preference.setContinuousTestingScope(Scope.FAILED_TESTS);
+        } else if (continuousTestingAffectedTestsButton.getSelection()) {
+            preference.setContinuousTestingScope(Scope.AFFECTED_TESTS);
         }
+        preference.setContinuousTestingDebounceWindow(continuousTestingDebounceWindowSpinner.getSelection());
+        preference.setContinuousTestingRestartsRunningTests(continuousTestingRestartsRunningTestsButton.getSelection());
+        MakeGoodContext.getInstance().getContinuousTesting().setDebounceWindow(continuousTestingDebounceWindowSpinner.getSelection());
+        MakeGoodContext.getInstance().getContinuousTesting().setRestartsRunningTests(continuousTestingRestartsRunningTestsButton.getSelection());
 
         if (testResultsLayoutTabButton.getSelection()) {
             preference.setTestResultsLayout(TestResultsLayout.TAB);
@@ -128,6 +229,17 @@ public class MakeGoodPreferencePage extends PreferencePage implements IWorkbench
             preference.setTestResultsLayout(TestResultsLayout.HORIZONTAL);
         }
 
+        preference.setResultViewRefreshRate(resultViewRefreshRateSpinner.getSelection());
+        preference.setFailureTraceInlineThreshold(failureTraceInlineThresholdSpinner.getSelection());
+        preference.setSummaryOnly(summaryOnlyButton.getSelection());
+        preference.setSummaryOnlySlowestTestCount(summaryOnlySlowestTestCountSpinner.getSelection());
+        preference.setResumeAfterFatalError(resumeAfterFatalErrorButton.getSelection());
+        preference.setHangTimeLimit(hangTimeLimitSpinner.getSelection());
+        preference.setHangTimeLimitFromHistory(hangTimeLimitFromHistoryButton.getSelection());
+        preference.setResultCacheEnabled(resultCacheEnabledButton.getSelection());
+        preference.setTestOrder(TEST_ORDERS[Math.max(0, testOrderCombo.getSelectionIndex())]);
+        preference.setPullResultReaderEnabled(pullResultReaderEnabledButton.getSelection());
+
         return true;
     }
 
@@ -162,6 +274,18 @@ public class MakeGoodPreferencePage extends PreferencePage implements IWorkbench
         continuousTestingScopeLastTestButton.setLayoutData(createIndentedLayoutData());
         continuousTestingFailedTestsButton = createContinuousTestingScopeFailedTestsButton(continuousTestingGroup);
         continuousTestingFailedTestsButton.setLayoutData(createIndentedLayoutData());
+        continuousTestingAffectedTestsButton = createContinuousTestingScopeAffectedTestsButton(continuousTestingGroup);
+        continuousTestingAffectedTestsButton.setLayoutData(createIndentedLayoutData());
+
+        Composite continuousTestingDebounceWindowComposite = new Composite(continuousTestingGroup, SWT.NONE);
+        GridLayout continuousTestingDebounceWindowLayout = new GridLayout(2, false);
+        continuousTestingDebounceWindowLayout.marginWidth = 0;
+        continuousTestingDebounceWindowLayout.marginHeight = 0;
+        continuousTestingDebounceWindowComposite.setLayout(continuousTestingDebounceWindowLayout);
+        Label continuousTestingDebounceWindowLabel = new Label(continuousTestingDebounceWindowComposite, SWT.NONE);
+        continuousTestingDebounceWindowLabel.setText(Messages.MakeGoodPreferencePage_continuousTestingDebounceWindowLabel);
+        continuousTestingDebounceWindowSpinner = createContinuousTestingDebounceWindowSpinner(continuousTestingDebounceWindowComposite);
+        continuousTestingRestartsRunningTestsButton = createContinuousTestingRestartsRunningTestsButton(continuousTestingGroup);
 
         return continuousTestingGroup;
     }
@@ -210,6 +334,41 @@ public class MakeGoodPreferencePage extends PreferencePage implements IWorkbench
         return button;
     }
 
+    /**
+     * @since 3.2.0
+     */
+    private Button createContinuousTestingScopeAffectedTestsButton(Composite parent) {
+        Button button = new Button(parent, SWT.RADIO);
+        button.setText(Messages.MakeGoodPreferencePage_continuousTestingScopeAffectedTestsLabel);
+        button.setSelection(new MakeGoodPreference().getContinuousTestingScope() == Scope.AFFECTED_TESTS);
+
+        return button;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private Spinner createContinuousTestingDebounceWindowSpinner(Composite parent) {
+        Spinner spinner = new Spinner(parent, SWT.BORDER);
+        spinner.setMinimum(0);
+        spinner.setMaximum(10000);
+        spinner.setIncrement(100);
+        spinner.setSelection(new MakeGoodPreference().getContinuousTestingDebounceWindow());
+
+        return spinner;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private Button createContinuousTestingRestartsRunningTestsButton(Composite parent) {
+        Button button = new Button(parent, SWT.CHECK);
+        button.setText(Messages.MakeGoodPreferencePage_continuousTestingRestartsRunningTestsLabel);
+        button.setSelection(new MakeGoodPreference().getContinuousTestingRestartsRunningTests());
+
+        return button;
+    }
+
     /**
      * @since 2.3.0
      */
@@ -256,4 +415,186 @@ public class MakeGoodPreferencePage extends PreferencePage implements IWorkbench
 
         return button;
     }
+
+    /**
+     * @since 3.2.0
+     */
+    private Group createResultViewGroup(Composite parent) {
+        Group resultViewGroup = new Group(parent, SWT.LEFT);
+        resultViewGroup.setLayout(new GridLayout(2, false));
+        resultViewGroup.setLayoutData(new GridData(GridData.HORIZONTAL_ALIGN_FILL | GridData.GRAB_HORIZONTAL));
+        resultViewGroup.setText(Messages.MakeGoodPreferencePage_resultViewGroupLabel);
+
+        Label resultViewRefreshRateLabel = new Label(resultViewGroup, SWT.NONE);
+        resultViewRefreshRateLabel.setText(Messages.MakeGoodPreferencePage_resultViewRefreshRateLabel);
+        resultViewRefreshRateSpinner = createResultViewRefreshRateSpinner(resultViewGroup);
+
+        Label failureTraceInlineThresholdLabel = new Label(resultViewGroup, SWT.NONE);
+        failureTraceInlineThresholdLabel.setText(Messages.MakeGoodPreferencePage_failureTraceInlineThresholdLabel);
+        failureTraceInlineThresholdSpinner = createFailureTraceInlineThresholdSpinner(resultViewGroup);
+
+        summaryOnlyButton = createSummaryOnlyButton(resultViewGroup);
+        Label summaryOnlySlowestTestCountLabel = new Label(resultViewGroup, SWT.NONE);
+        summaryOnlySlowestTestCountLabel.setText(Messages.MakeGoodPreferencePage_summaryOnlySlowestTestCountLabel);
+        summaryOnlySlowestTestCountLabel.setLayoutData(createIndentedLayoutData());
+        summaryOnlySlowestTestCountSpinner = createSummaryOnlySlowestTestCountSpinner(resultViewGroup);
+        resumeAfterFatalErrorButton = createResumeAfterFatalErrorButton(resultViewGroup);
+
+        Label hangTimeLimitLabel = new Label(resultViewGroup, SWT.NONE);
+        hangTimeLimitLabel.setText(Messages.MakeGoodPreferencePage_hangTimeLimitLabel);
+        hangTimeLimitSpinner = createHangTimeLimitSpinner(resultViewGroup);
+        hangTimeLimitFromHistoryButton = createHangTimeLimitFromHistoryButton(resultViewGroup);
+        resultCacheEnabledButton = createResultCacheEnabledButton(resultViewGroup);
+
+        Label testOrderLabel = new Label(resultViewGroup, SWT.NONE);
+        testOrderLabel.setText(Messages.MakeGoodPreferencePage_testOrderLabel);
+        testOrderCombo = createTestOrderCombo(resultViewGroup);
+        pullResultReaderEnabledButton = createPullResultReaderEnabledButton(resultViewGroup);
+
+        return resultViewGroup;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private Spinner createResultViewRefreshRateSpinner(Composite parent) {
+        Spinner spinner = new Spinner(parent, SWT.BORDER);
+        spinner.setMinimum(1);
+        spinner.setMaximum(60);
+        spinner.setSelection(new MakeGoodPreference().getResultViewRefreshRate());
+
+        return spinner;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private Spinner createFailureTraceInlineThresholdSpinner(Composite parent) {
+        Spinner spinner = new Spinner(parent, SWT.BORDER);
+        spinner.setMinimum(0);
+        spinner.setMaximum(102400);
+        spinner.setIncrement(16);
+        spinner.setSelection(new MakeGoodPreference().getFailureTraceInlineThreshold());
+
+        return spinner;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private Button createSummaryOnlyButton(Composite parent) {
+        Button button = new Button(parent, SWT.CHECK);
+        button.setText(Messages.MakeGoodPreferencePage_summaryOnlyLabel);
+        button.setSelection(new MakeGoodPreference().getSummaryOnly());
+        GridData layoutData = new GridData();
+        layoutData.horizontalSpan = 2;
+        button.setLayoutData(layoutData);
+
+        return button;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private Spinner createSummaryOnlySlowestTestCountSpinner(Composite parent) {
+        Spinner spinner = new Spinner(parent, SWT.BORDER);
+        spinner.setMinimum(0);
+        spinner.setMaximum(10000);
+        spinner.setSelection(new MakeGoodPreference().getSummaryOnlySlowestTestCount());
+
+        return spinner;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private Button createResumeAfterFatalErrorButton(Composite parent) {
+        Button button = new Button(parent, SWT.CHECK);
+        button.setText(Messages.MakeGoodPreferencePage_resumeAfterFatalErrorLabel);
+        button.setSelection(new MakeGoodPreference().getResumeAfterFatalError());
+        GridData layoutData = new GridData();
+        layoutData.horizontalSpan = 2;
+        button.setLayoutData(layoutData);
+
+        return button;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private Spinner createHangTimeLimitSpinner(Composite parent) {
+        Spinner spinner = new Spinner(parent, SWT.BORDER);
+        spinner.setMinimum(0);
+        spinner.setMaximum(86400);
+        spinner.setSelection(new MakeGoodPreference().getHangTimeLimit());
+
+        return spinner;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private Button createHangTimeLimitFromHistoryButton(Composite parent) {
+        Button button = new Button(parent, SWT.CHECK);
+        button.setText(Messages.MakeGoodPreferencePage_hangTimeLimitFromHistoryLabel);
+        button.setSelection(new MakeGoodPreference().getHangTimeLimitFromHistory());
+        GridData layoutData = createIndentedLayoutData();
+        layoutData.horizontalSpan = 2;
+        button.setLayoutData(layoutData);
+
+        return button;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private Button createResultCacheEnabledButton(Composite parent) {
+        Button button = new Button(parent, SWT.CHECK);
+        button.setText(Messages.MakeGoodPreferencePage_resultCacheEnabledLabel);
+        button.setSelection(new MakeGoodPreference().getResultCacheEnabled());
+        GridData layoutData = new GridData();
+        layoutData.horizontalSpan = 2;
+        button.setLayoutData(layoutData);
+
+        return button;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private Combo createTestOrderCombo(Composite parent) {
+        Combo combo = new Combo(parent, SWT.READ_ONLY);
+        combo.add(Messages.MakeGoodPreferencePage_testOrderUnorderedLabel);
+        combo.add(Messages.MakeGoodPreferencePage_testOrderSlowestFirstLabel);
+        combo.add(Messages.MakeGoodPreferencePage_testOrderFastestFirstLabel);
+        selectTestOrder(combo, new MakeGoodPreference().getTestOrder());
+
+        return combo;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private Button createPullResultReaderEnabledButton(Composite parent) {
+        Button button = new Button(parent, SWT.CHECK);
+        button.setText(Messages.MakeGoodPreferencePage_pullResultReaderEnabledLabel);
+        button.setSelection(new MakeGoodPreference().getPullResultReaderEnabled());
+        GridData layoutData = new GridData();
+        layoutData.horizontalSpan = 2;
+        button.setLayoutData(layoutData);
+
+        return button;
+    }
+
+    /**
+     * @since 3.2.0
+     */
+    private void selectTestOrder(Combo combo, int testOrder) {
+        combo.select(0);
+        for (int i = 0; i < TEST_ORDERS.length; ++i) {
+            if (TEST_ORDERS[i] == testOrder) {
+                combo.select(i);
+            }
+        }
+    }
 }
@@ -42,6 +42,7 @@ import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Group;
 import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Spinner;
 import org.eclipse.swt.widgets.TabFolder;
 import org.eclipse.swt.widgets.TabItem;
 import org.eclipse.swt.widgets.Text;
@@ -89,6 +90,16 @@ public class MakeGoodPropertyPage extends PropertyPage {
      */
     private Text testFilePatternText;
 
+    /**
+     * @since 3.2.0
+     */
+    private Spinner shardCountSpinner;
+
+    /**
+     * @since 3.2.0
+     */
+    private Button resultPipeCheckbox;
+
     @Override
     protected Control createContents(Composite parent) {
         contents = new TabFolder(parent, SWT.NONE);
@@ -161,6 +172,18 @@ public class MakeGoodPropertyPage extends PropertyPage {
         testFilePatternText = new Text(testFilePattern, SWT.SINGLE | SWT.BORDER);
         testFilePatternText.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
 
+        Composite shardCount = new Composite(generalTab, SWT.NONE);
+        shardCount.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+        shardCount.setLayout(new GridLayout(2, false));
+        Label shardCountLabel = new Label(shardCount, SWT.NONE);
+        shardCountLabel.setText(Messages.MakeGoodPropertyPage_shardCountLabel);
+        shardCountSpinner = new Spinner(shardCount, SWT.BORDER);
+        shardCountSpinner.setMinimum(1);
+        shardCountSpinner.setMaximum(64);
+
+        resultPipeCheckbox = new Button(generalTab, SWT.CHECK);
+        resultPipeCheckbox.setText(Messages.MakeGoodPropertyPage_resultPipeLabel);
+
         // PHPUnit
         TabItem phpunitTabItem = new TabItem(contents, SWT.NONE);
         phpunitTabItem.setText(TestingFramework.PHPUnit.name());
@@ -211,6 +234,8 @@ public class MakeGoodPropertyPage extends PropertyPage {
         property.setPreloadScript(preloadScriptText.getText());
         property.setTestFilePattern(testFilePatternText.getText());
         property.setPHPUnitConfigFile(phpunitConfigFileText.getText());
+        property.setShardCount(shardCountSpinner.getSelection());
+        property.setUsesResultPipe(resultPipeCheckbox.getSelection());
         property.flush();
 
         return true;
@@ -274,6 +299,8 @@ public class MakeGoodPropertyPage extends PropertyPage {
         preloadScriptText.setText(property.getPreloadScript());
         testFilePatternText.setText(property.getTestFilePattern());
         phpunitConfigFileText.setText(property.getPHPUnitConfigFile());
+        shardCountSpinner.setSelection(property.getShardCount());
+        resultPipeCheckbox.setSelection(property.usesResultPipe());
     }
 
     /**
@@ -285,6 +312,8 @@ public class MakeGoodPropertyPage extends PropertyPage {
         preloadScriptText.setText(defaultConfiguration.getPreloadScript());
         testFilePatternText.setText(defaultConfiguration.getTestFilePattern());
         phpunitConfigFileText.setText(defaultConfiguration.getPHPUnitConfigFile());
+        shardCountSpinner.setSelection(defaultConfiguration.getShardCount());
+        resultPipeCheckbox.setSelection(defaultConfiguration.usesResultPipe());
     }
 
     /**
@@ -14,8 +14,12 @@ package com.piece_framework.makegood.ui.views;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -36,13 +40,12 @@ import org.eclipse.jface.viewers.DoubleClickEvent;
 import org.eclipse.jface.viewers.IDoubleClickListener;
 import org.eclipse.jface.viewers.ISelectionChangedListener;
 import org.eclipse.jface.viewers.IStructuredSelection;
-import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
 import org.eclipse.jface.viewers.LabelProvider;
 import org.eclipse.jface.viewers.SelectionChangedEvent;
 import org.eclipse.jface.viewers.StructuredSelection;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.jface.viewers.Viewer;
-import org.eclipse.jface.viewers.ViewerFilter;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.CLabel;
 import org.eclipse.swt.custom.CTabFolder;
@@ -75,6 +78,8 @@ import com.piece_framework.makegood.core.result.Result;
 import com.piece_framework.makegood.core.result.TestCaseResult;
 import com.piece_framework.makegood.core.result.TestSuiteResult;
 import com.piece_framework.makegood.core.run.Failures;
+import com.piece_framework.makegood.core.run.Progress;
+import com.piece_framework.makegood.core.run.ResultArchive;
 import com.piece_framework.makegood.launch.CommandLineBuilder;
 import com.piece_framework.makegood.launch.MakeGoodLaunch;
 import com.piece_framework.makegood.launch.TestLifecycle;
@@ -139,15 +144,6 @@ public class ResultView extends ViewPart implements TestResultsLayoutChangeListe
     private ResultViewPartListener partListener = new ResultViewPartListener();
     private EditorOpener editorOpener = new EditorOpener();
 
-    private ViewerFilter failureViewFilter = new ViewerFilter() {
-        @Override
-        public boolean select(Viewer viewer, Object parentElement, Object element) {
-            if (!(element instanceof Result)) return false;
-            Result result = (Result) element;
-            return result.hasFailures() || result.hasErrors();
-        }
-    };
-
     /**
      * @since 1.3.0
      */
@@ -354,12 +350,13 @@ public class ResultView extends ViewPart implements TestResultsLayoutChangeListe
         super.dispose();
     }
 
+    /**
+     * Shows only failures or all results according to showOnlyFailures. The
+     * filtering is done by the content provider since the result tree is
+     * virtual.
+     */
     public void filterResults() {
-        if (showOnlyFailures) {
-            resultTreeViewer.addFilter(failureViewFilter);
-        } else {
-            resultTreeViewer.removeFilter(failureViewFilter);
-        }
+        refreshResultTree();
     }
 
     /**
@@ -379,24 +376,88 @@ public class ResultView extends ViewPart implements TestResultsLayoutChangeListe
         }
     }
 
+    /**
+     * Shows the result of an archived run instead of the last run. The result
+     * is not shown while running tests.
+     *
+     * @since 3.2.0
+     */
+    public void showArchivedResult(ResultArchive.Run run, TestSuiteResult result) {
+        if (TestLifecycle.isRunning()) return;
+
+        clear();
+        testLifecycle = null;
+
+        if (result.hasErrors() || result.hasFailures()) {
+            markAsFailed();
+        } else {
+            markAsPassed();
+        }
+        progressBar.update(100);
+
+        processTimeAverageLabel.setText(
+            TimeFormatter.format(result.getTestCount() == 0 ? 0 : result.getTime() / result.getTestCount()) +
+            "/" + //$NON-NLS-1$
+            Messages.MakeGoodView_averageTest
+        );
+        processTimeLabel.setText(
+            Messages.MakeGoodView_testTime +
+            ": " + //$NON-NLS-1$
+            TimeFormatter.format(result.getTime())
+        );
+        endTimeLabel.setText(
+            Messages.MakeGoodView_endTime +
+            ": " + //$NON-NLS-1$
+            new SimpleDateFormat("HH:mm:ss").format(run.getEndTime()) //$NON-NLS-1$
+        );
+        testCountLabel.setText(
+            Messages.MakeGoodView_testsLabel +
+            ": " + //$NON-NLS-1$
+            result.getTestCount() +
+            "/" + //$NON-NLS-1$
+            result.getAllTestCount()
+        );
+        passCountLabel.setCount(result.getPassCount());
+        failureCountLabel.setCount(result.getFailureCount());
+        errorCountLabel.setCount(result.getErrorCount());
+
+        additionalInformation.setMessage(
+            Messages.MakeGoodView_archivedResultLabel +
+            ": " + //$NON-NLS-1$
+            new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(run.getEndTime()) //$NON-NLS-1$
+        );
+        setContentDescription(additionalInformation.toString());
+
+        setTreeInput(result);
+    }
+
     void setTreeInput(TestSuiteResult result) {
         resultTreeViewer.setInput(result);
     }
 
-    void updateOnEndTestCase() {
+    /**
+     * @param changedResults the results which have been started or changed
+     *                       since the last update
+     */
+    void updateOnEndTestCase(Collection<Result> changedResults) {
         if (testLifecycle.getProgress().hasFailures()) {
             markAsFailed();
         } else {
             markAsPassed();
         }
 
+        updateTestCount();
         updateResult();
+        updateResultTree(changedResults);
     }
 
-    void updateOnStartTestCase(TestCaseResult testCase) {
+    /**
+     * @param changedResults the results which have been started or changed
+     *                       since the last update
+     */
+    void updateOnStartTestCase(Collection<Result> changedResults) {
         updateTestCount();
-
-        resultTreeViewer.refresh();
+        updateResultTree(changedResults);
     }
 
     void startTest(TestLifecycle testLifecycle) {
@@ -409,6 +470,7 @@ public class ResultView extends ViewPart implements TestResultsLayoutChangeListe
 
     void endTest() {
         updateResult();
+        refreshResultTree();
         updateEndTime();
 
         TreeItem topItem = resultTreeViewer.getTree().getTopItem();
@@ -531,9 +593,13 @@ public class ResultView extends ViewPart implements TestResultsLayoutChangeListe
     }
 
     private void moveToPreviousOrNextFailure(int direction) {
+        if (testLifecycle == null) return;
+
         Result selectedResult = (Result) ((IStructuredSelection) resultTreeViewer.getSelection()).getFirstElement();
         if (selectedResult == null) {
-            selectedResult = (Result) resultTreeViewer.getTree().getTopItem().getData();
+            TreeItem topItem = resultTreeViewer.getTree().getTopItem();
+            if (topItem == null || topItem.getData() == null) return;
+            selectedResult = (Result) topItem.getData();
         }
 
         TestCaseResult previousOrNextResult = testLifecycle.getFailures().find(selectedResult, direction);
@@ -550,10 +616,11 @@ public class ResultView extends ViewPart implements TestResultsLayoutChangeListe
     }
 
     private void updateResult() {
-        progressBar.update(testLifecycle.getProgress().calculateRate());
+        Progress.Snapshot progress = testLifecycle.getProgress().getSnapshot();
+        progressBar.update(progress.calculateRate());
 
         processTimeAverageLabel.setText(
-            TimeFormatter.format(testLifecycle.getProgress().calculateProcessTimeAverage()) +
+            TimeFormatter.format(progress.calculateProcessTimeAverage()) +
             "/" + //$NON-NLS-1$
             Messages.MakeGoodView_averageTest
         );
@@ -562,13 +629,48 @@ public class ResultView extends ViewPart implements TestResultsLayoutChangeListe
         processTimeLabel.setText(
             Messages.MakeGoodView_testTime +
             ": " + //$NON-NLS-1$
-            TimeFormatter.format(testLifecycle.getProgress().getProcessTime())
+            TimeFormatter.format(progress.getProcessTime())
         );
 
-        passCountLabel.setCount(testLifecycle.getProgress().getPassCount());
-        failureCountLabel.setCount(testLifecycle.getProgress().getFailureCount());
-        errorCountLabel.setCount(testLifecycle.getProgress().getErrorCount());
+        passCountLabel.setCount(progress.getPassCount());
+        failureCountLabel.setCount(progress.getFailureCount());
+        errorCountLabel.setCount(progress.getErrorCount());
+    }
 
+    /**
+     * Updates only the tree items for the given results and their ancestors
+     * instead of the whole tree. A result whose number of children has been
+     * changed is refreshed structurally, and others are relabeled.
+     *
+     * @since 3.2.0
+     */
+    private void updateResultTree(Collection<Result> changedResults) {
+        ResultTreeContentProvider contentProvider = (ResultTreeContentProvider) resultTreeViewer.getContentProvider();
+        Set<Result> updatedResults = Collections.newSetFromMap(new IdentityHashMap<Result, Boolean>());
+        for (Result changedResult: changedResults) {
+            for (Result result = changedResult; result != null; result = result.getParent()) {
+                if (!updatedResults.add(result)) break;
+
+                contentProvider.invalidateFilteredChildren(result);
+                if (result instanceof TestCaseResult) {
+                    resultTreeViewer.update(result, null);
+                } else if (contentProvider.isChildCountChanged(result)) {
+                    resultTreeViewer.refresh(result);
+                } else {
+                    resultTreeViewer.update(result, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Refreshes the whole result tree. The filtered children cached by the
+     * content provider are dropped since any result may have been changed.
+     *
+     * @since 3.2.0
+     */
+    private void refreshResultTree() {
+        ((ResultTreeContentProvider) resultTreeViewer.getContentProvider()).invalidateFilteredChildren();
         resultTreeViewer.refresh();
     }
 
@@ -583,12 +685,13 @@ public class ResultView extends ViewPart implements TestResultsLayoutChangeListe
 
     private void updateTestCount() {
         if (testLifecycle == null) return;
+        Progress.Snapshot progress = testLifecycle.getProgress().getSnapshot();
         testCountLabel.setText(
             Messages.MakeGoodView_testsLabel +
             ": " + //$NON-NLS-1$
-            testLifecycle.getProgress().getCurrentTestCount() +
+            progress.getCurrentTestCount() +
             "/" + //$NON-NLS-1$
-            testLifecycle.getProgress().getAllTestCount()
+            progress.getAllTestCount()
         );
     }
 
@@ -600,6 +703,7 @@ public class ResultView extends ViewPart implements TestResultsLayoutChangeListe
 
         if (testLifecycle != null) {
             updateResult();
+            refreshResultTree();
             updateElapsedTime();
             updateEndTime();
             updateTestCount();
@@ -660,6 +764,7 @@ public class ResultView extends ViewPart implements TestResultsLayoutChangeListe
      */
     private TreeViewer createTestResultsTreeViewer(Tree resultTree) {
         TreeViewer treeViewer = new TreeViewer(resultTree);
+        treeViewer.setUseHashlookup(true);
         treeViewer.setContentProvider(new ResultTreeContentProvider());
         treeViewer.setLabelProvider(new ResultTreeLabelProvider());
         treeViewer.addSelectionChangedListener(new ISelectionChangedListener() {
@@ -1078,28 +1183,63 @@ public class ResultView extends ViewPart implements TestResultsLayoutChangeListe
         public void partInputChanged(IWorkbenchPartReference partRef) {}
     }
 
-    private class ResultTreeContentProvider implements ITreeContentProvider {
-        @Override
-        public Object[] getChildren(Object parentElement) {
-            List<Result> children = new ArrayList<Result>(((Result) parentElement).getChildren());
-            Collections.reverse(children);
-            return children.toArray(new Result[ children.size() ]);
-        }
+    /**
+     * Provides the results to the virtual result tree in the reverse order so
+     * that the latest result is shown on the top. Only the results for the
+     * visible tree items are requested.
+     */
+    private class ResultTreeContentProvider implements ILazyTreeContentProvider {
+        /**
+         * @since 3.2.0
+         */
+        private TreeViewer viewer;
 
+        /**
+         * The number of children given to the viewer for each result.
+         *
+         * @since 3.2.0
+         */
+        private Map<Result, Integer> childCounts = new IdentityHashMap<Result, Integer>();
+
+        /**
+         * The failures and the errors in the children of each result, which
+         * are cached while only failures are shown so that the children are
+         * not filtered for each visible item. The cache of a result is
+         * dropped when it is changed.
+         *
+         * @since 3.2.0
+         */
+        private Map<Result, List<Result>> filteredChildren = new IdentityHashMap<Result, List<Result>>();
+
+        /**
+         * @since 3.2.0
+         */
         @Override
-        public Object getParent(Object element) {
-            return ((Result) element).getParent();
+        public void updateElement(Object parent, int index) {
+            List<Result> children = getChildren(parent);
+            if (index >= children.size()) return;
+            Result child = children.get(children.size() - 1 - index);
+            viewer.replace(parent, index, child);
+            updateChildCount(child, -1);
         }
 
+        /**
+         * @since 3.2.0
+         */
         @Override
-        public boolean hasChildren(Object element) {
-            if (!(element instanceof TestSuiteResult)) return false;
-            return ((TestSuiteResult) element).hasChildren();
+        public void updateChildCount(Object element, int currentChildCount) {
+            int childCount = getChildren(element).size();
+            if (element instanceof TestSuiteResult) {
+                childCounts.put((Result) element, childCount);
+            }
+            if (childCount != currentChildCount) {
+                viewer.setChildCount(element, childCount);
+            }
         }
 
         @Override
-        public Object[] getElements(Object inputElement) {
-            return getChildren(inputElement);
+        public Object getParent(Object element) {
+            return ((Result) element).getParent();
         }
 
         @Override
@@ -1108,6 +1248,57 @@ public class ResultView extends ViewPart implements TestResultsLayoutChangeListe
 
         @Override
         public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+            this.viewer = (TreeViewer) viewer;
+            childCounts.clear();
+            filteredChildren.clear();
+        }
+
+        /**
+         * @since 3.2.0
+         */
+        public void invalidateFilteredChildren(Result result) {
+            filteredChildren.remove(result);
+        }
+
+        /**
+         * @since 3.2.0
+         */
+        public void invalidateFilteredChildren() {
+            filteredChildren.clear();
+        }
+
+        /**
+         * Returns whether the number of children of the given result differs
+         * from the one given to the viewer. A result which has never been
+         * shown is regarded as unchanged.
+         *
+         * @since 3.2.0
+         */
+        public boolean isChildCountChanged(Result result) {
+            Integer childCount = childCounts.get(result);
+            if (childCount == null) return false;
+            return childCount.intValue() != getChildren(result).size();
+        }
+
+        /**
+         * @since 3.2.0
+         */
+        private List<Result> getChildren(Object element) {
+            if (element == null) return new ArrayList<Result>();
+            List<Result> children = ((Result) element).getChildren();
+            if (!showOnlyFailures) return children;
+
+            List<Result> failures = filteredChildren.get(element);
+            if (failures != null) return failures;
+
+            failures = new ArrayList<Result>();
+            for (Result child: children) {
+                if (child.hasFailures() || child.hasErrors()) {
+                    failures.add(child);
+                }
+            }
+            filteredChildren.put((Result) element, failures);
+            return failures;
         }
     }
 
@@ -1129,6 +1320,25 @@ public class ResultView extends ViewPart implements TestResultsLayoutChangeListe
         @Override
         public String getText(Object element) {
             Result result = (Result) element;
+            if (result instanceof TestSuiteResult && ((TestSuiteResult) result).isCached()) {
+                return result.getName() + " (" +  //$NON-NLS-1$
+                Messages.MakeGoodView_cachedLabel +
+                ", " + //$NON-NLS-1$
+                Messages.MakeGoodView_passesLabel +
+                ": " + //$NON-NLS-1$
+                ((TestSuiteResult) result).getPassCount() +
+                ")";  //$NON-NLS-1$
+            }
+            if (result instanceof TestSuiteResult && ((TestSuiteResult) result).getFoldedTestCount() > 0) {
+                return result.getName() + " (" +  //$NON-NLS-1$
+                TimeFormatter.format(result.getTime()) +
+                ", " + //$NON-NLS-1$
+                Messages.MakeGoodView_passesLabel +
+                ": " + //$NON-NLS-1$
+                ((TestSuiteResult) result).getPassCount() +
+                ")";  //$NON-NLS-1$
+            }
+
             return result.getName() + " (" +  //$NON-NLS-1$
             TimeFormatter.format(result.getTime()) +
             ")";  //$NON-NLS-1$
@@ -1283,7 +1493,7 @@ public class ResultView extends ViewPart implements TestResultsLayoutChangeListe
             testResultsTreeTabItem.setText(Messages.MakeGoodView_testResultsLabel);
             testResultsTreeTabItem.setImage(Activator.getImageDescriptor("icons/test_results.gif").createImage()); //$NON-NLS-1$
             setSelection(testResultsTreeTabItem);
-            Tree testResultsTree = new Tree(this, SWT.BORDER);
+            Tree testResultsTree = new Tree(this, SWT.BORDER | SWT.VIRTUAL);
             testResultsTree.setLayoutData(createBothFillGridData());
             testResultsTreeTabItem.setControl(testResultsTree);
             resultTreeViewer = createTestResultsTreeViewer(testResultsTree);
@@ -1314,7 +1524,7 @@ public class ResultView extends ViewPart implements TestResultsLayoutChangeListe
             Composite testResultsTreeComposite = new Composite(this, SWT.NONE);
             testResultsTreeComposite.setLayoutData(createHorizontalFillGridData());
             testResultsTreeComposite.setLayout(adjustLayout(new GridLayout(1, true)));
-            Tree testResultsTree = new Tree(testResultsTreeComposite, SWT.BORDER);
+            Tree testResultsTree = new Tree(testResultsTreeComposite, SWT.BORDER | SWT.VIRTUAL);
             testResultsTree.setLayoutData(createBothFillGridData());
             resultTreeViewer = createTestResultsTreeViewer(testResultsTree);
             testResultsTree.setLayoutData(createBothFillGridData());
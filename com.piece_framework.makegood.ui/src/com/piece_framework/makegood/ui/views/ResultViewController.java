@@ -12,6 +12,12 @@
 
 package com.piece_framework.makegood.ui.views;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -27,9 +33,13 @@ import org.eclipse.php.internal.debug.core.model.IPHPDebugTarget;
 import org.eclipse.ui.console.IConsoleConstants;
 import org.eclipse.ui.progress.UIJob;
 
+import com.piece_framework.makegood.core.preference.MakeGoodPreference;
+import com.piece_framework.makegood.core.result.Result;
 import com.piece_framework.makegood.core.result.TestCaseResult;
 import com.piece_framework.makegood.core.result.TestSuiteResult;
+import com.piece_framework.makegood.core.run.FatalErrorMessage;
 import com.piece_framework.makegood.core.run.ResultReaderListener;
+import com.piece_framework.makegood.core.run.ResumeTargets;
 import com.piece_framework.makegood.launch.MakeGoodLaunch;
 import com.piece_framework.makegood.launch.TestLifecycle;
 import com.piece_framework.makegood.ui.Activator;
@@ -47,6 +57,11 @@ public class ResultViewController implements IDebugEventSetListener {
     private static final String MAKEGOOD_RESULTVIEWCONTROLLER_MARKER_TERMINATE = "MAKEGOOD_RESULTVIEWCONTROLLER_MARKER_TERMINATE"; //$NON-NLS-1$
     private TestLifecycle testLifecycle;
 
+    /**
+     * @since 3.2.0
+     */
+    private ResultProjector resultProjector;
+
     @Override
     public void handleDebugEvents(DebugEvent[] events) {
         if (events == null) return;
@@ -63,6 +78,7 @@ public class ResultViewController implements IDebugEventSetListener {
             if (events[i].getKind() == DebugEvent.CREATE) {
                 handleCreateEvent((MakeGoodLaunch) launch);
             } else if (events[i].getKind() == DebugEvent.TERMINATE) {
+                if (!((MakeGoodLaunch) launch).isAllShardsTerminated()) continue;
                 handleTerminateEvent((MakeGoodLaunch) launch);
             }
         }
@@ -90,8 +106,9 @@ public class ResultViewController implements IDebugEventSetListener {
         markAsCreateEventFired(launch);
 
         testLifecycle = TestLifecycle.getInstance();
+        resultProjector = new ResultProjector(new MakeGoodPreference().getResultViewRefreshRate());
         try {
-            testLifecycle.initialize(new ResultProjector());
+            testLifecycle.initialize(resultProjector);
         } catch (CoreException e) {
             Activator.getDefault().getLog().log(new Status(Status.WARNING, Activator.PLUGIN_ID, e.getMessage(), e));
             return;
@@ -147,7 +164,9 @@ public class ResultViewController implements IDebugEventSetListener {
         Job job = new UIJob("MakeGood Test End") { //$NON-NLS-1$
             @Override
             public IStatus runInUIThread(IProgressMonitor monitor) {
+                ResumeTargets resumeTargets = null;
                 testLifecycle.end();
+                resultProjector.flush();
                 if (testLifecycle.getProgress().noTestsFound()) {
                     MakeGoodContext.getInstance().updateStatus(MakeGoodStatus.TestsNotFound);
                 } else {
@@ -181,7 +200,12 @@ public class ResultViewController implements IDebugEventSetListener {
                             resultView.markAsStopped();
                             resultView.expandResultTreeToResult(testLifecycle.getProgress().getResult().getLast());
                         }
-                        if (!StopTestRunAction.isStoppedByAction(launch)) {
+                        if (testLifecycle.getHangWatchdog() != null && testLifecycle.getHangWatchdog().getHungTestCase() != null) {
+                            resumeTargets = createResumeTargets(
+                                testLifecycle.getHangWatchdog().getHungTestCase(),
+                                testLifecycle.getHangWatchdog().getHungTestCaseMessage()
+                            );
+                        } else if (!StopTestRunAction.isStoppedByAction(launch)) {
                             FatalErrorMarkerFactory markerFactory = new FatalErrorMarkerFactory();
                             try {
                                 IMarker marker = markerFactory.create(launch.getStreamOutput());
@@ -197,6 +221,10 @@ public class ResultViewController implements IDebugEventSetListener {
                                 Activator.getDefault().getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, e.getMessage(), e));
                                 ViewOpener.open(IConsoleConstants.ID_CONSOLE_VIEW);
                             }
+                            if (new MakeGoodPreference().getResumeAfterFatalError()) {
+                                FatalErrorMessage fatalErrorMessage = FatalErrorMessage.parse(launch.getStreamOutput());
+                                resumeTargets = createResumeTargets(null, fatalErrorMessage == null ? null : fatalErrorMessage.getMessage());
+                            }
                         }
                     }
                 } catch (DebugException e) {
@@ -204,6 +232,9 @@ public class ResultViewController implements IDebugEventSetListener {
                 }
 
                 TestLifecycle.destroy();
+                if (resumeTargets != null) {
+                    MakeGoodContext.getInstance().getTestRunner().resumeLastTest(resumeTargets);
+                }
 
                 return Status.OK_STATUS;
             }
@@ -211,6 +242,32 @@ public class ResultViewController implements IDebugEventSetListener {
         job.schedule();
     }
 
+    /**
+     * Returns the tests to resume the run killed by a fatal error or by the
+     * hang watchdog, or null if the run should not be resumed. The run is not
+     * resumed if no test case was running when it was killed, or if it has
+     * resumed a run and has crashed on a test which has already been reported
+     * or without reporting any new test, so as not to repeat the same crash
+     * forever. The given crashed test case, or the last running
+     * one if it is null, is marked as an error with the given message. The
+     * test cases interrupted on the other shards are removed so as to be run
+     * again.
+     *
+     * @since 3.2.0
+     */
+    private ResumeTargets createResumeTargets(TestCaseResult crashedTestCase, String message) {
+        if (testLifecycle.getProgress().getResult() == null) return null;
+
+        ResumeTargets resumeTargets = new ResumeTargets(testLifecycle.getProgress().getResult(), crashedTestCase);
+        if (resumeTargets.getCrashedTestCase() == null) return null;
+
+        resumeTargets.markCrashedTestCaseAsError(message);
+        resumeTargets.removeInterruptedTestCases();
+        if (!resumeTargets.isResumable(testLifecycle.getResumeTargets())) return null;
+
+        return resumeTargets;
+    }
+
     /**
      * @since 2.2.0
      */
@@ -242,7 +299,56 @@ public class ResultViewController implements IDebugEventSetListener {
         return Boolean.TRUE.toString().equals(isTerminated);
     }
 
+    /**
+     * Projects the events from the result reader onto the Result view.
+     *
+     * The events are accumulated on the reader thread and flushed to the UI
+     * thread by a single ResultUpdateUIJob, which is scheduled at most
+     * refreshRate times per second.
+     */
     public class ResultProjector implements ResultReaderListener {
+        /**
+         * @since 3.2.0
+         */
+        private long refreshInterval;
+
+        /**
+         * @since 3.2.0
+         */
+        private long lastFlushTime;
+
+        /**
+         * @since 3.2.0
+         */
+        private boolean updateScheduled = false;
+
+        /**
+         * @since 3.2.0
+         */
+        private TestSuiteResult firstTestSuite;
+
+        /**
+         * @since 3.2.0
+         */
+        private Set<Result> changedResults = createResultSet();
+
+        /**
+         * @since 3.2.0
+         */
+        private boolean testCaseEnded = false;
+
+        /**
+         * @since 3.2.0
+         */
+        private List<TestCaseResult> failures = new ArrayList<TestCaseResult>();
+
+        /**
+         * @since 3.2.0
+         */
+        public ResultProjector(int refreshRate) {
+            refreshInterval = 1000 / Math.max(refreshRate, 1);
+        }
+
         @Override
         public void startTestSuite(TestSuiteResult testSuite) {
         }
@@ -252,42 +358,28 @@ public class ResultViewController implements IDebugEventSetListener {
         }
 
         @Override
-        public void startTestCase(final TestCaseResult testCase) {
-            Job job = new UIJob("MakeGood Test Case Start") { //$NON-NLS-1$
-                @Override
-                public IStatus runInUIThread(IProgressMonitor monitor) {
-                    ResultView resultView = (ResultView) ViewOpener.find(ResultView.VIEW_ID);
-                    if (resultView != null) {
-                        resultView.updateOnStartTestCase(testCase);
-                    }
-                    return Status.OK_STATUS;
-                }
-            };
-            job.schedule();
+        public void startTestCase(TestCaseResult testCase) {
+            synchronized (this) {
+                changedResults.add(testCase);
+            }
+            scheduleUpdate();
         }
 
         @Override
-        public void endTestCase(final TestCaseResult testCase) {
-            if (Job.getJobManager().find(testLifecycle).length == 0) {
-                EndTestCaseUIJob job = new EndTestCaseUIJob("MakeGood Test Case End", testLifecycle); //$NON-NLS-1$
-                job.schedule();
+        public void endTestCase(TestCaseResult testCase) {
+            synchronized (this) {
+                changedResults.add(testCase);
+                testCaseEnded = true;
             }
+            scheduleUpdate();
         }
 
         @Override
-        public void startFailure(final TestCaseResult failure) {
-            Job job = new UIJob("MakeGood Marker Create") { //$NON-NLS-1$
-                @Override
-                public IStatus runInUIThread(IProgressMonitor monitor) {
-                    try {
-                        new TestMarkerFactory().create(failure);
-                    } catch (CoreException e) {
-                        Activator.getDefault().getLog().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, e.getMessage(), e));
-                    }
-                    return Status.OK_STATUS;
-                }
-            };
-            job.schedule();
+        public void startFailure(TestCaseResult failure) {
+            synchronized (this) {
+                failures.add(failure);
+            }
+            scheduleUpdate();
         }
 
         @Override
@@ -324,38 +416,97 @@ public class ResultViewController implements IDebugEventSetListener {
          * @since 1.7.0
          */
         @Override
-        public void onFirstTestSuite(final TestSuiteResult testSuite) {
-            Job job = new UIJob("MakeGood Result Tree Set") { //$NON-NLS-1$
-                @Override
-                public IStatus runInUIThread(IProgressMonitor monitor) {
-                    ResultView resultView = (ResultView) ViewOpener.find(ResultView.VIEW_ID);
-                    if (resultView != null) {
-                        resultView.setTreeInput(testSuite);
-                    }
-                    return Status.OK_STATUS;
+        public void onFirstTestSuite(TestSuiteResult testSuite) {
+            synchronized (this) {
+                firstTestSuite = testSuite;
+            }
+            scheduleUpdate();
+        }
+
+        /**
+         * Applies all the events accumulated since the last flush to the
+         * Result view. This method should be called in the UI thread.
+         *
+         * @since 3.2.0
+         */
+        void flush() {
+            TestSuiteResult firstTestSuite;
+            Set<Result> changedResults;
+            boolean testCaseEnded;
+            List<TestCaseResult> failures;
+            synchronized (this) {
+                firstTestSuite = this.firstTestSuite;
+                changedResults = this.changedResults;
+                testCaseEnded = this.testCaseEnded;
+                failures = this.failures;
+                this.firstTestSuite = null;
+                this.changedResults = createResultSet();
+                this.testCaseEnded = false;
+                this.failures = new ArrayList<TestCaseResult>();
+                updateScheduled = false;
+                lastFlushTime = System.currentTimeMillis();
+            }
+
+            for (TestCaseResult failure: failures) {
+                try {
+                    new TestMarkerFactory().create(failure);
+                } catch (CoreException e) {
+                    Activator.getDefault().getLog().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, e.getMessage(), e));
                 }
-            };
-            job.schedule();
+            }
+
+            ResultView resultView = (ResultView) ViewOpener.find(ResultView.VIEW_ID);
+            if (resultView == null) return;
+
+            if (firstTestSuite != null) {
+                resultView.setTreeInput(firstTestSuite);
+            }
+
+            if (testCaseEnded) {
+                resultView.updateOnEndTestCase(changedResults);
+            } else if (!changedResults.isEmpty()) {
+                resultView.updateOnStartTestCase(changedResults);
+            }
+        }
+
+        /**
+         * @since 3.2.0
+         */
+        private Set<Result> createResultSet() {
+            return Collections.newSetFromMap(new IdentityHashMap<Result, Boolean>());
+        }
+
+        /**
+         * @since 3.2.0
+         */
+        private void scheduleUpdate() {
+            long delay;
+            synchronized (this) {
+                if (updateScheduled) return;
+                updateScheduled = true;
+                delay = Math.max(lastFlushTime + refreshInterval - System.currentTimeMillis(), 0);
+            }
+
+            new ResultUpdateUIJob("MakeGood Result Update", testLifecycle, this).schedule(delay); //$NON-NLS-1$
         }
     }
 
     /**
-     * @since 1.9.0
+     * @since 3.2.0
      */
-    private class EndTestCaseUIJob extends UIJob {
+    private class ResultUpdateUIJob extends UIJob {
         private TestLifecycle testLifecycle;
+        private ResultProjector resultProjector;
 
-        public EndTestCaseUIJob(String name, TestLifecycle testLifecycle) {
+        public ResultUpdateUIJob(String name, TestLifecycle testLifecycle, ResultProjector resultProjector) {
             super(name);
             this.testLifecycle = testLifecycle;
+            this.resultProjector = resultProjector;
         }
 
         @Override
         public IStatus runInUIThread(IProgressMonitor monitor) {
-            ResultView resultView = (ResultView) ViewOpener.find(ResultView.VIEW_ID);
-            if (resultView != null) {
-                resultView.updateOnEndTestCase();
-            }
+            resultProjector.flush();
             return Status.OK_STATUS;
         }
 